@@ -0,0 +1,52 @@
+package com.pasichenko.banking.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Draws account indexes uniformly or Zipf-distributed (rank k with weight 1 / k^exponent), so a
+// handful of accounts take most of the traffic the way payroll or merchant accounts do.
+final class AccountPicker {
+
+    private final int accounts;
+    private final double[] cumulative;
+
+    private AccountPicker(int accounts, double[] cumulative) {
+        this.accounts = accounts;
+        this.cumulative = cumulative;
+    }
+
+    static AccountPicker uniform(int accounts) {
+        return new AccountPicker(accounts, null);
+    }
+
+    static AccountPicker zipf(int accounts, double exponent) {
+        double[] cumulative = new double[accounts];
+        double sum = 0;
+        for (int rank = 1; rank <= accounts; rank++) {
+            sum += 1.0 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < accounts; i++) {
+            cumulative[i] /= sum;
+        }
+        return new AccountPicker(accounts, cumulative);
+    }
+
+    int next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (cumulative == null) {
+            return random.nextInt(accounts);
+        }
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, accounts - 1);
+    }
+
+    // A second, different account for the other side of a transfer.
+    int nextOtherThan(int account) {
+        int other;
+        do {
+            other = next();
+        } while (other == account);
+        return other;
+    }
+}
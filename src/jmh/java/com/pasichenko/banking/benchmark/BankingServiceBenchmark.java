@@ -0,0 +1,179 @@
+package com.pasichenko.banking.benchmark;
+
+import com.pasichenko.banking.BankingApplication;
+import com.pasichenko.banking.service.BankingService;
+import com.pasichenko.banking.service.impl.AccountLookupCache;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleObjectStateException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// BankingService operations against a real Postgres, with the whole application context (retry,
+// transactions, outbox trigger, metrics) in place. Thread count comes from -t; the account count,
+// Zipf exponent and execution mode from -p. Besides ops/s, every iteration reports how many attempts
+// hit an optimistic-lock conflict and how many operations failed (retries exhausted, lock timeouts).
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(4)
+public class BankingServiceBenchmark {
+
+    private static final long AMOUNT = 1_00;
+
+    @State(Scope.Benchmark)
+    public static class Bank {
+
+        @Param({"1000"})
+        public int accounts;
+
+        @Param({"1.1"})
+        public double zipfExponent;
+
+        @Param({"OPTIMISTIC"})
+        public String mode;
+
+        BankingService bankingService;
+        String[] accountNumbers;
+        AccountPicker uniform;
+        AccountPicker zipf;
+
+        private BenchmarkDatabase database;
+        private ConfigurableApplicationContext context;
+
+        @Setup(Level.Trial)
+        public void start() throws Exception {
+            database = BenchmarkDatabase.start();
+            List<String> arguments = new ArrayList<>(List.of(database.springArguments()));
+            arguments.add("--banking.execution.mode=" + mode);
+            // a handful of hot accounts would hit any realistic velocity limit within a second
+            arguments.add("--banking.limits.enabled=false");
+            arguments.add("--logging.level.com.pasichenko=WARN");
+            context = new SpringApplicationBuilder(BankingApplication.class, RetryCounting.class)
+                    .web(WebApplicationType.NONE)
+                    .run(arguments.toArray(String[]::new));
+            accountNumbers = BenchmarkAccounts.seed(context.getBean(JdbcTemplate.class), accounts);
+            awaitVisible(context.getBean(AccountLookupCache.class), accountNumbers[accounts - 1]);
+            bankingService = context.getBean(BankingService.class);
+            uniform = AccountPicker.uniform(accounts);
+            zipf = AccountPicker.zipf(accounts, zipfExponent);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws Exception {
+            context.close();
+            database.close();
+        }
+
+        // new accounts reach the account number filter through LISTEN/NOTIFY
+        private static void awaitVisible(AccountLookupCache cache, String accountNumber) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (cache.resolve(accountNumber).isEmpty()) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Seeded accounts never became visible");
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    // Reported next to ops/s as totals over all threads of an iteration.
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcomes {
+
+        public long conflictRetries;
+        public long failures;
+
+        @Setup(Level.Iteration)
+        public void attach() {
+            conflictRetries = 0;
+            failures = 0;
+            RetryCounting.CURRENT.set(this);
+        }
+    }
+
+    @Benchmark
+    public void deposit(Bank bank, Outcomes outcomes) {
+        try {
+            bank.bankingService.deposit(bank.accountNumbers[0], AMOUNT);
+        } catch (RuntimeException e) {
+            outcomes.failures++;
+        }
+    }
+
+    @Benchmark
+    public void uniformTransfer(Bank bank, Outcomes outcomes) {
+        transfer(bank, bank.uniform, outcomes);
+    }
+
+    @Benchmark
+    public void zipfTransfer(Bank bank, Outcomes outcomes) {
+        transfer(bank, bank.zipf, outcomes);
+    }
+
+    private static void transfer(Bank bank, AccountPicker picker, Outcomes outcomes) {
+        int from = picker.next();
+        int to = picker.nextOtherThan(from);
+        try {
+            bank.bankingService.transfer(bank.accountNumbers[from], bank.accountNumbers[to], AMOUNT);
+        } catch (RuntimeException e) {
+            outcomes.failures++;
+        }
+    }
+
+    // Extra global retry listener: each conflicting attempt is charged to the benchmark thread running it.
+    @Configuration(proxyBeanMethods = false)
+    static class RetryCounting {
+
+        static final ThreadLocal<Outcomes> CURRENT = new ThreadLocal<>();
+
+        @Bean
+        RetryListener benchmarkRetryCounter() {
+            return new RetryListener() {
+                @Override
+                public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback,
+                                                             Throwable throwable) {
+                    Outcomes outcomes = CURRENT.get();
+                    if (outcomes != null && isConflict(throwable)) {
+                        outcomes.conflictRetries++;
+                    }
+                }
+            };
+        }
+
+        private static boolean isConflict(Throwable throwable) {
+            return throwable instanceof OptimisticLockingFailureException
+                    || throwable instanceof OptimisticLockException
+                    || throwable instanceof StaleObjectStateException;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.pasichenko.banking.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Accounts shared by the JMH benchmarks and the load generator: numbers 9000000000 and up, ids from
+// 1000000, clear of the mock rows. Seeding again tops every balance back up.
+final class BenchmarkAccounts {
+
+    private static final int FIRST_ID = 1_000_000;
+
+    private BenchmarkAccounts() {
+    }
+
+    static String number(int index) {
+        return String.format("9%09d", index);
+    }
+
+    static String[] seed(JdbcTemplate jdbcTemplate, int accounts) {
+        jdbcTemplate.update("INSERT INTO users (id, full_name, email, phone) " +
+                "VALUES (?, 'Benchmark', 'bench@example.com', '+0000000000') ON CONFLICT DO NOTHING", FIRST_ID);
+        List<Object[]> rows = new ArrayList<>(accounts);
+        String[] numbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            numbers[i] = number(i);
+            rows.add(new Object[]{FIRST_ID + i, FIRST_ID, numbers[i]});
+        }
+        // a reset balance moves the opening balance along, so reconciliation still sees the history add up
+        jdbcTemplate.batchUpdate("INSERT INTO accounts (id, user_id, account_number, account_type, balance, opening_balance) " +
+                "VALUES (?, ?, ?, 'CHECKING', 100000000000, 100000000000) " +
+                "ON CONFLICT (id) DO UPDATE SET balance = 100000000000, " +
+                "opening_balance = accounts.opening_balance + 100000000000 - accounts.balance", rows);
+        return numbers;
+    }
+}
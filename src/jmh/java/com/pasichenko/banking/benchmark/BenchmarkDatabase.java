@@ -0,0 +1,49 @@
+package com.pasichenko.banking.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+
+// Postgres the benchmarks run against: an embedded server started from the zonky binaries (no
+// Docker needed), or an existing one when -Dbanking.bench.jdbc-url is given. Postgres refuses to
+// run as root, so root-run CI must point at an external server.
+final class BenchmarkDatabase implements AutoCloseable {
+
+    private final EmbeddedPostgres embedded;
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+
+    private BenchmarkDatabase(EmbeddedPostgres embedded, String jdbcUrl, String username, String password) {
+        this.embedded = embedded;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+    }
+
+    static BenchmarkDatabase start() throws IOException {
+        String url = System.getProperty("banking.bench.jdbc-url");
+        if (url != null) {
+            return new BenchmarkDatabase(null, url,
+                    System.getProperty("banking.bench.username", "postgres"),
+                    System.getProperty("banking.bench.password", "postgres"));
+        }
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        return new BenchmarkDatabase(postgres, postgres.getJdbcUrl("postgres", "postgres"), "postgres", "postgres");
+    }
+
+    String[] springArguments() {
+        return new String[]{
+                "--spring.datasource.url=" + jdbcUrl,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.pasichenko.banking.benchmark;
+
+import com.pasichenko.banking.config.HotAccountProperties;
+import com.pasichenko.banking.service.impl.HotAccountTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// The hot-account sketch on its own, offered from every request thread at once: the cost the
+// instrumentation adds to each operation, without the database noise that hides it end to end.
+// Compare -t 1 against -t with the core count; with one shared lock the per-offer time grows with
+// the threads, with the striped sketch it should stay flat.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class HotAccountTrackerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Tracker {
+
+        @Param({"100000"})
+        public int accounts;
+
+        @Param({"1.1"})
+        public double zipfExponent;
+
+        HotAccountTracker tracker;
+        String[] accountNumbers;
+        AccountPicker zipf;
+
+        @Setup
+        public void start() {
+            tracker = new HotAccountTracker(new HotAccountProperties(), new SimpleMeterRegistry());
+            accountNumbers = new String[accounts];
+            for (int i = 0; i < accounts; i++) {
+                accountNumbers[i] = Long.toString(9_000_000_000L + i);
+            }
+            zipf = AccountPicker.zipf(accounts, zipfExponent);
+        }
+    }
+
+    @Benchmark
+    public void recordOperation(Tracker tracker) {
+        tracker.tracker.recordOperation(tracker.accountNumbers[tracker.zipf.next()]);
+    }
+}
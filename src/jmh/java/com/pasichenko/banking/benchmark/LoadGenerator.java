@@ -0,0 +1,298 @@
+package com.pasichenko.banking.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+// End-to-end load against the HTTP API: seeds its own accounts, drives deposit/withdraw/transfer
+// in an open loop (fixed arrival rate) or a closed loop (clients calling back to back), and reports
+// latency percentiles, HTTP outcomes and the server's retry counters per operation.
+//
+// Latency is measured from when a request was due, not from when it was sent, so a stalled server
+// cannot hide its queueing delay (coordinated omission). The open loop and a paced closed loop have
+// a schedule to measure against. An unpaced closed loop has none, so HdrHistogram back-fills the
+// requests a slow call held up, taking the median warm-up latency as the expected interval.
+public final class LoadGenerator {
+
+    private static final long MAX_LATENCY_MICROS = Duration.ofMinutes(10).toNanos() / 1000;
+
+    private final LoadOptions options;
+    private final String[] accounts;
+    private final AccountPicker picker;
+    private final Operation[] mix;
+    private final HttpClient http;
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, Map<String, LongAdder>> outcomes = new EnumMap<>(Operation.class);
+
+    private final Histogram warmupLatencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+    private volatile long measureFrom;
+    private volatile long expectedIntervalMicros = -1;
+
+    LoadGenerator(LoadOptions options, String[] accounts) {
+        this.options = options;
+        this.accounts = accounts;
+        this.picker = options.picker();
+        this.mix = expand(options.mix());
+        this.http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+            outcomes.put(operation, new ConcurrentHashMap<>());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        System.out.println("Seeding " + options.accounts() + " accounts");
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(options.jdbcUrl(), options.username(), options.password());
+        String[] accounts = BenchmarkAccounts.seed(new JdbcTemplate(dataSource), options.accounts());
+        LoadGenerator generator = new LoadGenerator(options, accounts);
+        generator.awaitVisible(accounts[accounts.length - 1]);
+
+        System.out.println("Running " + options.describe());
+        // server counters are compared from the end of the warm-up, like the latencies
+        CompletableFuture<Map<String, Double>> before = CompletableFuture.supplyAsync(
+                () -> ServerRetries.scrape(generator.http, options.baseUrl()),
+                CompletableFuture.delayedExecutor(options.warmup().toMillis(), TimeUnit.MILLISECONDS));
+        long elapsed = options.openLoop() ? generator.runOpenLoop() : generator.runClosedLoop();
+        Map<String, Double> after = ServerRetries.scrape(generator.http, options.baseUrl());
+        generator.report(System.out, elapsed, ServerRetries.delta(before.join(), after));
+    }
+
+    // Requests are due every 1/rate seconds whatever the server does; each one runs on its own
+    // virtual thread. Only --max-in-flight stalls the schedule, and the stall shows up as latency.
+    long runOpenLoop() throws InterruptedException {
+        long interval = 1_000_000_000L / options.rate();
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+        long start = System.nanoTime();
+        measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long due = start + i * interval;
+                if (due >= end) {
+                    break;
+                }
+                parkUntil(due);
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        call(due);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        return end - measureFrom;
+    }
+
+    // With --rate each client keeps its own schedule of clients/rate intervals; without, the next
+    // call starts when the previous one returns.
+    long runClosedLoop() throws InterruptedException {
+        long interval = options.rate() > 0 ? 1_000_000_000L * options.clients() / options.rate() : 0;
+        long start = System.nanoTime();
+        measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < options.clients(); client++) {
+                long offset = interval * client / options.clients();
+                executor.execute(() -> {
+                    long due = start + offset;
+                    while (due < end) {
+                        if (interval > 0) {
+                            parkUntil(due);
+                        } else {
+                            due = System.nanoTime();
+                        }
+                        call(due);
+                        due += interval;
+                    }
+                });
+            }
+        }
+        return end - measureFrom;
+    }
+
+    private void call(long due) {
+        Operation operation = mix[ThreadLocalRandom.current().nextInt(mix.length)];
+        String outcome;
+        try {
+            HttpResponse<Void> response = http.send(request(operation), HttpResponse.BodyHandlers.discarding());
+            outcome = Integer.toString(response.statusCode());
+        } catch (IOException e) {
+            outcome = e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long latencyMicros = Math.min((System.nanoTime() - due) / 1000, MAX_LATENCY_MICROS);
+        if (due < measureFrom) {
+            warmupLatencies.recordValue(latencyMicros);
+            return;
+        }
+        Histogram histogram = latencies.get(operation);
+        if (isScheduled()) {
+            histogram.recordValue(latencyMicros);
+        } else {
+            histogram.recordValueWithExpectedInterval(latencyMicros, expectedIntervalMicros());
+        }
+        outcomes.get(operation).computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    private HttpRequest request(Operation operation) {
+        int account = picker.next();
+        String body = switch (operation) {
+            case DEPOSIT, WITHDRAW -> "{\"accountNumber\":\"" + accounts[account] + "\",\"amount\":1}";
+            case TRANSFER -> "{\"fromAccountNumber\":\"" + accounts[account] + "\",\"toAccountNumber\":\""
+                    + accounts[picker.nextOtherThan(account)] + "\",\"amount\":1}";
+        };
+        return HttpRequest.newBuilder(URI.create(options.baseUrl() + operation.path))
+                .timeout(options.timeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    void report(PrintStream out, long elapsedNanos, Map<String, Double> serverRetries) throws IOException {
+        // histogram counts include the samples back-filled for coordinated omission, so count responses
+        long total = 0;
+        for (Operation operation : Operation.values()) {
+            total += responses(operation);
+        }
+        out.printf("%n%d requests in %.1fs, %.1f req/s%s%n", total, elapsedNanos / 1e9, total / (elapsedNanos / 1e9),
+                options.openLoop() ? " (target " + options.rate() + ")" : "");
+        out.printf("%-9s %9s %9s %9s %9s %9s %9s   latency in ms%n", "operation", "count", "p50", "p90", "p99", "p99.9", "max");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            out.printf("%-9s %9d %9.2f %9.2f %9.2f %9.2f %9.2f%n", operation.name().toLowerCase(), responses(operation),
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0);
+        }
+        if (!isScheduled()) {
+            out.printf("(unpaced closed loop: corrected for coordinated omission with an expected interval of %.2f ms)%n",
+                    expectedIntervalMicros() / 1000.0);
+        }
+
+        out.println("\nResponses");
+        for (Operation operation : Operation.values()) {
+            if (!outcomes.get(operation).isEmpty()) {
+                Map<String, Long> counts = new TreeMap<>();
+                outcomes.get(operation).forEach((status, count) -> counts.put(status, count.sum()));
+                out.printf("%-9s %s%n", operation.name().toLowerCase(), counts);
+            }
+        }
+
+        out.println("\nServer retries (from /actuator/prometheus)");
+        if (serverRetries.isEmpty()) {
+            out.println("not available");
+        }
+        for (Operation operation : Operation.values()) {
+            String tag = operation.name().toLowerCase();
+            double operations = serverRetries.getOrDefault("operations:" + tag, 0.0);
+            if (operations > 0) {
+                out.printf("%-9s %.0f operations, %.0f conflicts, %.3f attempts/operation, %.0f gave up on conflicts%n", tag,
+                        operations, serverRetries.getOrDefault("conflicts:" + tag, 0.0),
+                        serverRetries.getOrDefault("attempts:" + tag, 0.0) / operations,
+                        serverRetries.getOrDefault("exhausted:" + tag, 0.0));
+            }
+        }
+
+        if (options.hgrmDir() != null) {
+            Path dir = Files.createDirectories(Path.of(options.hgrmDir()));
+            for (Operation operation : Operation.values()) {
+                if (latencies.get(operation).getTotalCount() > 0) {
+                    try (PrintStream file = new PrintStream(Files.newOutputStream(dir.resolve(operation.name().toLowerCase() + ".hgrm")))) {
+                        latencies.get(operation).outputPercentileDistribution(file, 1000.0);
+                    }
+                }
+            }
+            out.println("\nPercentile distributions (ms) written to " + dir);
+        }
+    }
+
+    // seeded accounts reach the application's account number filter through LISTEN/NOTIFY
+    private void awaitVisible(String accountNumber) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create(options.baseUrl() + "/banking/accounts/" + accountNumber + "/balance")).GET().build();
+        for (int i = 0; i < 300; i++) {
+            if (http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Seeded accounts are not visible to " + options.baseUrl());
+    }
+
+    private long responses(Operation operation) {
+        return outcomes.get(operation).values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    private boolean isScheduled() {
+        return options.openLoop() || options.rate() > 0;
+    }
+
+    // 0 (no back-filling) without a warm-up to take it from
+    private long expectedIntervalMicros() {
+        if (expectedIntervalMicros < 0) {
+            expectedIntervalMicros = warmupLatencies.getValueAtPercentile(50);
+        }
+        return expectedIntervalMicros;
+    }
+
+    private static void parkUntil(long due) {
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private static Operation[] expand(Map<Operation, Integer> weights) {
+        return weights.entrySet().stream()
+                .flatMap(entry -> Stream.generate(entry::getKey).limit(entry.getValue()))
+                .toArray(Operation[]::new);
+    }
+
+    enum Operation {
+        DEPOSIT("/banking/deposit"),
+        WITHDRAW("/banking/withdraw"),
+        TRANSFER("/banking/transfer");
+
+        private final String path;
+
+        Operation(String path) {
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.pasichenko.banking.benchmark;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Command line of LoadGenerator, every option as --name=value.
+record LoadOptions(String baseUrl, String jdbcUrl, String username, String password,
+                   boolean openLoop, int rate, int clients, int maxInFlight,
+                   Duration warmup, Duration duration, Duration timeout,
+                   int accounts, String distribution, double zipfExponent,
+                   Map<LoadGenerator.Operation, Integer> mix, String hgrmDir) {
+
+    static final String USAGE = """
+            --base-url=http://localhost:8080   application under test
+            --jdbc-url=jdbc:postgresql://localhost:5432/banking --username=... --password=...
+                                               database the accounts are seeded into
+            --mode=open|closed                 open: fixed arrival rate; closed: --clients back-to-back callers
+            --rate=500                         requests/s (open: required; closed: optional pacing)
+            --clients=16                       closed-loop callers
+            --max-in-flight=10000              open loop: outstanding requests before the schedule blocks
+            --warmup=10s --duration=60s --timeout=30s
+            --accounts=1000                    accounts seeded and targeted
+            --distribution=uniform|zipf|hot-pair
+            --zipf-exponent=1.1
+            --mix=transfer:80,deposit:10,withdraw:10
+            --hgrm-dir=DIR                     also write one .hgrm percentile file per operation
+            """;
+
+    static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg + "\n" + USAGE);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        String mode = values.getOrDefault("mode", "open");
+        if (!mode.equals("open") && !mode.equals("closed")) {
+            throw new IllegalArgumentException("Unknown mode " + mode + "\n" + USAGE);
+        }
+        String distribution = values.getOrDefault("distribution", "uniform");
+        if (!distribution.equals("uniform") && !distribution.equals("zipf") && !distribution.equals("hot-pair")) {
+            throw new IllegalArgumentException("Unknown distribution " + distribution + "\n" + USAGE);
+        }
+        LoadOptions options = new LoadOptions(
+                values.getOrDefault("base-url", "http://localhost:8080"),
+                values.getOrDefault("jdbc-url", "jdbc:postgresql://localhost:5432/banking"),
+                values.getOrDefault("username", "testuser"),
+                values.getOrDefault("password", "testpass"),
+                mode.equals("open"),
+                Integer.parseInt(values.getOrDefault("rate", mode.equals("open") ? "500" : "0")),
+                Integer.parseInt(values.getOrDefault("clients", "16")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "10000")),
+                duration(values.getOrDefault("warmup", "10s")),
+                duration(values.getOrDefault("duration", "60s")),
+                duration(values.getOrDefault("timeout", "30s")),
+                Integer.parseInt(values.getOrDefault("accounts", "1000")),
+                distribution,
+                Double.parseDouble(values.getOrDefault("zipf-exponent", "1.1")),
+                mix(values.getOrDefault("mix", "transfer:80,deposit:10,withdraw:10")),
+                values.get("hgrm-dir"));
+        if (options.openLoop && options.rate <= 0) {
+            throw new IllegalArgumentException("Open loop needs --rate\n" + USAGE);
+        }
+        if (options.accounts < 2) {
+            throw new IllegalArgumentException("Transfers need at least 2 accounts");
+        }
+        return options;
+    }
+
+    AccountPicker picker() {
+        return switch (distribution) {
+            case "zipf" -> AccountPicker.zipf(accounts, zipfExponent);
+            case "hot-pair" -> AccountPicker.uniform(2);
+            default -> AccountPicker.uniform(accounts);
+        };
+    }
+
+    String describe() {
+        return (openLoop ? "open loop, " + rate + " req/s" : "closed loop, " + clients + " clients"
+                + (rate > 0 ? " paced to " + rate + " req/s" : ""))
+                + ", " + accounts + " accounts, " + distribution
+                + (distribution.equals("zipf") ? "(" + zipfExponent + ")" : "")
+                + ", mix " + mix + ", warmup " + warmup.toSeconds() + "s, measured " + duration.toSeconds() + "s";
+    }
+
+    // 10s, 500ms, 2m
+    private static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            default -> throw new IllegalArgumentException("Unknown duration " + value);
+        };
+    }
+
+    private static Map<LoadGenerator.Operation, Integer> mix(String value) {
+        Map<LoadGenerator.Operation, Integer> weights = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] weight = part.split(":");
+            weights.put(LoadGenerator.Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+        return weights;
+    }
+}
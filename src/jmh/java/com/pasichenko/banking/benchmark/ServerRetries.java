@@ -0,0 +1,66 @@
+package com.pasichenko.banking.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Reads the retry counters of the operation metrics from /actuator/prometheus, keyed
+// "<counter>:<operation>". Only the @Retryable BankingService paths are counted there, so runs
+// with coalescing on report fewer operations than were sent.
+final class ServerRetries {
+
+    private static final Pattern SAMPLE = Pattern.compile(
+            "^(banking_operation_conflicts_total|banking_operation_attempts_sum|banking_operation_attempts_count"
+                    + "|banking_operation_duration_seconds_count)\\{([^}]*)} (\\S+)$", Pattern.MULTILINE);
+    private static final Pattern OPERATION = Pattern.compile("operation=\"([a-z]+)\"");
+
+    private ServerRetries() {
+    }
+
+    static Map<String, Double> scrape(HttpClient http, String baseUrl) {
+        String text;
+        try {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/prometheus")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return Map.of();
+            }
+            text = response.body();
+        } catch (IOException e) {
+            return Map.of();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Map.of();
+        }
+        Map<String, Double> values = new HashMap<>();
+        Matcher sample = SAMPLE.matcher(text);
+        while (sample.find()) {
+            Matcher operation = OPERATION.matcher(sample.group(2));
+            if (!operation.find()) {
+                continue;
+            }
+            String key = switch (sample.group(1)) {
+                case "banking_operation_conflicts_total" -> "conflicts";
+                case "banking_operation_attempts_sum" -> "attempts";
+                case "banking_operation_attempts_count" -> "operations";
+                default -> sample.group(2).contains("outcome=\"conflict\"") ? "exhausted" : null;
+            };
+            if (key != null) {
+                values.merge(key + ":" + operation.group(1), Double.parseDouble(sample.group(3)), Double::sum);
+            }
+        }
+        return values;
+    }
+
+    static Map<String, Double> delta(Map<String, Double> before, Map<String, Double> after) {
+        Map<String, Double> delta = new HashMap<>();
+        after.forEach((key, value) -> delta.put(key, value - before.getOrDefault(key, 0.0)));
+        return delta;
+    }
+}
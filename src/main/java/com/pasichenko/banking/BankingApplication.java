@@ -3,10 +3,14 @@ package com.pasichenko.banking;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 @EnableRetry
+@EnableScheduling
 public class BankingApplication {
 
 	public static void main(String[] args) throws InterruptedException {
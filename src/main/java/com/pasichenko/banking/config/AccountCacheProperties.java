@@ -0,0 +1,27 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.account-cache")
+public class AccountCacheProperties {
+
+    // Account number -> id entries kept in memory.
+    private int maxSize = 100_000;
+
+    // Sizing of the known-account-number filter.
+    private int expectedAccounts = 1_000_000;
+
+    private double falsePositiveRate = 0.01;
+
+    // Answer "Account not found" straight from the filter, without asking the database.
+    private boolean rejectUnknown = true;
+
+    // How often the account change listener polls for notifications.
+    private Duration listenerPollInterval = Duration.ofMillis(20);
+}
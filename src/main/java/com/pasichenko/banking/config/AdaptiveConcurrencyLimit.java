@@ -0,0 +1,96 @@
+package com.pasichenko.banking.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Concurrency limit that follows observed latency (gradient style). Samples are averaged over a
+// window of about one round of the current limit. A window much slower than the long-term average
+// shrinks the limit multiplicatively; while latency holds, the limit grows by a fraction of its
+// square root per window. It only grows when at least half of it was in use, so an idle service
+// does not talk itself into a limit it never tested.
+public class AdaptiveConcurrencyLimit {
+
+    private static final int MIN_WINDOW = 10;
+    private static final double LONG_WINDOW = 600;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    // guarded by this
+    private double estimatedLimit;
+    private double longRttNanos;
+    private long windowRttNanos;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    // Ends an admitted request and feeds its latency into the limit.
+    public void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        sample(rttNanos, inFlightBefore);
+    }
+
+    // Ends an admitted request whose latency says nothing about the database, e.g. an async hand-off.
+    public void releaseWithoutSample() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void sample(long rttNanos, int inFlightBefore) {
+        windowRttNanos += rttNanos;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightBefore);
+        if (++windowSamples < Math.max(MIN_WINDOW, (int) estimatedLimit)) {
+            return;
+        }
+        double shortRttNanos = (double) windowRttNanos / windowSamples;
+        boolean appLimited = windowMaxInFlight < estimatedLimit / 2;
+        windowRttNanos = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        if (longRttNanos == 0) {
+            longRttNanos = shortRttNanos;
+            return;
+        }
+        longRttNanos += (shortRttNanos - longRttNanos) / LONG_WINDOW;
+        // after a long slow period the average lags far behind; let it catch up so the limit can recover
+        if (longRttNanos > 2 * shortRttNanos) {
+            longRttNanos *= 0.95;
+        }
+        if (appLimited) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+}
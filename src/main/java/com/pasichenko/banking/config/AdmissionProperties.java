@@ -0,0 +1,42 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.admission")
+public class AdmissionProperties {
+
+    // Adaptive concurrency limits in front of the banking endpoints.
+    private boolean enabled = true;
+
+    // Balance, history and ticket reads; starting limit and the range it adapts within.
+    private int readInitialLimit = 50;
+
+    private int readMinLimit = 5;
+
+    private int readMaxLimit = 500;
+
+    // Deposits, withdrawals, transfers and operation submissions.
+    private int writeInitialLimit = 20;
+
+    private int writeMinLimit = 2;
+
+    private int writeMaxLimit = 200;
+
+    // How far recent latency may rise above its long-term average before a limit shrinks.
+    private double latencyTolerance = 2.0;
+
+    // Sent as Retry-After with every 429.
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    // Retries earned per BankingService call, shared by the whole node.
+    private double retryRatio = 0.2;
+
+    // Unused retries that may pile up for a burst of conflicts.
+    private int retryBurst = 50;
+}
@@ -0,0 +1,19 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.balance-cache")
+public class BalanceCacheProperties {
+
+    private int maxSize = 100_000;
+
+    // Oldest entry served without going back to the database. Local commits refresh entries
+    // immediately; this only bounds how long a write from another node can go unnoticed.
+    private Duration maxStaleness = Duration.ofSeconds(5);
+}
@@ -0,0 +1,14 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.batch")
+public class BatchProperties {
+
+    // Transfers committed per transaction by the batch endpoint.
+    private int chunkSize = 500;
+}
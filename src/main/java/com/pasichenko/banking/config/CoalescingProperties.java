@@ -0,0 +1,19 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.coalescing")
+public class CoalescingProperties {
+
+    // Route controller requests through the per-account queues.
+    private boolean enabled = false;
+
+    private int stripes = 64;
+
+    // Upper bound of operations committed in one transaction.
+    private int maxBatchSize = 100;
+}
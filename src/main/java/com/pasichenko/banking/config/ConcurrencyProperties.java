@@ -0,0 +1,19 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.concurrency")
+public class ConcurrencyProperties {
+
+    // Banking requests executing at once on virtual threads; 0 uses the Hikari pool size.
+    private int maxInFlight = 0;
+
+    // How long a request may wait for a slot before it is rejected with 503.
+    private Duration acquireTimeout = Duration.ofSeconds(5);
+}
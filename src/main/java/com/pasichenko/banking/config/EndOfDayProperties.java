@@ -0,0 +1,46 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.end-of-day")
+public class EndOfDayProperties {
+
+    // Accounts per partition; partitions are what the workers run in parallel.
+    private int partitionSize = 100000;
+
+    // Accounts locked, posted and checkpointed per transaction.
+    private int chunkSize = 1000;
+
+    // Partitions posted at the same time, each on its own connection.
+    private int parallelism = 4;
+
+    // Longest wait for a row lock held by live traffic before the chunk is rolled back and retried.
+    private Duration lockTimeout = Duration.ofSeconds(2);
+
+    // Wait of a worker after each chunk, so a run does not crowd out request traffic.
+    private Duration pauseBetweenChunks = Duration.ofMillis(10);
+
+    // Accounts of this type (compared case-insensitively) earn interest.
+    private String interestAccountType = "SAVINGS";
+
+    // Yearly interest rate in basis points, accrued daily on the end-of-day balance.
+    private int interestRateBasisPoints = 200;
+
+    // Accounts of this type (compared case-insensitively) pay the maintenance fee.
+    private String feeAccountType = "CHECKING";
+
+    // Monthly maintenance fee in minor units, charged on the run for feeDayOfMonth.
+    private long monthlyFee = 500;
+
+    private int feeDayOfMonth = 1;
+
+    // "-" disables scheduled runs; a run can always be started through /actuator/endofday.
+    // A scheduled run posts the previous day.
+    private String cron = "-";
+}
@@ -0,0 +1,27 @@
+package com.pasichenko.banking.config;
+
+import com.pasichenko.banking.service.ExecutionMode;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.execution")
+public class ExecutionProperties {
+
+    // How BankingServiceImpl applies balance changes.
+    private ExecutionMode mode = ExecutionMode.OPTIMISTIC;
+
+    // How long pessimistic mode waits for a row lock before giving up.
+    private Duration lockTimeout = Duration.ofSeconds(2);
+
+    // Adaptive mode: conflict rate above which an account is served with pessimistic locks.
+    private double adaptiveConflictThreshold = 0.2;
+
+    private Duration adaptiveHalfLife = Duration.ofSeconds(30);
+
+    private int adaptiveTrackedAccounts = 10_000;
+}
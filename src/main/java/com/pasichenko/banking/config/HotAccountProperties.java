@@ -0,0 +1,22 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.metrics.hot-accounts")
+public class HotAccountProperties {
+
+    // Accounts reported per sketch.
+    private int top = 10;
+
+    // Counters kept per sketch; bounds memory and the error of reported counts (total / capacity).
+    private int capacity = 100;
+
+    // Sketches are reset every window, so the report follows current traffic.
+    private Duration window = Duration.ofMinutes(1);
+}
@@ -0,0 +1,31 @@
+package com.pasichenko.banking.config;
+
+import com.pasichenko.banking.service.BalanceSlotService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+public class HotAccountShardingInitializer implements ApplicationRunner {
+
+    private final BalanceSlotService balanceSlotService;
+    private final ShardingProperties properties;
+
+    public HotAccountShardingInitializer(BalanceSlotService balanceSlotService, ShardingProperties properties) {
+        this.balanceSlotService = balanceSlotService;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (String accountNumber : properties.getHotAccounts()) {
+            try {
+                balanceSlotService.enableSharding(accountNumber, properties.getSlots());
+            } catch (RuntimeException e) {
+                log.warn("Could not shard hot account {}: {}", accountNumber, e.getMessage());
+            }
+        }
+    }
+}
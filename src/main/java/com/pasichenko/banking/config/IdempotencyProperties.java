@@ -0,0 +1,21 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.idempotency")
+public class IdempotencyProperties {
+
+    // Recent keys answered from memory without a database round trip.
+    private int cacheSize = 100_000;
+
+    // How long a key is remembered; after that it may be reused for a new request.
+    private Duration retention = Duration.ofHours(24);
+
+    private Duration purgeInterval = Duration.ofMinutes(10);
+}
@@ -0,0 +1,64 @@
+package com.pasichenko.banking.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// With virtual threads Tomcat no longer bounds concurrency, so every request would pile up inside
+// Hikari waiting for a connection. Requests park on this semaphore instead, sized to the pool.
+// A request backing off between retries holds no connection and gives its slot up meanwhile.
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class InFlightRequestLimiter {
+
+    private final Semaphore permits;
+    private final ThreadLocal<Boolean> holding = ThreadLocal.withInitial(() -> false);
+
+    public InFlightRequestLimiter(DataSource dataSource, ConcurrencyProperties properties) throws SQLException {
+        int limit = properties.getMaxInFlight() > 0
+                ? properties.getMaxInFlight()
+                : dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        this.permits = new Semaphore(limit, true);
+        log.info("Virtual threads enabled, at most {} banking requests in flight", limit);
+    }
+
+    public boolean tryEnter(long timeout, TimeUnit unit) throws InterruptedException {
+        boolean acquired = permits.tryAcquire(timeout, unit);
+        holding.set(acquired);
+        return acquired;
+    }
+
+    public void exit() {
+        if (holding.get()) {
+            holding.set(false);
+            permits.release();
+        }
+    }
+
+    // Runs a wait (retry backoff) without occupying a slot; returns with the slot re-acquired.
+    public void awayWhile(InterruptibleWait wait) throws InterruptedException {
+        if (!holding.get()) {
+            wait.run();
+            return;
+        }
+        permits.release();
+        try {
+            wait.run();
+        } finally {
+            permits.acquireUninterruptibly();
+        }
+    }
+
+    @FunctionalInterface
+    public interface InterruptibleWait {
+        void run() throws InterruptedException;
+    }
+}
@@ -0,0 +1,30 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.intake")
+public class IntakeProperties {
+
+    private int workers = 2;
+
+    // Submitted operations applied per transaction by a worker.
+    private int batchSize = 100;
+
+    // Idle wait of a worker that found nothing to claim.
+    private Duration pollInterval = Duration.ofMillis(100);
+
+    // A claim older than this is considered abandoned and handed to another worker.
+    private Duration lease = Duration.ofMinutes(1);
+
+    // Claims of one operation whose batch failed without an outcome before it is marked FAILED.
+    private int maxAttempts = 5;
+
+    // Finished tickets stay pollable this long.
+    private Duration retention = Duration.ofDays(7);
+}
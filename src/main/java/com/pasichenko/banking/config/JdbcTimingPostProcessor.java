@@ -0,0 +1,21 @@
+package com.pasichenko.banking.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+// Routes the application DataSource through JdbcTimingDataSource so operation metrics can report
+// database time. The pool stays reachable through unwrap(), which Hikari metrics and
+// InFlightRequestLimiter rely on.
+@Component
+public class JdbcTimingPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof JdbcTimingDataSource)) {
+            return new JdbcTimingDataSource(dataSource);
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,19 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.ledger")
+public class LedgerProperties {
+
+    // Balance deltas folded into the account checkpoints per aggregator transaction.
+    private int foldBatchSize = 1000;
+
+    // Idle wait of the aggregator after a batch that was not full.
+    private Duration foldInterval = Duration.ofMillis(200);
+}
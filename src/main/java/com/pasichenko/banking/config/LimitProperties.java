@@ -0,0 +1,34 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.limits")
+public class LimitProperties {
+
+    // Check withdrawals and outgoing transfers against the limits below before they reach a transaction.
+    private boolean enabled = true;
+
+    // Per source account, over a sliding minute and a sliding day; 0 leaves a limit off. Amounts in cents.
+    private long perMinuteCount = 0;
+
+    private long perMinuteAmount = 0;
+
+    private long dailyCount = 0;
+
+    private long dailyAmount = 0;
+
+    // Accounts held in memory at most. A full stripe answers debits of accounts it does not hold with
+    // a 503 rather than drop one with usage, and counts them in banking.limits.over-capacity.
+    private int maxAccounts = 100_000;
+
+    private int stripes = 64;
+
+    // How often accounts without a debit in the last day are dropped.
+    private Duration evictionInterval = Duration.ofMinutes(5);
+}
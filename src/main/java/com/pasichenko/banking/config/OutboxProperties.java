@@ -0,0 +1,34 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.outbox")
+public class OutboxProperties {
+
+    private boolean relayEnabled = true;
+
+    // Events published and marked per relay transaction.
+    private int batchSize = 500;
+
+    // Idle wait of the relay after a batch that was not full.
+    private Duration pollInterval = Duration.ofMillis(100);
+
+    // in-process, file, or any other value to supply a custom LedgerEventSink bean
+    private String sink = "in-process";
+
+    // Append-only NDJSON target of the file sink.
+    private Path file = Paths.get("ledger-events.ndjson");
+
+    // Published rows are kept this long before being purged.
+    private Duration retention = Duration.ofDays(1);
+
+    private Duration purgeInterval = Duration.ofMinutes(10);
+}
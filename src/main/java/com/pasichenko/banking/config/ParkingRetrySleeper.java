@@ -0,0 +1,44 @@
+package com.pasichenko.banking.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.support.RetrySynchronizationManager;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Backoff for @Retryable. Retry wraps the transaction, so the connection is already back in the
+// pool while this waits; Thread.sleep parks a virtual thread rather than pinning its carrier, and
+// in virtual mode the request also hands its in-flight slot to someone who can use it.
+// The time actually spent waiting is added up on the retry context for the operation metrics.
+@Component
+public class ParkingRetrySleeper implements Sleeper {
+
+    public static final String BACKOFF_NANOS = "banking.backoff.nanos";
+
+    private final ObjectProvider<InFlightRequestLimiter> limiter;
+
+    public ParkingRetrySleeper(ObjectProvider<InFlightRequestLimiter> limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public void sleep(long backOffPeriod) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            InFlightRequestLimiter inFlight = limiter.getIfAvailable();
+            if (inFlight == null) {
+                Thread.sleep(backOffPeriod);
+                return;
+            }
+            inFlight.awayWhile(() -> TimeUnit.MILLISECONDS.sleep(backOffPeriod));
+        } finally {
+            RetryContext context = RetrySynchronizationManager.getContext();
+            if (context != null) {
+                Object waited = context.getAttribute(BACKOFF_NANOS);
+                context.setAttribute(BACKOFF_NANOS, (waited == null ? 0L : (Long) waited) + System.nanoTime() - start);
+            }
+        }
+    }
+}
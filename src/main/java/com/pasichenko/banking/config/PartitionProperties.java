@@ -0,0 +1,27 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.partitions")
+public class PartitionProperties {
+
+    // Monthly transactions partitions kept created beyond the current month.
+    private int monthsAhead = 3;
+
+    // Partitions whose whole range is older than this many months are retired; 0 keeps everything.
+    private int retentionMonths = 0;
+
+    private RetirementMode retirementMode = RetirementMode.DETACH;
+
+    private String cron = "0 0 3 * * *";
+
+    public enum RetirementMode {
+        // leave the detached table in place for archiving
+        DETACH,
+        DROP
+    }
+}
@@ -0,0 +1,25 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.reconciliation")
+public class ReconciliationProperties {
+
+    // Accounts per range; a range is checked in one statement and is the unit of resumption.
+    private int rangeSize = 10000;
+
+    // Ranges checked at the same time, each on its own connection.
+    private int parallelism = 2;
+
+    // Wait of a worker after each range, so a run does not crowd out request traffic.
+    private Duration pauseBetweenRanges = Duration.ofMillis(50);
+
+    // "-" disables scheduled runs; a run can always be started through /actuator/reconciliation.
+    private String cron = "-";
+}
@@ -0,0 +1,33 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.schedules")
+public class ScheduleProperties {
+
+    // false leaves scheduled transfers stored but never run by this node
+    private boolean enabled = true;
+
+    // Resolution of the timing wheel: a transfer runs at most this late.
+    private Duration tick = Duration.ofSeconds(1);
+
+    private int wheelSize = 64;
+
+    // How far ahead due schedules are loaded into the wheel.
+    private Duration window = Duration.ofMinutes(10);
+
+    // How often the window is loaded again; must be shorter than the window.
+    private Duration reloadInterval = Duration.ofMinutes(1);
+
+    // Upper bound of schedules held in the wheel; the rest waits for a later load.
+    private int maxLoaded = 100000;
+
+    // Due transfers applied per transaction.
+    private int batchSize = 100;
+}
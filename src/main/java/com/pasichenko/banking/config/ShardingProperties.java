@@ -0,0 +1,20 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.sharding")
+public class ShardingProperties {
+
+    // Number of sub-balance rows a hot account is split into.
+    private int slots = 8;
+
+    // Accounts switched to sharded balance mode on startup.
+    private List<String> hotAccounts = new ArrayList<>();
+}
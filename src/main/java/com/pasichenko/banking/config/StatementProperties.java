@@ -0,0 +1,14 @@
+package com.pasichenko.banking.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "banking.statement")
+public class StatementProperties {
+
+    // Rows pulled from the server-side cursor per round trip.
+    private int fetchSize = 1000;
+}
@@ -0,0 +1,92 @@
+package com.pasichenko.banking.controller;
+
+import com.pasichenko.banking.config.AdaptiveConcurrencyLimit;
+import com.pasichenko.banking.config.AdmissionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Sheds banking requests above an adaptive concurrency limit with 429 and Retry-After, before they
+// can queue on Tomcat threads and Hikari connections. Reads and money-moving writes have separate
+// limits, so a write backlog cannot starve balance reads and the other way round. Runs ahead of
+// the virtual-thread limiter; the latency it sees includes any wait there.
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@ConditionalOnProperty(name = "banking.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimit reads;
+    private final AdaptiveConcurrencyLimit writes;
+    private final Counter readsRejected;
+    private final Counter writesRejected;
+    private final String retryAfter;
+
+    public AdmissionControlFilter(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.reads = new AdaptiveConcurrencyLimit(properties.getReadInitialLimit(), properties.getReadMinLimit(),
+                properties.getReadMaxLimit(), properties.getLatencyTolerance());
+        this.writes = new AdaptiveConcurrencyLimit(properties.getWriteInitialLimit(), properties.getWriteMinLimit(),
+                properties.getWriteMaxLimit(), properties.getLatencyTolerance());
+        this.readsRejected = register(meterRegistry, "read", reads);
+        this.writesRejected = register(meterRegistry, "write", writes);
+        this.retryAfter = String.valueOf(Math.max(1, properties.getRetryAfter().toSeconds()));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/banking/") && !request.getRequestURI().startsWith("/test-");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // the /test- endpoints move money on GET
+        boolean read = "GET".equals(request.getMethod()) && request.getRequestURI().startsWith("/banking/");
+        AdaptiveConcurrencyLimit limit = read ? reads : writes;
+        if (!limit.tryAcquire()) {
+            (read ? readsRejected : writesRejected).increment();
+            // no error page dispatch: shedding has to stay much cheaper than serving
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // a streamed statement returns here at once and keeps working on another thread
+            if (request.isAsyncStarted()) {
+                limit.releaseWithoutSample();
+            } else {
+                limit.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static Counter register(MeterRegistry registry, String budget, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder("banking.admission.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("budget", budget)
+                .register(registry);
+        Gauge.builder("banking.admission.in.flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Admitted requests still running")
+                .tag("budget", budget)
+                .register(registry);
+        return Counter.builder("banking.admission.rejected")
+                .description("Requests answered with 429 because the limit was reached")
+                .tag("budget", budget)
+                .register(registry);
+    }
+}
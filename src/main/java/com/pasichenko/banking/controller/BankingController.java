@@ -1,10 +1,33 @@
 package com.pasichenko.banking.controller;
 
+import com.pasichenko.banking.repository.IntakeTicket;
+import com.pasichenko.banking.repository.TransferSchedule;
+import com.pasichenko.banking.service.AccountQueryService;
+import com.pasichenko.banking.service.BalanceSnapshot;
+import com.pasichenko.banking.service.BatchTransferService;
+import com.pasichenko.banking.service.Money;
+import com.pasichenko.banking.service.OperationIntakeService;
+import com.pasichenko.banking.service.ScheduledTransferService;
+import com.pasichenko.banking.service.TransactionHistoryPage;
+import com.pasichenko.banking.service.impl.AccountOperationCoalescer;
 import com.pasichenko.banking.service.impl.BankingServiceImpl;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.extern.slf4j.Slf4j;
 import org.openapitools.api.BankingApi;
+import org.openapitools.model.BalanceResponse;
+import org.openapitools.model.BatchTransferRequest;
+import org.openapitools.model.BatchTransferResponse;
+import org.openapitools.model.BatchTransferResult;
 import org.openapitools.model.DepositRequest;
+import org.openapitools.model.OperationRequest;
+import org.openapitools.model.OperationTicket;
+import org.openapitools.model.Recurrence;
+import org.openapitools.model.ScheduledTransfer;
+import org.openapitools.model.ScheduledTransferRequest;
+import org.openapitools.model.TransactionItem;
+import org.openapitools.model.TransactionPage;
 import org.openapitools.model.TransferRequest;
 import org.openapitools.model.WithdrawRequest;
 import org.springframework.http.HttpStatus;
@@ -12,55 +35,265 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 @Slf4j
 public class BankingController implements BankingApi {
 
+    // maxItems of BatchTransferRequest in banking-api.yml; the generated interface does not enforce it
+    private static final int MAX_BATCH_TRANSFERS = 10_000;
+
     private final BankingServiceImpl bankingService;
+    private final AccountOperationCoalescer operationCoalescer;
+    private final BatchTransferService batchTransferService;
+    private final AccountQueryService accountQueryService;
+    private final OperationIntakeService operationIntakeService;
+    private final ScheduledTransferService scheduledTransferService;
 
-    public BankingController(BankingServiceImpl bankingService) {
+    public BankingController(BankingServiceImpl bankingService, AccountOperationCoalescer operationCoalescer,
+                             BatchTransferService batchTransferService, AccountQueryService accountQueryService,
+                             OperationIntakeService operationIntakeService,
+                             ScheduledTransferService scheduledTransferService) {
         this.bankingService = bankingService;
+        this.operationCoalescer = operationCoalescer;
+        this.batchTransferService = batchTransferService;
+        this.accountQueryService = accountQueryService;
+        this.operationIntakeService = operationIntakeService;
+        this.scheduledTransferService = scheduledTransferService;
     }
 
     @Override
-    public ResponseEntity<Void> deposit(DepositRequest depositRequest) {
-        bankingService.deposit(depositRequest.getAccountNumber(), BigDecimal.valueOf(depositRequest.getAmount()));
-        return ResponseEntity.ok().build();
+    public ResponseEntity<Void> deposit(DepositRequest depositRequest, String idempotencyKey) {
+        return operationResponse(operationCoalescer.execute(BankingOperation.deposit(
+                depositRequest.getAccountNumber(),
+                amount(depositRequest.getAmount())
+        ).withIdempotencyKey(idempotencyKey)));
     }
 
     @Override
-    public ResponseEntity<Void> withdraw(WithdrawRequest withdrawRequest) {
-        bankingService.withdraw(withdrawRequest.getAccountNumber(), BigDecimal.valueOf(withdrawRequest.getAmount()));
-        return ResponseEntity.ok().build();
+    public ResponseEntity<Void> withdraw(WithdrawRequest withdrawRequest, String idempotencyKey) {
+        return operationResponse(operationCoalescer.execute(BankingOperation.withdraw(
+                withdrawRequest.getAccountNumber(),
+                amount(withdrawRequest.getAmount())
+        ).withIdempotencyKey(idempotencyKey)));
     }
 
     @Override
-    public ResponseEntity<Void> transfer(TransferRequest transferRequest) {
-        bankingService.transfer(
+    public ResponseEntity<Void> transfer(TransferRequest transferRequest, String idempotencyKey) {
+        return operationResponse(operationCoalescer.execute(BankingOperation.transfer(
                 transferRequest.getFromAccountNumber(),
                 transferRequest.getToAccountNumber(),
-                BigDecimal.valueOf(transferRequest.getAmount())
-        );
+                amount(transferRequest.getAmount())
+        ).withIdempotencyKey(idempotencyKey)));
+    }
+
+    @Override
+    public ResponseEntity<BatchTransferResponse> transferBatch(BatchTransferRequest batchTransferRequest) {
+        if (batchTransferRequest.getTransfers() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "transfers is required");
+        }
+        if (batchTransferRequest.getTransfers().size() > MAX_BATCH_TRANSFERS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_BATCH_TRANSFERS + " transfers per batch");
+        }
+        List<BankingOperation> transfers = batchTransferRequest.getTransfers().stream()
+                .map(transfer -> BankingOperation.transfer(
+                        transfer.getFromAccountNumber(),
+                        transfer.getToAccountNumber(),
+                        amount(transfer.getAmount())))
+                .toList();
+        List<OperationResult> results = batchTransferService.transferAll(transfers);
+
+        List<BatchTransferResult> items = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            OperationResult result = results.get(i);
+            items.add(new BatchTransferResult()
+                    .index(i)
+                    .status(result.successful() ? BatchTransferResult.StatusEnum.SUCCESS : BatchTransferResult.StatusEnum.FAILED)
+                    .error(result.error()));
+        }
+        return ResponseEntity.ok(new BatchTransferResponse().results(items));
+    }
+
+    @Override
+    public ResponseEntity<BalanceResponse> getBalance(String accountNumber, String ifNoneMatch) {
+        return accountQueryService.getBalance(accountNumber)
+                .map(snapshot -> balanceResponse(snapshot, ifNoneMatch))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Override
+    public ResponseEntity<TransactionPage> getTransactions(String accountNumber, Integer limit, String after) {
+        Optional<TransactionHistoryPage> history;
+        try {
+            TransactionHistoryPage.Cursor cursor = after == null ? null : TransactionHistoryPage.Cursor.decode(after);
+            history = accountQueryService.getTransactions(accountNumber, cursor, limit == null ? 50 : limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return history
+                .map(page -> ResponseEntity.ok(new TransactionPage()
+                        .items(page.items().stream()
+                                .map(item -> new TransactionItem()
+                                        .id(item.getId())
+                                        .type(item.getTransactionType())
+                                        .direction(TransactionItem.DirectionEnum.fromValue(item.getDirection()))
+                                        .amount(Money.format(item.getAmount()))
+                                        .createdAt(item.getCreatedAt().atZone(ZoneId.systemDefault()).toOffsetDateTime())
+                                        .referenceId(item.getReferenceId()))
+                                .toList())
+                        .nextCursor(page.nextCursor() == null ? null : page.nextCursor().encode())))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Override
+    public ResponseEntity<OperationTicket> submitOperation(OperationRequest operationRequest, String idempotencyKey) {
+        BankingOperation operation = new BankingOperation(
+                BankingOperation.Type.valueOf(operationRequest.getType().getValue()),
+                operationRequest.getAccountNumber(),
+                operationRequest.getToAccountNumber(),
+                amount(operationRequest.getAmount()),
+                idempotencyKey);
+        IntakeTicket ticket;
+        try {
+            ticket = operationIntakeService.submit(operation);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/banking/operations/" + ticket.id()))
+                .body(toOperationTicket(ticket));
+    }
+
+    @Override
+    public ResponseEntity<OperationTicket> getOperation(Long id) {
+        return operationIntakeService.find(id)
+                .map(ticket -> ResponseEntity.ok(toOperationTicket(ticket)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Override
+    public ResponseEntity<ScheduledTransfer> createScheduledTransfer(ScheduledTransferRequest request) {
+        TransferSchedule schedule;
+        try {
+            schedule = scheduledTransferService.create(
+                    request.getFromAccountNumber(),
+                    request.getToAccountNumber(),
+                    amount(request.getAmount()),
+                    request.getRecurrence() == null ? TransferSchedule.Recurrence.ONCE
+                            : TransferSchedule.Recurrence.valueOf(request.getRecurrence().getValue()),
+                    toInstant(request.getStartAt()),
+                    toInstant(request.getEndAt()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return ResponseEntity.created(URI.create("/banking/scheduled-transfers/" + schedule.id()))
+                .body(toScheduledTransfer(schedule));
+    }
+
+    @Override
+    public ResponseEntity<ScheduledTransfer> getScheduledTransfer(Long id) {
+        return scheduledTransferService.find(id)
+                .map(schedule -> ResponseEntity.ok(toScheduledTransfer(schedule)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Override
+    public ResponseEntity<ScheduledTransfer> cancelScheduledTransfer(Long id) {
+        try {
+            return scheduledTransferService.cancel(id)
+                    .map(schedule -> ResponseEntity.ok(toScheduledTransfer(schedule)))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    private static ScheduledTransfer toScheduledTransfer(TransferSchedule schedule) {
+        return new ScheduledTransfer()
+                .id(schedule.id())
+                .fromAccountNumber(schedule.fromAccountNumber())
+                .toAccountNumber(schedule.toAccountNumber())
+                .amount(Money.format(schedule.amount()))
+                .recurrence(Recurrence.fromValue(schedule.recurrence().name()))
+                .startAt(toOffsetDateTime(schedule.startAt()))
+                .endAt(toOffsetDateTime(schedule.endAt()))
+                .nextRunAt(toOffsetDateTime(schedule.nextRunAt()))
+                .status(ScheduledTransfer.StatusEnum.fromValue(schedule.status().name()))
+                .lastRunAt(toOffsetDateTime(schedule.lastRunAt()))
+                .lastError(schedule.lastError());
+    }
+
+    private static Instant toInstant(OffsetDateTime time) {
+        return time == null ? null : time.toInstant();
+    }
+
+    // schedule times are instants; they are returned in UTC
+    private static OffsetDateTime toOffsetDateTime(Instant time) {
+        return time == null ? null : time.atOffset(ZoneOffset.UTC);
+    }
+
+    private static OperationTicket toOperationTicket(IntakeTicket ticket) {
+        return new OperationTicket()
+                .id(ticket.id())
+                .status(OperationTicket.StatusEnum.fromValue(ticket.status().name()))
+                .error(ticket.error())
+                .createdAt(ticket.createdAt().atZone(ZoneId.systemDefault()).toOffsetDateTime())
+                .completedAt(ticket.completedAt() == null ? null
+                        : ticket.completedAt().atZone(ZoneId.systemDefault()).toOffsetDateTime());
+    }
+
+    private static long amount(String text) {
+        try {
+            return Money.parsePositive(text);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<Void> operationResponse(OperationResult result) {
+        if (result.replayed()) {
+            return ResponseEntity.ok().header("Idempotent-Replayed", "true").build();
+        }
         return ResponseEntity.ok().build();
     }
 
+    private static ResponseEntity<BalanceResponse> balanceResponse(BalanceSnapshot snapshot, String ifNoneMatch) {
+        if (snapshot.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .body(new BalanceResponse()
+                        .accountNumber(snapshot.accountNumber())
+                        .balance(Money.format(snapshot.balance()))
+                        .version(snapshot.version()));
+    }
+
     @Operation(hidden = true)  // hide from swagger , for jmeter usage only
     @GetMapping("/test-optimistic-locking")
     public ResponseEntity<String> testOptimisticLockingTransfer() {
         try {
-            bankingService.transfer("10010001", "10010002", BigDecimal.valueOf(1));
+            bankingService.transfer("10010001", "10010002", 100);
             return ResponseEntity.ok("Transfer successful");
         }
         catch (ObjectOptimisticLockingFailureException op){
-            log.error("Transfer failed, try later", op.getClass().getSimpleName());
+            log.debug("Transfer failed, try later: {}", op.getClass().getSimpleName());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Transfer failed due to exception: " + op.getClass().getSimpleName());
         }
         catch (Exception e) {
-            log.error("Transfer failed", e.getClass().getSimpleName());
+            log.debug("Transfer failed: {}", e.getClass().getSimpleName());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Transfer failed due to exception: " + e.getClass().getSimpleName());
 
@@ -0,0 +1,56 @@
+package com.pasichenko.banking.controller;
+
+import com.pasichenko.banking.config.ConcurrencyProperties;
+import com.pasichenko.banking.config.InFlightRequestLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Admits banking requests through InFlightRequestLimiter when running on virtual threads.
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class ConnectionBoundConcurrencyFilter extends OncePerRequestFilter {
+
+    private final InFlightRequestLimiter limiter;
+    private final ConcurrencyProperties properties;
+
+    public ConnectionBoundConcurrencyFilter(InFlightRequestLimiter limiter, ConcurrencyProperties properties) {
+        this.limiter = limiter;
+        this.properties = properties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/banking/") && !request.getRequestURI().startsWith("/test-");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean admitted;
+        try {
+            admitted = limiter.tryEnter(properties.getAcquireTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many requests in flight");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.exit();
+        }
+    }
+}
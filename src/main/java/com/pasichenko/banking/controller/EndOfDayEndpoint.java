@@ -0,0 +1,49 @@
+package com.pasichenko.banking.controller;
+
+import com.pasichenko.banking.repository.EndOfDayRepository;
+import com.pasichenko.banking.service.impl.EndOfDayBatchEngine;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// /actuator/endofday: progress of the latest end-of-day run; POST posts (or resumes) a business
+// date in the background, yesterday unless businessDate (yyyy-MM-dd) is given.
+@Component
+@Endpoint(id = "endofday")
+public class EndOfDayEndpoint {
+
+    private final EndOfDayBatchEngine endOfDayBatchEngine;
+    private final EndOfDayRepository endOfDayRepository;
+
+    public EndOfDayEndpoint(EndOfDayBatchEngine endOfDayBatchEngine, EndOfDayRepository endOfDayRepository) {
+        this.endOfDayBatchEngine = endOfDayBatchEngine;
+        this.endOfDayRepository = endOfDayRepository;
+    }
+
+    @ReadOperation
+    public Map<String, Object> latestRun() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("running", endOfDayBatchEngine.isRunning());
+        endOfDayRepository.findLatestRun().ifPresent(run -> report.put("run", run));
+        return report;
+    }
+
+    // 400 for a date that does not parse or that the engine refuses to post
+    @WriteOperation
+    public Map<String, Object> startRun(@Nullable String businessDate) {
+        try {
+            LocalDate date = businessDate == null ? LocalDate.now().minusDays(1) : LocalDate.parse(businessDate);
+            return Map.of("businessDate", date, "started", endOfDayBatchEngine.startInBackground(date));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.pasichenko.banking.controller;
+
+import com.pasichenko.banking.service.impl.HotAccountTracker;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// /actuator/hotaccounts: top accounts by operations and by optimistic-lock conflicts.
+@Component
+@Endpoint(id = "hotaccounts")
+public class HotAccountsEndpoint {
+
+    private final HotAccountTracker hotAccountTracker;
+
+    public HotAccountsEndpoint(HotAccountTracker hotAccountTracker) {
+        this.hotAccountTracker = hotAccountTracker;
+    }
+
+    @ReadOperation
+    public Map<String, HotAccountTracker.Report> hotAccounts() {
+        return Map.of(
+                "lastWindow", hotAccountTracker.lastWindow(),
+                "currentWindow", hotAccountTracker.currentWindow());
+    }
+}
@@ -0,0 +1,44 @@
+package com.pasichenko.banking.controller;
+
+import com.pasichenko.banking.repository.ReconciliationRepository;
+import com.pasichenko.banking.service.impl.LedgerReconciler;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// /actuator/reconciliation: progress of the latest run and its first discrepancies; POST starts
+// (or resumes) a run in the background.
+@Component
+@Endpoint(id = "reconciliation")
+public class ReconciliationEndpoint {
+
+    private static final int DISCREPANCY_LIMIT = 100;
+
+    private final LedgerReconciler ledgerReconciler;
+    private final ReconciliationRepository reconciliationRepository;
+
+    public ReconciliationEndpoint(LedgerReconciler ledgerReconciler, ReconciliationRepository reconciliationRepository) {
+        this.ledgerReconciler = ledgerReconciler;
+        this.reconciliationRepository = reconciliationRepository;
+    }
+
+    @ReadOperation
+    public Map<String, Object> latestRun() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("running", ledgerReconciler.isRunning());
+        reconciliationRepository.findLatestRun().ifPresent(run -> {
+            report.put("run", run);
+            report.put("discrepancies", reconciliationRepository.findDiscrepancies(run.id(), DISCREPANCY_LIMIT));
+        });
+        return report;
+    }
+
+    @WriteOperation
+    public Map<String, Object> startRun() {
+        return Map.of("started", ledgerReconciler.startInBackground());
+    }
+}
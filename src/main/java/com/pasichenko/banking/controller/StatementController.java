@@ -0,0 +1,47 @@
+package com.pasichenko.banking.controller;
+
+import com.pasichenko.banking.service.StatementExportService;
+import com.pasichenko.banking.service.StatementFormat;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+// Kept outside banking-api.yml: the generated interface cannot return a streaming body.
+@RestController
+public class StatementController {
+
+    private final StatementExportService statementExportService;
+
+    public StatementController(StatementExportService statementExportService) {
+        this.statementExportService = statementExportService;
+    }
+
+    @GetMapping("/banking/accounts/{accountNumber}/statement")
+    public ResponseEntity<StreamingResponseBody> exportStatement(
+            @PathVariable String accountNumber,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "CSV") StatementFormat format) {
+        if (to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "to must not be before from");
+        }
+        String extension = format.name().toLowerCase();
+        return statementExportService.prepare(accountNumber, from, to, format)
+                .map(export -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(format.getMediaType()))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"statement-" + accountNumber
+                                + "-" + from + "-" + to + "." + extension + "\"")
+                        .body((StreamingResponseBody) export::writeTo))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
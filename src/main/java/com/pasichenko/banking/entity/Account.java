@@ -3,7 +3,6 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -15,7 +14,7 @@ public class Account {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
@@ -25,8 +24,12 @@ public class Account {
     @Column(nullable = false)
     private String accountType;
 
+    // minor units (cents), see Money
     @Column(nullable = false)
-    private BigDecimal balance;
+    private long balance;
+
+    @Column(nullable = false)
+    private int balanceSlots;
 
     @Version
     private Integer version;
@@ -34,5 +37,8 @@ public class Account {
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    public boolean isBalanceSharded() {
+        return balanceSlots > 0;
+    }
 }
 
@@ -0,0 +1,37 @@
+package com.pasichenko.banking.entity;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Entity
+@Table(name = "account_balance_slots")
+@IdClass(AccountBalanceSlot.SlotId.class)
+@Getter
+@Setter
+public class AccountBalanceSlot {
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "slot")
+    private Integer slot;
+
+    // minor units (cents), see Money
+    @Column(nullable = false)
+    private long balance;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @EqualsAndHashCode
+    public static class SlotId implements Serializable {
+        private Long accountId;
+        private Integer slot;
+    }
+}
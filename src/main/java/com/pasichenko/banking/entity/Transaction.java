@@ -3,7 +3,6 @@ package com.pasichenko.banking.entity;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -12,7 +11,8 @@ import java.time.LocalDateTime;
 @Setter
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_id_seq")
+    @SequenceGenerator(name = "transaction_id_seq", sequenceName = "transaction_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -23,17 +23,26 @@ public class Transaction {
     @Column(name = "transaction_type", nullable = false)
     private TransactionType transactionType;
 
+    // minor units (cents), see Money
     @Column(nullable = false)
-    private BigDecimal amount;
+    private long amount;
 
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // credited leg of a transfer; the debited leg is account
+    @ManyToOne
+    @JoinColumn(name = "counterparty_account_id")
+    private Account counterpartyAccount;
+
+    // paired credit rows written before transfers became single journal entries
     @ManyToOne
     @JoinColumn(name = "reference_id")
     private Transaction referenceTransaction;
 
     public enum TransactionType {
-        DEPOSIT, WITHDRAW, TRANSFER
+        DEPOSIT, WITHDRAW, TRANSFER,
+        // posted by the end-of-day batch only
+        INTEREST, FEE
     }
 }
@@ -0,0 +1,45 @@
+package com.pasichenko.banking.repository;
+
+import com.pasichenko.banking.entity.AccountBalanceSlot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AccountBalanceSlotRepository extends JpaRepository<AccountBalanceSlot, AccountBalanceSlot.SlotId> {
+
+    // Picks any slot that is not locked by a concurrent writer, so parallel credits spread across slots.
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE account_balance_slots SET balance = balance + :amount " +
+            "WHERE (account_id, slot) = (SELECT account_id, slot FROM account_balance_slots " +
+            "WHERE account_id = :accountId ORDER BY random() LIMIT 1 FOR UPDATE SKIP LOCKED)",
+            nativeQuery = true)
+    int creditAnyFreeSlot(@Param("accountId") Long accountId, @Param("amount") long amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE AccountBalanceSlot s SET s.balance = s.balance + :amount " +
+            "WHERE s.accountId = :accountId AND s.slot = :slot")
+    int credit(@Param("accountId") Long accountId, @Param("slot") int slot, @Param("amount") long amount);
+
+    // Guarded debit against a single unlocked slot that can cover the amount on its own.
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE account_balance_slots SET balance = balance - :amount " +
+            "WHERE (account_id, slot) = (SELECT account_id, slot FROM account_balance_slots " +
+            "WHERE account_id = :accountId AND balance >= :amount ORDER BY random() LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "AND balance >= :amount",
+            nativeQuery = true)
+    int debitAnyFreeSlot(@Param("accountId") Long accountId, @Param("amount") long amount);
+
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM AccountBalanceSlot s WHERE s.accountId = :accountId")
+    long sumBalance(@Param("accountId") Long accountId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountBalanceSlot s WHERE s.accountId = :accountId ORDER BY s.slot")
+    List<AccountBalanceSlot> lockAllByAccountId(@Param("accountId") Long accountId);
+}
@@ -0,0 +1,5 @@
+package com.pasichenko.banking.repository;
+
+// Identity and immutable metadata of an account, without its balance or owner.
+public record AccountRef(Long id, String accountNumber, String accountType) {
+}
@@ -1,13 +1,48 @@
 package com.pasichenko.banking.repository;
 
 import com.pasichenko.banking.entity.Account;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findByAccountNumber(String accountNumber);
+
+    List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
+
+    @Query("SELECT new com.pasichenko.banking.repository.AccountRef(a.id, a.accountNumber, a.accountType) " +
+            "FROM Account a WHERE a.accountNumber = :accountNumber")
+    Optional<AccountRef> findRefByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    @Query("SELECT new com.pasichenko.banking.repository.BalanceView(a.id, a.balance, a.version, a.balanceSlots) " +
+            "FROM Account a WHERE a.id = :id")
+    Optional<BalanceView> findBalanceById(@Param("id") Long id);
+
+    // Rows are locked in id order, the canonical order every pessimistic caller follows.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> findAllForUpdateByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT set_config('lock_timeout', :timeout, true)", nativeQuery = true)
+    String setLocalLockTimeout(@Param("timeout") String timeout);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Account a SET a.balance = a.balance + :amount, a.version = a.version + 1 " +
+            "WHERE a.id = :id AND a.balanceSlots = 0")
+    int creditBalance(@Param("id") Long id, @Param("amount") long amount);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Account a SET a.balance = a.balance - :amount, a.version = a.version + 1 " +
+            "WHERE a.id = :id AND a.balanceSlots = 0 AND a.balance >= :amount")
+    int debitBalance(@Param("id") Long id, @Param("amount") long amount);
 }
@@ -0,0 +1,4 @@
+package com.pasichenko.banking.repository;
+
+public record BalanceView(Long id, long balance, Integer version, int balanceSlots) {
+}
@@ -0,0 +1,96 @@
+package com.pasichenko.banking.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Single-statement balance changes: the guarded UPDATE and the transactions INSERT travel
+// together in one data-modifying CTE, so no row is read into the JVM first.
+@Repository
+public class ConditionalUpdateRepository {
+
+    private static final String DEPOSIT_SQL = """
+            WITH acc AS (
+                UPDATE accounts SET balance = balance + :amount, version = version + 1
+                WHERE account_number = :accountNumber AND balance_slots = 0
+                RETURNING id
+            )
+            INSERT INTO transactions (account_id, transaction_type, amount)
+            SELECT id, 'DEPOSIT', :amount FROM acc
+            """;
+
+    private static final String WITHDRAW_SQL = """
+            WITH acc AS (
+                UPDATE accounts SET balance = balance - :amount, version = version + 1
+                WHERE account_number = :accountNumber AND balance_slots = 0 AND balance >= :amount
+                RETURNING id
+            )
+            INSERT INTO transactions (account_id, transaction_type, amount)
+            SELECT id, 'WITHDRAW', :amount FROM acc
+            """;
+
+    // Both rows are locked in id order before either is updated, as PessimisticExecutionStrategy
+    // does: updating the source first would deadlock an A->B transfer against a concurrent B->A one.
+    // The count reads the whole materialized CTE, so the locks are taken before the first update.
+    private static final String TRANSFER_SQL = """
+            WITH locked AS MATERIALIZED (
+                SELECT id, balance_slots FROM accounts
+                WHERE account_number IN (:fromAccountNumber, :toAccountNumber)
+                ORDER BY id
+                FOR NO KEY UPDATE
+            ), src AS (
+                UPDATE accounts SET balance = balance - :amount, version = version + 1
+                WHERE account_number = :fromAccountNumber AND balance_slots = 0 AND balance >= :amount
+                  AND (SELECT count(*) FROM locked WHERE balance_slots = 0) = 2
+                RETURNING id
+            ), dst AS (
+                UPDATE accounts SET balance = balance + :amount, version = version + 1
+                WHERE account_number = :toAccountNumber AND balance_slots = 0 AND EXISTS (SELECT 1 FROM src)
+                RETURNING id
+            ), entry AS (
+                INSERT INTO transactions (account_id, counterparty_account_id, transaction_type, amount)
+                SELECT src.id, dst.id, 'TRANSFER', :amount FROM src, dst
+                RETURNING id
+            )
+            SELECT (SELECT count(*) FROM src) AS debited, (SELECT count(*) FROM entry) AS credited
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ConditionalUpdateRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean deposit(String accountNumber, long amount) {
+        return jdbcTemplate.update(DEPOSIT_SQL, new MapSqlParameterSource()
+                .addValue("accountNumber", accountNumber)
+                .addValue("amount", amount)) == 1;
+    }
+
+    public boolean withdraw(String accountNumber, long amount) {
+        return jdbcTemplate.update(WITHDRAW_SQL, new MapSqlParameterSource()
+                .addValue("accountNumber", accountNumber)
+                .addValue("amount", amount)) == 1;
+    }
+
+    public TransferOutcome transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("fromAccountNumber", fromAccountNumber)
+                .addValue("toAccountNumber", toAccountNumber)
+                .addValue("amount", amount);
+        return jdbcTemplate.queryForObject(TRANSFER_SQL, params, (rs, rowNum) -> {
+            if (rs.getInt("credited") == 1) {
+                return TransferOutcome.APPLIED;
+            }
+            return rs.getInt("debited") == 1 ? TransferOutcome.PARTIAL : TransferOutcome.REJECTED;
+        });
+    }
+
+    public enum TransferOutcome {
+        APPLIED,
+        // nothing was written, the caller has to find out why
+        REJECTED,
+        // the destination changed under the statement, the source was already debited
+        PARTIAL
+    }
+}
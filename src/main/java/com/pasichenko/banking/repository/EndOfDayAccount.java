@@ -0,0 +1,7 @@
+package com.pasichenko.banking.repository;
+
+// An account locked by the end-of-day batch. rowBalance is what the account row holds including
+// pending ledger deltas; totalBalance adds the balance slots of a sharded account. accruedInterest
+// is the fraction of a cent carried from earlier days, in millionths of a cent.
+public record EndOfDayAccount(long id, String accountType, long rowBalance, long totalBalance, long accruedInterest) {
+}
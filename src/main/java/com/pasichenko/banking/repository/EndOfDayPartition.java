@@ -0,0 +1,5 @@
+package com.pasichenko.banking.repository;
+
+// Inclusive account id range of an end-of-day run, posted chunk by chunk by one worker.
+public record EndOfDayPartition(long firstAccountId, long lastAccountId) {
+}
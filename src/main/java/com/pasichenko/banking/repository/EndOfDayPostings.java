@@ -0,0 +1,11 @@
+package com.pasichenko.banking.repository;
+
+// Postings of one chunk as parallel arrays, ready to be bound as BIGINT[] parameters: a positive
+// amount is interest credited, a negative one a fee debited, 0 an account that only accrued.
+// accruedInterest is the account's carried fraction after the posting.
+public record EndOfDayPostings(long[] accountIds, long[] amounts, long[] accruedInterest) {
+
+    public int size() {
+        return accountIds.length;
+    }
+}
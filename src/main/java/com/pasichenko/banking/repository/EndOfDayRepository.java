@@ -0,0 +1,221 @@
+package com.pasichenko.banking.repository;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+// End-of-day runs and their partitions, plus the chunk reader and writer of the batch: a chunk is
+// read with two statements and written with one, whatever its size.
+@Repository
+public class EndOfDayRepository {
+
+    // Same planning as reconciliation: buckets of partitionSize existing ids, widened to touch each other.
+    private static final String PLAN_SQL = """
+            INSERT INTO end_of_day_partitions (business_date, first_account_id, last_account_id)
+            SELECT :businessDate, first_id, COALESCE(lead(first_id) OVER (ORDER BY first_id) - 1, last_id)
+            FROM (
+                SELECT min(id) AS first_id, max(id) AS last_id
+                FROM (SELECT id, (row_number() OVER (ORDER BY id) - 1) / :partitionSize AS bucket FROM accounts) ids
+                GROUP BY bucket
+            ) buckets
+            """;
+
+    // Claims the partition for one chunk: a second worker or node skips it instead of waiting, and
+    // the checkpoint it reads is the one the previous chunk committed.
+    private static final String CLAIM_SQL = """
+            SELECT COALESCE(checkpoint_account_id, first_account_id - 1) FROM end_of_day_partitions
+            WHERE business_date = :businessDate AND first_account_id = :firstAccountId AND completed_at IS NULL
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    // Keyset over the primary key, locked in id order like every other multi-account lock. FOR NO KEY
+    // UPDATE waits for writers of the same rows but not for the KEY SHARE locks of foreign keys.
+    private static final String LOCK_CHUNK_SQL = """
+            SELECT id FROM accounts
+            WHERE id > :afterAccountId AND id <= :lastAccountId
+            ORDER BY id LIMIT :limit
+            FOR NO KEY UPDATE
+            """;
+
+    // Kept apart from LOCK_CHUNK_SQL for the same reason as in LedgerRepository: a locking statement
+    // that waited re-checks only the locked rows, not the sums of deltas and slots next to them.
+    private static final String READ_CHUNK_SQL = """
+            SELECT a.id, a.account_type, a.accrued_interest,
+                   a.balance + COALESCE(d.amount, 0) AS row_balance,
+                   a.balance + COALESCE(d.amount, 0) + COALESCE(s.balance, 0) AS total_balance
+            FROM accounts a
+            LEFT JOIN (SELECT account_id, SUM(amount) AS amount FROM account_balance_deltas
+                       WHERE account_id = ANY(CAST(:accountIds AS BIGINT[])) GROUP BY account_id) d ON d.account_id = a.id
+            LEFT JOIN (SELECT account_id, SUM(balance) AS balance FROM account_balance_slots
+                       WHERE account_id = ANY(CAST(:accountIds AS BIGINT[])) GROUP BY account_id) s ON s.account_id = a.id
+            WHERE a.id = ANY(CAST(:accountIds AS BIGINT[]))
+            ORDER BY a.id
+            """;
+
+    // Balances, ledger rows and the checkpoint move in one statement, so a chunk is either posted
+    // and checkpointed or not at all. Accounts that only accrued a fraction of a cent keep their
+    // version. A posted account's version is bumped on purpose: optimistic writers store an absolute
+    // balance read earlier, and without the bump one that read the account before the chunk would
+    // overwrite the posting. It fails instead and @Retryable reapplies it on the new balance, the
+    // same as after any other write. Only writers in the milliseconds around the chunk are hit.
+    // Deltas folded later are no alternative outside LEDGER mode, where nothing folds them.
+    private static final String WRITE_CHUNK_SQL = """
+            WITH postings AS (
+                SELECT * FROM unnest(CAST(:accountIds AS BIGINT[]), CAST(:amounts AS BIGINT[]),
+                                     CAST(:accruedInterest AS BIGINT[])) AS p (account_id, amount, accrued_interest)
+            ), moved AS (
+                UPDATE accounts a SET balance = a.balance + p.amount,
+                                      accrued_interest = p.accrued_interest,
+                                      version = a.version + CASE WHEN p.amount <> 0 THEN 1 ELSE 0 END
+                FROM postings p
+                WHERE a.id = p.account_id
+                RETURNING p.amount
+            ), entries AS (
+                INSERT INTO transactions (account_id, transaction_type, amount)
+                SELECT account_id, CASE WHEN amount > 0 THEN 'INTEREST' ELSE 'FEE' END, abs(amount)
+                FROM postings
+                WHERE amount <> 0
+            )
+            UPDATE end_of_day_partitions
+            SET checkpoint_account_id = :checkpointAccountId,
+                accounts_posted = accounts_posted + (SELECT count(*) FROM moved WHERE amount <> 0),
+                amount_credited = amount_credited + (SELECT COALESCE(SUM(amount), 0) FROM moved WHERE amount > 0),
+                amount_debited = amount_debited - (SELECT COALESCE(SUM(amount), 0) FROM moved WHERE amount < 0),
+                completed_at = CASE WHEN :completed THEN CURRENT_TIMESTAMP END
+            WHERE business_date = :businessDate AND first_account_id = :firstAccountId
+            """;
+
+    private static final String FINISH_SQL = """
+            UPDATE end_of_day_runs SET finished_at = CURRENT_TIMESTAMP
+            WHERE business_date = :businessDate AND finished_at IS NULL
+              AND NOT EXISTS (SELECT 1 FROM end_of_day_partitions
+                              WHERE business_date = :businessDate AND completed_at IS NULL)
+            """;
+
+    private static final String RUN_SQL = """
+            SELECT run.business_date, run.started_at, run.finished_at,
+                   count(p.first_account_id) AS partitions,
+                   count(p.completed_at) AS completed_partitions,
+                   COALESCE(SUM(p.accounts_posted), 0) AS accounts_posted,
+                   COALESCE(SUM(p.amount_credited), 0) AS amount_credited,
+                   COALESCE(SUM(p.amount_debited), 0) AS amount_debited
+            FROM end_of_day_runs run
+            LEFT JOIN end_of_day_partitions p ON p.business_date = run.business_date
+            WHERE run.business_date = (SELECT max(business_date) FROM end_of_day_runs)
+            GROUP BY run.business_date
+            """;
+
+    private static final RowMapper<EndOfDayRun> RUN_MAPPER = (rs, rowNum) -> new EndOfDayRun(
+            rs.getObject("business_date", LocalDate.class),
+            rs.getTimestamp("started_at").toLocalDateTime(),
+            toLocalDateTime(rs.getTimestamp("finished_at")),
+            rs.getInt("partitions"),
+            rs.getInt("completed_partitions"),
+            rs.getLong("accounts_posted"),
+            rs.getLong("amount_credited"),
+            rs.getLong("amount_debited"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public EndOfDayRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Creates the run of the date and plans its partitions over the accounts that exist now; false
+    // when the date already has a run, finished or not.
+    public boolean createRun(LocalDate businessDate, int partitionSize) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("businessDate", businessDate)
+                .addValue("partitionSize", partitionSize);
+        if (jdbcTemplate.update("INSERT INTO end_of_day_runs (business_date) VALUES (:businessDate) ON CONFLICT DO NOTHING",
+                params) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(PLAN_SQL, params);
+        return true;
+    }
+
+    public boolean isFinished(LocalDate businessDate) {
+        return !jdbcTemplate.queryForList("SELECT 1 FROM end_of_day_runs WHERE business_date = :businessDate AND finished_at IS NOT NULL",
+                new MapSqlParameterSource("businessDate", businessDate), Integer.class).isEmpty();
+    }
+
+    public Optional<LocalDate> findEarliestFinishedDate() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(
+                "SELECT min(business_date) FROM end_of_day_runs WHERE finished_at IS NOT NULL", Map.of(), LocalDate.class));
+    }
+
+    public List<EndOfDayPartition> findOpenPartitions(LocalDate businessDate) {
+        return jdbcTemplate.query("""
+                        SELECT first_account_id, last_account_id FROM end_of_day_partitions
+                        WHERE business_date = :businessDate AND completed_at IS NULL ORDER BY first_account_id
+                        """,
+                new MapSqlParameterSource("businessDate", businessDate),
+                (rs, rowNum) -> new EndOfDayPartition(rs.getLong("first_account_id"), rs.getLong("last_account_id")));
+    }
+
+    // Must run inside the chunk's transaction. Returns the last account id posted so far, or empty
+    // when the partition is complete or another worker holds it.
+    public OptionalLong claimPartition(LocalDate businessDate, long firstAccountId) {
+        List<Long> checkpoint = jdbcTemplate.queryForList(CLAIM_SQL, new MapSqlParameterSource()
+                .addValue("businessDate", businessDate)
+                .addValue("firstAccountId", firstAccountId), Long.class);
+        return checkpoint.isEmpty() ? OptionalLong.empty() : OptionalLong.of(checkpoint.get(0));
+    }
+
+    public void setLocalLockTimeout(Duration timeout) {
+        jdbcTemplate.queryForObject("SELECT set_config('lock_timeout', :timeout, true)",
+                new MapSqlParameterSource("timeout", timeout.toMillis() + "ms"), String.class);
+    }
+
+    // Reader, first half: locks up to limit accounts after the checkpoint and returns their ids in order.
+    public List<Long> lockChunk(long afterAccountId, long lastAccountId, int limit) {
+        return jdbcTemplate.queryForList(LOCK_CHUNK_SQL, new MapSqlParameterSource()
+                .addValue("afterAccountId", afterAccountId)
+                .addValue("lastAccountId", lastAccountId)
+                .addValue("limit", limit), Long.class);
+    }
+
+    // Reader, second half: the balances of the locked accounts.
+    public List<EndOfDayAccount> readChunk(long[] accountIds) {
+        return jdbcTemplate.query(READ_CHUNK_SQL, new MapSqlParameterSource("accountIds", accountIds),
+                (rs, rowNum) -> new EndOfDayAccount(rs.getLong("id"), rs.getString("account_type"),
+                        rs.getLong("row_balance"), rs.getLong("total_balance"), rs.getLong("accrued_interest")));
+    }
+
+    // Writer: applies the postings and carried interest, inserts the ledger rows and moves the checkpoint.
+    public void writeChunk(LocalDate businessDate, long firstAccountId, long checkpointAccountId,
+                           EndOfDayPostings postings, boolean completed) {
+        jdbcTemplate.update(WRITE_CHUNK_SQL, new MapSqlParameterSource()
+                .addValue("accountIds", postings.accountIds())
+                .addValue("amounts", postings.amounts())
+                .addValue("accruedInterest", postings.accruedInterest())
+                .addValue("checkpointAccountId", checkpointAccountId)
+                .addValue("completed", completed)
+                .addValue("businessDate", businessDate)
+                .addValue("firstAccountId", firstAccountId));
+    }
+
+    // Closes the run once no partition is open; false while some still are.
+    public boolean finishRun(LocalDate businessDate) {
+        return jdbcTemplate.update(FINISH_SQL, new MapSqlParameterSource("businessDate", businessDate)) == 1;
+    }
+
+    public Optional<EndOfDayRun> findLatestRun() {
+        return jdbcTemplate.query(RUN_SQL, Map.of(), RUN_MAPPER).stream().findFirst();
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -0,0 +1,10 @@
+package com.pasichenko.banking.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Progress of an end-of-day run, totals summed over its partitions.
+public record EndOfDayRun(LocalDate businessDate, LocalDateTime startedAt, LocalDateTime finishedAt,
+                          int partitions, int completedPartitions, long accountsPosted,
+                          long amountCredited, long amountDebited) {
+}
@@ -0,0 +1,5 @@
+package com.pasichenko.banking.repository;
+
+// How many pending deltas one fold moved into an account's checkpoint.
+public record FoldedDeltas(String accountNumber, int deltas) {
+}
@@ -0,0 +1,11 @@
+package com.pasichenko.banking.repository;
+
+import java.time.LocalDateTime;
+
+// Client-visible state of an asynchronously submitted operation.
+public record IntakeTicket(long id, Status status, String error, LocalDateTime createdAt, LocalDateTime completedAt) {
+
+    public enum Status {
+        PENDING, PROCESSING, SUCCEEDED, FAILED
+    }
+}
@@ -0,0 +1,60 @@
+package com.pasichenko.banking.repository;
+
+import com.pasichenko.banking.service.LedgerEvent;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public class LedgerOutboxRepository {
+
+    // rows stay locked until the relay transaction ends, SKIP LOCKED lets another node take the next batch
+    private static final String CLAIM_SQL = """
+            SELECT id, transaction_id, account_number, transaction_type, amount, reference_id, occurred_at
+            FROM ledger_outbox WHERE published_at IS NULL
+            ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED
+            """;
+
+    // same direction rule as the transaction history: the credited leg of a transfer carries the reference
+    private static final RowMapper<LedgerEvent> EVENT_MAPPER = (rs, rowNum) -> {
+        String type = rs.getString("transaction_type");
+        long referenceId = rs.getLong("reference_id");
+        Long reference = rs.wasNull() ? null : referenceId;
+        boolean credit = "DEPOSIT".equals(type) || "INTEREST".equals(type) || ("TRANSFER".equals(type) && reference != null);
+        return new LedgerEvent(
+                rs.getLong("id"),
+                rs.getLong("transaction_id"),
+                rs.getString("account_number"),
+                type,
+                credit ? "CREDIT" : "DEBIT",
+                rs.getLong("amount"),
+                reference,
+                rs.getTimestamp("occurred_at").toLocalDateTime());
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public LedgerOutboxRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Must run inside a transaction, the row locks are what keeps concurrent relays apart.
+    public List<LedgerEvent> claimUnpublished(int limit) {
+        return jdbcTemplate.query(CLAIM_SQL, new MapSqlParameterSource("limit", limit), EVENT_MAPPER);
+    }
+
+    public int markPublished(List<LedgerEvent> events) {
+        return jdbcTemplate.update("UPDATE ledger_outbox SET published_at = CURRENT_TIMESTAMP WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", events.stream().map(LedgerEvent::eventId).toList()));
+    }
+
+    public int purgePublishedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM ledger_outbox WHERE published_at < :cutoff",
+                new MapSqlParameterSource("cutoff", Timestamp.valueOf(cutoff)));
+    }
+}
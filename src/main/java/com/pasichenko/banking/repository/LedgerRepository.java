@@ -0,0 +1,157 @@
+package com.pasichenko.banking.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+// Append-only balance changes of the LEDGER execution mode: an operation inserts its transactions
+// row and signed account_balance_deltas rows, and accounts.balance is only moved by fold().
+@Repository
+public class LedgerRepository {
+
+    private static final String DEPOSIT_SQL = """
+            WITH entry AS (
+                INSERT INTO transactions (account_id, transaction_type, amount)
+                SELECT id, 'DEPOSIT', :amount FROM accounts
+                WHERE account_number = :accountNumber AND balance_slots = 0
+                RETURNING account_id
+            )
+            INSERT INTO account_balance_deltas (account_id, amount)
+            SELECT account_id, :amount FROM entry
+            """;
+
+    // FOR NO KEY UPDATE queues debits of the same account behind each other but does not conflict
+    // with the KEY SHARE locks that credits take through their foreign keys.
+    private static final String LOCK_SQL = """
+            SELECT id FROM accounts WHERE id = :accountId AND balance_slots = 0 FOR NO KEY UPDATE
+            """;
+
+    // Kept apart from LOCK_SQL: a statement that waited for the lock re-checks only the locked row,
+    // not the subquery, and could see a fold on the row but not the deltas it removed.
+    private static final String AVAILABLE_SQL = """
+            SELECT a.balance + COALESCE((SELECT SUM(d.amount) FROM account_balance_deltas d
+                                         WHERE d.account_id = a.id), 0)
+            FROM accounts a WHERE a.id = :accountId
+            """;
+
+    private static final String WITHDRAW_SQL = """
+            WITH entry AS (
+                INSERT INTO transactions (account_id, transaction_type, amount)
+                VALUES (:accountId, 'WITHDRAW', :amount)
+                RETURNING account_id
+            )
+            INSERT INTO account_balance_deltas (account_id, amount)
+            SELECT account_id, -:amount FROM entry
+            """;
+
+    private static final String TRANSFER_SQL = """
+            WITH entry AS (
+                INSERT INTO transactions (account_id, counterparty_account_id, transaction_type, amount)
+                SELECT :fromAccountId, id, 'TRANSFER', :amount FROM accounts
+                WHERE account_number = :toAccountNumber AND balance_slots = 0 AND id <> :fromAccountId
+                RETURNING account_id, counterparty_account_id
+            )
+            INSERT INTO account_balance_deltas (account_id, amount)
+            SELECT account_id, -:amount FROM entry
+            UNION ALL
+            SELECT counterparty_account_id, :amount FROM entry
+            """;
+
+    private static final String APPEND_SQL = """
+            INSERT INTO account_balance_deltas (account_id, amount) VALUES (:accountId, :amount)
+            """;
+
+    // Deleting the deltas and moving their sum into the checkpoint in one statement keeps
+    // checkpoint + pending constant for every reader. Accounts are locked in id order first, so
+    // aggregators on several nodes never deadlock on overlapping batches.
+    private static final String FOLD_SQL = """
+            WITH folded AS (
+                DELETE FROM account_balance_deltas
+                WHERE id IN (SELECT id FROM account_balance_deltas ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED)
+                RETURNING account_id, amount
+            ), totals AS (
+                SELECT account_id, SUM(amount) AS amount, count(*) AS deltas FROM folded GROUP BY account_id
+            ), locked AS (
+                SELECT id FROM accounts WHERE id IN (SELECT account_id FROM totals) ORDER BY id FOR NO KEY UPDATE
+            )
+            UPDATE accounts a SET balance = a.balance + t.amount, version = a.version + 1
+            FROM totals t JOIN locked l ON l.id = t.account_id
+            WHERE a.id = t.account_id
+            RETURNING a.account_number, t.deltas
+            """;
+
+    private static final String BALANCE_SQL = """
+            SELECT a.id, a.version, a.balance_slots,
+                   a.balance + COALESCE((SELECT SUM(d.amount) FROM account_balance_deltas d
+                                         WHERE d.account_id = a.id), 0) AS balance
+            FROM accounts a WHERE a.id = :accountId
+            """;
+
+    private static final String PENDING_SQL = """
+            SELECT COALESCE(SUM(amount), 0) FROM account_balance_deltas WHERE account_id = :accountId
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public LedgerRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // False when the account is unknown or sharded; nothing was written then.
+    public boolean deposit(String accountNumber, long amount) {
+        return jdbcTemplate.update(DEPOSIT_SQL, new MapSqlParameterSource()
+                .addValue("accountNumber", accountNumber)
+                .addValue("amount", amount)) == 1;
+    }
+
+    // Locks an unsharded account against other debits and returns checkpoint + pending deltas;
+    // empty when the account is unknown or sharded.
+    public OptionalLong lockAvailableBalance(long accountId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("accountId", accountId);
+        if (jdbcTemplate.queryForList(LOCK_SQL, params, Long.class).isEmpty()) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(jdbcTemplate.queryForObject(AVAILABLE_SQL, params, Long.class));
+    }
+
+    // The caller holds the lock and has checked the available balance.
+    public void withdraw(long accountId, long amount) {
+        jdbcTemplate.update(WITHDRAW_SQL, new MapSqlParameterSource()
+                .addValue("accountId", accountId)
+                .addValue("amount", amount));
+    }
+
+    // Same precondition on the source; false when the destination is unknown or sharded.
+    public boolean transfer(long fromAccountId, String toAccountNumber, long amount) {
+        return jdbcTemplate.update(TRANSFER_SQL, new MapSqlParameterSource()
+                .addValue("fromAccountId", fromAccountId)
+                .addValue("toAccountNumber", toAccountNumber)
+                .addValue("amount", amount)) == 2;
+    }
+
+    public void appendDelta(long accountId, long amount) {
+        jdbcTemplate.update(APPEND_SQL, new MapSqlParameterSource()
+                .addValue("accountId", accountId)
+                .addValue("amount", amount));
+    }
+
+    // Folds up to limit of the oldest deltas, one row per account whose checkpoint moved.
+    public List<FoldedDeltas> fold(int limit) {
+        return jdbcTemplate.query(FOLD_SQL, new MapSqlParameterSource("limit", limit),
+                (rs, rowNum) -> new FoldedDeltas(rs.getString("account_number"), rs.getInt("deltas")));
+    }
+
+    public long pendingDelta(long accountId) {
+        return jdbcTemplate.queryForObject(PENDING_SQL, new MapSqlParameterSource("accountId", accountId), Long.class);
+    }
+
+    public Optional<BalanceView> findBalanceById(long accountId) {
+        return jdbcTemplate.query(BALANCE_SQL, new MapSqlParameterSource("accountId", accountId),
+                (rs, rowNum) -> new BalanceView(rs.getLong("id"), rs.getLong("balance"),
+                        rs.getInt("version"), rs.getInt("balance_slots"))).stream().findFirst();
+    }
+}
@@ -0,0 +1,135 @@
+package com.pasichenko.banking.repository;
+
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class OperationIntakeRepository {
+
+    private static final String APPEND_SQL = """
+            INSERT INTO operation_intake (operation_type, account_number, counterparty_account_number, amount, idempotency_key)
+            VALUES (:type, :accountNumber, :counterpartyAccountNumber, :amount, :idempotencyKey)
+            ON CONFLICT (idempotency_key) DO NOTHING
+            RETURNING id, status, error, created_at, completed_at
+            """;
+
+    // SKIP LOCKED lets several workers (and nodes) claim disjoint batches without waiting on each other
+    private static final String CLAIM_SQL = """
+            UPDATE operation_intake SET status = 'PROCESSING', claimed_at = CURRENT_TIMESTAMP, attempts = attempts + 1
+            WHERE id IN (
+                SELECT id FROM operation_intake WHERE status = 'PENDING'
+                ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id, operation_type, account_number, counterparty_account_number, amount, idempotency_key, attempts
+            """;
+
+    private static final String TICKET_COLUMNS = "id, status, error, created_at, completed_at";
+
+    private static final RowMapper<IntakeTicket> TICKET_MAPPER = (rs, rowNum) -> new IntakeTicket(
+            rs.getLong("id"),
+            IntakeTicket.Status.valueOf(rs.getString("status")),
+            rs.getString("error"),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getTimestamp("completed_at") == null ? null : rs.getTimestamp("completed_at").toLocalDateTime());
+
+    private static final RowMapper<BankingOperation> OPERATION_MAPPER = (rs, rowNum) -> new BankingOperation(
+            BankingOperation.Type.valueOf(rs.getString("operation_type")),
+            rs.getString("account_number"),
+            rs.getString("counterparty_account_number"),
+            rs.getLong("amount"),
+            rs.getString("idempotency_key"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public OperationIntakeRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Empty when the idempotency key was already used by an earlier submission.
+    public Optional<IntakeTicket> append(BankingOperation operation) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("type", operation.type().name())
+                .addValue("accountNumber", operation.accountNumber())
+                .addValue("counterpartyAccountNumber", operation.counterpartyAccountNumber())
+                .addValue("amount", operation.amount())
+                .addValue("idempotencyKey", operation.idempotencyKey());
+        return jdbcTemplate.query(APPEND_SQL, params, TICKET_MAPPER).stream().findFirst();
+    }
+
+    public Optional<IntakeTicket> findTicket(long id) {
+        return jdbcTemplate.query("SELECT " + TICKET_COLUMNS + " FROM operation_intake WHERE id = :id",
+                new MapSqlParameterSource("id", id), TICKET_MAPPER).stream().findFirst();
+    }
+
+    public Optional<Submission> findByIdempotencyKey(String idempotencyKey) {
+        return jdbcTemplate.query("SELECT * FROM operation_intake WHERE idempotency_key = :key",
+                new MapSqlParameterSource("key", idempotencyKey),
+                (rs, rowNum) -> new Submission(OPERATION_MAPPER.mapRow(rs, rowNum), TICKET_MAPPER.mapRow(rs, rowNum)))
+                .stream().findFirst();
+    }
+
+    public List<Claimed> claimPending(int limit) {
+        List<Claimed> claimed = new ArrayList<>(jdbcTemplate.query(CLAIM_SQL, new MapSqlParameterSource("limit", limit),
+                (rs, rowNum) -> new Claimed(rs.getLong("id"), OPERATION_MAPPER.mapRow(rs, rowNum), rs.getInt("attempts"))));
+        // RETURNING has no order; apply in submission order
+        claimed.sort(Comparator.comparingLong(Claimed::id));
+        return claimed;
+    }
+
+    public void complete(List<Claimed> claimed, List<OperationResult> results) {
+        SqlParameterSource[] batch = new SqlParameterSource[claimed.size()];
+        for (int i = 0; i < batch.length; i++) {
+            OperationResult result = results.get(i);
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("id", claimed.get(i).id())
+                    .addValue("status", result.successful() ? "SUCCEEDED" : "FAILED")
+                    .addValue("error", result.error());
+        }
+        jdbcTemplate.batchUpdate("UPDATE operation_intake SET status = :status, error = :error, " +
+                "completed_at = CURRENT_TIMESTAMP WHERE id = :id", batch);
+    }
+
+    public void fail(List<Claimed> claimed, String error) {
+        jdbcTemplate.update("UPDATE operation_intake SET status = 'FAILED', error = :error, " +
+                        "completed_at = CURRENT_TIMESTAMP WHERE id IN (:ids) AND status = 'PROCESSING'",
+                new MapSqlParameterSource("ids", claimed.stream().map(Claimed::id).toList())
+                        .addValue("error", error));
+    }
+
+    public void release(List<Claimed> claimed) {
+        jdbcTemplate.update("UPDATE operation_intake SET status = 'PENDING', claimed_at = NULL " +
+                        "WHERE id IN (:ids) AND status = 'PROCESSING'",
+                new MapSqlParameterSource("ids", claimed.stream().map(Claimed::id).toList()));
+    }
+
+    // Claims of a worker that died mid-batch go back to the queue.
+    public int releaseClaimedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("UPDATE operation_intake SET status = 'PENDING', claimed_at = NULL " +
+                        "WHERE status = 'PROCESSING' AND claimed_at < :cutoff",
+                new MapSqlParameterSource("cutoff", Timestamp.valueOf(cutoff)));
+    }
+
+    public int purgeCompletedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM operation_intake WHERE completed_at < :cutoff",
+                new MapSqlParameterSource("cutoff", Timestamp.valueOf(cutoff)));
+    }
+
+    // attempts counts this claim too
+    public record Claimed(long id, BankingOperation operation, int attempts) {
+    }
+
+    public record Submission(BankingOperation operation, IntakeTicket ticket) {
+    }
+}
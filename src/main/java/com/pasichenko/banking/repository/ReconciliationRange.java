@@ -0,0 +1,5 @@
+package com.pasichenko.banking.repository;
+
+// Inclusive account id range of a reconciliation run.
+public record ReconciliationRange(long firstAccountId, long lastAccountId) {
+}
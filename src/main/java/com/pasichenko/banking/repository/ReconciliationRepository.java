@@ -0,0 +1,164 @@
+package com.pasichenko.banking.repository;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Reconciliation runs, their planned id ranges and the discrepancies found. The checks run as set
+// operations inside Postgres: nothing per account is read into the JVM unless it is a discrepancy.
+@Repository
+public class ReconciliationRepository {
+
+    // Buckets of rangeSize existing ids, widened to touch each other so ids created in a gap later
+    // still fall into a range; one pass over the primary key.
+    private static final String PLAN_SQL = """
+            INSERT INTO reconciliation_ranges (run_id, first_account_id, last_account_id)
+            SELECT :runId, first_id, COALESCE(lead(first_id) OVER (ORDER BY first_id) - 1, last_id)
+            FROM (
+                SELECT min(id) AS first_id, max(id) AS last_id
+                FROM (SELECT id, (row_number() OVER (ORDER BY id) - 1) / :rangeSize AS bucket FROM accounts) ids
+                GROUP BY bucket
+            ) buckets
+            """;
+
+    // One statement, so balances and ledger are read from the same snapshot; the range row is locked
+    // first, so a range that someone else completed meanwhile reports nothing twice.
+    private static final String CHECK_RANGE_SQL = """
+            WITH open_range AS (
+                SELECT run_id FROM reconciliation_ranges
+                WHERE run_id = :runId AND first_account_id = :firstAccountId AND completed_at IS NULL
+                FOR UPDATE
+            ), ledger AS (
+                SELECT account_id, SUM(CASE WHEN direction = 'CREDIT' THEN amount ELSE -amount END) AS net
+                FROM account_postings
+                WHERE account_id BETWEEN :firstAccountId AND :lastAccountId
+                GROUP BY account_id
+            ), slots AS (
+                SELECT account_id, SUM(balance) AS balance FROM account_balance_slots
+                WHERE account_id BETWEEN :firstAccountId AND :lastAccountId
+                GROUP BY account_id
+            ), pending AS (
+                SELECT account_id, SUM(amount) AS amount FROM account_balance_deltas
+                WHERE account_id BETWEEN :firstAccountId AND :lastAccountId
+                GROUP BY account_id
+            ), checked AS (
+                SELECT a.id,
+                       a.opening_balance + COALESCE(l.net, 0) AS expected,
+                       a.balance + COALESCE(s.balance, 0) + COALESCE(p.amount, 0) AS actual
+                FROM accounts a
+                LEFT JOIN ledger l ON l.account_id = a.id
+                LEFT JOIN slots s ON s.account_id = a.id
+                LEFT JOIN pending p ON p.account_id = a.id
+                WHERE a.id BETWEEN :firstAccountId AND :lastAccountId AND EXISTS (SELECT 1 FROM open_range)
+            ), reported AS (
+                INSERT INTO reconciliation_discrepancies (run_id, account_id, expected_balance, actual_balance)
+                SELECT :runId, id, expected, actual FROM checked WHERE expected <> actual
+                RETURNING account_id
+            )
+            UPDATE reconciliation_ranges r
+            SET accounts = (SELECT count(*) FROM checked),
+                discrepancies = (SELECT count(*) FROM reported),
+                completed_at = CURRENT_TIMESTAMP
+            FROM open_range o
+            WHERE r.run_id = o.run_id AND r.first_account_id = :firstAccountId
+            """;
+
+    private static final String FINISH_SQL = """
+            UPDATE reconciliation_runs run
+            SET finished_at = CURRENT_TIMESTAMP,
+                accounts_checked = totals.accounts,
+                discrepancies = totals.discrepancies
+            FROM (SELECT SUM(accounts) AS accounts, SUM(discrepancies) AS discrepancies
+                  FROM reconciliation_ranges WHERE run_id = :runId) totals
+            WHERE run.id = :runId
+              AND NOT EXISTS (SELECT 1 FROM reconciliation_ranges WHERE run_id = :runId AND completed_at IS NULL)
+            """;
+
+    private static final String RUN_SQL = """
+            SELECT run.id, run.started_at, run.finished_at,
+                   count(r.first_account_id) AS ranges,
+                   count(r.completed_at) AS completed_ranges,
+                   COALESCE(SUM(r.accounts), 0) AS accounts_checked,
+                   COALESCE(SUM(r.discrepancies), 0) AS discrepancies
+            FROM reconciliation_runs run
+            LEFT JOIN reconciliation_ranges r ON r.run_id = run.id
+            WHERE run.id = (SELECT max(id) FROM reconciliation_runs)
+            GROUP BY run.id
+            """;
+
+    private static final RowMapper<ReconciliationRun> RUN_MAPPER = (rs, rowNum) -> new ReconciliationRun(
+            rs.getLong("id"),
+            rs.getTimestamp("started_at").toLocalDateTime(),
+            toLocalDateTime(rs.getTimestamp("finished_at")),
+            rs.getInt("ranges"),
+            rs.getInt("completed_ranges"),
+            rs.getLong("accounts_checked"),
+            rs.getLong("discrepancies"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ReconciliationRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<Long> findUnfinishedRun() {
+        return jdbcTemplate.queryForList("SELECT max(id) FROM reconciliation_runs WHERE finished_at IS NULL",
+                Map.of(), Long.class).stream().filter(id -> id != null).findFirst();
+    }
+
+    // Creates a run over the accounts that exist now and plans its ranges; returns the run id.
+    public long createRun(int rangeSize) {
+        Long runId = jdbcTemplate.queryForObject("INSERT INTO reconciliation_runs DEFAULT VALUES RETURNING id",
+                Map.of(), Long.class);
+        jdbcTemplate.update(PLAN_SQL, new MapSqlParameterSource()
+                .addValue("runId", runId)
+                .addValue("rangeSize", rangeSize));
+        return runId;
+    }
+
+    public List<ReconciliationRange> findOpenRanges(long runId) {
+        return jdbcTemplate.query("""
+                        SELECT first_account_id, last_account_id FROM reconciliation_ranges
+                        WHERE run_id = :runId AND completed_at IS NULL ORDER BY first_account_id
+                        """,
+                new MapSqlParameterSource("runId", runId),
+                (rs, rowNum) -> new ReconciliationRange(rs.getLong("first_account_id"), rs.getLong("last_account_id")));
+    }
+
+    // Checks every account of the range and marks it complete; false when it was already complete.
+    public boolean checkRange(long runId, ReconciliationRange range) {
+        return jdbcTemplate.update(CHECK_RANGE_SQL, new MapSqlParameterSource()
+                .addValue("runId", runId)
+                .addValue("firstAccountId", range.firstAccountId())
+                .addValue("lastAccountId", range.lastAccountId())) == 1;
+    }
+
+    // Closes the run with its totals once no range is open; false while some still are.
+    public boolean finishRun(long runId) {
+        return jdbcTemplate.update(FINISH_SQL, new MapSqlParameterSource("runId", runId)) == 1;
+    }
+
+    public Optional<ReconciliationRun> findLatestRun() {
+        return jdbcTemplate.query(RUN_SQL, Map.of(), RUN_MAPPER).stream().findFirst();
+    }
+
+    public List<Map<String, Object>> findDiscrepancies(long runId, int limit) {
+        return jdbcTemplate.queryForList("""
+                        SELECT a.account_number, d.expected_balance, d.actual_balance, d.detected_at
+                        FROM reconciliation_discrepancies d JOIN accounts a ON a.id = d.account_id
+                        WHERE d.run_id = :runId ORDER BY d.account_id LIMIT :limit
+                        """,
+                new MapSqlParameterSource().addValue("runId", runId).addValue("limit", limit));
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -0,0 +1,8 @@
+package com.pasichenko.banking.repository;
+
+import java.time.LocalDateTime;
+
+// Progress of a reconciliation run, totals summed over its completed ranges.
+public record ReconciliationRun(long id, LocalDateTime startedAt, LocalDateTime finishedAt,
+                                int ranges, int completedRanges, long accountsChecked, long discrepancies) {
+}
@@ -0,0 +1,148 @@
+package com.pasichenko.banking.repository;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class ScheduledTransferRepository {
+
+    private static final String CREATE_SQL = """
+            INSERT INTO scheduled_transfers (from_account_number, to_account_number, amount, recurrence,
+                                             start_at, end_at, next_run_at)
+            VALUES (:fromAccountNumber, :toAccountNumber, :amount, :recurrence, :startAt, :endAt, :startAt)
+            RETURNING *
+            """;
+
+    private static final String CANCEL_SQL = """
+            UPDATE scheduled_transfers SET status = 'CANCELLED', next_run_at = NULL
+            WHERE id = :id AND status = 'ACTIVE'
+            RETURNING *
+            """;
+
+    // served by idx_scheduled_transfers_due alone
+    private static final String WINDOW_SQL = """
+            SELECT id, next_run_at FROM scheduled_transfers
+            WHERE status = 'ACTIVE' AND next_run_at < :horizon
+            ORDER BY next_run_at LIMIT :limit
+            """;
+
+    // Due order is execution order: earlier occurrences of the same account are applied first.
+    private static final String DUE_SQL = """
+            SELECT * FROM scheduled_transfers
+            WHERE id IN (:ids) AND status = 'ACTIVE' AND next_run_at <= :now
+            ORDER BY next_run_at, id
+            """;
+
+    // Guarded by the occurrence, so a run recorded by another node is not recorded twice.
+    private static final String ADVANCE_SQL = """
+            UPDATE scheduled_transfers
+            SET occurrence = :nextOccurrence, next_run_at = :nextRunAt, status = :status,
+                last_run_at = :ranAt, last_error = :error
+            WHERE id = :id AND occurrence = :occurrence AND status = 'ACTIVE'
+            """;
+
+    private static final RowMapper<TransferSchedule> SCHEDULE_MAPPER = (rs, rowNum) -> new TransferSchedule(
+            rs.getLong("id"),
+            rs.getString("from_account_number"),
+            rs.getString("to_account_number"),
+            rs.getLong("amount"),
+            TransferSchedule.Recurrence.valueOf(rs.getString("recurrence")),
+            toInstant(rs, "start_at"),
+            toInstant(rs, "end_at"),
+            rs.getInt("occurrence"),
+            toInstant(rs, "next_run_at"),
+            TransferSchedule.Status.valueOf(rs.getString("status")),
+            toInstant(rs, "last_run_at"),
+            rs.getString("last_error"),
+            toInstant(rs, "created_at"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ScheduledTransferRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public TransferSchedule create(String fromAccountNumber, String toAccountNumber, long amount,
+                                   TransferSchedule.Recurrence recurrence, Instant startAt, Instant endAt) {
+        return jdbcTemplate.queryForObject(CREATE_SQL, new MapSqlParameterSource()
+                .addValue("fromAccountNumber", fromAccountNumber)
+                .addValue("toAccountNumber", toAccountNumber)
+                .addValue("amount", amount)
+                .addValue("recurrence", recurrence.name())
+                .addValue("startAt", toTimestamptz(startAt))
+                .addValue("endAt", toTimestamptz(endAt)), SCHEDULE_MAPPER);
+    }
+
+    public Optional<TransferSchedule> findById(long id) {
+        return jdbcTemplate.query("SELECT * FROM scheduled_transfers WHERE id = :id",
+                new MapSqlParameterSource("id", id), SCHEDULE_MAPPER).stream().findFirst();
+    }
+
+    // Empty when the schedule is unknown or no longer active.
+    public Optional<TransferSchedule> cancel(long id) {
+        return jdbcTemplate.query(CANCEL_SQL, new MapSqlParameterSource("id", id), SCHEDULE_MAPPER)
+                .stream().findFirst();
+    }
+
+    // Active schedules due before the horizon, overdue ones included, earliest first.
+    public List<DueRun> findDueBefore(Instant horizon, int limit) {
+        return jdbcTemplate.query(WINDOW_SQL, new MapSqlParameterSource()
+                        .addValue("horizon", toTimestamptz(horizon))
+                        .addValue("limit", limit),
+                (rs, rowNum) -> new DueRun(rs.getLong("id"), toInstant(rs, "next_run_at")));
+    }
+
+    // The schedules among ids that are still active and due, re-read because another node or a
+    // cancellation may have moved them since they were loaded.
+    public List<TransferSchedule> findDue(Collection<Long> ids, Instant now) {
+        return jdbcTemplate.query(DUE_SQL, new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("now", toTimestamptz(now)), SCHEDULE_MAPPER);
+    }
+
+    public void advance(List<Advance> advances) {
+        SqlParameterSource[] batch = new SqlParameterSource[advances.size()];
+        for (int i = 0; i < batch.length; i++) {
+            Advance advance = advances.get(i);
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("id", advance.id())
+                    .addValue("occurrence", advance.occurrence())
+                    .addValue("nextOccurrence", advance.nextOccurrence())
+                    .addValue("nextRunAt", toTimestamptz(advance.nextRunAt()))
+                    .addValue("status", advance.status().name())
+                    .addValue("ranAt", toTimestamptz(advance.ranAt()))
+                    .addValue("error", advance.error());
+        }
+        jdbcTemplate.batchUpdate(ADVANCE_SQL, batch);
+    }
+
+    // TIMESTAMPTZ columns (V20) are bound and read as offset date-times, never through the JVM's zone.
+    private static OffsetDateTime toTimestamptz(Instant instant) {
+        return instant == null ? null : instant.atOffset(ZoneOffset.UTC);
+    }
+
+    private static Instant toInstant(ResultSet rs, String column) throws SQLException {
+        OffsetDateTime time = rs.getObject(column, OffsetDateTime.class);
+        return time == null ? null : time.toInstant();
+    }
+
+    public record DueRun(long id, Instant nextRunAt) {
+    }
+
+    // Outcome of running occurrence of a schedule: where it goes next, if anywhere.
+    public record Advance(long id, int occurrence, int nextOccurrence, Instant nextRunAt,
+                          TransferSchedule.Status status, Instant ranAt, String error) {
+    }
+}
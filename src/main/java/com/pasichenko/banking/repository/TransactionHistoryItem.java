@@ -0,0 +1,18 @@
+package com.pasichenko.banking.repository;
+
+import java.time.LocalDateTime;
+
+public interface TransactionHistoryItem {
+
+    Long getId();
+
+    String getTransactionType();
+
+    String getDirection();
+
+    long getAmount();
+
+    LocalDateTime getCreatedAt();
+
+    Long getReferenceId();
+}
@@ -2,8 +2,32 @@ package com.pasichenko.banking.repository;
 
 import com.pasichenko.banking.entity.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+
+    // account_postings yields both legs of a transfer journal entry, each under its own account
+    String HISTORY_COLUMNS = "SELECT id, transaction_type AS transactionType, amount, created_at AS createdAt, " +
+            "reference_id AS referenceId, direction FROM account_postings ";
+
+    @Query(value = HISTORY_COLUMNS +
+            "WHERE account_id = :accountId ORDER BY created_at DESC, id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<TransactionHistoryItem> findLatest(@Param("accountId") Long accountId, @Param("limit") int limit);
+
+    // Row-value comparison keeps the seek on both history indexes regardless of page depth
+    @Query(value = HISTORY_COLUMNS +
+            "WHERE account_id = :accountId AND (created_at, id) < (:createdAt, :id) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<TransactionHistoryItem> findBefore(@Param("accountId") Long accountId,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") Long id,
+                                            @Param("limit") int limit);
 }
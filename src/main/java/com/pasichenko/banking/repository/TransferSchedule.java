@@ -0,0 +1,38 @@
+package com.pasichenko.banking.repository;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+// A future-dated or recurring transfer. occurrence is the index of nextRunAt within the recurrence.
+public record TransferSchedule(long id, String fromAccountNumber, String toAccountNumber, long amount,
+                               Recurrence recurrence, Instant startAt, Instant endAt,
+                               int occurrence, Instant nextRunAt, Status status,
+                               Instant lastRunAt, String lastError, Instant createdAt) {
+
+    public enum Status {
+        ACTIVE,
+        // every occurrence up to endAt has run
+        COMPLETED,
+        CANCELLED,
+        // a one-off transfer that could not be applied
+        FAILED
+    }
+
+    public enum Recurrence {
+        ONCE, DAILY, WEEKLY, MONTHLY;
+
+        // Occurrence n counted from the start, so a monthly transfer on the 31st keeps returning to
+        // the last day of shorter months instead of drifting; null past the only run of ONCE. Periods
+        // are fixed on the timeline (days of 24 hours, months of the UTC calendar), so no run falls
+        // into a daylight-saving gap or runs twice in an overlap.
+        public Instant occurrenceAt(Instant startAt, int n) {
+            return switch (this) {
+                case ONCE -> n == 0 ? startAt : null;
+                case DAILY -> startAt.plus(n, ChronoUnit.DAYS);
+                case WEEKLY -> startAt.plus(7L * n, ChronoUnit.DAYS);
+                case MONTHLY -> startAt.atOffset(ZoneOffset.UTC).plusMonths(n).toInstant();
+            };
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.pasichenko.banking.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+// Recent debits per account, read once at startup to seed the in-memory velocity limits.
+@Repository
+public class VelocityRepository {
+
+    // Withdrawals and the debited legs of transfers, both row shapes, summed per account and bucket
+    // inside Postgres. Ages are taken from the database clock and created_at prunes to the newest
+    // partitions; the credit branch of account_postings is constant-false here and never scanned.
+    private static final String RECENT_DEBITS_SQL = """
+            SELECT a.account_number,
+                   floor(extract(epoch FROM LOCALTIMESTAMP - p.created_at) / :bucketSeconds)::BIGINT AS buckets_ago,
+                   count(*) AS debits, SUM(p.amount) AS amount
+            FROM account_postings p
+            JOIN accounts a ON a.id = p.account_id
+            WHERE p.direction = 'DEBIT' AND p.transaction_type IN ('WITHDRAW', 'TRANSFER')
+              AND p.created_at > LOCALTIMESTAMP - :windowSeconds * INTERVAL '1 second'
+            GROUP BY a.account_number, buckets_ago
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public VelocityRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void forEachRecentDebits(Duration window, Duration bucket, Consumer<RecentDebits> consumer) {
+        jdbcTemplate.query(RECENT_DEBITS_SQL, new MapSqlParameterSource()
+                        .addValue("bucketSeconds", bucket.toSeconds())
+                        .addValue("windowSeconds", window.toSeconds()),
+                rs -> {
+                    consumer.accept(new RecentDebits(rs.getString("account_number"), rs.getLong("buckets_ago"),
+                            rs.getLong("debits"), rs.getLong("amount")));
+                });
+    }
+
+    // Debits of one account made between bucketsAgo and bucketsAgo + 1 buckets before now.
+    public record RecentDebits(String accountNumber, long bucketsAgo, long count, long amount) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.pasichenko.banking.service;
+
+import java.util.Optional;
+
+public interface AccountQueryService {
+
+    Optional<BalanceSnapshot> getBalance(String accountNumber);
+
+    Optional<TransactionHistoryPage> getTransactions(String accountNumber, TransactionHistoryPage.Cursor after, int limit);
+}
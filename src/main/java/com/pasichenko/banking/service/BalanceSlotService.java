@@ -0,0 +1,16 @@
+package com.pasichenko.banking.service;
+
+import com.pasichenko.banking.entity.Account;
+
+public interface BalanceSlotService {
+
+    void credit(Account account, long amount);
+
+    void debit(Account account, long amount);
+
+    long totalBalance(Account account);
+
+    void enableSharding(String accountNumber, int slots);
+
+    void disableSharding(String accountNumber);
+}
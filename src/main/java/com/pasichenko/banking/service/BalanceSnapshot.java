@@ -0,0 +1,50 @@
+package com.pasichenko.banking.service;
+
+public record BalanceSnapshot(String accountNumber, long balance, int version, boolean sharded, long capturedAtNanos) {
+
+    public static BalanceSnapshot of(String accountNumber, long balance, int version, boolean sharded) {
+        return new BalanceSnapshot(accountNumber, balance, version, sharded, System.nanoTime());
+    }
+
+    // Slot writes on a sharded account and unfolded ledger deltas leave the version alone, so the
+    // tag of such a balance carries the balance too.
+    public String etag() {
+        if (sharded) {
+            return "\"" + version + "-" + balance + "\"";
+        }
+        return "\"" + version + "\"";
+    }
+
+    // If-None-Match as RFC 9110 reads it: "*" or a comma-separated list of entity tags, compared
+    // weakly, so a W/ prefix on either side is ignored. A malformed header matches nothing.
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String etag = etag();
+        int length = ifNoneMatch.length();
+        int i = 0;
+        while (i < length) {
+            char c = ifNoneMatch.charAt(i);
+            if (c == ',' || c == ' ' || c == '\t') {
+                i++;
+                continue;
+            }
+            if (c == '*') {
+                return true;
+            }
+            if (ifNoneMatch.startsWith("W/", i)) {
+                i += 2;
+            }
+            int end = i < length && ifNoneMatch.charAt(i) == '"' ? ifNoneMatch.indexOf('"', i + 1) : -1;
+            if (end < 0) {
+                return false;
+            }
+            if (end + 1 - i == etag.length() && ifNoneMatch.startsWith(etag, i)) {
+                return true;
+            }
+            i = end + 1;
+        }
+        return false;
+    }
+}
@@ -1,13 +1,17 @@
 package com.pasichenko.banking.service;
 
-import java.math.BigDecimal;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
 
 public interface BankingService {
 
-    void deposit(String accountNumber, BigDecimal amount);
+    void deposit(String accountNumber, long amount);
 
-    void withdraw(String accountNumber, BigDecimal amount);
+    void withdraw(String accountNumber, long amount);
 
-    void transfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount);
+    void transfer(String fromAccountNumber, String toAccountNumber, long amount);
+
+    // Applies the operation, claiming its idempotency key (if any) in the same transaction.
+    OperationResult execute(BankingOperation operation);
 }
 
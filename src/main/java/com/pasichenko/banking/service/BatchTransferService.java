@@ -0,0 +1,11 @@
+package com.pasichenko.banking.service;
+
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+
+import java.util.List;
+
+public interface BatchTransferService {
+
+    List<OperationResult> transferAll(List<BankingOperation> transfers);
+}
@@ -0,0 +1,9 @@
+package com.pasichenko.banking.service;
+
+public enum ExecutionMode {
+    OPTIMISTIC,
+    CONDITIONAL_UPDATE,
+    PESSIMISTIC,
+    ADAPTIVE,
+    LEDGER
+}
@@ -0,0 +1,12 @@
+package com.pasichenko.banking.service;
+
+public interface ExecutionStrategy {
+
+    ExecutionMode mode();
+
+    void deposit(String accountNumber, long amount);
+
+    void withdraw(String accountNumber, long amount);
+
+    void transfer(String fromAccountNumber, String toAccountNumber, long amount);
+}
@@ -0,0 +1,10 @@
+package com.pasichenko.banking.service;
+
+import java.time.LocalDateTime;
+
+// One posting of a committed ledger row as published from the outbox. Delivery is at-least-once,
+// consumers deduplicate on eventId, or on (transactionId, direction): a transfer journal entry is one
+// row and publishes two events with the same transactionId, a DEBIT and a CREDIT.
+public record LedgerEvent(long eventId, long transactionId, String accountNumber, String type, String direction,
+                          long amount, Long referenceId, LocalDateTime occurredAt) {
+}
@@ -0,0 +1,10 @@
+package com.pasichenko.banking.service;
+
+import java.util.List;
+
+// Destination of relayed outbox events. A batch counts as delivered once publish returns; throwing
+// leaves the whole batch unpublished and it is offered again.
+public interface LedgerEventSink {
+
+    void publish(List<LedgerEvent> events);
+}
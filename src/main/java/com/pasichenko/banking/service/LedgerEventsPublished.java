@@ -0,0 +1,7 @@
+package com.pasichenko.banking.service;
+
+import java.util.List;
+
+// Application event carrying one relayed outbox batch to in-process listeners.
+public record LedgerEventsPublished(List<LedgerEvent> events) {
+}
@@ -0,0 +1,104 @@
+package com.pasichenko.banking.service;
+
+// Money is a long count of minor units (cents, scale 2) everywhere below the API: balances and
+// amounts in the database are BIGINT minor units too. Arithmetic is primitive and overflow-checked,
+// so applying an operation neither rounds nor allocates; text is only produced at the edges.
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private static final long MINOR_PER_MAJOR = 100;
+
+    private Money() {
+    }
+
+    public static long add(long balance, long amount) {
+        long result = balance + amount;
+        // overflow iff both operands have the sign the result lacks
+        if (((balance ^ result) & (amount ^ result)) < 0) {
+            throw new ArithmeticException("Balance overflow");
+        }
+        return result;
+    }
+
+    public static long subtract(long balance, long amount) {
+        long result = balance - amount;
+        if (((balance ^ amount) & (balance ^ result)) < 0) {
+            throw new ArithmeticException("Balance overflow");
+        }
+        return result;
+    }
+
+    // Exact decimal text ("10", "10.5", "10.50") to minor units; no sign, exponent or third decimal.
+    public static long parse(String text) {
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("Amount is required");
+        }
+        long major = 0;
+        int i = 0;
+        int length = text.length();
+        for (; i < length && text.charAt(i) != '.'; i++) {
+            major = major * 10 + digit(text, i);
+            if (major > Long.MAX_VALUE / MINOR_PER_MAJOR) {
+                throw new IllegalArgumentException("Amount out of range: " + text);
+            }
+        }
+        if (i == 0) {
+            throw new IllegalArgumentException("Invalid amount: " + text);
+        }
+        long minor = 0;
+        if (i < length) {
+            int decimals = length - i - 1;
+            if (decimals < 1 || decimals > SCALE) {
+                throw new IllegalArgumentException("Amount must have 1 to " + SCALE + " decimals: " + text);
+            }
+            for (int j = i + 1; j < length; j++) {
+                minor = minor * 10 + digit(text, j);
+            }
+            if (decimals == 1) {
+                minor *= 10;
+            }
+        }
+        if (major * MINOR_PER_MAJOR > Long.MAX_VALUE - minor) {
+            throw new IllegalArgumentException("Amount out of range: " + text);
+        }
+        return major * MINOR_PER_MAJOR + minor;
+    }
+
+    // Like parse, for amounts to move: zero is rejected.
+    public static long parsePositive(String text) {
+        long amount = parse(text);
+        if (amount == 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        return amount;
+    }
+
+    // Minor units to exact decimal text with both decimals, e.g. 1050 -> "10.50", -5 -> "-0.05".
+    public static String format(long amount) {
+        StringBuilder text = new StringBuilder(24);
+        appendTo(text, amount);
+        return text.toString();
+    }
+
+    public static void appendTo(StringBuilder text, long amount) {
+        if (amount < 0) {
+            text.append('-');
+        }
+        long major = Math.abs(amount / MINOR_PER_MAJOR);
+        long minor = Math.abs(amount % MINOR_PER_MAJOR);
+        text.append(major).append('.');
+        if (minor < 10) {
+            text.append('0');
+        }
+        text.append(minor);
+    }
+
+    private static int digit(String text, int index) {
+        char c = text.charAt(index);
+        if (c < '0' || c > '9') {
+            throw new IllegalArgumentException("Invalid amount: " + text);
+        }
+        return c - '0';
+    }
+}
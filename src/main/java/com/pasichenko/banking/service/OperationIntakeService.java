@@ -0,0 +1,14 @@
+package com.pasichenko.banking.service;
+
+import com.pasichenko.banking.repository.IntakeTicket;
+import com.pasichenko.banking.service.operation.BankingOperation;
+
+import java.util.Optional;
+
+public interface OperationIntakeService {
+
+    // Validates and durably records the operation; it is applied later by the intake workers.
+    IntakeTicket submit(BankingOperation operation);
+
+    Optional<IntakeTicket> find(long id);
+}
@@ -0,0 +1,18 @@
+package com.pasichenko.banking.service;
+
+import com.pasichenko.banking.repository.TransferSchedule;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface ScheduledTransferService {
+
+    // Validates and stores the schedule; its transfers are applied by the TransferScheduler.
+    TransferSchedule create(String fromAccountNumber, String toAccountNumber, long amount,
+                            TransferSchedule.Recurrence recurrence, Instant startAt, Instant endAt);
+
+    Optional<TransferSchedule> find(long id);
+
+    // Empty when the schedule is unknown; throws IllegalStateException when it is no longer active.
+    Optional<TransferSchedule> cancel(long id);
+}
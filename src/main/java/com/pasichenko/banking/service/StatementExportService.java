@@ -0,0 +1,16 @@
+package com.pasichenko.banking.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface StatementExportService {
+
+    // Empty when the account does not exist; otherwise an export that runs when written.
+    Optional<StatementExport> prepare(String accountNumber, LocalDate from, LocalDate to, StatementFormat format);
+
+    interface StatementExport {
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,71 @@
+package com.pasichenko.banking.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+
+public enum StatementFormat {
+
+    CSV("text/csv") {
+        @Override
+        public void writeHeader(Writer writer) throws IOException {
+            writer.write("id,created_at,type,direction,amount,reference_id\n");
+        }
+
+        @Override
+        public void writeRow(Writer writer, long id, LocalDateTime createdAt, String type, String direction,
+                             long amount, Long referenceId) throws IOException {
+            writer.write(Long.toString(id));
+            writer.write(',');
+            writer.write(createdAt.toString());
+            writer.write(',');
+            writer.write(type);
+            writer.write(',');
+            writer.write(direction);
+            writer.write(',');
+            writer.write(Money.format(amount));
+            writer.write(',');
+            if (referenceId != null) {
+                writer.write(Long.toString(referenceId));
+            }
+            writer.write('\n');
+        }
+    },
+
+    NDJSON("application/x-ndjson") {
+        @Override
+        public void writeRow(Writer writer, long id, LocalDateTime createdAt, String type, String direction,
+                             long amount, Long referenceId) throws IOException {
+            // every value is numeric, an enum name or an ISO timestamp, so nothing needs escaping
+            writer.write("{\"id\":");
+            writer.write(Long.toString(id));
+            writer.write(",\"createdAt\":\"");
+            writer.write(createdAt.toString());
+            writer.write("\",\"type\":\"");
+            writer.write(type);
+            writer.write("\",\"direction\":\"");
+            writer.write(direction);
+            writer.write("\",\"amount\":");
+            writer.write(Money.format(amount));
+            writer.write(",\"referenceId\":");
+            writer.write(referenceId == null ? "null" : Long.toString(referenceId));
+            writer.write("}\n");
+        }
+    };
+
+    private final String mediaType;
+
+    StatementFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public void writeHeader(Writer writer) throws IOException {
+    }
+
+    public abstract void writeRow(Writer writer, long id, LocalDateTime createdAt, String type, String direction,
+                                  long amount, Long referenceId) throws IOException;
+}
@@ -0,0 +1,30 @@
+package com.pasichenko.banking.service;
+
+import com.pasichenko.banking.repository.TransactionHistoryItem;
+
+import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+public record TransactionHistoryPage(List<TransactionHistoryItem> items, Cursor nextCursor) {
+
+    // Position of the last row handed out; opaque to clients.
+    public record Cursor(LocalDateTime createdAt, long id) {
+
+        public String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String value) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Malformed cursor", e);
+            }
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package com.pasichenko.banking.service;
 
-
 import com.pasichenko.banking.entity.Account;
 import com.pasichenko.banking.entity.Transaction;
 
-import java.math.BigDecimal;
 
 public interface TransactionService {
 
-    public Transaction recordTransaction(Account account, Transaction.TransactionType type, BigDecimal amount, Transaction reference);
+    public Transaction recordTransaction(Account account, Transaction.TransactionType type, long amount, Transaction reference);
+
+    // One journal entry for both legs of a transfer.
+    public Transaction recordTransfer(Account from, Account to, long amount);
 }
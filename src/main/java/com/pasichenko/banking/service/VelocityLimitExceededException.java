@@ -0,0 +1,12 @@
+package com.pasichenko.banking.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class VelocityLimitExceededException extends RuntimeException {
+
+    public VelocityLimitExceededException(String message) {
+        super(message);
+    }
+}
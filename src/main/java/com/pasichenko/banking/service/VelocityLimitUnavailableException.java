@@ -0,0 +1,12 @@
+package com.pasichenko.banking.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class VelocityLimitUnavailableException extends RuntimeException {
+
+    public VelocityLimitUnavailableException(String message) {
+        super(message);
+    }
+}
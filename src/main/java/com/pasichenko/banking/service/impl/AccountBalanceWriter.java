@@ -0,0 +1,47 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.service.BalanceSlotService;
+import com.pasichenko.banking.service.Money;
+import org.springframework.stereotype.Component;
+
+// Applies a balance change to an account that is already loaded (and, for pessimistic mode, locked).
+@Component
+public class AccountBalanceWriter {
+
+    private final AccountRepository accountRepository;
+    private final BalanceSlotService balanceSlotService;
+    private final BalanceCache balanceCache;
+
+    public AccountBalanceWriter(AccountRepository accountRepository, BalanceSlotService balanceSlotService,
+                                BalanceCache balanceCache) {
+        this.accountRepository = accountRepository;
+        this.balanceSlotService = balanceSlotService;
+        this.balanceCache = balanceCache;
+    }
+
+    // Hot accounts keep their money in balance slots, so the accounts row (and its version) is left alone.
+    public void credit(Account account, long amount) {
+        if (account.isBalanceSharded()) {
+            balanceSlotService.credit(account, amount);
+            return;
+        }
+        account.setBalance(Money.add(account.getBalance(), amount));
+        accountRepository.save(account);
+        balanceCache.updateAfterCommit(account);
+    }
+
+    public void debit(Account account, long amount) {
+        if (account.isBalanceSharded()) {
+            balanceSlotService.debit(account, amount);
+            return;
+        }
+        if (account.getBalance() < amount) {
+            throw new RuntimeException("Insufficient balance");
+        }
+        account.setBalance(Money.subtract(account.getBalance(), amount));
+        accountRepository.save(account);
+        balanceCache.updateAfterCommit(account);
+    }
+}
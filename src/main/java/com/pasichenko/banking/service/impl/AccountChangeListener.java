@@ -0,0 +1,152 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.AccountCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Keeps AccountLookupCache in line with inserts and deletes made anywhere (other nodes, psql,
+// migrations) through the account_changes channel fed by a trigger on accounts.
+@Slf4j
+@Component
+public class AccountChangeListener implements SmartLifecycle {
+
+    private static final String CHANNEL = "account_changes";
+
+    private final DataSource dataSource;
+    private final AccountLookupCache cache;
+    private final AccountCacheProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile boolean running;
+    private Connection connection;
+    private Thread thread;
+
+    public AccountChangeListener(DataSource dataSource, AccountLookupCache cache, AccountCacheProperties properties) {
+        this.dataSource = dataSource;
+        this.cache = cache;
+        this.properties = properties;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        cache.attach(this);
+        thread = new Thread(this::listen, "account-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Reads notifications already delivered to the socket; never sends a query and never waits
+    // for a rebuild in progress.
+    public void drainPending() {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if (connection == null) {
+                return;
+            }
+            PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications();
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    dispatch(notification.getParameter());
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Lost account change subscription: {}", e.getMessage());
+            disconnect();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try {
+                if (connection == null) {
+                    connect();
+                }
+                drainPending();
+                Thread.sleep(properties.getListenerPollInterval().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Account change listener failed, retrying: {}", e.getMessage());
+                disconnect();
+                sleepQuietly();
+            }
+        }
+        disconnect();
+    }
+
+    private void connect() throws SQLException {
+        lock.lock();
+        try {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+            }
+            cache.rebuild();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void disconnect() {
+        lock.lock();
+        try {
+            cache.invalidate();
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                    // already broken
+                }
+                connection = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch(String payload) {
+        String accountNumber = payload.substring(2);
+        if (payload.startsWith("I:")) {
+            cache.onAccountInserted(accountNumber);
+        } else {
+            cache.onAccountRemoved(accountNumber);
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
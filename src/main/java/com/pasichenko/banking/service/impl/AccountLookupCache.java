@@ -0,0 +1,145 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.AccountCacheProperties;
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.repository.AccountRef;
+import com.pasichenko.banking.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Resolves account numbers to primary keys without touching the database when possible.
+// Unknown numbers are rejected by the filter; known ones are loaded by id, which keeps the
+// balance-changing statements on the primary key and never pulls in the owning user.
+@Slf4j
+@Component
+public class AccountLookupCache {
+
+    private final AccountRepository accountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountCacheProperties properties;
+    private final Map<String, AccountRef> refs = new ConcurrentHashMap<>();
+
+    private volatile AccountNumberFilter filter;
+    private volatile AccountChangeListener changeListener;
+
+    public AccountLookupCache(AccountRepository accountRepository, JdbcTemplate jdbcTemplate,
+                              AccountCacheProperties properties) {
+        this.accountRepository = accountRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    public Optional<Account> load(String accountNumber) {
+        if (isKnownMissing(accountNumber)) {
+            return Optional.empty();
+        }
+        return loadUnfiltered(accountNumber);
+    }
+
+    // For callers whose own statement already went to the database: a filter miss there only means
+    // the insert notification has not arrived yet, so the database decides instead of the filter.
+    public Optional<Account> loadUnfiltered(String accountNumber) {
+        AccountRef ref = refs.get(accountNumber);
+        if (ref != null) {
+            Optional<Account> account = accountRepository.findById(ref.id());
+            if (account.isPresent() && account.get().getAccountNumber().equals(accountNumber)) {
+                return account;
+            }
+            refs.remove(accountNumber, ref); // account was deleted or renumbered behind our back
+        }
+        Optional<Account> account = accountRepository.findByAccountNumber(accountNumber);
+        account.ifPresent(this::remember);
+        return account;
+    }
+
+    public Optional<AccountRef> resolve(String accountNumber) {
+        if (isKnownMissing(accountNumber)) {
+            return Optional.empty();
+        }
+        AccountRef ref = refs.get(accountNumber);
+        if (ref != null) {
+            return Optional.of(ref);
+        }
+        Optional<AccountRef> loaded = accountRepository.findRefByAccountNumber(accountNumber);
+        loaded.ifPresent(this::remember);
+        return loaded;
+    }
+
+    public void evict(String accountNumber) {
+        refs.remove(accountNumber);
+    }
+
+    public void remember(Account account) {
+        remember(new AccountRef(account.getId(), account.getAccountNumber(), account.getAccountType()));
+    }
+
+    void onAccountInserted(String accountNumber) {
+        AccountNumberFilter current = filter;
+        if (current != null) {
+            current.add(accountNumber);
+        }
+    }
+
+    void onAccountRemoved(String accountNumber) {
+        refs.remove(accountNumber);
+    }
+
+    void attach(AccountChangeListener listener) {
+        this.changeListener = listener;
+    }
+
+    // Called by the change listener once it is subscribed, so no insert can slip between the scan and LISTEN.
+    void rebuild() {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM accounts", Long.class);
+        long expected = Math.max(properties.getExpectedAccounts(), (count == null ? 0 : count) * 2);
+        AccountNumberFilter rebuilt = new AccountNumberFilter(expected, properties.getFalsePositiveRate());
+        jdbcTemplate.query("SELECT account_number FROM accounts", rs -> {
+            rebuilt.add(rs.getString(1));
+        });
+        refs.clear();
+        filter = rebuilt;
+        log.info("Account number filter rebuilt for {} accounts", count);
+    }
+
+    // The filter stops being authoritative while the listener is disconnected.
+    void invalidate() {
+        filter = null;
+    }
+
+    private boolean isKnownMissing(String accountNumber) {
+        AccountNumberFilter current = filter;
+        if (!properties.isRejectUnknown() || current == null || current.mightContain(accountNumber)) {
+            return false;
+        }
+        AccountChangeListener listener = changeListener;
+        if (listener != null) {
+            // an insert committed a moment ago may still sit unread on the listener socket
+            listener.drainPending();
+        }
+        return !current.mightContain(accountNumber);
+    }
+
+    private void remember(AccountRef ref) {
+        if (refs.size() >= properties.getMaxSize()) {
+            evictSome();
+        }
+        refs.put(ref.accountNumber(), ref);
+        onAccountInserted(ref.accountNumber());
+    }
+
+    // approximate bound: drop roughly a sixteenth of the entries in iteration order
+    private void evictSome() {
+        int toRemove = Math.max(1, refs.size() / 16);
+        Iterator<String> keys = refs.keySet().iterator();
+        while (toRemove-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.CoalescingProperties;
+import com.pasichenko.banking.service.BankingService;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+// Front door for controller traffic. With coalescing enabled, operations are queued on a stripe
+// picked by the account they debit or credit first; whichever caller finds the stripe idle drains
+// it and commits what piled up in one transaction while the others wait for their result. A caller
+// drains only until its own operation is done, then wakes the next one in line to take over, so no
+// request thread ends up working off everyone else's queue under sustained load.
+@Slf4j
+@Component
+public class AccountOperationCoalescer {
+
+    private final BankingService bankingService;
+    private final OperationBatchExecutor batchExecutor;
+    private final IdempotencyStore idempotencyStore;
+    private final CoalescingProperties properties;
+    private final Stripe[] stripes;
+
+    public AccountOperationCoalescer(BankingService bankingService, OperationBatchExecutor batchExecutor,
+                                     IdempotencyStore idempotencyStore, CoalescingProperties properties) {
+        this.bankingService = bankingService;
+        this.batchExecutor = batchExecutor;
+        this.idempotencyStore = idempotencyStore;
+        this.properties = properties;
+        this.stripes = new Stripe[properties.getStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public void deposit(String accountNumber, long amount) {
+        if (!properties.isEnabled()) {
+            bankingService.deposit(accountNumber, amount);
+            return;
+        }
+        requireSuccess(submit(BankingOperation.deposit(accountNumber, amount)));
+    }
+
+    public void withdraw(String accountNumber, long amount) {
+        if (!properties.isEnabled()) {
+            bankingService.withdraw(accountNumber, amount);
+            return;
+        }
+        requireSuccess(submit(BankingOperation.withdraw(accountNumber, amount)));
+    }
+
+    public void transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        if (!properties.isEnabled()) {
+            bankingService.transfer(fromAccountNumber, toAccountNumber, amount);
+            return;
+        }
+        requireSuccess(submit(BankingOperation.transfer(fromAccountNumber, toAccountNumber, amount)));
+    }
+
+    // Entry point for operations that may carry an idempotency key. A repeated key is answered from
+    // the idempotency store before any queueing or transaction.
+    public OperationResult execute(BankingOperation operation) {
+        if (operation.idempotencyKey() == null) {
+            switch (operation.type()) {
+                case DEPOSIT -> deposit(operation.accountNumber(), operation.amount());
+                case WITHDRAW -> withdraw(operation.accountNumber(), operation.amount());
+                case TRANSFER -> transfer(operation.accountNumber(), operation.counterpartyAccountNumber(), operation.amount());
+            }
+            return OperationResult.success();
+        }
+        Optional<OperationResult> replay = idempotencyStore.replay(operation);
+        if (replay.isPresent()) {
+            return replay.get();
+        }
+        OperationResult result = properties.isEnabled() ? submit(operation) : bankingService.execute(operation);
+        if (result.replayed()) {
+            // an identical key committed while this one was in flight; check it was the same request
+            return idempotencyStore.replay(operation).orElse(result);
+        }
+        requireSuccess(result);
+        return result;
+    }
+
+    // Queues the operation and blocks until it is done, draining the stripe whenever it is idle.
+    public OperationResult submit(BankingOperation operation) {
+        Stripe stripe = stripes[Math.floorMod(operation.accountNumber().hashCode(), stripes.length)];
+        PendingOperation pending = new PendingOperation(operation, new CompletableFuture<>(), Thread.currentThread());
+        pending.result().whenComplete((result, e) -> LockSupport.unpark(pending.waiter()));
+        stripe.queue.add(pending);
+        while (!pending.result().isDone()) {
+            drain(stripe, pending);
+            if (!pending.result().isDone()) {
+                // woken when the result arrives or when this operation is next in line on an idle stripe
+                LockSupport.park(this);
+            }
+        }
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            // the batch's own exception, not the wrapper join() puts around it
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void drain(Stripe stripe, PendingOperation own) {
+        if (!stripe.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<PendingOperation> batch;
+            while (!own.result().isDone() && !(batch = poll(stripe)).isEmpty()) {
+                execute(batch);
+            }
+        } finally {
+            stripe.draining.set(false);
+        }
+        // checked after releasing the flag, so an operation queued meanwhile is not stranded
+        PendingOperation next = stripe.queue.peek();
+        if (next != null) {
+            LockSupport.unpark(next.waiter());
+        }
+    }
+
+    private List<PendingOperation> poll(Stripe stripe) {
+        List<PendingOperation> batch = new ArrayList<>();
+        PendingOperation next;
+        while (batch.size() < properties.getMaxBatchSize() && (next = stripe.queue.poll()) != null) {
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void execute(List<PendingOperation> batch) {
+        try {
+            List<OperationResult> results = batchExecutor.execute(batch.stream().map(PendingOperation::operation).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+            log.debug("Committed {} coalesced operations", batch.size());
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+
+    private static void requireSuccess(OperationResult result) {
+        if (!result.successful()) {
+            throw result.toException();
+        }
+    }
+
+    private record PendingOperation(BankingOperation operation, CompletableFuture<OperationResult> result,
+                                    Thread waiter) {
+    }
+
+    private static final class Stripe {
+        private final Queue<PendingOperation> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+    }
+}
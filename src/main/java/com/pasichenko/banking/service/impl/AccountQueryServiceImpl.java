@@ -0,0 +1,95 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.ExecutionProperties;
+import com.pasichenko.banking.repository.AccountBalanceSlotRepository;
+import com.pasichenko.banking.repository.AccountRef;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.repository.BalanceView;
+import com.pasichenko.banking.repository.LedgerRepository;
+import com.pasichenko.banking.repository.TransactionHistoryItem;
+import com.pasichenko.banking.repository.TransactionRepository;
+import com.pasichenko.banking.service.AccountQueryService;
+import com.pasichenko.banking.service.BalanceSnapshot;
+import com.pasichenko.banking.service.ExecutionMode;
+import com.pasichenko.banking.service.Money;
+import com.pasichenko.banking.service.TransactionHistoryPage;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class AccountQueryServiceImpl implements AccountQueryService {
+
+    // minimum and maximum of the limit parameter in banking-api.yml
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final AccountLookupCache accountLookupCache;
+    private final AccountRepository accountRepository;
+    private final AccountBalanceSlotRepository slotRepository;
+    private final BalanceCache balanceCache;
+    private final TransactionRepository transactionRepository;
+    private final LedgerRepository ledgerRepository;
+    private final boolean ledgerMode;
+
+    public AccountQueryServiceImpl(AccountLookupCache accountLookupCache, AccountRepository accountRepository,
+                                   AccountBalanceSlotRepository slotRepository, BalanceCache balanceCache,
+                                   TransactionRepository transactionRepository, LedgerRepository ledgerRepository,
+                                   ExecutionProperties executionProperties) {
+        this.accountLookupCache = accountLookupCache;
+        this.accountRepository = accountRepository;
+        this.slotRepository = slotRepository;
+        this.balanceCache = balanceCache;
+        this.transactionRepository = transactionRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.ledgerMode = executionProperties.getMode() == ExecutionMode.LEDGER;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<BalanceSnapshot> getBalance(String accountNumber) {
+        Optional<AccountRef> ref = accountLookupCache.resolve(accountNumber);
+        if (ref.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(balanceCache.get(accountNumber, () -> load(ref.get())));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<TransactionHistoryPage> getTransactions(String accountNumber, TransactionHistoryPage.Cursor after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Optional<AccountRef> ref = accountLookupCache.resolve(accountNumber);
+        if (ref.isEmpty()) {
+            return Optional.empty();
+        }
+        // one extra row tells whether another page exists
+        List<TransactionHistoryItem> rows = after == null
+                ? transactionRepository.findLatest(ref.get().id(), limit + 1)
+                : transactionRepository.findBefore(ref.get().id(), after.createdAt(), after.id(), limit + 1);
+        if (rows.size() <= limit) {
+            return Optional.of(new TransactionHistoryPage(rows, null));
+        }
+        List<TransactionHistoryItem> page = rows.subList(0, limit);
+        TransactionHistoryItem last = page.get(limit - 1);
+        return Optional.of(new TransactionHistoryPage(page, new TransactionHistoryPage.Cursor(last.getCreatedAt(), last.getId())));
+    }
+
+    private BalanceSnapshot load(AccountRef ref) {
+        // ledger mode: checkpoint plus the deltas not folded yet, read in one snapshot
+        BalanceView view = (ledgerMode ? ledgerRepository.findBalanceById(ref.id()) : accountRepository.findBalanceById(ref.id()))
+                .orElse(null);
+        if (view == null) {
+            accountLookupCache.evict(ref.accountNumber());
+            return null;
+        }
+        long balance = view.balance();
+        if (view.balanceSlots() > 0) {
+            // slot writes do not bump the version; the aggregate is read every time
+            balance = Money.add(balance, slotRepository.sumBalance(view.id()));
+        }
+        // pending deltas do not bump the version either
+        return BalanceSnapshot.of(ref.accountNumber(), balance, view.version(), ledgerMode || view.balanceSlots() > 0);
+    }
+}
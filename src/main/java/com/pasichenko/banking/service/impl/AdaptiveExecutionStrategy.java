@@ -0,0 +1,76 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.service.ExecutionMode;
+import com.pasichenko.banking.service.ExecutionStrategy;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleObjectStateException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+// Cold accounts take the cheap optimistic path; once an account's recent conflict rate crosses
+// the threshold, operations touching it switch to ordered pessimistic locks until it cools down.
+@Component
+public class AdaptiveExecutionStrategy implements ExecutionStrategy {
+
+    private final OptimisticExecutionStrategy optimistic;
+    private final PessimisticExecutionStrategy pessimistic;
+    private final ConflictRateTracker conflictRateTracker;
+    private final AccountRepository accountRepository;
+
+    public AdaptiveExecutionStrategy(OptimisticExecutionStrategy optimistic, PessimisticExecutionStrategy pessimistic,
+                                     ConflictRateTracker conflictRateTracker, AccountRepository accountRepository) {
+        this.optimistic = optimistic;
+        this.pessimistic = pessimistic;
+        this.conflictRateTracker = conflictRateTracker;
+        this.accountRepository = accountRepository;
+    }
+
+    @Override
+    public ExecutionMode mode() {
+        return ExecutionMode.ADAPTIVE;
+    }
+
+    @Override
+    public void deposit(String accountNumber, long amount) {
+        if (conflictRateTracker.isContended(accountNumber)) {
+            pessimistic.deposit(accountNumber, amount);
+            return;
+        }
+        observe(() -> optimistic.deposit(accountNumber, amount), accountNumber);
+    }
+
+    @Override
+    public void withdraw(String accountNumber, long amount) {
+        if (conflictRateTracker.isContended(accountNumber)) {
+            pessimistic.withdraw(accountNumber, amount);
+            return;
+        }
+        observe(() -> optimistic.withdraw(accountNumber, amount), accountNumber);
+    }
+
+    @Override
+    public void transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        if (conflictRateTracker.isContended(fromAccountNumber) || conflictRateTracker.isContended(toAccountNumber)) {
+            pessimistic.transfer(fromAccountNumber, toAccountNumber, amount);
+            return;
+        }
+        observe(() -> optimistic.transfer(fromAccountNumber, toAccountNumber, amount), fromAccountNumber, toAccountNumber);
+    }
+
+    // Flushes inside the strategy so a version conflict surfaces here, where we know which accounts it belongs to.
+    private void observe(Runnable operation, String... accountNumbers) {
+        try {
+            operation.run();
+            accountRepository.flush();
+        } catch (ObjectOptimisticLockingFailureException | OptimisticLockException | StaleObjectStateException e) {
+            for (String accountNumber : accountNumbers) {
+                conflictRateTracker.recordConflict(accountNumber);
+            }
+            throw e;
+        }
+        for (String accountNumber : accountNumbers) {
+            conflictRateTracker.recordSuccess(accountNumber);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.BalanceCacheProperties;
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.service.BalanceSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Balances of single-row accounts (sharded ones are never cached), keyed by account number. Writers push the committed balance in
+// place after commit; an entry is only ever replaced by one with a higher account version, so a
+// late callback can never roll the cache back.
+@Component
+public class BalanceCache {
+
+    private final BalanceCacheProperties properties;
+    private final Map<String, BalanceSnapshot> entries = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final DistributionSummary servedAge;
+
+    public BalanceCache(BalanceCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hits = Counter.builder("banking.balance.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("banking.balance.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.servedAge = DistributionSummary.builder("banking.balance.cache.served.age")
+                .baseUnit("milliseconds")
+                .description("Age of the cache entry a balance read was answered from")
+                .register(meterRegistry);
+        Gauge.builder("banking.balance.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    public BalanceSnapshot get(String accountNumber, Supplier<BalanceSnapshot> loader) {
+        long now = System.nanoTime();
+        BalanceSnapshot cached = entries.get(accountNumber);
+        if (cached != null && now - cached.capturedAtNanos() <= properties.getMaxStaleness().toNanos()) {
+            hits.increment();
+            servedAge.record((now - cached.capturedAtNanos()) / 1_000_000.0);
+            return cached;
+        }
+        misses.increment();
+        BalanceSnapshot loaded = loader.get();
+        if (loaded != null && !loaded.sharded()) {
+            put(loaded);
+        }
+        return loaded;
+    }
+
+    // Called from inside the writing transaction; the entry changes only once the commit went through.
+    public void updateAfterCommit(Account account) {
+        if (account.isBalanceSharded()) {
+            return;
+        }
+        afterCommit(() -> {
+            // version is read after the flush bumped it; without one there is nothing safe to cache
+            if (account.getVersion() == null) {
+                entries.remove(account.getAccountNumber());
+                return;
+            }
+            put(BalanceSnapshot.of(account.getAccountNumber(), account.getBalance(), account.getVersion(), false));
+        });
+    }
+
+    public void evictAfterCommit(String accountNumber) {
+        afterCommit(() -> entries.remove(accountNumber));
+    }
+
+    private void put(BalanceSnapshot snapshot) {
+        if (entries.size() >= properties.getMaxSize() && !entries.containsKey(snapshot.accountNumber())) {
+            evictSome();
+        }
+        entries.merge(snapshot.accountNumber(), snapshot,
+                (current, candidate) -> candidate.version() >= current.version() ? candidate : current);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void evictSome() {
+        int toRemove = Math.max(1, entries.size() / 16);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (toRemove-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
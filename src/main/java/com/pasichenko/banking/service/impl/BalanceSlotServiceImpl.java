@@ -0,0 +1,148 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.entity.AccountBalanceSlot;
+import com.pasichenko.banking.repository.AccountBalanceSlotRepository;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.repository.LedgerRepository;
+import com.pasichenko.banking.service.BalanceSlotService;
+import com.pasichenko.banking.service.Money;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Slf4j
+@Service
+public class BalanceSlotServiceImpl implements BalanceSlotService {
+
+    private final AccountBalanceSlotRepository slotRepository;
+    private final AccountRepository accountRepository;
+    private final LedgerRepository ledgerRepository;
+    private final BalanceCache balanceCache;
+
+    public BalanceSlotServiceImpl(AccountBalanceSlotRepository slotRepository, AccountRepository accountRepository,
+                                  LedgerRepository ledgerRepository, BalanceCache balanceCache) {
+        this.slotRepository = slotRepository;
+        this.accountRepository = accountRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.balanceCache = balanceCache;
+    }
+
+    @Transactional
+    public void credit(Account account, long amount) {
+        if (slotRepository.creditAnyFreeSlot(account.getId(), amount) == 1) {
+            return;
+        }
+        // every slot is busy: queue up behind one of them instead of failing
+        int slot = ThreadLocalRandom.current().nextInt(account.getBalanceSlots());
+        if (slotRepository.credit(account.getId(), slot, amount) == 0) {
+            throw new OptimisticLockException("Balance slots of account " + account.getAccountNumber() + " were removed");
+        }
+    }
+
+    @Transactional
+    public void debit(Account account, long amount) {
+        if (slotRepository.debitAnyFreeSlot(account.getId(), amount) == 1) {
+            return;
+        }
+        rebalanceAndDebit(account, amount);
+    }
+
+    // No single free slot covers the amount: lock every slot in slot order, take the debit
+    // from the aggregate and spread what is left evenly again.
+    private void rebalanceAndDebit(Account account, long amount) {
+        List<AccountBalanceSlot> slots = slotRepository.lockAllByAccountId(account.getId());
+        if (slots.isEmpty()) {
+            throw new OptimisticLockException("Balance slots of account " + account.getAccountNumber() + " were removed");
+        }
+        long total = sum(slots);
+        if (total < amount) {
+            throw new RuntimeException("Insufficient balance");
+        }
+        log.debug("Rebalancing {} slots of account {}", slots.size(), account.getAccountNumber());
+        long[] shares = split(total - amount, slots.size());
+        for (int i = 0; i < slots.size(); i++) {
+            slots.get(i).setBalance(shares[i]);
+        }
+        slotRepository.saveAll(slots);
+    }
+
+    @Transactional(readOnly = true)
+    public long totalBalance(Account account) {
+        if (!account.isBalanceSharded()) {
+            return account.getBalance();
+        }
+        return Money.add(account.getBalance(), slotRepository.sumBalance(account.getId()));
+    }
+
+    @Transactional
+    public void enableSharding(String accountNumber, int slots) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("Slot count must be positive");
+        }
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        if (account.isBalanceSharded()) {
+            return;
+        }
+        // Ledger-mode deltas not folded yet still land on the account row later. The slots start from
+        // the full balance and the row from minus the pending sum, so slot debits cannot overdraw.
+        // The row lock keeps new debits out; a fold in between fails the version check on save.
+        accountRepository.findAllForUpdateByIdIn(List.of(account.getId()));
+        long pending = ledgerRepository.pendingDelta(account.getId());
+        long[] shares = split(Money.add(account.getBalance(), pending), slots);
+        List<AccountBalanceSlot> rows = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            AccountBalanceSlot slot = new AccountBalanceSlot();
+            slot.setAccountId(account.getId());
+            slot.setSlot(i);
+            slot.setBalance(shares[i]);
+            rows.add(slot);
+        }
+        slotRepository.saveAll(rows);
+        account.setBalance(-pending);
+        account.setBalanceSlots(slots);
+        accountRepository.save(account);
+        balanceCache.evictAfterCommit(accountNumber);
+        log.info("Account {} switched to sharded balance with {} slots", accountNumber, slots);
+    }
+
+    @Transactional
+    public void disableSharding(String accountNumber) {
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        if (!account.isBalanceSharded()) {
+            return;
+        }
+        List<AccountBalanceSlot> slots = slotRepository.lockAllByAccountId(account.getId());
+        long folded = sum(slots);
+        slotRepository.deleteAll(slots);
+        account.setBalance(Money.add(account.getBalance(), folded));
+        account.setBalanceSlots(0);
+        accountRepository.save(account);
+        balanceCache.evictAfterCommit(accountNumber);
+        log.info("Account {} switched back to a single balance row", accountNumber);
+    }
+
+    private static long sum(List<AccountBalanceSlot> slots) {
+        long total = 0;
+        for (AccountBalanceSlot slot : slots) {
+            total = Money.add(total, slot.getBalance());
+        }
+        return total;
+    }
+
+    // Whole cents only: the first slot takes the remainder of the division.
+    private static long[] split(long total, int parts) {
+        long[] shares = new long[parts];
+        Arrays.fill(shares, total / parts);
+        shares[0] += total % parts;
+        return shares;
+    }
+}
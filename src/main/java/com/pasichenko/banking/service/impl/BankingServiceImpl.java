@@ -1,98 +1,139 @@
 package com.pasichenko.banking.service.impl;
 
-import com.pasichenko.banking.entity.Account;
-import com.pasichenko.banking.entity.Transaction;
-import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.config.ExecutionProperties;
 import com.pasichenko.banking.service.BankingService;
-import com.pasichenko.banking.service.TransactionService;
+import com.pasichenko.banking.service.ExecutionStrategy;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
 import jakarta.persistence.OptimisticLockException;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.StaleObjectStateException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
-import org.springframework.retry.support.RetrySynchronizationManager;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
 public class BankingServiceImpl implements BankingService {
 
-    private final AccountRepository accountRepository;
-    private final TransactionService transactionService;
-
-    public BankingServiceImpl(AccountRepository accountRepository, TransactionService transactionService) {
-        this.accountRepository = accountRepository;
-        this.transactionService = transactionService;
+    static final int MAX_ATTEMPTS = 3;
+
+    private final ExecutionStrategy strategy;
+    private final IdempotencyStore idempotencyStore;
+    private final VelocityLimiter velocityLimiter;
+    private final AccountLookupCache accountLookupCache;
+    // programmatic, so velocity limits are checked before a transaction (and a connection) is opened;
+    // joins the caller's transaction when there is one
+    private final TransactionTemplate transactionTemplate;
+
+    public BankingServiceImpl(List<ExecutionStrategy> strategies, ExecutionProperties executionProperties,
+                              IdempotencyStore idempotencyStore, VelocityLimiter velocityLimiter,
+                              AccountLookupCache accountLookupCache, PlatformTransactionManager transactionManager) {
+        this.idempotencyStore = idempotencyStore;
+        this.velocityLimiter = velocityLimiter;
+        this.accountLookupCache = accountLookupCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.strategy = strategies.stream()
+                .filter(candidate -> candidate.mode() == executionProperties.getMode())
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No execution strategy for mode " + executionProperties.getMode()));
+        log.info("Banking operations run in {} mode", strategy.mode());
     }
 
     @Retryable(
-            value = {OptimisticLockException.class,StaleObjectStateException.class},
-            maxAttempts = 3,
+            value = {OptimisticLockException.class,StaleObjectStateException.class,ObjectOptimisticLockingFailureException.class},
+            maxAttempts = MAX_ATTEMPTS,
             backoff = @Backoff(delay = 500)
     )
-    @Transactional(propagation = Propagation.REQUIRED)
-    public void deposit(String accountNumber, BigDecimal amount) {
+    public void deposit(String accountNumber, long amount) {
 
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new RuntimeException("Account not found"));
-        account.setBalance(account.getBalance().add(amount));
-        accountRepository.save(account);
-        transactionService.recordTransaction(account, Transaction.TransactionType.DEPOSIT, amount, null);
+        transactionTemplate.executeWithoutResult(status -> strategy.deposit(accountNumber, amount));
 
     }
 
     @Retryable(
-            value = {OptimisticLockException.class,StaleObjectStateException.class},
-            maxAttempts = 3,
+            value = {OptimisticLockException.class,StaleObjectStateException.class,ObjectOptimisticLockingFailureException.class},
+            maxAttempts = MAX_ATTEMPTS,
             backoff = @Backoff(delay = 500)
     )
-    @Transactional(propagation = Propagation.REQUIRED)
-    public void withdraw(String accountNumber, BigDecimal amount) {
-
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new RuntimeException("Account not found"));
-
-        if (account.getBalance().compareTo(amount) < 0) {
-            throw new RuntimeException("Insufficient balance");
-        }
+    public void withdraw(String accountNumber, long amount) {
 
-        account.setBalance(account.getBalance().subtract(amount));
-        accountRepository.save(account);
+        limited(BankingOperation.withdraw(accountNumber, amount), () -> {
+            strategy.withdraw(accountNumber, amount);
+            return OperationResult.success();
+        });
 
-        transactionService.recordTransaction(account, Transaction.TransactionType.WITHDRAW, amount, null);
+    }
 
+    @Retryable(
+            value = {OptimisticLockException.class,StaleObjectStateException.class,ObjectOptimisticLockingFailureException.class},
+            maxAttempts = MAX_ATTEMPTS,
+            backoff = @Backoff(delay = 500)
+    )
+    public void transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        requireDistinct(fromAccountNumber, toAccountNumber);
+        limited(BankingOperation.transfer(fromAccountNumber, toAccountNumber, amount), () -> {
+            strategy.transfer(fromAccountNumber, toAccountNumber, amount);
+            return OperationResult.success();
+        });
     }
 
     @Retryable(
-            value = {OptimisticLockException.class,StaleObjectStateException.class},
-            maxAttempts = 3,
+            value = {OptimisticLockException.class,StaleObjectStateException.class,ObjectOptimisticLockingFailureException.class},
+            maxAttempts = MAX_ATTEMPTS,
             backoff = @Backoff(delay = 500)
     )
-    @Transactional(propagation = Propagation.REQUIRED)
-    public void transfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount) {
+    public OperationResult execute(BankingOperation operation) {
+        if (operation.type() == BankingOperation.Type.TRANSFER) {
+            requireDistinct(operation.accountNumber(), operation.counterpartyAccountNumber());
+        }
+        return limited(operation, () -> {
+            // claimed first: a concurrent duplicate waits on the key here before touching any account,
+            // and every retry attempt claims again in its own transaction
+            if (operation.idempotencyKey() != null && !idempotencyStore.claim(operation)) {
+                return OperationResult.replay();
+            }
+            switch (operation.type()) {
+                case DEPOSIT -> strategy.deposit(operation.accountNumber(), operation.amount());
+                case WITHDRAW -> strategy.withdraw(operation.accountNumber(), operation.amount());
+                case TRANSFER -> strategy.transfer(operation.accountNumber(), operation.counterpartyAccountNumber(), operation.amount());
+            }
+            return OperationResult.success();
+        });
+    }
 
-        if (RetrySynchronizationManager.getContext().getRetryCount() > 0) {
-            log.warn("RETRIABLE EXECUTION");
-            log.warn(RetrySynchronizationManager.getContext().toString());
+    // Charges the velocity limits in memory, then runs the work in a transaction. The charge is
+    // refunded when the work fails or replays; a retry attempt charges again. An unknown source
+    // account is refused before the charge, so made-up numbers never take room in the limiter.
+    private OperationResult limited(BankingOperation operation, Supplier<OperationResult> work) {
+        if (velocityLimiter.applies(operation) && accountLookupCache.resolve(operation.accountNumber()).isEmpty()) {
+            throw new RuntimeException(operation.type() == BankingOperation.Type.TRANSFER
+                    ? "Source account not found" : "Account not found");
+        }
+        VelocityLimiter.Charge charge = velocityLimiter.charge(operation);
+        OperationResult result;
+        try {
+            result = transactionTemplate.execute(status -> work.get());
+        } catch (RuntimeException e) {
+            velocityLimiter.refund(charge);
+            throw e;
         }
-        Account fromAccount = accountRepository.findByAccountNumber(fromAccountNumber)
-                    .orElseThrow(() -> new RuntimeException("Source account not found"));
-        Account toAccount = accountRepository.findByAccountNumber(toAccountNumber)
-                .orElseThrow(() -> new RuntimeException("Destination account not found"));
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
-            throw new RuntimeException("Insufficient balance");
+        if (result.replayed()) {
+            velocityLimiter.refund(charge);
         }
-        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
-        toAccount.setBalance(toAccount.getBalance().add(amount));
-        accountRepository.save(fromAccount);
-        accountRepository.save(toAccount);
-        Transaction debitTransaction = transactionService.recordTransaction(fromAccount, Transaction.TransactionType.TRANSFER, amount, null);
-        transactionService.recordTransaction(toAccount, Transaction.TransactionType.TRANSFER, amount, debitTransaction);
+        return result;
     }
 
-
+    // a transfer is a single journal entry with a debited and a credited account, never the same one
+    private static void requireDistinct(String fromAccountNumber, String toAccountNumber) {
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            throw new RuntimeException("Cannot transfer to the same account");
+        }
+    }
 }
@@ -0,0 +1,35 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.BatchProperties;
+import com.pasichenko.banking.service.BatchTransferService;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+public class BatchTransferServiceImpl implements BatchTransferService {
+
+    private final OperationBatchExecutor batchExecutor;
+    private final BatchProperties properties;
+
+    public BatchTransferServiceImpl(OperationBatchExecutor batchExecutor, BatchProperties properties) {
+        this.batchExecutor = batchExecutor;
+        this.properties = properties;
+    }
+
+    public List<OperationResult> transferAll(List<BankingOperation> transfers) {
+        List<OperationResult> results = new ArrayList<>(transfers.size());
+        int chunkSize = properties.getChunkSize();
+        for (int from = 0; from < transfers.size(); from += chunkSize) {
+            List<BankingOperation> chunk = transfers.subList(from, Math.min(from + chunkSize, transfers.size()));
+            results.addAll(batchExecutor.execute(chunk));
+        }
+        log.debug("Processed {} transfers in chunks of {}", transfers.size(), chunkSize);
+        return results;
+    }
+}
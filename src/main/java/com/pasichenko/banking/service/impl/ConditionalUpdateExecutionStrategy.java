@@ -0,0 +1,105 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.entity.Transaction;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.repository.ConditionalUpdateRepository;
+import com.pasichenko.banking.service.BalanceSlotService;
+import com.pasichenko.banking.service.ExecutionMode;
+import com.pasichenko.banking.service.ExecutionStrategy;
+import com.pasichenko.banking.service.TransactionService;
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ConditionalUpdateExecutionStrategy implements ExecutionStrategy {
+
+    private final ConditionalUpdateRepository conditionalUpdateRepository;
+    private final AccountRepository accountRepository;
+    private final AccountLookupCache accountLookupCache;
+    private final TransactionService transactionService;
+    private final BalanceSlotService balanceSlotService;
+    private final BalanceCache balanceCache;
+
+    public ConditionalUpdateExecutionStrategy(ConditionalUpdateRepository conditionalUpdateRepository,
+                                              AccountRepository accountRepository,
+                                              AccountLookupCache accountLookupCache,
+                                              TransactionService transactionService,
+                                              BalanceSlotService balanceSlotService,
+                                              BalanceCache balanceCache) {
+        this.conditionalUpdateRepository = conditionalUpdateRepository;
+        this.accountRepository = accountRepository;
+        this.accountLookupCache = accountLookupCache;
+        this.transactionService = transactionService;
+        this.balanceSlotService = balanceSlotService;
+        this.balanceCache = balanceCache;
+    }
+
+    @Override
+    public ExecutionMode mode() {
+        return ExecutionMode.CONDITIONAL_UPDATE;
+    }
+
+    @Override
+    public void deposit(String accountNumber, long amount) {
+        balanceCache.evictAfterCommit(accountNumber);
+        if (conditionalUpdateRepository.deposit(accountNumber, amount)) {
+            return;
+        }
+        Account account = accountLookupCache.loadUnfiltered(accountNumber)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        credit(account, amount);
+        transactionService.recordTransaction(account, Transaction.TransactionType.DEPOSIT, amount, null);
+    }
+
+    @Override
+    public void withdraw(String accountNumber, long amount) {
+        balanceCache.evictAfterCommit(accountNumber);
+        if (conditionalUpdateRepository.withdraw(accountNumber, amount)) {
+            return;
+        }
+        Account account = accountLookupCache.loadUnfiltered(accountNumber)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        debit(account, amount);
+        transactionService.recordTransaction(account, Transaction.TransactionType.WITHDRAW, amount, null);
+    }
+
+    @Override
+    public void transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        // the statement does not hand back the new versions, so the cached balances are dropped instead
+        balanceCache.evictAfterCommit(fromAccountNumber);
+        balanceCache.evictAfterCommit(toAccountNumber);
+        switch (conditionalUpdateRepository.transfer(fromAccountNumber, toAccountNumber, amount)) {
+            case APPLIED -> {
+                return;
+            }
+            case PARTIAL -> throw new OptimisticLockException("Destination account changed during transfer");
+            case REJECTED -> { }
+        }
+        // Slow path: a missing or sharded account, or not enough money. Nothing has been written yet.
+        // The lookups skip the filter: an account inserted on another node may not be in it yet.
+        Account fromAccount = accountLookupCache.loadUnfiltered(fromAccountNumber)
+                .orElseThrow(() -> new RuntimeException("Source account not found"));
+        Account toAccount = accountLookupCache.loadUnfiltered(toAccountNumber)
+                .orElseThrow(() -> new RuntimeException("Destination account not found"));
+        debit(fromAccount, amount);
+        credit(toAccount, amount);
+        transactionService.recordTransfer(fromAccount, toAccount, amount);
+    }
+
+    private void credit(Account account, long amount) {
+        if (account.isBalanceSharded()) {
+            balanceSlotService.credit(account, amount);
+        } else if (accountRepository.creditBalance(account.getId(), amount) == 0) {
+            throw new OptimisticLockException("Account " + account.getAccountNumber() + " changed during update");
+        }
+    }
+
+    private void debit(Account account, long amount) {
+        if (account.isBalanceSharded()) {
+            balanceSlotService.debit(account, amount);
+        } else if (accountRepository.debitBalance(account.getId(), amount) == 0) {
+            throw new RuntimeException("Insufficient balance");
+        }
+    }
+}
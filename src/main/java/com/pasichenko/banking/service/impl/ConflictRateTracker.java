@@ -0,0 +1,74 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.ExecutionProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-account optimistic-lock conflict rate as an exponentially decaying average. An account that
+// stops seeing traffic (or is served pessimistically and so stops producing samples) cools down by
+// itself and goes back to the optimistic path.
+@Component
+public class ConflictRateTracker {
+
+    private static final double SAMPLE_WEIGHT = 0.25;
+
+    private final ExecutionProperties properties;
+    private final Map<String, Rate> rates = new ConcurrentHashMap<>();
+
+    public ConflictRateTracker(ExecutionProperties properties) {
+        this.properties = properties;
+    }
+
+    public boolean isContended(String accountNumber) {
+        Rate rate = rates.get(accountNumber);
+        return rate != null && rate.current(System.nanoTime(), halfLifeNanos()) >= properties.getAdaptiveConflictThreshold();
+    }
+
+    public void recordSuccess(String accountNumber) {
+        record(accountNumber, 0.0);
+    }
+
+    public void recordConflict(String accountNumber) {
+        record(accountNumber, 1.0);
+    }
+
+    public int trackedAccounts() {
+        return rates.size();
+    }
+
+    private void record(String accountNumber, double sample) {
+        long now = System.nanoTime();
+        if (sample == 0.0 && !rates.containsKey(accountNumber)) {
+            return; // cold accounts are not worth an entry
+        }
+        if (rates.size() >= properties.getAdaptiveTrackedAccounts() && !rates.containsKey(accountNumber)) {
+            evictCold(now);
+        }
+        rates.computeIfAbsent(accountNumber, key -> new Rate()).add(sample, now, halfLifeNanos());
+    }
+
+    private void evictCold(long now) {
+        long halfLife = halfLifeNanos();
+        rates.values().removeIf(rate -> rate.current(now, halfLife) < properties.getAdaptiveConflictThreshold() / 4);
+    }
+
+    private long halfLifeNanos() {
+        return properties.getAdaptiveHalfLife().toNanos();
+    }
+
+    private static final class Rate {
+        private double value;
+        private long updatedAt = System.nanoTime();
+
+        synchronized void add(double sample, long now, long halfLife) {
+            value = current(now, halfLife) * (1 - SAMPLE_WEIGHT) + sample * SAMPLE_WEIGHT;
+            updatedAt = now;
+        }
+
+        synchronized double current(long now, long halfLife) {
+            return value * Math.pow(0.5, (double) (now - updatedAt) / halfLife);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.EndOfDayProperties;
+import com.pasichenko.banking.repository.EndOfDayAccount;
+import com.pasichenko.banking.repository.EndOfDayPartition;
+import com.pasichenko.banking.repository.EndOfDayPostings;
+import com.pasichenko.banking.repository.EndOfDayRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Nightly interest and fees as a chunked batch instead of one BankingService call per account. A
+// run's partitions are posted in parallel on a dedicated fork-join pool; inside a partition every
+// chunk is one short transaction that locks its accounts in id order (reader), computes the
+// postings (EndOfDayPostingProcessor) and writes balances, ledger rows and the checkpoint in one
+// statement (writer). Live traffic waits at most one chunk for a row, and an interrupted run
+// continues after the last committed chunk of each partition.
+@Slf4j
+@Component
+public class EndOfDayBatchEngine {
+
+    // consecutive lock timeouts after which a partition is left open for the next run attempt
+    private static final int MAX_LOCK_ATTEMPTS = 10;
+
+    private final EndOfDayRepository endOfDayRepository;
+    private final EndOfDayPostingProcessor processor;
+    private final EndOfDayProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public EndOfDayBatchEngine(EndOfDayRepository endOfDayRepository, EndOfDayPostingProcessor processor,
+                               EndOfDayProperties properties, PlatformTransactionManager transactionManager) {
+        this.endOfDayRepository = endOfDayRepository;
+        this.processor = processor;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${banking.end-of-day.cron}")
+    public void scheduledRun() {
+        runSafely(LocalDate.now().minusDays(1));
+    }
+
+    // Returns false when a run is already in progress on this node.
+    public boolean startInBackground(LocalDate businessDate) {
+        requirePostable(businessDate);
+        if (running.get()) {
+            return false;
+        }
+        Thread thread = new Thread(() -> runSafely(businessDate), "end-of-day-batch");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    // Posts the date, resuming its run when one was started before; returns whether the date is
+    // fully posted. False as well when a run is already in progress on this node.
+    public boolean run(LocalDate businessDate) {
+        requirePostable(businessDate);
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            if (endOfDayRepository.isFinished(businessDate)) {
+                return true;
+            }
+            if (endOfDayRepository.createRun(businessDate, properties.getPartitionSize())) {
+                log.info("Started end-of-day run for {}", businessDate);
+            }
+            List<EndOfDayPartition> partitions = endOfDayRepository.findOpenPartitions(businessDate);
+            log.info("End-of-day run for {}: {} partitions open", businessDate, partitions.size());
+            ForkJoinPool pool = new ForkJoinPool(properties.getParallelism());
+            try {
+                pool.invoke(new PostPartitions(businessDate, partitions));
+            } finally {
+                pool.shutdown();
+            }
+            if (!endOfDayRepository.finishRun(businessDate)) {
+                log.warn("End-of-day run for {} left partitions open; run it again to resume", businessDate);
+                return false;
+            }
+            endOfDayRepository.findLatestRun().ifPresent(run -> log.info(
+                    "End-of-day run for {} posted {} accounts: {} credited, {} debited",
+                    run.businessDate(), run.accountsPosted(), run.amountCredited(), run.amountDebited()));
+            return true;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    // Every new date is a fresh run that pays a day's interest and maybe a fee, so only a day that has
+    // ended is posted, and none from before the first day ever posted.
+    private void requirePostable(LocalDate businessDate) {
+        if (!businessDate.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Business date " + businessDate + " has not ended yet");
+        }
+        Optional<LocalDate> earliest = endOfDayRepository.findEarliestFinishedDate();
+        if (earliest.isPresent() && businessDate.isBefore(earliest.get())) {
+            throw new IllegalArgumentException("Business date " + businessDate + " is before the first posted date "
+                    + earliest.get());
+        }
+    }
+
+    private void runSafely(LocalDate businessDate) {
+        try {
+            run(businessDate);
+        } catch (RuntimeException e) {
+            log.error("End-of-day run for {} failed", businessDate, e);
+        }
+    }
+
+    private void postPartition(LocalDate businessDate, EndOfDayPartition partition) {
+        int lockFailures = 0;
+        while (true) {
+            Boolean more;
+            try {
+                more = transactionTemplate.execute(status -> postChunk(businessDate, partition));
+                lockFailures = 0;
+            } catch (PessimisticLockingFailureException e) {
+                if (++lockFailures >= MAX_LOCK_ATTEMPTS) {
+                    log.warn("Leaving end-of-day partition {} of {} open after {} lock timeouts",
+                            partition.firstAccountId(), businessDate, lockFailures);
+                    return;
+                }
+                more = true;
+            }
+            pause(properties.getPauseBetweenChunks());
+            if (!Boolean.TRUE.equals(more)) {
+                return;
+            }
+        }
+    }
+
+    // One chunk in the caller's transaction; returns whether the partition has accounts left.
+    private boolean postChunk(LocalDate businessDate, EndOfDayPartition partition) {
+        endOfDayRepository.setLocalLockTimeout(properties.getLockTimeout());
+        OptionalLong checkpoint = endOfDayRepository.claimPartition(businessDate, partition.firstAccountId());
+        if (checkpoint.isEmpty()) {
+            return false;
+        }
+        int chunkSize = properties.getChunkSize();
+        List<Long> locked = endOfDayRepository.lockChunk(checkpoint.getAsLong(), partition.lastAccountId(), chunkSize);
+        long[] accountIds = locked.stream().mapToLong(Long::longValue).toArray();
+        List<EndOfDayAccount> accounts = accountIds.length == 0 ? List.of() : endOfDayRepository.readChunk(accountIds);
+        EndOfDayPostings postings = processor.process(businessDate, accounts);
+        boolean completed = accountIds.length < chunkSize;
+        long next = accountIds.length == 0 ? checkpoint.getAsLong() : accountIds[accountIds.length - 1];
+        endOfDayRepository.writeChunk(businessDate, partition.firstAccountId(), next, postings, completed);
+        return !completed;
+    }
+
+    private static void pause(Duration duration) {
+        long millis = duration.toMillis();
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Splits the partitions in halves down to single partitions, so idle workers steal whole halves.
+    private class PostPartitions extends RecursiveAction {
+
+        private final LocalDate businessDate;
+        private final List<EndOfDayPartition> partitions;
+
+        PostPartitions(LocalDate businessDate, List<EndOfDayPartition> partitions) {
+            this.businessDate = businessDate;
+            this.partitions = partitions;
+        }
+
+        @Override
+        protected void compute() {
+            if (partitions.size() > 1) {
+                int middle = partitions.size() / 2;
+                invokeAll(new PostPartitions(businessDate, partitions.subList(0, middle)),
+                        new PostPartitions(businessDate, partitions.subList(middle, partitions.size())));
+                return;
+            }
+            if (partitions.isEmpty()) {
+                return;
+            }
+            postPartition(businessDate, partitions.get(0));
+        }
+    }
+}
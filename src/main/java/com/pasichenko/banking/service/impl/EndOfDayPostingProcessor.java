@@ -0,0 +1,80 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.EndOfDayProperties;
+import com.pasichenko.banking.repository.EndOfDayAccount;
+import com.pasichenko.banking.repository.EndOfDayPostings;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+// The processor of the end-of-day batch: turns a chunk of locked accounts into interest and fee
+// postings. It sees only what the reader handed over, so it is plain arithmetic without I/O.
+@Component
+public class EndOfDayPostingProcessor {
+
+    private static final long BASIS_POINTS = 10_000;
+    // unit of accounts.accrued_interest: a millionth of a cent
+    private static final long ACCRUAL_SCALE = 1_000_000;
+
+    private final EndOfDayProperties properties;
+
+    public EndOfDayPostingProcessor(EndOfDayProperties properties) {
+        this.properties = properties;
+    }
+
+    public EndOfDayPostings process(LocalDate businessDate, List<EndOfDayAccount> accounts) {
+        long[] accountIds = new long[accounts.size()];
+        long[] amounts = new long[accounts.size()];
+        long[] accrued = new long[accounts.size()];
+        boolean feeDay = isFeeDay(businessDate);
+        int postings = 0;
+        for (EndOfDayAccount account : accounts) {
+            long amount = 0;
+            long carried = account.accruedInterest();
+            if (account.accountType().equalsIgnoreCase(properties.getInterestAccountType())) {
+                long interest = accrue(account.totalBalance(), carried, businessDate);
+                amount = interest / ACCRUAL_SCALE;
+                carried = interest % ACCRUAL_SCALE;
+            } else if (feeDay && account.accountType().equalsIgnoreCase(properties.getFeeAccountType())) {
+                amount = -fee(account.rowBalance());
+            }
+            if (amount != 0 || carried != account.accruedInterest()) {
+                accountIds[postings] = account.id();
+                amounts[postings] = amount;
+                accrued[postings] = carried;
+                postings++;
+            }
+        }
+        return new EndOfDayPostings(Arrays.copyOf(accountIds, postings), Arrays.copyOf(amounts, postings),
+                Arrays.copyOf(accrued, postings));
+    }
+
+    // The day's interest plus the carried fraction, in millionths of a cent. Whole cents are posted
+    // and the rest is carried, so small balances earn their interest too, just not every day. What
+    // is lost to rounding is under a millionth of a cent a day.
+    private long accrue(long balance, long carried, LocalDate businessDate) {
+        if (balance <= 0) {
+            return carried;
+        }
+        long yearly = Math.multiplyExact(balance, (long) properties.getInterestRateBasisPoints());
+        long perDay = BASIS_POINTS * businessDate.lengthOfYear();
+        long cents = yearly / perDay;
+        // the remainder is below perDay (at most 3,660,000), so scaling it cannot overflow
+        long fraction = yearly % perDay * ACCRUAL_SCALE / perDay;
+        return Math.addExact(Math.multiplyExact(cents, ACCRUAL_SCALE), carried + fraction);
+    }
+
+    // Charged only from what the account row itself holds: slot debits of a sharded account never
+    // look at the row, so a fee taken from it could be spent a second time out of the slots.
+    private long fee(long rowBalance) {
+        long fee = properties.getMonthlyFee();
+        return fee > 0 && rowBalance >= fee ? fee : 0;
+    }
+
+    // A fee day past the end of a short month falls on its last day.
+    private boolean isFeeDay(LocalDate businessDate) {
+        return businessDate.getDayOfMonth() == Math.min(properties.getFeeDayOfMonth(), businessDate.lengthOfMonth());
+    }
+}
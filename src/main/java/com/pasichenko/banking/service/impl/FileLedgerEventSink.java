@@ -0,0 +1,67 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.OutboxProperties;
+import com.pasichenko.banking.service.LedgerEvent;
+import com.pasichenko.banking.service.LedgerEventSink;
+import com.pasichenko.banking.service.Money;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Appends each batch as NDJSON lines to a local file and forces it to disk before the batch is
+// marked published. A crash in between can repeat a batch, never lose one.
+@Component
+@ConditionalOnProperty(name = "banking.outbox.sink", havingValue = "file")
+public class FileLedgerEventSink implements LedgerEventSink {
+
+    private final FileChannel channel;
+
+    public FileLedgerEventSink(OutboxProperties properties) throws IOException {
+        this.channel = FileChannel.open(properties.getFile(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized void publish(List<LedgerEvent> events) {
+        StringBuilder lines = new StringBuilder(events.size() * 192);
+        for (LedgerEvent event : events) {
+            appendLine(lines, event);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // every value is numeric, an enum name, an account number or an ISO timestamp, so nothing needs escaping
+    static void appendLine(StringBuilder lines, LedgerEvent event) {
+        lines.append("{\"eventId\":").append(event.eventId())
+                .append(",\"transactionId\":").append(event.transactionId())
+                .append(",\"accountNumber\":\"").append(event.accountNumber())
+                .append("\",\"type\":\"").append(event.type())
+                .append("\",\"direction\":\"").append(event.direction())
+                .append("\",\"amount\":");
+        Money.appendTo(lines, event.amount());
+        lines.append(",\"referenceId\":").append(event.referenceId())
+                .append(",\"occurredAt\":\"").append(event.occurredAt())
+                .append("\"}\n");
+    }
+}
@@ -0,0 +1,89 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.HotAccountProperties;
+import com.pasichenko.banking.service.impl.SpaceSavingSketch.HeavyHitter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+// Hottest accounts by operations and by optimistic-lock conflicts, one pair of sketches per window.
+// Account numbers would make unbounded metric tags, so they are only served by the hotaccounts
+// actuator endpoint; metrics get the share of traffic the top accounts took in the last window.
+@Component
+public class HotAccountTracker {
+
+    private final HotAccountProperties properties;
+
+    private volatile Window current;
+    private volatile Report last;
+
+    public HotAccountTracker(HotAccountProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.current = new Window(Instant.now(), properties.getCapacity());
+        this.last = current.report(properties.getTop(), Instant.now());
+        Gauge.builder("banking.hot.accounts.share", this, tracker -> share(tracker.last.operations(), tracker.last.totalOperations()))
+                .tag("kind", "operations")
+                .description("Share of operations in the last window that touched the top accounts")
+                .register(meterRegistry);
+        Gauge.builder("banking.hot.accounts.share", this, tracker -> share(tracker.last.conflicts(), tracker.last.totalConflicts()))
+                .tag("kind", "conflicts")
+                .description("Share of optimistic-lock conflicts in the last window on the top accounts")
+                .register(meterRegistry);
+    }
+
+    public void recordOperation(String accountNumber) {
+        current.operations.offer(accountNumber);
+    }
+
+    public void recordConflict(String accountNumber) {
+        current.conflicts.offer(accountNumber);
+    }
+
+    @Scheduled(initialDelayString = "${banking.metrics.hot-accounts.window}", fixedDelayString = "${banking.metrics.hot-accounts.window}")
+    public void rotate() {
+        Window finished = current;
+        Instant now = Instant.now();
+        current = new Window(now, properties.getCapacity());
+        last = finished.report(properties.getTop(), now);
+    }
+
+    public Report lastWindow() {
+        return last;
+    }
+
+    public Report currentWindow() {
+        return current.report(properties.getTop(), Instant.now());
+    }
+
+    private static double share(List<HeavyHitter> top, long total) {
+        if (total == 0) {
+            return 0.0;
+        }
+        return top.stream().mapToLong(HeavyHitter::count).sum() / (double) total;
+    }
+
+    public record Report(Instant from, Instant to, long totalOperations, List<HeavyHitter> operations,
+                         long totalConflicts, List<HeavyHitter> conflicts) {
+    }
+
+    private static final class Window {
+        private final Instant startedAt;
+        private final SpaceSavingSketch operations;
+        private final SpaceSavingSketch conflicts;
+
+        private Window(Instant startedAt, int capacity) {
+            this.startedAt = startedAt;
+            this.operations = new SpaceSavingSketch(capacity);
+            this.conflicts = new SpaceSavingSketch(capacity);
+        }
+
+        private Report report(int top, Instant until) {
+            return new Report(startedAt, until, operations.total(), operations.top(top),
+                    conflicts.total(), conflicts.top(top));
+        }
+    }
+}
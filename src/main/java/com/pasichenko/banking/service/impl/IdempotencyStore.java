@@ -0,0 +1,131 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.IdempotencyProperties;
+import com.pasichenko.banking.service.IdempotencyKeyReusedException;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Two tiers of applied idempotency keys. The idempotency_keys table is the source of truth: a key
+// is claimed inside the transaction that applies the operation, so it exists exactly when the
+// operation committed. Committed keys are also kept in a bounded map so repeats on this node are
+// answered without touching the database. Failed operations leave no key behind and can be retried.
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    // Reclaims a key whose previous use is past retention but not yet purged.
+    private static final String CLAIM_SQL = "INSERT INTO idempotency_keys (idempotency_key, request_fingerprint, created_at) " +
+            "VALUES (?, ?, ?) ON CONFLICT (idempotency_key) DO UPDATE " +
+            "SET request_fingerprint = EXCLUDED.request_fingerprint, created_at = EXCLUDED.created_at " +
+            "WHERE idempotency_keys.created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdempotencyProperties properties;
+    private final Map<String, AppliedKey> recent = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(JdbcTemplate jdbcTemplate, IdempotencyProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    // The replay of an already applied key, empty when the key is new.
+    public Optional<OperationResult> replay(BankingOperation operation) {
+        AppliedKey applied = recent.get(operation.idempotencyKey());
+        if (applied == null || applied.isExpired(properties)) {
+            applied = load(operation.idempotencyKey());
+            if (applied == null) {
+                return Optional.empty();
+            }
+            remember(operation.idempotencyKey(), applied);
+        }
+        if (!applied.fingerprint().equals(fingerprint(operation))) {
+            throw new IdempotencyKeyReusedException(operation.idempotencyKey());
+        }
+        return Optional.of(OperationResult.replay());
+    }
+
+    // Must run in the transaction that applies the operation. Returns false when the key was
+    // already applied, possibly by a concurrent request this call waited for.
+    public boolean claim(BankingOperation operation) {
+        LocalDateTime now = LocalDateTime.now();
+        String fingerprint = fingerprint(operation);
+        int claimed = jdbcTemplate.update(CLAIM_SQL, operation.idempotencyKey(), fingerprint,
+                Timestamp.valueOf(now), Timestamp.valueOf(now.minus(properties.getRetention())));
+        if (claimed == 0) {
+            return false;
+        }
+        AppliedKey applied = new AppliedKey(fingerprint, now);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(operation.idempotencyKey(), applied);
+                }
+            });
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${banking.idempotency.purge-interval}")
+    public void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getRetention());
+        int purged = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?", Timestamp.valueOf(cutoff));
+        recent.values().removeIf(applied -> applied.isExpired(properties));
+        if (purged > 0) {
+            log.debug("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private AppliedKey load(String idempotencyKey) {
+        try {
+            return jdbcTemplate.queryForObject(
+                    "SELECT request_fingerprint, created_at FROM idempotency_keys WHERE idempotency_key = ? AND created_at >= ?",
+                    (rs, rowNum) -> new AppliedKey(rs.getString(1), rs.getTimestamp(2).toLocalDateTime()),
+                    idempotencyKey, Timestamp.valueOf(LocalDateTime.now().minus(properties.getRetention())));
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    private void remember(String idempotencyKey, AppliedKey applied) {
+        if (recent.size() >= properties.getCacheSize() && !recent.containsKey(idempotencyKey)) {
+            evictSome();
+        }
+        recent.put(idempotencyKey, applied);
+    }
+
+    private void evictSome() {
+        int toRemove = Math.max(1, recent.size() / 16);
+        Iterator<String> keys = recent.keySet().iterator();
+        while (toRemove-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String fingerprint(BankingOperation operation) {
+        return operation.type() + ":" + operation.accountNumber() + ":" + operation.counterpartyAccountNumber() + ":"
+                + operation.amount();
+    }
+
+    private record AppliedKey(String fingerprint, LocalDateTime createdAt) {
+
+        boolean isExpired(IdempotencyProperties properties) {
+            return createdAt.isBefore(LocalDateTime.now().minus(properties.getRetention()));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.service.LedgerEvent;
+import com.pasichenko.banking.service.LedgerEventSink;
+import com.pasichenko.banking.service.LedgerEventsPublished;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Default sink: hands each batch to @EventListener beans on the relay thread. A listener that
+// throws fails the batch, which is then redelivered.
+@Component
+@ConditionalOnProperty(name = "banking.outbox.sink", havingValue = "in-process", matchIfMissing = true)
+public class InProcessLedgerEventSink implements LedgerEventSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public InProcessLedgerEventSink(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void publish(List<LedgerEvent> events) {
+        eventPublisher.publishEvent(new LedgerEventsPublished(List.copyOf(events)));
+    }
+}
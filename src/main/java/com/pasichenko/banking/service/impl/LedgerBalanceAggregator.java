@@ -0,0 +1,115 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.ExecutionProperties;
+import com.pasichenko.banking.config.LedgerProperties;
+import com.pasichenko.banking.repository.FoldedDeltas;
+import com.pasichenko.banking.repository.LedgerRepository;
+import com.pasichenko.banking.service.ExecutionMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Folds the balance deltas of LEDGER mode into accounts.balance, oldest first, so a balance read
+// only has to add up what arrived since the last fold. Every node drains the table before it takes
+// requests, whatever its mode: the other modes read and write accounts.balance directly and must
+// not start on top of unfolded deltas. Only LEDGER mode keeps folding afterwards.
+@Slf4j
+@Component
+public class LedgerBalanceAggregator implements SmartLifecycle {
+
+    private final LedgerRepository ledgerRepository;
+    private final BalanceCache balanceCache;
+    private final LedgerProperties properties;
+    private final ExecutionProperties executionProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public LedgerBalanceAggregator(LedgerRepository ledgerRepository, BalanceCache balanceCache,
+                                   LedgerProperties properties, ExecutionProperties executionProperties,
+                                   PlatformTransactionManager transactionManager) {
+        this.ledgerRepository = ledgerRepository;
+        this.balanceCache = balanceCache;
+        this.properties = properties;
+        this.executionProperties = executionProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void start() {
+        // drain what earlier LEDGER-mode runs left behind
+        int folded;
+        do {
+            folded = foldOnce();
+        } while (folded == properties.getFoldBatchSize());
+        if (executionProperties.getMode() != ExecutionMode.LEDGER) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::aggregate, "ledger-aggregator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // before the web server starts taking requests
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    // Returns the number of deltas folded, 0 when nothing was pending.
+    public int foldOnce() {
+        Integer folded = transactionTemplate.execute(status -> {
+            int deltas = 0;
+            for (FoldedDeltas account : ledgerRepository.fold(properties.getFoldBatchSize())) {
+                // the sum a reader sees is unchanged, but the cached version is not
+                balanceCache.evictAfterCommit(account.accountNumber());
+                deltas += account.deltas();
+            }
+            return deltas;
+        });
+        return folded == null ? 0 : folded;
+    }
+
+    private void aggregate() {
+        while (running) {
+            try {
+                // a full batch means more is probably waiting, so only idle after a short one
+                if (foldOnce() < properties.getFoldBatchSize()) {
+                    Thread.sleep(properties.getFoldInterval().toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.warn("Balance fold failed, retrying: {}", e.getMessage());
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
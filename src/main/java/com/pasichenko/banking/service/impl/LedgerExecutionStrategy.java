@@ -0,0 +1,126 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.ExecutionProperties;
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.entity.Transaction;
+import com.pasichenko.banking.repository.AccountRef;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.repository.LedgerRepository;
+import com.pasichenko.banking.service.BalanceSlotService;
+import com.pasichenko.banking.service.ExecutionMode;
+import com.pasichenko.banking.service.ExecutionStrategy;
+import com.pasichenko.banking.service.TransactionService;
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.stereotype.Component;
+
+import java.util.OptionalLong;
+
+// Append-only mode: no operation updates accounts.balance. Credits are pure inserts and never wait
+// on anything; debits lock only the debited account, check checkpoint + pending deltas against the
+// amount and append. LedgerBalanceAggregator folds the deltas into the checkpoints behind them.
+@Component
+public class LedgerExecutionStrategy implements ExecutionStrategy {
+
+    private final LedgerRepository ledgerRepository;
+    private final AccountRepository accountRepository;
+    private final AccountLookupCache accountLookupCache;
+    private final TransactionService transactionService;
+    private final BalanceSlotService balanceSlotService;
+    private final BalanceCache balanceCache;
+    private final ExecutionProperties properties;
+
+    public LedgerExecutionStrategy(LedgerRepository ledgerRepository, AccountRepository accountRepository,
+                                   AccountLookupCache accountLookupCache, TransactionService transactionService,
+                                   BalanceSlotService balanceSlotService, BalanceCache balanceCache,
+                                   ExecutionProperties properties) {
+        this.ledgerRepository = ledgerRepository;
+        this.accountRepository = accountRepository;
+        this.accountLookupCache = accountLookupCache;
+        this.transactionService = transactionService;
+        this.balanceSlotService = balanceSlotService;
+        this.balanceCache = balanceCache;
+        this.properties = properties;
+    }
+
+    @Override
+    public ExecutionMode mode() {
+        return ExecutionMode.LEDGER;
+    }
+
+    @Override
+    public void deposit(String accountNumber, long amount) {
+        balanceCache.evictAfterCommit(accountNumber);
+        if (ledgerRepository.deposit(accountNumber, amount)) {
+            return;
+        }
+        Account account = accountLookupCache.load(accountNumber)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        credit(account, amount);
+        transactionService.recordTransaction(account, Transaction.TransactionType.DEPOSIT, amount, null);
+    }
+
+    @Override
+    public void withdraw(String accountNumber, long amount) {
+        balanceCache.evictAfterCommit(accountNumber);
+        AccountRef ref = accountLookupCache.resolve(accountNumber)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        if (reserve(ref.id(), amount)) {
+            ledgerRepository.withdraw(ref.id(), amount);
+            return;
+        }
+        Account account = accountLookupCache.load(accountNumber)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        debit(account, amount);
+        transactionService.recordTransaction(account, Transaction.TransactionType.WITHDRAW, amount, null);
+    }
+
+    @Override
+    public void transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        balanceCache.evictAfterCommit(fromAccountNumber);
+        balanceCache.evictAfterCommit(toAccountNumber);
+        AccountRef from = accountLookupCache.resolve(fromAccountNumber)
+                .orElseThrow(() -> new RuntimeException("Source account not found"));
+        if (reserve(from.id(), amount) && ledgerRepository.transfer(from.id(), toAccountNumber, amount)) {
+            return;
+        }
+        // Slow path: a sharded or missing account. The source may already be locked, nothing is written yet.
+        Account fromAccount = accountLookupCache.load(fromAccountNumber)
+                .orElseThrow(() -> new RuntimeException("Source account not found"));
+        Account toAccount = accountLookupCache.load(toAccountNumber)
+                .orElseThrow(() -> new RuntimeException("Destination account not found"));
+        debit(fromAccount, amount);
+        credit(toAccount, amount);
+        transactionService.recordTransfer(fromAccount, toAccount, amount);
+    }
+
+    // True once the unsharded account is locked and covers the amount; false when it is sharded or gone.
+    private boolean reserve(long accountId, long amount) {
+        accountRepository.setLocalLockTimeout(properties.getLockTimeout().toMillis() + "ms");
+        OptionalLong available = ledgerRepository.lockAvailableBalance(accountId);
+        if (available.isEmpty()) {
+            return false;
+        }
+        if (available.getAsLong() < amount) {
+            throw new RuntimeException("Insufficient balance");
+        }
+        return true;
+    }
+
+    private void credit(Account account, long amount) {
+        if (account.isBalanceSharded()) {
+            balanceSlotService.credit(account, amount);
+        } else {
+            ledgerRepository.appendDelta(account.getId(), amount);
+        }
+    }
+
+    private void debit(Account account, long amount) {
+        if (account.isBalanceSharded()) {
+            balanceSlotService.debit(account, amount);
+        } else if (reserve(account.getId(), amount)) {
+            ledgerRepository.appendDelta(account.getId(), -amount);
+        } else {
+            throw new OptimisticLockException("Account " + account.getAccountNumber() + " changed during update");
+        }
+    }
+}
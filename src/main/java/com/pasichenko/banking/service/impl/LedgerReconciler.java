@@ -0,0 +1,122 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.ReconciliationProperties;
+import com.pasichenko.banking.repository.ReconciliationRange;
+import com.pasichenko.banking.repository.ReconciliationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Checks every account's balance against its opening balance plus its ledger movements. A run is
+// split into account id ranges that are checked in parallel on a dedicated fork-join pool; each
+// range commits its result on its own, so a run that is interrupted (crash, redeploy) is picked up
+// again at the ranges still open instead of starting over.
+@Slf4j
+@Component
+public class LedgerReconciler {
+
+    private final ReconciliationRepository reconciliationRepository;
+    private final ReconciliationProperties properties;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public LedgerReconciler(ReconciliationRepository reconciliationRepository, ReconciliationProperties properties) {
+        this.reconciliationRepository = reconciliationRepository;
+        this.properties = properties;
+    }
+
+    @Scheduled(cron = "${banking.reconciliation.cron}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.error("Ledger reconciliation failed", e);
+        }
+    }
+
+    // Returns false when a run is already in progress on this node.
+    public boolean startInBackground() {
+        if (running.get()) {
+            return false;
+        }
+        Thread thread = new Thread(this::scheduledReconcile, "ledger-reconciler");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    // Resumes the unfinished run or starts a new one and returns its id; -1 when a run is already
+    // in progress on this node.
+    public long reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            return -1;
+        }
+        try {
+            long runId = reconciliationRepository.findUnfinishedRun()
+                    .orElseGet(() -> reconciliationRepository.createRun(properties.getRangeSize()));
+            List<ReconciliationRange> ranges = reconciliationRepository.findOpenRanges(runId);
+            log.info("Reconciling run {}: {} ranges open", runId, ranges.size());
+            ForkJoinPool pool = new ForkJoinPool(properties.getParallelism());
+            try {
+                pool.invoke(new CheckRanges(runId, ranges));
+            } finally {
+                pool.shutdown();
+            }
+            if (reconciliationRepository.finishRun(runId)) {
+                reconciliationRepository.findLatestRun().ifPresent(run -> log.info(
+                        "Reconciliation run {} checked {} accounts, {} discrepancies",
+                        run.id(), run.accountsChecked(), run.discrepancies()));
+            }
+            return runId;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    // Splits the ranges in halves down to single ranges, so idle workers steal whole halves.
+    private class CheckRanges extends RecursiveAction {
+
+        private final long runId;
+        private final List<ReconciliationRange> ranges;
+
+        CheckRanges(long runId, List<ReconciliationRange> ranges) {
+            this.runId = runId;
+            this.ranges = ranges;
+        }
+
+        @Override
+        protected void compute() {
+            if (ranges.size() > 1) {
+                int middle = ranges.size() / 2;
+                invokeAll(new CheckRanges(runId, ranges.subList(0, middle)),
+                        new CheckRanges(runId, ranges.subList(middle, ranges.size())));
+                return;
+            }
+            if (ranges.isEmpty()) {
+                return;
+            }
+            reconciliationRepository.checkRange(runId, ranges.get(0));
+            pause();
+        }
+
+        private void pause() {
+            long millis = properties.getPauseBetweenRanges().toMillis();
+            if (millis <= 0) {
+                return;
+            }
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.ExecutionProperties;
+import com.pasichenko.banking.config.JdbcTimingDataSource;
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.entity.Transaction;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.service.BankingService;
+import com.pasichenko.banking.service.ExecutionMode;
+import com.pasichenko.banking.service.Money;
+import com.pasichenko.banking.service.TransactionService;
+import com.pasichenko.banking.service.VelocityLimitExceededException;
+import com.pasichenko.banking.service.VelocityLimitUnavailableException;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Applies a list of operations in one transaction: every account is loaded once, balances are
+// changed in memory in submission order and each touched account is written once at commit.
+@Slf4j
+@Component
+public class OperationBatchExecutor {
+
+    private final AccountRepository accountRepository;
+    private final TransactionService transactionService;
+    private final BankingService bankingService;
+    private final BalanceCache balanceCache;
+    private final IdempotencyStore idempotencyStore;
+    private final VelocityLimiter velocityLimiter;
+    private final AccountLookupCache accountLookupCache;
+    private final RetryBudget retryBudget;
+    private final OperationMetricsListener metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean batchable;
+
+    public OperationBatchExecutor(AccountRepository accountRepository, TransactionService transactionService,
+                                  BankingService bankingService, BalanceCache balanceCache,
+                                  IdempotencyStore idempotencyStore, VelocityLimiter velocityLimiter,
+                                  AccountLookupCache accountLookupCache, RetryBudget retryBudget, OperationMetricsListener metrics,
+                                  ExecutionProperties executionProperties, PlatformTransactionManager transactionManager) {
+        this.accountRepository = accountRepository;
+        this.transactionService = transactionService;
+        this.bankingService = bankingService;
+        this.balanceCache = balanceCache;
+        this.idempotencyStore = idempotencyStore;
+        this.velocityLimiter = velocityLimiter;
+        this.accountLookupCache = accountLookupCache;
+        this.retryBudget = retryBudget;
+        this.metrics = metrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // The in-memory batch is the optimistic strategy applied to many operations at once. The other
+        // modes write their own way (guarded statements, row locks, ledger appends that the in-memory
+        // checks here would not see), so their operations go through the service one by one.
+        this.batchable = executionProperties.getMode() == ExecutionMode.OPTIMISTIC;
+    }
+
+    public List<OperationResult> execute(List<BankingOperation> operations) {
+        long startNanos = System.nanoTime();
+        long dbStartNanos = JdbcTimingDataSource.elapsedNanos();
+        // limits are charged up front, so an operation over its limit never enters the transaction;
+        // an unknown source account is refused before it takes room in the limiter
+        VelocityLimiter.Charge[] charges = new VelocityLimiter.Charge[operations.size()];
+        OperationResult[] refused = new OperationResult[operations.size()];
+        try {
+            for (int i = 0; i < charges.length; i++) {
+                BankingOperation operation = operations.get(i);
+                if (velocityLimiter.applies(operation) && accountLookupCache.resolve(operation.accountNumber()).isEmpty()) {
+                    refused[i] = OperationResult.failure(operation.type() == BankingOperation.Type.TRANSFER
+                            ? "Source account not found" : "Account not found");
+                    continue;
+                }
+                try {
+                    charges[i] = velocityLimiter.charge(operation);
+                } catch (VelocityLimitExceededException | VelocityLimitUnavailableException e) {
+                    refused[i] = OperationResult.failure(e);
+                }
+            }
+            OperationResult[] results = null;
+            int attempts = 0;
+            int conflicts = 0;
+            if (batchable) {
+                // a batch transaction is one call for the retry budget, whatever its size
+                retryBudget.earn();
+            }
+            for (int attempt = 1; attempt <= BankingServiceImpl.MAX_ATTEMPTS && results == null && batchable; attempt++) {
+                attempts = attempt;
+                try {
+                    results = transactionTemplate.execute(status -> applyAll(operations, refused));
+                } catch (ObjectOptimisticLockingFailureException | OptimisticLockException e) {
+                    conflicts++;
+                    log.debug("Batch of {} operations lost a version race, attempt {}", operations.size(), attempt);
+                    if (attempt < BankingServiceImpl.MAX_ATTEMPTS && !retryBudget.tryRetry()) {
+                        // under contention the operations go one by one, each retried within the budget
+                        break;
+                    }
+                } catch (RuntimeException e) {
+                    // one bad operation must not fail the rest: each is retried in its own transaction below
+                    log.warn("Batch of {} operations failed, applying them one by one: {}", operations.size(), e.toString());
+                    break;
+                }
+            }
+            if (results == null) {
+                results = refused;
+            }
+            // charges of what the batch committed are spent, the others are still outstanding
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] != null && results[i].successful() && !results[i].replayed()) {
+                    charges[i] = null;
+                }
+            }
+            // operations left for executeSingly are measured there, by the retry listener
+            long nanos = System.nanoTime() - startNanos;
+            long dbNanos = JdbcTimingDataSource.elapsedNanos() - dbStartNanos;
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] != null) {
+                    metrics.recordBatched(operations.get(i), results[i], nanos, dbNanos, attempts, conflicts);
+                }
+            }
+            // whatever the batch could not settle goes through the regular service one by one, which
+            // charges the limits itself; failed and replayed operations spent nothing
+            for (int i = 0; i < results.length; i++) {
+                refund(charges, i);
+                if (results[i] == null) {
+                    results[i] = executeSingly(operations.get(i));
+                }
+            }
+            return Arrays.asList(results);
+        } catch (RuntimeException | Error e) {
+            // nothing outstanding may keep its charge when the failure propagates
+            for (int i = 0; i < charges.length; i++) {
+                refund(charges, i);
+            }
+            throw e;
+        }
+    }
+
+    private void refund(VelocityLimiter.Charge[] charges, int i) {
+        if (charges[i] != null) {
+            velocityLimiter.refund(charges[i]);
+            charges[i] = null;
+        }
+    }
+
+    private OperationResult[] applyAll(List<BankingOperation> operations, OperationResult[] refused) {
+        Map<String, Optional<Account>> accounts = preload(operations);
+        OperationResult[] results = refused.clone();
+        for (int i = 0; i < operations.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            results[i] = apply(operations.get(i), accounts);
+            if (results[i] == null) {
+                // This one has to go through BankingService after the commit. Everything behind it
+                // follows it there, in order, so no later operation on the same account overtakes it.
+                break;
+            }
+        }
+        List<Account> touched = accounts.values().stream().flatMap(Optional::stream).toList();
+        accountRepository.saveAll(touched);
+        touched.forEach(balanceCache::updateAfterCommit);
+        return results;
+    }
+
+    // one query for every account the batch touches instead of one per operation
+    private Map<String, Optional<Account>> preload(List<BankingOperation> operations) {
+        Set<String> accountNumbers = new HashSet<>();
+        for (BankingOperation operation : operations) {
+            accountNumbers.add(operation.accountNumber());
+            if (operation.counterpartyAccountNumber() != null) {
+                accountNumbers.add(operation.counterpartyAccountNumber());
+            }
+        }
+        Map<String, Optional<Account>> accounts = new HashMap<>();
+        accountNumbers.forEach(accountNumber -> accounts.put(accountNumber, Optional.empty()));
+        accountRepository.findByAccountNumberIn(accountNumbers)
+                .forEach(account -> accounts.put(account.getAccountNumber(), Optional.of(account)));
+        return accounts;
+    }
+
+    private OperationResult apply(BankingOperation operation, Map<String, Optional<Account>> accounts) {
+        Optional<Account> account = accounts.computeIfAbsent(operation.accountNumber(), accountRepository::findByAccountNumber);
+        long amount = operation.amount();
+        switch (operation.type()) {
+            case DEPOSIT -> {
+                if (account.isEmpty()) {
+                    return OperationResult.failure("Account not found");
+                }
+                if (account.get().isBalanceSharded()) {
+                    return null;
+                }
+                if (!claim(operation)) {
+                    return OperationResult.replay();
+                }
+                account.get().setBalance(Money.add(account.get().getBalance(), amount));
+                transactionService.recordTransaction(account.get(), Transaction.TransactionType.DEPOSIT, amount, null);
+            }
+            case WITHDRAW -> {
+                if (account.isEmpty()) {
+                    return OperationResult.failure("Account not found");
+                }
+                if (account.get().isBalanceSharded()) {
+                    return null;
+                }
+                if (account.get().getBalance() < amount) {
+                    return OperationResult.failure("Insufficient balance");
+                }
+                if (!claim(operation)) {
+                    return OperationResult.replay();
+                }
+                account.get().setBalance(Money.subtract(account.get().getBalance(), amount));
+                transactionService.recordTransaction(account.get(), Transaction.TransactionType.WITHDRAW, amount, null);
+            }
+            case TRANSFER -> {
+                Optional<Account> toAccount = accounts.computeIfAbsent(operation.counterpartyAccountNumber(), accountRepository::findByAccountNumber);
+                if (account.isEmpty()) {
+                    return OperationResult.failure("Source account not found");
+                }
+                if (toAccount.isEmpty()) {
+                    return OperationResult.failure("Destination account not found");
+                }
+                Account from = account.get();
+                Account to = toAccount.get();
+                if (from == to) {
+                    return OperationResult.failure("Cannot transfer to the same account");
+                }
+                if (from.isBalanceSharded() || to.isBalanceSharded()) {
+                    return null;
+                }
+                if (from.getBalance() < amount) {
+                    return OperationResult.failure("Insufficient balance");
+                }
+                if (!claim(operation)) {
+                    return OperationResult.replay();
+                }
+                from.setBalance(Money.subtract(from.getBalance(), amount));
+                to.setBalance(Money.add(to.getBalance(), amount));
+                transactionService.recordTransfer(from, to, amount);
+            }
+        }
+        return OperationResult.success();
+    }
+
+    // keys are claimed only once an operation is known to apply, so a failed one leaves its key free
+    private boolean claim(BankingOperation operation) {
+        return operation.idempotencyKey() == null || idempotencyStore.claim(operation);
+    }
+
+    private OperationResult executeSingly(BankingOperation operation) {
+        try {
+            return bankingService.execute(operation);
+        } catch (RuntimeException e) {
+            return OperationResult.failure(e);
+        }
+    }
+}
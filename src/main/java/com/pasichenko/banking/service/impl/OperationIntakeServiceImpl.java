@@ -0,0 +1,70 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.repository.IntakeTicket;
+import com.pasichenko.banking.repository.OperationIntakeRepository;
+import com.pasichenko.banking.service.IdempotencyKeyReusedException;
+import com.pasichenko.banking.service.OperationIntakeService;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.Optional;
+
+@Service
+public class OperationIntakeServiceImpl implements OperationIntakeService {
+
+    private final OperationIntakeRepository intakeRepository;
+    private final AccountLookupCache accountLookupCache;
+
+    public OperationIntakeServiceImpl(OperationIntakeRepository intakeRepository, AccountLookupCache accountLookupCache) {
+        this.intakeRepository = intakeRepository;
+        this.accountLookupCache = accountLookupCache;
+    }
+
+    // Only checks that cannot change before execution are made here; balances are checked when applied.
+    @Override
+    public IntakeTicket submit(BankingOperation operation) {
+        if (operation.amount() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        boolean transfer = operation.type() == BankingOperation.Type.TRANSFER;
+        if (accountLookupCache.resolve(operation.accountNumber()).isEmpty()) {
+            throw new IllegalArgumentException(transfer ? "Source account not found" : "Account not found");
+        }
+        if (transfer) {
+            if (operation.counterpartyAccountNumber() == null) {
+                throw new IllegalArgumentException("Destination account is required");
+            }
+            if (operation.counterpartyAccountNumber().equals(operation.accountNumber())) {
+                throw new IllegalArgumentException("Cannot transfer to the same account");
+            }
+            if (accountLookupCache.resolve(operation.counterpartyAccountNumber()).isEmpty()) {
+                throw new IllegalArgumentException("Destination account not found");
+            }
+        } else if (operation.counterpartyAccountNumber() != null) {
+            throw new IllegalArgumentException("Only transfers have a destination account");
+        }
+        Optional<IntakeTicket> appended = intakeRepository.append(operation);
+        if (appended.isPresent()) {
+            return appended.get();
+        }
+        OperationIntakeRepository.Submission original = intakeRepository.findByIdempotencyKey(operation.idempotencyKey())
+                .orElseThrow(() -> new IllegalStateException("Submission for key " + operation.idempotencyKey() + " vanished"));
+        if (!sameRequest(original.operation(), operation)) {
+            throw new IdempotencyKeyReusedException(operation.idempotencyKey());
+        }
+        return original.ticket();
+    }
+
+    @Override
+    public Optional<IntakeTicket> find(long id) {
+        return intakeRepository.findTicket(id);
+    }
+
+    private static boolean sameRequest(BankingOperation original, BankingOperation repeated) {
+        return original.type() == repeated.type()
+                && original.accountNumber().equals(repeated.accountNumber())
+                && Objects.equals(original.counterpartyAccountNumber(), repeated.counterpartyAccountNumber())
+                && original.amount() == repeated.amount();
+    }
+}
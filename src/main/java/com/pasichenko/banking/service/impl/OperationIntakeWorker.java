@@ -0,0 +1,135 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.IntakeProperties;
+import com.pasichenko.banking.repository.OperationIntakeRepository;
+import com.pasichenko.banking.repository.OperationIntakeRepository.Claimed;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Drains operation_intake: each worker claims a batch, applies it through OperationBatchExecutor
+// (one transaction, with per-operation fallback to BankingService) and records the outcomes.
+// Every operation runs under the idempotency key "intake:<id>", so a batch re-claimed after a
+// crash between commit and status update is replayed instead of applied twice.
+@Slf4j
+@Component
+public class OperationIntakeWorker implements SmartLifecycle {
+
+    private final OperationIntakeRepository intakeRepository;
+    private final OperationBatchExecutor batchExecutor;
+    private final IntakeProperties properties;
+    private final List<Thread> threads = new ArrayList<>();
+
+    private volatile boolean running;
+
+    public OperationIntakeWorker(OperationIntakeRepository intakeRepository, OperationBatchExecutor batchExecutor,
+                                 IntakeProperties properties) {
+        this.intakeRepository = intakeRepository;
+        this.batchExecutor = batchExecutor;
+        this.properties = properties;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            Thread thread = new Thread(this::work, "operation-intake-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        threads.forEach(Thread::interrupt);
+        threads.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Returns the number of operations processed, 0 when the intake was empty.
+    public int drainOnce() {
+        List<Claimed> claimed = intakeRepository.claimPending(properties.getBatchSize());
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        List<BankingOperation> operations = claimed.stream()
+                .map(entry -> entry.operation().withIdempotencyKey("intake:" + entry.id()))
+                .toList();
+        List<OperationResult> results;
+        try {
+            results = batchExecutor.execute(operations);
+        } catch (RuntimeException e) {
+            giveUpOrRelease(claimed, e);
+            throw e;
+        }
+        intakeRepository.complete(claimed, results);
+        return claimed.size();
+    }
+
+    // The executor already isolates failing operations, so this is an outage rather than one bad
+    // operation. Claims at the head of the queue would come straight back, so each has a bounded
+    // number of attempts; the rest are released for the next claim.
+    private void giveUpOrRelease(List<Claimed> claimed, RuntimeException e) {
+        List<Claimed> exhausted = claimed.stream()
+                .filter(entry -> entry.attempts() >= properties.getMaxAttempts())
+                .toList();
+        if (!exhausted.isEmpty()) {
+            log.warn("Giving up on {} intake operations after {} attempts", exhausted.size(), properties.getMaxAttempts());
+            String error = "Gave up after " + properties.getMaxAttempts() + " attempts: " + e.getMessage();
+            intakeRepository.fail(exhausted, error.length() > 255 ? error.substring(0, 255) : error);
+        }
+        if (exhausted.size() < claimed.size()) {
+            intakeRepository.release(claimed.stream()
+                    .filter(entry -> entry.attempts() < properties.getMaxAttempts())
+                    .toList());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${banking.intake.lease}")
+    public void reclaimAndPurge() {
+        LocalDateTime now = LocalDateTime.now();
+        int released = intakeRepository.releaseClaimedBefore(now.minus(properties.getLease()));
+        if (released > 0) {
+            log.warn("Released {} abandoned intake claims", released);
+        }
+        intakeRepository.purgeCompletedBefore(now.minus(properties.getRetention()));
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                // a full batch means more is probably waiting, so only idle after a short one
+                if (drainOnce() < properties.getBatchSize()) {
+                    Thread.sleep(properties.getPollInterval().toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.warn("Intake batch failed, retrying: {}", e.getMessage());
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.JdbcTimingDataSource;
+import com.pasichenko.banking.config.ParkingRetrySleeper;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleObjectStateException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.interceptor.MethodInvocationRetryCallback;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Metrics for every @Retryable BankingService call, picked up by spring-retry as a global listener.
+// Retry wraps the transaction, so one sample spans all attempts, their commits and the backoff in
+// between. Operations settled inside an OperationBatchExecutor batch never pass the interceptor and
+// are recorded by the executor through recordBatched. Tags are limited to operation (3 values) and
+// outcome (4 values).
+@Component
+public class OperationMetricsListener implements RetryListener {
+
+    private static final String SAMPLE = "banking.metrics.sample";
+
+    private final HotAccountTracker hotAccountTracker;
+    private final Map<BankingOperation.Type, Meters> meters = new EnumMap<>(BankingOperation.Type.class);
+
+    public OperationMetricsListener(HotAccountTracker hotAccountTracker, MeterRegistry meterRegistry) {
+        this.hotAccountTracker = hotAccountTracker;
+        for (BankingOperation.Type type : BankingOperation.Type.values()) {
+            meters.put(type, new Meters(type.name().toLowerCase(), meterRegistry));
+        }
+    }
+
+    @Override
+    public <T, E extends Throwable> boolean open(RetryContext context, RetryCallback<T, E> callback) {
+        if (callback instanceof MethodInvocationRetryCallback<?, ?> invocation) {
+            Sample sample = Sample.of(invocation.getInvocation().getMethod().getName(), invocation.getInvocation().getArguments());
+            if (sample != null) {
+                context.setAttribute(SAMPLE, sample);
+                sample.accounts.forEach(hotAccountTracker::recordOperation);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public <T, E extends Throwable> void onSuccess(RetryContext context, RetryCallback<T, E> callback, T result) {
+        if (result instanceof OperationResult operationResult && operationResult.replayed()
+                && context.getAttribute(SAMPLE) instanceof Sample sample) {
+            sample.replayed = true;
+        }
+    }
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+        if (isConflict(throwable) && context.getAttribute(SAMPLE) instanceof Sample sample) {
+            meters.get(sample.type).conflicts.increment();
+            sample.accounts.forEach(hotAccountTracker::recordConflict);
+        }
+    }
+
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+        if (!(context.getAttribute(SAMPLE) instanceof Sample sample)) {
+            return;
+        }
+        Meters operationMeters = meters.get(sample.type);
+        Outcome outcome = throwable == null
+                ? (sample.replayed ? Outcome.REPLAYED : Outcome.SUCCESS)
+                : (isConflict(throwable) ? Outcome.CONFLICT : Outcome.FAILURE);
+        operationMeters.duration.get(outcome).record(System.nanoTime() - sample.startNanos, TimeUnit.NANOSECONDS);
+        operationMeters.dbDuration.record(JdbcTimingDataSource.elapsedNanos() - sample.dbStartNanos, TimeUnit.NANOSECONDS);
+        // the retry count is only bumped by failed attempts
+        operationMeters.attempts.record(context.getRetryCount() + (throwable == null ? 1 : 0));
+        if (context.getAttribute(ParkingRetrySleeper.BACKOFF_NANOS) instanceof Long backoff) {
+            operationMeters.backoff.record(backoff, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // A batched operation waited for the whole batch, so it is sampled with the batch's time, its JDBC
+    // time and the number of batch transactions it took; each version race the batch lost counts as a
+    // conflict of every operation in it.
+    public void recordBatched(BankingOperation operation, OperationResult result, long nanos, long dbNanos,
+                              int attempts, int conflicts) {
+        Meters operationMeters = meters.get(operation.type());
+        Outcome outcome = !result.successful() ? Outcome.FAILURE
+                : (result.replayed() ? Outcome.REPLAYED : Outcome.SUCCESS);
+        operationMeters.duration.get(outcome).record(nanos, TimeUnit.NANOSECONDS);
+        operationMeters.dbDuration.record(dbNanos, TimeUnit.NANOSECONDS);
+        operationMeters.attempts.record(attempts);
+        List<String> accounts = accounts(operation);
+        accounts.forEach(hotAccountTracker::recordOperation);
+        if (conflicts > 0) {
+            operationMeters.conflicts.increment(conflicts);
+            for (int i = 0; i < conflicts; i++) {
+                accounts.forEach(hotAccountTracker::recordConflict);
+            }
+        }
+    }
+
+    private static List<String> accounts(BankingOperation operation) {
+        return operation.counterpartyAccountNumber() == null
+                ? List.of(operation.accountNumber())
+                : List.of(operation.accountNumber(), operation.counterpartyAccountNumber());
+    }
+
+    static boolean isConflict(Throwable throwable) {
+        return throwable instanceof OptimisticLockingFailureException
+                || throwable instanceof OptimisticLockException
+                || throwable instanceof StaleObjectStateException;
+    }
+
+    private enum Outcome {
+        SUCCESS, REPLAYED, CONFLICT, FAILURE
+    }
+
+    private static final class Sample {
+        private final BankingOperation.Type type;
+        private final List<String> accounts;
+        private final long startNanos = System.nanoTime();
+        private final long dbStartNanos = JdbcTimingDataSource.elapsedNanos();
+        private boolean replayed;
+
+        private Sample(BankingOperation.Type type, List<String> accounts) {
+            this.type = type;
+            this.accounts = accounts;
+        }
+
+        // BankingService methods: deposit/withdraw(account, amount), transfer(from, to, amount), execute(operation)
+        private static Sample of(String method, Object[] args) {
+            return switch (method) {
+                case "deposit" -> new Sample(BankingOperation.Type.DEPOSIT, List.of((String) args[0]));
+                case "withdraw" -> new Sample(BankingOperation.Type.WITHDRAW, List.of((String) args[0]));
+                case "transfer" -> new Sample(BankingOperation.Type.TRANSFER, List.of((String) args[0], (String) args[1]));
+                case "execute" -> {
+                    BankingOperation operation = (BankingOperation) args[0];
+                    yield new Sample(operation.type(), accounts(operation));
+                }
+                default -> null;
+            };
+        }
+    }
+
+    private static final class Meters {
+        private final Map<Outcome, Timer> duration = new EnumMap<>(Outcome.class);
+        private final Timer dbDuration;
+        private final DistributionSummary attempts;
+        private final Counter conflicts;
+        private final Timer backoff;
+
+        private Meters(String operation, MeterRegistry registry) {
+            for (Outcome outcome : Outcome.values()) {
+                duration.put(outcome, Timer.builder("banking.operation.duration")
+                        .description("Time of a banking operation across all attempts, backoff included")
+                        .tag("operation", operation)
+                        .tag("outcome", outcome.name().toLowerCase())
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(10))
+                        .register(registry));
+            }
+            this.dbDuration = Timer.builder("banking.operation.db.duration")
+                    .description("Time a banking operation spent executing JDBC statements and commits")
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+            this.attempts = DistributionSummary.builder("banking.operation.attempts")
+                    .description("Attempts a banking operation needed, 1 when it did not retry")
+                    .tag("operation", operation)
+                    .serviceLevelObjectives(1, 2, 3, 5)
+                    .register(registry);
+            this.conflicts = Counter.builder("banking.operation.conflicts")
+                    .description("Attempts that failed on an optimistic-lock conflict")
+                    .tag("operation", operation)
+                    .register(registry);
+            this.backoff = Timer.builder("banking.operation.backoff")
+                    .description("Time a retried banking operation spent backing off")
+                    .tag("operation", operation)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.entity.Transaction;
+import com.pasichenko.banking.service.ExecutionMode;
+import com.pasichenko.banking.service.ExecutionStrategy;
+import com.pasichenko.banking.service.TransactionService;
+import org.springframework.stereotype.Component;
+
+@Component
+public class OptimisticExecutionStrategy implements ExecutionStrategy {
+
+    private final AccountLookupCache accountLookupCache;
+    private final TransactionService transactionService;
+    private final AccountBalanceWriter balanceWriter;
+
+    public OptimisticExecutionStrategy(AccountLookupCache accountLookupCache, TransactionService transactionService,
+                                       AccountBalanceWriter balanceWriter) {
+        this.accountLookupCache = accountLookupCache;
+        this.transactionService = transactionService;
+        this.balanceWriter = balanceWriter;
+    }
+
+    @Override
+    public ExecutionMode mode() {
+        return ExecutionMode.OPTIMISTIC;
+    }
+
+    @Override
+    public void deposit(String accountNumber, long amount) {
+        Account account = accountLookupCache.load(accountNumber)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        balanceWriter.credit(account, amount);
+        transactionService.recordTransaction(account, Transaction.TransactionType.DEPOSIT, amount, null);
+    }
+
+    @Override
+    public void withdraw(String accountNumber, long amount) {
+        Account account = accountLookupCache.load(accountNumber)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        balanceWriter.debit(account, amount);
+        transactionService.recordTransaction(account, Transaction.TransactionType.WITHDRAW, amount, null);
+    }
+
+    @Override
+    public void transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        Account fromAccount = accountLookupCache.load(fromAccountNumber)
+                .orElseThrow(() -> new RuntimeException("Source account not found"));
+        Account toAccount = accountLookupCache.load(toAccountNumber)
+                .orElseThrow(() -> new RuntimeException("Destination account not found"));
+        balanceWriter.debit(fromAccount, amount);
+        balanceWriter.credit(toAccount, amount);
+        transactionService.recordTransfer(fromAccount, toAccount, amount);
+    }
+}
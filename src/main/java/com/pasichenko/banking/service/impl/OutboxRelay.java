@@ -0,0 +1,112 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.OutboxProperties;
+import com.pasichenko.banking.repository.LedgerOutboxRepository;
+import com.pasichenko.banking.service.LedgerEvent;
+import com.pasichenko.banking.service.LedgerEventSink;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Publishes ledger_outbox rows to the configured LedgerEventSink. Each batch is claimed, published
+// and marked in one transaction: a sink failure or a crash before commit leaves the rows unpublished,
+// so delivery is at-least-once. A single thread per node keeps batches in id order; further nodes
+// take the following batches thanks to SKIP LOCKED.
+@Slf4j
+@Component
+public class OutboxRelay implements SmartLifecycle {
+
+    private final LedgerOutboxRepository outboxRepository;
+    private final LedgerEventSink sink;
+    private final OutboxProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public OutboxRelay(LedgerOutboxRepository outboxRepository, LedgerEventSink sink, OutboxProperties properties,
+                       PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.sink = sink;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isRelayEnabled()) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::relay, "outbox-relay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Returns the number of events published, 0 when the outbox was empty.
+    public int relayOnce() {
+        Integer published = transactionTemplate.execute(status -> {
+            List<LedgerEvent> events = outboxRepository.claimUnpublished(properties.getBatchSize());
+            if (events.isEmpty()) {
+                return 0;
+            }
+            sink.publish(events);
+            outboxRepository.markPublished(events);
+            return events.size();
+        });
+        return published == null ? 0 : published;
+    }
+
+    @Scheduled(fixedDelayString = "${banking.outbox.purge-interval}")
+    public void purgePublished() {
+        int purged = outboxRepository.purgePublishedBefore(LocalDateTime.now().minus(properties.getRetention()));
+        if (purged > 0) {
+            log.debug("Purged {} published outbox events", purged);
+        }
+    }
+
+    private void relay() {
+        while (running) {
+            try {
+                // a full batch means more is probably waiting, so only idle after a short one
+                if (relayOnce() < properties.getBatchSize()) {
+                    Thread.sleep(properties.getPollInterval().toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.warn("Outbox batch failed, retrying: {}", e.getMessage());
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
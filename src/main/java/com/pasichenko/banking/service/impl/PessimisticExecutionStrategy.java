@@ -0,0 +1,95 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.ExecutionProperties;
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.entity.Transaction;
+import com.pasichenko.banking.repository.AccountRef;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.service.ExecutionMode;
+import com.pasichenko.banking.service.ExecutionStrategy;
+import com.pasichenko.banking.service.TransactionService;
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+// Takes SELECT ... FOR UPDATE on every account involved, always in account id order, so two
+// transfers running in opposite directions queue behind each other instead of deadlocking.
+@Component
+public class PessimisticExecutionStrategy implements ExecutionStrategy {
+
+    private final AccountRepository accountRepository;
+    private final AccountLookupCache accountLookupCache;
+    private final TransactionService transactionService;
+    private final AccountBalanceWriter balanceWriter;
+    private final ExecutionProperties properties;
+
+    public PessimisticExecutionStrategy(AccountRepository accountRepository, AccountLookupCache accountLookupCache,
+                                        TransactionService transactionService, AccountBalanceWriter balanceWriter,
+                                        ExecutionProperties properties) {
+        this.accountRepository = accountRepository;
+        this.accountLookupCache = accountLookupCache;
+        this.transactionService = transactionService;
+        this.balanceWriter = balanceWriter;
+        this.properties = properties;
+    }
+
+    @Override
+    public ExecutionMode mode() {
+        return ExecutionMode.PESSIMISTIC;
+    }
+
+    @Override
+    public void deposit(String accountNumber, long amount) {
+        List<Account> locked = lock(List.of(accountNumber));
+        Account account = find(locked, accountNumber)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        balanceWriter.credit(account, amount);
+        transactionService.recordTransaction(account, Transaction.TransactionType.DEPOSIT, amount, null);
+    }
+
+    @Override
+    public void withdraw(String accountNumber, long amount) {
+        List<Account> locked = lock(List.of(accountNumber));
+        Account account = find(locked, accountNumber)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        balanceWriter.debit(account, amount);
+        transactionService.recordTransaction(account, Transaction.TransactionType.WITHDRAW, amount, null);
+    }
+
+    @Override
+    public void transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        List<Account> locked = lock(List.of(fromAccountNumber, toAccountNumber));
+        Account fromAccount = find(locked, fromAccountNumber)
+                .orElseThrow(() -> new RuntimeException("Source account not found"));
+        Account toAccount = find(locked, toAccountNumber)
+                .orElseThrow(() -> new RuntimeException("Destination account not found"));
+        balanceWriter.debit(fromAccount, amount);
+        balanceWriter.credit(toAccount, amount);
+        transactionService.recordTransfer(fromAccount, toAccount, amount);
+    }
+
+    private List<Account> lock(List<String> accountNumbers) {
+        List<Long> ids = accountNumbers.stream()
+                .map(accountLookupCache::resolve)
+                .flatMap(Optional::stream)
+                .map(AccountRef::id)
+                .distinct()
+                .toList();
+        accountRepository.setLocalLockTimeout(properties.getLockTimeout().toMillis() + "ms");
+        List<Account> locked = accountRepository.findAllForUpdateByIdIn(ids);
+        if (locked.size() < ids.size()) {
+            // a cached id no longer exists; forget the numbers and let the retry resolve them again
+            accountNumbers.forEach(accountLookupCache::evict);
+            throw new OptimisticLockException("Account removed while locking");
+        }
+        return locked;
+    }
+
+    private static Optional<Account> find(List<Account> accounts, String accountNumber) {
+        return accounts.stream()
+                .filter(account -> account.getAccountNumber().equals(accountNumber))
+                .findFirst();
+    }
+}
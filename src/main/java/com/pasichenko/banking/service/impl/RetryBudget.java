@@ -0,0 +1,77 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.AdmissionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Node-wide budget for the retries of @Retryable BankingService calls, picked up by spring-retry as
+// a global listener. Every call earns retry-ratio of a retry, up to retry-burst saved; a conflict is
+// only retried while the budget covers it. A contention spike then adds at most that fraction of
+// extra attempts instead of multiplying the load by maxAttempts; a denied call fails at once with
+// its conflict, the same way as one that used up its attempts. OperationBatchExecutor draws the
+// retries of its batch transactions from the same budget through earn and tryRetry.
+@Component
+public class RetryBudget implements RetryListener {
+
+    // balance is kept in thousandths of a retry
+    private static final long RETRY = 1000;
+
+    private final long earnedPerCall;
+    private final long maxBalance;
+    private final AtomicLong balance;
+    private final Counter denied;
+
+    public RetryBudget(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.earnedPerCall = Math.round(properties.getRetryRatio() * RETRY);
+        this.maxBalance = properties.getRetryBurst() * RETRY;
+        this.balance = new AtomicLong(maxBalance);
+        this.denied = Counter.builder("banking.retry.budget.denied")
+                .description("Conflicts not retried because the retry budget was spent")
+                .register(meterRegistry);
+        Gauge.builder("banking.retry.budget.available", balance, current -> current.get() / (double) RETRY)
+                .description("Retries the budget would currently allow")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T, E extends Throwable> boolean open(RetryContext context, RetryCallback<T, E> callback) {
+        earn();
+        return true;
+    }
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+        // only failures the policy would retry; the count already includes this one
+        if (!OperationMetricsListener.isConflict(throwable) || context.getRetryCount() >= BankingServiceImpl.MAX_ATTEMPTS) {
+            return;
+        }
+        if (!tryRetry()) {
+            context.setExhaustedOnly();
+        }
+    }
+
+    // Credits one call's share of a retry.
+    public void earn() {
+        balance.getAndUpdate(current -> Math.min(maxBalance, current + earnedPerCall));
+    }
+
+    // Takes one retry from the budget; false, and counted as denied, when it is spent.
+    public boolean tryRetry() {
+        if (balance.getAndUpdate(current -> current >= RETRY ? current - RETRY : current) < RETRY) {
+            denied.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public double available() {
+        return balance.get() / (double) RETRY;
+    }
+}
@@ -0,0 +1,79 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.repository.ScheduledTransferRepository;
+import com.pasichenko.banking.repository.TransferSchedule;
+import com.pasichenko.banking.service.ScheduledTransferService;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Service
+public class ScheduledTransferServiceImpl implements ScheduledTransferService {
+
+    private final ScheduledTransferRepository scheduledTransferRepository;
+    private final AccountLookupCache accountLookupCache;
+    private final TransferScheduler transferScheduler;
+
+    public ScheduledTransferServiceImpl(ScheduledTransferRepository scheduledTransferRepository,
+                                        AccountLookupCache accountLookupCache, TransferScheduler transferScheduler) {
+        this.scheduledTransferRepository = scheduledTransferRepository;
+        this.accountLookupCache = accountLookupCache;
+        this.transferScheduler = transferScheduler;
+    }
+
+    // Same up-front checks as an asynchronous submission; balances are checked at every run.
+    @Override
+    public TransferSchedule create(String fromAccountNumber, String toAccountNumber, long amount,
+                                   TransferSchedule.Recurrence recurrence, Instant startAt, Instant endAt) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (toAccountNumber == null) {
+            throw new IllegalArgumentException("Destination account is required");
+        }
+        if (toAccountNumber.equals(fromAccountNumber)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        if (accountLookupCache.resolve(fromAccountNumber).isEmpty()) {
+            throw new IllegalArgumentException("Source account not found");
+        }
+        if (accountLookupCache.resolve(toAccountNumber).isEmpty()) {
+            throw new IllegalArgumentException("Destination account not found");
+        }
+        if (startAt == null || startAt.isBefore(Instant.now())) {
+            throw new IllegalArgumentException("Start must not be in the past");
+        }
+        if (endAt != null && recurrence == TransferSchedule.Recurrence.ONCE) {
+            throw new IllegalArgumentException("Only recurring transfers have an end");
+        }
+        if (endAt != null && endAt.isBefore(startAt)) {
+            throw new IllegalArgumentException("End must not be before start");
+        }
+        TransferSchedule schedule = scheduledTransferRepository.create(fromAccountNumber, toAccountNumber, amount,
+                recurrence, startAt, endAt);
+        // the row is committed; a start inside the loaded window must not wait for the next load
+        transferScheduler.schedule(schedule.id(), schedule.nextRunAt());
+        return schedule;
+    }
+
+    @Override
+    public Optional<TransferSchedule> find(long id) {
+        return scheduledTransferRepository.findById(id);
+    }
+
+    // A run that already read the schedule still completes; cancelling stops every later one.
+    @Override
+    public Optional<TransferSchedule> cancel(long id) {
+        Optional<TransferSchedule> cancelled = scheduledTransferRepository.cancel(id);
+        if (cancelled.isPresent()) {
+            transferScheduler.cancel(id);
+            return cancelled;
+        }
+        Optional<TransferSchedule> existing = scheduledTransferRepository.findById(id);
+        if (existing.isPresent()) {
+            throw new IllegalStateException("Schedule is already " + existing.get().status());
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,148 @@
+package com.pasichenko.banking.service.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Space-Saving heavy-hitter sketch: at most `capacity` counters however many keys are offered. An
+// unseen key takes over the smallest counter and inherits its count as the error bound, so any key
+// with more than total / capacity occurrences is guaranteed to be present, and a reported count
+// never undercounts by more than its error.
+// Offers go to one of several stripes picked by the calling thread, so request threads do not queue
+// on one lock; top() merges the stripes. A key missing from a full stripe may have been evicted from
+// it, so the merge adds that stripe's smallest count to both the key's count and its error.
+public class SpaceSavingSketch {
+
+    private final Stripe[] stripes;
+
+    public SpaceSavingSketch(int capacity) {
+        this(capacity, Runtime.getRuntime().availableProcessors());
+    }
+
+    public SpaceSavingSketch(int capacity, int stripes) {
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, stripes) * 2 - 1)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    public void offer(String key) {
+        stripes[(int) (Thread.currentThread().threadId() & (stripes.length - 1))].offer(key);
+    }
+
+    public List<HeavyHitter> top(int n) {
+        List<Map<String, Entry>> snapshots = new ArrayList<>(stripes.length);
+        long[] floors = new long[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            Map<String, Entry> snapshot = stripes[i].snapshot();
+            snapshots.add(snapshot);
+            floors[i] = stripes[i].isFull(snapshot) ? Stripe.smallest(snapshot.values(), 0).count : 0;
+        }
+        Map<String, HeavyHitter> merged = new HashMap<>();
+        for (Map<String, Entry> snapshot : snapshots) {
+            snapshot.keySet().forEach(key -> merged.computeIfAbsent(key, k -> merge(k, snapshots, floors)));
+        }
+        List<HeavyHitter> hitters = new ArrayList<>(merged.values());
+        hitters.sort(Comparator.comparingLong(HeavyHitter::count).reversed());
+        return hitters.size() > n ? List.copyOf(hitters.subList(0, n)) : hitters;
+    }
+
+    public long total() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.total();
+        }
+        return total;
+    }
+
+    private static HeavyHitter merge(String key, List<Map<String, Entry>> snapshots, long[] floors) {
+        long count = 0;
+        long error = 0;
+        for (int i = 0; i < snapshots.size(); i++) {
+            Entry entry = snapshots.get(i).get(key);
+            if (entry != null) {
+                count += entry.count;
+                error += entry.error;
+            } else {
+                count += floors[i];
+                error += floors[i];
+            }
+        }
+        return new HeavyHitter(key, count, error);
+    }
+
+    public record HeavyHitter(String key, long count, long error) {
+    }
+
+    private static final class Stripe {
+        private final int capacity;
+        private final Map<String, Entry> entries;
+        private long total;
+        // counts only grow, so no counter is ever below the smallest one found last time
+        private long floor;
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+            this.entries = new HashMap<>(capacity * 2);
+        }
+
+        private synchronized void offer(String key) {
+            total++;
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                entry.count++;
+                return;
+            }
+            if (entries.size() < capacity) {
+                entries.put(key, new Entry(key, 1, 0));
+                return;
+            }
+            Entry smallest = smallest(entries.values(), floor);
+            floor = smallest.count;
+            entries.remove(smallest.key);
+            entries.put(key, new Entry(key, smallest.count + 1, smallest.count));
+        }
+
+        private synchronized Map<String, Entry> snapshot() {
+            Map<String, Entry> snapshot = new HashMap<>(entries.size() * 2);
+            entries.forEach((key, entry) -> snapshot.put(key, new Entry(key, entry.count, entry.error)));
+            return snapshot;
+        }
+
+        private boolean isFull(Map<String, Entry> snapshot) {
+            return snapshot.size() >= capacity;
+        }
+
+        private synchronized long total() {
+            return total;
+        }
+
+        // stops early at a counter known to be the smallest possible
+        private static Entry smallest(Iterable<Entry> entries, long floor) {
+            Entry smallest = null;
+            for (Entry candidate : entries) {
+                if (smallest == null || candidate.count < smallest.count) {
+                    smallest = candidate;
+                    if (smallest.count == floor) {
+                        break;
+                    }
+                }
+            }
+            return smallest;
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private long count;
+        private final long error;
+
+        private Entry(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
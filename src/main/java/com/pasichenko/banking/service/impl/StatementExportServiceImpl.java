@@ -0,0 +1,91 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.StatementProperties;
+import com.pasichenko.banking.repository.AccountRef;
+import com.pasichenko.banking.service.StatementExportService;
+import com.pasichenko.banking.service.StatementFormat;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Optional;
+
+// Streams statements row by row from a server-side cursor: Postgres only honours the fetch size
+// when autocommit is off, so the query runs inside a read-only transaction. It touches
+// transactions only and takes no row locks, so writers on accounts are never blocked.
+@Service
+public class StatementExportServiceImpl implements StatementExportService {
+
+    private static final String STATEMENT_SQL = "SELECT id, created_at, transaction_type, amount, reference_id, direction " +
+            "FROM account_postings WHERE account_id = ? AND created_at >= ? AND created_at < ? " +
+            "ORDER BY created_at, id";
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final AccountLookupCache accountLookupCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StatementProperties properties;
+
+    public StatementExportServiceImpl(AccountLookupCache accountLookupCache, JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager, StatementProperties properties) {
+        this.accountLookupCache = accountLookupCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.properties = properties;
+    }
+
+    @Override
+    public Optional<StatementExport> prepare(String accountNumber, LocalDate from, LocalDate to, StatementFormat format) {
+        return accountLookupCache.resolve(accountNumber)
+                .map(AccountRef::id)
+                .map(accountId -> out -> export(accountId, from, to, format, out));
+    }
+
+    private void export(Long accountId, LocalDate from, LocalDate to, StatementFormat format, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        format.writeHeader(writer);
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(STATEMENT_SQL,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(properties.getFetchSize());
+                statement.setLong(1, accountId);
+                statement.setTimestamp(2, Timestamp.valueOf(from.atStartOfDay()));
+                statement.setTimestamp(3, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+                return statement;
+            }, (ResultSet rs) -> {
+                try {
+                    long referenceId = rs.getLong("reference_id");
+                    Long reference = rs.wasNull() ? null : referenceId;
+                    format.writeRow(writer,
+                            rs.getLong("id"),
+                            rs.getTimestamp("created_at").toLocalDateTime(),
+                            rs.getString("transaction_type"),
+                            rs.getString("direction"),
+                            rs.getLong("amount"),
+                            reference);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,145 @@
+package com.pasichenko.banking.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hierarchical timing wheel of ids due at a point in time. Level 0 has one bucket per tick; each
+// level above has buckets as wide as the whole level below, so scheduling is O(1) whatever the
+// delay, and advancing costs one bucket per elapsed tick plus the entries that cascade down a
+// level as their time comes closer. Ids past the horizon are refused, the caller loads them later.
+// Cancelling and rescheduling are lazy: an entry only fires while the index still holds its time.
+public class TimingWheel {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] span;
+    private final List<Entry>[][] buckets;
+    private final Map<Long, Long> dueAtById = new HashMap<>();
+    private final List<Entry> overdue = new ArrayList<>();
+
+    // every tick before this one has been processed
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, long horizonMillis, long nowMillis) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("Tick must be positive and the wheel have at least 2 buckets");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        long horizonTicks = Math.ceilDiv(horizonMillis, tickMillis);
+        // the top level always reaches at least wheelSize^levels - wheelSize^(levels - 1) ticks ahead
+        int levels = 1;
+        long levelSpan = 1;
+        while ((long) wheelSize * levelSpan - levelSpan < horizonTicks) {
+            levelSpan = Math.multiplyExact(levelSpan, (long) wheelSize);
+            levels++;
+        }
+        this.span = new long[levels];
+        this.buckets = new List[levels][wheelSize];
+        for (int level = 0; level < levels; level++) {
+            span[level] = level == 0 ? 1 : span[level - 1] * wheelSize;
+            for (int bucket = 0; bucket < wheelSize; bucket++) {
+                buckets[level][bucket] = new ArrayList<>();
+            }
+        }
+        this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+    }
+
+    // Schedules or reschedules id; false when dueAtMillis lies beyond what the wheel spans now.
+    // An id already due fires on the next advance.
+    public synchronized boolean schedule(long id, long dueAtMillis) {
+        Entry entry = new Entry(id, dueAtMillis, Math.ceilDiv(dueAtMillis, tickMillis));
+        if (!place(entry)) {
+            return false;
+        }
+        dueAtById.put(id, dueAtMillis);
+        return true;
+    }
+
+    public synchronized void cancel(long id) {
+        dueAtById.remove(id);
+    }
+
+    // Whether id is scheduled for exactly dueAtMillis.
+    public synchronized boolean isScheduled(long id, long dueAtMillis) {
+        Long dueAt = dueAtById.get(id);
+        return dueAt != null && dueAt == dueAtMillis;
+    }
+
+    public synchronized int size() {
+        return dueAtById.size();
+    }
+
+    // Moves the wheel to nowMillis and returns the ids that became due since the last advance.
+    public synchronized List<Long> advance(long nowMillis) {
+        List<Long> due = new ArrayList<>();
+        for (Entry entry : overdue) {
+            fire(entry, due);
+        }
+        overdue.clear();
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        for (; currentTick <= targetTick; currentTick++) {
+            for (int level = span.length - 1; level > 0; level--) {
+                if (currentTick % span[level] == 0) {
+                    cascade(buckets[level][bucketIndex(currentTick, level)]);
+                }
+            }
+            List<Entry> bucket = buckets[0][bucketIndex(currentTick, 0)];
+            for (Entry entry : bucket) {
+                fire(entry, due);
+            }
+            bucket.clear();
+        }
+        return due;
+    }
+
+    // Level i takes ticks up to wheelSize buckets of its own width ahead of its current bucket; an
+    // entry goes to the lowest level that takes it.
+    private boolean place(Entry entry) {
+        if (entry.dueTick() < currentTick) {
+            overdue.add(entry);
+            return true;
+        }
+        for (int level = 0; level < span.length; level++) {
+            long levelStart = currentTick - currentTick % span[level];
+            if (entry.dueTick() < levelStart + span[level] * wheelSize) {
+                buckets[level][bucketIndex(entry.dueTick(), level)].add(entry);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void cascade(List<Entry> bucket) {
+        List<Entry> entries = new ArrayList<>(bucket);
+        bucket.clear();
+        for (Entry entry : entries) {
+            if (isCurrent(entry)) {
+                place(entry);
+            }
+        }
+    }
+
+    private void fire(Entry entry, List<Long> due) {
+        if (isCurrent(entry)) {
+            dueAtById.remove(entry.id());
+            due.add(entry.id());
+        }
+    }
+
+    // false for entries that were cancelled or rescheduled since they were placed
+    private boolean isCurrent(Entry entry) {
+        Long dueAt = dueAtById.get(entry.id());
+        return dueAt != null && dueAt == entry.dueAtMillis();
+    }
+
+    private int bucketIndex(long tick, int level) {
+        return (int) ((tick / span[level]) % wheelSize);
+    }
+
+    private record Entry(long id, long dueAtMillis, long dueTick) {
+    }
+}
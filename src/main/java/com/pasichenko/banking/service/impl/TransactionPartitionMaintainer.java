@@ -0,0 +1,169 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.PartitionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Keeps monthly partitions of transactions created ahead of time and retires old ones by
+// detaching (and optionally dropping) whole partitions rather than deleting rows.
+@Slf4j
+@Component
+public class TransactionPartitionMaintainer implements ApplicationRunner {
+
+    private static final String PARTITIONS_SQL = "SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound " +
+            "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'transactions'::regclass";
+
+    // The retired rows' net movement per account moves into opening_balance in the same transaction
+    // as the detach, so reconciliation keeps adding up with the history gone. The legs and their
+    // direction come from account_postings, restricted to the partition's range, which pruning
+    // narrows down to the partition itself.
+    private static final String RETIRE_SQL = """
+            DO $$
+            BEGIN
+                UPDATE accounts a SET opening_balance = a.opening_balance + retired.net
+                FROM (
+                    SELECT account_id, SUM(CASE WHEN direction = 'CREDIT' THEN amount ELSE -amount END) AS net
+                    FROM account_postings
+                    WHERE created_at >= '%2$s' AND created_at < '%3$s'
+                    GROUP BY account_id
+                ) retired
+                WHERE a.id = retired.account_id;
+                ALTER TABLE transactions DETACH PARTITION "%1$s";
+            END
+            $$""";
+
+    // ATTACH has to prove that the default partition holds no row of the new range. Normally it holds
+    // none and the check is a scan of an empty table. Rows that landed there while maintenance lagged
+    // are moved first; they go into the standalone table, so the outbox trigger does not fire twice.
+    private static final String ATTACH_SQL = """
+            DO $$
+            BEGIN
+                IF to_regclass('transactions_default') IS NOT NULL AND EXISTS (
+                        SELECT 1 FROM transactions_default WHERE created_at >= '%2$s' AND created_at < '%3$s') THEN
+                    RAISE WARNING 'moving rows of [%2$s, %3$s) out of transactions_default';
+                    ALTER TABLE transactions DETACH PARTITION transactions_default;
+                    WITH moved AS (
+                        DELETE FROM transactions_default WHERE created_at >= '%2$s' AND created_at < '%3$s'
+                        RETURNING *
+                    )
+                    INSERT INTO %1$s SELECT * FROM moved;
+                    ALTER TABLE transactions ATTACH PARTITION %1$s FOR VALUES FROM ('%2$s') TO ('%3$s');
+                    ALTER TABLE transactions ATTACH PARTITION transactions_default DEFAULT;
+                ELSE
+                    ALTER TABLE transactions ATTACH PARTITION %1$s FOR VALUES FROM ('%2$s') TO ('%3$s');
+                END IF;
+            END
+            $$""";
+
+    private static final Pattern BOUND = Pattern.compile("FROM \\((.+?)\\) TO \\((.+?)\\)");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PartitionProperties properties;
+
+    public TransactionPartitionMaintainer(JdbcTemplate jdbcTemplate, PartitionProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        maintain();
+    }
+
+    @Scheduled(cron = "${banking.partitions.cron}")
+    public void maintain() {
+        try {
+            maintain(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("Transaction partition maintenance failed", e);
+        }
+    }
+
+    public void maintain(LocalDateTime now) {
+        List<Partition> partitions = loadPartitions();
+        LocalDateTime currentMonth = now.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        createAhead(partitions, currentMonth.plusMonths(properties.getMonthsAhead() + 1L));
+        if (properties.getRetentionMonths() > 0) {
+            retireBefore(partitions, currentMonth.minusMonths(properties.getRetentionMonths()));
+        }
+    }
+
+    private void createAhead(List<Partition> partitions, LocalDateTime until) {
+        LocalDateTime next = partitions.stream()
+                .map(Partition::to)
+                .max(Comparator.naturalOrder())
+                .orElse(until.minusMonths(properties.getMonthsAhead() + 1L));
+        while (next.isBefore(until)) {
+            LocalDateTime end = next.plusMonths(1);
+            String name = "transactions_p" + next.format(NAME_FORMAT);
+            // created standalone and attached, so inserts into transactions are not blocked meanwhile;
+            // ATTACH requires the parent's CHECK constraints on the new table
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE transactions INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            jdbcTemplate.execute(String.format(ATTACH_SQL, name, next.format(BOUND_FORMAT), end.format(BOUND_FORMAT)));
+            log.info("Created transactions partition {} for [{}, {})", name, next, end);
+            next = end;
+        }
+    }
+
+    private void retireBefore(List<Partition> partitions, LocalDateTime cutoff) {
+        for (Partition partition : partitions) {
+            if (partition.to().isAfter(cutoff)) {
+                continue;
+            }
+            jdbcTemplate.execute(String.format(RETIRE_SQL, partition.name(), partition.from(), partition.to().format(BOUND_FORMAT)));
+            if (properties.getRetirementMode() == PartitionProperties.RetirementMode.DROP) {
+                jdbcTemplate.execute("DROP TABLE \"" + partition.name() + "\"");
+                log.info("Dropped transactions partition {} (rows before {})", partition.name(), partition.to());
+            } else {
+                log.info("Detached transactions partition {} (rows before {}) for archiving", partition.name(), partition.to());
+            }
+        }
+    }
+
+    private List<Partition> loadPartitions() {
+        List<Partition> partitions = new ArrayList<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(PARTITIONS_SQL)) {
+            String name = (String) row.get("name");
+            if ("DEFAULT".equals(row.get("bound"))) {
+                continue; // transactions_default, never created ahead nor retired
+            }
+            Matcher bound = BOUND.matcher((String) row.get("bound"));
+            if (!bound.find()) {
+                log.warn("Skipping transactions partition {} with unexpected bound {}", name, row.get("bound"));
+                continue;
+            }
+            partitions.add(new Partition(name, lowerBound(bound.group(1)), parseBound(bound.group(2))));
+        }
+        return partitions;
+    }
+
+    private static LocalDateTime parseBound(String value) {
+        // bounds are rendered as quoted literals, e.g. '2025-01-01 00:00:00'
+        return LocalDateTime.parse(value.substring(1, value.length() - 1), BOUND_FORMAT);
+    }
+
+    // as a timestamp literal for RETIRE_SQL; the first partition may start at MINVALUE
+    private static String lowerBound(String value) {
+        return "MINVALUE".equals(value) ? "-infinity" : parseBound(value).format(BOUND_FORMAT);
+    }
+
+    private record Partition(String name, String from, LocalDateTime to) {
+    }
+}
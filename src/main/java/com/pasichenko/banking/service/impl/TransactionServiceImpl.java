@@ -7,8 +7,6 @@ import com.pasichenko.banking.service.TransactionService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-
 @Service
 public class TransactionServiceImpl implements TransactionService {
     private final TransactionRepository transactionRepository;
@@ -18,7 +16,7 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     @Transactional
-    public Transaction recordTransaction(Account account, Transaction.TransactionType type, BigDecimal amount, Transaction reference) {
+    public Transaction recordTransaction(Account account, Transaction.TransactionType type, long amount, Transaction reference) {
         Transaction transaction = new Transaction();
         transaction.setAccount(account);
         transaction.setTransactionType(type);
@@ -26,4 +24,14 @@ public class TransactionServiceImpl implements TransactionService {
         transaction.setReferenceTransaction(reference);
         return transactionRepository.save(transaction);
     }
+
+    @Transactional
+    public Transaction recordTransfer(Account from, Account to, long amount) {
+        Transaction transaction = new Transaction();
+        transaction.setAccount(from);
+        transaction.setCounterpartyAccount(to);
+        transaction.setTransactionType(Transaction.TransactionType.TRANSFER);
+        transaction.setAmount(amount);
+        return transactionRepository.save(transaction);
+    }
 }
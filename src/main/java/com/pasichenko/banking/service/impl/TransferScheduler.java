@@ -0,0 +1,190 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.ScheduleProperties;
+import com.pasichenko.banking.repository.ScheduledTransferRepository;
+import com.pasichenko.banking.repository.ScheduledTransferRepository.Advance;
+import com.pasichenko.banking.repository.ScheduledTransferRepository.DueRun;
+import com.pasichenko.banking.repository.TransferSchedule;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs scheduled transfers from a TimingWheel that holds only the schedules due within
+// banking.schedules.window. The window is loaded at startup and every reload-interval from the
+// partial next_run_at index, so neither recovery nor steady state scans the table. Due transfers
+// are re-read, applied through OperationBatchExecutor in due order (so the runs of one account
+// apply in sequence, with the per-operation BankingService fallback) and advanced to their next
+// occurrence. Each run carries the idempotency key "schedule:<id>:<occurrence>": nodes that fire
+// the same run, or a node that crashed between applying and advancing, replay instead of paying twice.
+@Slf4j
+@Component
+public class TransferScheduler implements SmartLifecycle {
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final ScheduledTransferRepository scheduledTransferRepository;
+    private final OperationBatchExecutor batchExecutor;
+    private final ScheduleProperties properties;
+    private final TimingWheel wheel;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public TransferScheduler(ScheduledTransferRepository scheduledTransferRepository,
+                             OperationBatchExecutor batchExecutor, ScheduleProperties properties) {
+        this.scheduledTransferRepository = scheduledTransferRepository;
+        this.batchExecutor = batchExecutor;
+        this.properties = properties;
+        this.wheel = new TimingWheel(properties.getTick().toMillis(), properties.getWheelSize(),
+                properties.getWindow().toMillis(), System.currentTimeMillis());
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::tick, "transfer-scheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // A run inside the wheel's reach is picked up right away instead of at the next load.
+    public void schedule(long id, Instant nextRunAt) {
+        if (properties.isEnabled() && nextRunAt != null) {
+            wheel.schedule(id, nextRunAt.toEpochMilli());
+        }
+    }
+
+    public void cancel(long id) {
+        wheel.cancel(id);
+    }
+
+    // Puts every active schedule due before now + window into the wheel; returns how many were added.
+    public int loadWindow(Instant now) {
+        int added = 0;
+        for (DueRun run : scheduledTransferRepository.findDueBefore(now.plus(properties.getWindow()),
+                properties.getMaxLoaded())) {
+            long dueAt = run.nextRunAt().toEpochMilli();
+            if (!wheel.isScheduled(run.id(), dueAt) && wheel.schedule(run.id(), dueAt)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    // Applies whatever the wheel has due at now; returns the number of transfers run. When a batch
+    // fails nothing is advanced, and the reload that follows finds its schedules overdue.
+    public int fireDue(Instant now) {
+        List<Long> ids = wheel.advance(now.toEpochMilli());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<TransferSchedule> due = scheduledTransferRepository.findDue(ids, now);
+        int batchSize = properties.getBatchSize();
+        for (int from = 0; from < due.size(); from += batchSize) {
+            runBatch(due.subList(from, Math.min(from + batchSize, due.size())), now);
+        }
+        return due.size();
+    }
+
+    private void runBatch(List<TransferSchedule> schedules, Instant now) {
+        List<BankingOperation> operations = schedules.stream()
+                .map(schedule -> BankingOperation.transfer(schedule.fromAccountNumber(), schedule.toAccountNumber(),
+                                schedule.amount())
+                        .withIdempotencyKey("schedule:" + schedule.id() + ":" + schedule.occurrence()))
+                .toList();
+        List<OperationResult> results = batchExecutor.execute(operations);
+        List<Advance> advances = new ArrayList<>(schedules.size());
+        for (int i = 0; i < schedules.size(); i++) {
+            advances.add(advance(schedules.get(i), results.get(i), now));
+        }
+        scheduledTransferRepository.advance(advances);
+        for (Advance advance : advances) {
+            if (advance.nextRunAt() != null) {
+                wheel.schedule(advance.id(), advance.nextRunAt().toEpochMilli());
+            }
+        }
+        log.debug("Ran {} scheduled transfers", schedules.size());
+    }
+
+    // Occurrences missed while no node was running are skipped rather than paid back to back.
+    private static Advance advance(TransferSchedule schedule, OperationResult result, Instant now) {
+        int next = schedule.occurrence() + 1;
+        Instant nextRunAt = schedule.recurrence().occurrenceAt(schedule.startAt(), next);
+        while (nextRunAt != null && !nextRunAt.isAfter(now)) {
+            next++;
+            nextRunAt = schedule.recurrence().occurrenceAt(schedule.startAt(), next);
+        }
+        if (nextRunAt != null && schedule.endAt() != null && nextRunAt.isAfter(schedule.endAt())) {
+            nextRunAt = null;
+        }
+        TransferSchedule.Status status;
+        if (nextRunAt != null) {
+            status = TransferSchedule.Status.ACTIVE;
+        } else if (schedule.recurrence() == TransferSchedule.Recurrence.ONCE && !result.successful()) {
+            status = TransferSchedule.Status.FAILED;
+        } else {
+            status = TransferSchedule.Status.COMPLETED;
+        }
+        String error = result.successful() ? null : truncate(result.error());
+        return new Advance(schedule.id(), schedule.occurrence(), next, nextRunAt, status, now, error);
+    }
+
+    private void tick() {
+        Instant nextLoadAt = Instant.MIN;
+        while (running) {
+            try {
+                Instant now = Instant.now();
+                if (!now.isBefore(nextLoadAt)) {
+                    int added = loadWindow(now);
+                    if (added > 0) {
+                        log.debug("Loaded {} scheduled transfers, {} in the wheel", added, wheel.size());
+                    }
+                    nextLoadAt = now.plus(properties.getReloadInterval());
+                }
+                fireDue(now);
+                Thread.sleep(properties.getTick().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.warn("Scheduled transfers failed, reloading the window: {}", e.getMessage());
+                nextLoadAt = Instant.MIN;
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
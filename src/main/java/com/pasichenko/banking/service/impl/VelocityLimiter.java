@@ -0,0 +1,379 @@
+package com.pasichenko.banking.service.impl;
+
+import com.pasichenko.banking.config.LimitProperties;
+import com.pasichenko.banking.repository.VelocityRepository;
+import com.pasichenko.banking.service.VelocityLimitExceededException;
+import com.pasichenko.banking.service.VelocityLimitUnavailableException;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Per-account withdrawal and outgoing-transfer limits over a sliding minute and a sliding day, kept
+// in memory so an over-limit request is refused before any query or transaction. Each account's
+// usage is an immutable pair of bucketed windows swapped with compareAndSet: the limit check and the
+// charge are one atomic step, concurrent requests never over-draw a limit and nothing blocks. A
+// window keeps one bucket more than it spans, so a debit counts for at least a full minute or day.
+// Accounts are spread over stripes holding max-accounts between them. An account with usage is never
+// dropped to make room, that would hand it fresh limits: a full stripe refuses debits of accounts it
+// does not hold until the periodic sweep, or a refund that empties an entry, frees one. Started
+// before the web server, it seeds itself from the last day of ledger rows, so a restart does not
+// reset anyone's limits.
+@Slf4j
+@Component
+public class VelocityLimiter implements SmartLifecycle {
+
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+    private static final Duration DAY = Duration.ofDays(1);
+    private static final int MINUTE_BUCKETS = 12;
+    private static final int DAY_BUCKETS = 24;
+    private static final long MINUTE_BUCKET_MILLIS = MINUTE.toMillis() / MINUTE_BUCKETS;
+    private static final long DAY_BUCKET_MILLIS = DAY.toMillis() / DAY_BUCKETS;
+    // a tick no window holds, for updates that go to one window only
+    private static final long NO_TICK = Long.MIN_VALUE;
+
+    private final VelocityRepository velocityRepository;
+    private final LimitProperties properties;
+    private final Stripe[] stripes;
+    private final Counter minuteRejected;
+    private final Counter dayRejected;
+
+    private volatile boolean running;
+
+    public VelocityLimiter(VelocityRepository velocityRepository, LimitProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.velocityRepository = velocityRepository;
+        this.properties = properties;
+        this.stripes = new Stripe[properties.getStripes()];
+        int capacity = Math.max(1, properties.getMaxAccounts() / stripes.length);
+        Counter overCapacity = Counter.builder("banking.limits.over-capacity")
+                .description("Debits refused because banking.limits.max-accounts accounts were already tracked")
+                .register(meterRegistry);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(capacity, overCapacity);
+        }
+        Gauge.builder("banking.limits.accounts", this, VelocityLimiter::trackedAccounts)
+                .description("Accounts whose recent debits are held in memory")
+                .register(meterRegistry);
+        this.minuteRejected = rejectedCounter(meterRegistry, "minute");
+        this.dayRejected = rejectedCounter(meterRegistry, "day");
+    }
+
+    @Override
+    public void start() {
+        if (properties.isEnabled()) {
+            rebuild();
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // ahead of the web server and the workers, which start in later phases
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    // Whether charge(operation) charges anything: withdrawals and transfers while limits are on.
+    // Callers check their source account exists first, so unknown numbers never take an entry.
+    public boolean applies(BankingOperation operation) {
+        return properties.isEnabled() && operation.type() != BankingOperation.Type.DEPOSIT;
+    }
+
+    // Charges a withdrawal or transfer to its source account, or throws when that would exceed a
+    // limit; null for deposits and while limits are off. Refund the charge if the operation fails.
+    public Charge charge(BankingOperation operation) {
+        if (!applies(operation)) {
+            return null;
+        }
+        return charge(operation.accountNumber(), operation.amount(), System.currentTimeMillis());
+    }
+
+    public Charge charge(String accountNumber, long amount, long nowMillis) {
+        Stripe stripe = stripeOf(accountNumber);
+        while (true) {
+            AccountUsage usage = stripe.usageOf(accountNumber, false);
+            Limit exceeded = usage.tryCharge(amount, nowMillis, properties);
+            if (exceeded != null) {
+                (exceeded == Limit.DAILY ? dayRejected : minuteRejected).increment();
+                throw new VelocityLimitExceededException(exceeded.message);
+            }
+            if (!usage.isRetired()) {
+                return new Charge(accountNumber, amount, nowMillis);
+            }
+            // dropped between lookup and charge, which charged nothing: take it again on a new entry
+            stripe.accounts.remove(accountNumber, usage);
+        }
+    }
+
+    // An entry the refund leaves empty is dropped at once, so a failed debit holds no memory.
+    public void refund(Charge charge) {
+        if (charge == null) {
+            return;
+        }
+        Stripe stripe = stripeOf(charge.accountNumber());
+        AccountUsage usage = stripe.accounts.get(charge.accountNumber());
+        if (usage == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        usage.refund(charge, now);
+        if (usage.retire(now)) {
+            stripe.accounts.remove(charge.accountNumber(), usage);
+        }
+    }
+
+    public int trackedAccounts() {
+        int tracked = 0;
+        for (Stripe stripe : stripes) {
+            tracked += stripe.accounts.size();
+        }
+        return tracked;
+    }
+
+    // Drops accounts with no debit inside the last day; their usage would be empty anyway.
+    @Scheduled(initialDelayString = "${banking.limits.eviction-interval}", fixedDelayString = "${banking.limits.eviction-interval}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Stripe stripe : stripes) {
+            stripe.evictIdle(now);
+        }
+    }
+
+    void rebuild() {
+        long now = System.currentTimeMillis();
+        velocityRepository.forEachRecentDebits(MINUTE, Duration.ofMillis(MINUTE_BUCKET_MILLIS), debits ->
+                stripeOf(debits.accountNumber()).usageOf(debits.accountNumber(), true)
+                        .record(debits.bucketsAgo(), debits.count(), debits.amount(), now, true));
+        velocityRepository.forEachRecentDebits(DAY, Duration.ofMillis(DAY_BUCKET_MILLIS), debits ->
+                stripeOf(debits.accountNumber()).usageOf(debits.accountNumber(), true)
+                        .record(debits.bucketsAgo(), debits.count(), debits.amount(), now, false));
+        log.info("Velocity limits seeded for {} accounts", trackedAccounts());
+    }
+
+    private Stripe stripeOf(String accountNumber) {
+        return stripes[Math.floorMod(accountNumber.hashCode(), stripes.length)];
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String window) {
+        return Counter.builder("banking.limits.rejected")
+                .tag("window", window)
+                .description("Withdrawals and transfers refused by a velocity limit")
+                .register(registry);
+    }
+
+    public record Charge(String accountNumber, long amount, long chargedAtMillis) {
+    }
+
+    private enum Limit {
+        PER_MINUTE("Per-minute spending limit exceeded"),
+        DAILY("Daily spending limit exceeded");
+
+        private final String message;
+
+        Limit(String message) {
+            this.message = message;
+        }
+    }
+
+    private static final class Stripe {
+        private final int capacity;
+        private final Counter overCapacity;
+        private final Map<String, AccountUsage> accounts = new ConcurrentHashMap<>();
+
+        private Stripe(int capacity, Counter overCapacity) {
+            this.capacity = capacity;
+            this.overCapacity = overCapacity;
+        }
+
+        // O(1) whatever the stripe holds. A full stripe refuses a new account instead of forgetting
+        // an old one's debits; the seed takes every account with ledger debits, whatever the room.
+        // Concurrent first debits can overshoot capacity by a few entries, no more.
+        private AccountUsage usageOf(String accountNumber, boolean seeding) {
+            AccountUsage usage = accounts.get(accountNumber);
+            if (usage != null) {
+                return usage;
+            }
+            if (!seeding && accounts.size() >= capacity) {
+                overCapacity.increment();
+                throw new VelocityLimitUnavailableException("Spending limits cannot track more accounts right now");
+            }
+            return accounts.computeIfAbsent(accountNumber, key -> new AccountUsage());
+        }
+
+        private void evictIdle(long nowMillis) {
+            accounts.entrySet().removeIf(entry -> entry.getValue().retire(nowMillis));
+        }
+    }
+
+    private static final class AccountUsage {
+        // the last value of a dropped entry: nothing is charged to it any more
+        private static final Usage RETIRED = new Usage(null, null);
+
+        private final AtomicReference<Usage> usage = new AtomicReference<>(
+                new Usage(new Window(0, MINUTE_BUCKETS + 1), new Window(0, DAY_BUCKETS + 1)));
+
+        // null when charged or when the entry is retired, otherwise the limit that refused it
+        private Limit tryCharge(long amount, long nowMillis, LimitProperties limits) {
+            long minuteTick = nowMillis / MINUTE_BUCKET_MILLIS;
+            long dayTick = nowMillis / DAY_BUCKET_MILLIS;
+            while (true) {
+                Usage current = usage.get();
+                if (current == RETIRED) {
+                    return null;
+                }
+                Window minute = current.minute().copyAt(minuteTick);
+                Window day = current.day().copyAt(dayTick);
+                if (exceeds(minute, amount, limits.getPerMinuteCount(), limits.getPerMinuteAmount())) {
+                    return Limit.PER_MINUTE;
+                }
+                if (exceeds(day, amount, limits.getDailyCount(), limits.getDailyAmount())) {
+                    return Limit.DAILY;
+                }
+                minute.add(minuteTick, 1, amount);
+                day.add(dayTick, 1, amount);
+                if (usage.compareAndSet(current, new Usage(minute, day))) {
+                    return null;
+                }
+            }
+        }
+
+        private void refund(Charge charge, long nowMillis) {
+            update(nowMillis, charge.chargedAtMillis() / MINUTE_BUCKET_MILLIS, charge.chargedAtMillis() / DAY_BUCKET_MILLIS,
+                    -1, -charge.amount());
+        }
+
+        // Seeds debits made bucketsAgo buckets back into one of the windows.
+        private void record(long bucketsAgo, long count, long amount, long nowMillis, boolean minuteWindow) {
+            if (minuteWindow) {
+                update(nowMillis, nowMillis / MINUTE_BUCKET_MILLIS - bucketsAgo, NO_TICK, count, amount);
+            } else {
+                update(nowMillis, NO_TICK, nowMillis / DAY_BUCKET_MILLIS - bucketsAgo, count, amount);
+            }
+        }
+
+        private void update(long nowMillis, long minuteTick, long dayTick, long count, long amount) {
+            while (true) {
+                Usage current = usage.get();
+                if (current == RETIRED) {
+                    return;
+                }
+                Window minute = current.minute().copyAt(nowMillis / MINUTE_BUCKET_MILLIS);
+                Window day = current.day().copyAt(nowMillis / DAY_BUCKET_MILLIS);
+                minute.add(minuteTick, count, amount);
+                day.add(dayTick, count, amount);
+                if (usage.compareAndSet(current, new Usage(minute, day))) {
+                    return;
+                }
+            }
+        }
+
+        // Retires the entry when neither window holds a debit. A charge that lands first keeps it; one
+        // that comes after finds it retired and goes to a new entry, so no debit is ever forgotten.
+        private boolean retire(long nowMillis) {
+            while (true) {
+                Usage current = usage.get();
+                if (current == RETIRED) {
+                    return true;
+                }
+                if (!current.minute().isEmptyAt(nowMillis / MINUTE_BUCKET_MILLIS)
+                        || !current.day().isEmptyAt(nowMillis / DAY_BUCKET_MILLIS)) {
+                    return false;
+                }
+                if (usage.compareAndSet(current, RETIRED)) {
+                    return true;
+                }
+            }
+        }
+
+        private boolean isRetired() {
+            return usage.get() == RETIRED;
+        }
+
+        private static boolean exceeds(Window window, long amount, long maxCount, long maxAmount) {
+            return maxCount > 0 && window.count + 1 > maxCount
+                    || maxAmount > 0 && window.amount + amount > maxAmount;
+        }
+    }
+
+    private record Usage(Window minute, Window day) {
+    }
+
+    // Ring of per-bucket debit counts and amounts ending at tick, with running totals. Published
+    // instances are never changed; updates work on a copy that is swapped in.
+    private static final class Window {
+        private final long tick;
+        private final long[] counts;
+        private final long[] amounts;
+        private long count;
+        private long amount;
+
+        private Window(long tick, int buckets) {
+            this(tick, new long[buckets], new long[buckets], 0, 0);
+        }
+
+        private Window(long tick, long[] counts, long[] amounts, long count, long amount) {
+            this.tick = tick;
+            this.counts = counts;
+            this.amounts = amounts;
+            this.count = count;
+            this.amount = amount;
+        }
+
+        // A copy moved forward to tick, with the buckets that fell out of the window emptied.
+        private Window copyAt(long tick) {
+            long target = Math.max(this.tick, tick);
+            Window copy = new Window(target, counts.clone(), amounts.clone(), count, amount);
+            long expired = Math.min(target - this.tick, counts.length);
+            for (long t = this.tick + 1; t <= this.tick + expired; t++) {
+                int bucket = copy.bucket(t);
+                copy.count -= copy.counts[bucket];
+                copy.amount -= copy.amounts[bucket];
+                copy.counts[bucket] = 0;
+                copy.amounts[bucket] = 0;
+            }
+            return copy;
+        }
+
+        // Only on an unpublished copy; ticks outside the window are ignored, and a refund never
+        // takes a bucket below zero (its charge may have gone to an evicted entry).
+        private void add(long tick, long count, long amount) {
+            if (tick > this.tick || tick <= this.tick - counts.length) {
+                return;
+            }
+            int bucket = bucket(tick);
+            long newCount = Math.max(0, counts[bucket] + count);
+            long newAmount = Math.max(0, amounts[bucket] + amount);
+            this.count += newCount - counts[bucket];
+            this.amount += newAmount - amounts[bucket];
+            counts[bucket] = newCount;
+            amounts[bucket] = newAmount;
+        }
+
+        private boolean isEmptyAt(long tick) {
+            return count == 0 || tick - this.tick >= counts.length;
+        }
+
+        private int bucket(long tick) {
+            return (int) Math.floorMod(tick, (long) counts.length);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.pasichenko.banking.service.operation;
+
+public record BankingOperation(Type type, String accountNumber, String counterpartyAccountNumber, long amount,
+                               String idempotencyKey) {
+
+    public enum Type {
+        DEPOSIT, WITHDRAW, TRANSFER
+    }
+
+    public static BankingOperation deposit(String accountNumber, long amount) {
+        return new BankingOperation(Type.DEPOSIT, accountNumber, null, amount, null);
+    }
+
+    public static BankingOperation withdraw(String accountNumber, long amount) {
+        return new BankingOperation(Type.WITHDRAW, accountNumber, null, amount, null);
+    }
+
+    public static BankingOperation transfer(String fromAccountNumber, String toAccountNumber, long amount) {
+        return new BankingOperation(Type.TRANSFER, fromAccountNumber, toAccountNumber, amount, null);
+    }
+
+    public BankingOperation withIdempotencyKey(String idempotencyKey) {
+        return new BankingOperation(type, accountNumber, counterpartyAccountNumber, amount, idempotencyKey);
+    }
+}
@@ -0,0 +1,31 @@
+package com.pasichenko.banking.service.operation;
+
+// replayed marks an operation that was not applied because its idempotency key already was.
+// exception is what failed the operation when it failed by throwing; callers that report failures
+// by throwing rethrow it, so its type and response status survive batching.
+public record OperationResult(boolean successful, String error, boolean replayed, RuntimeException exception) {
+
+    private static final OperationResult SUCCESS = new OperationResult(true, null, false, null);
+    private static final OperationResult REPLAYED = new OperationResult(true, null, true, null);
+
+    public static OperationResult success() {
+        return SUCCESS;
+    }
+
+    public static OperationResult replay() {
+        return REPLAYED;
+    }
+
+    public static OperationResult failure(String error) {
+        return new OperationResult(false, error, false, null);
+    }
+
+    public static OperationResult failure(RuntimeException exception) {
+        String error = exception.getMessage() != null ? exception.getMessage() : exception.getClass().getSimpleName();
+        return new OperationResult(false, error, false, exception);
+    }
+
+    public RuntimeException toException() {
+        return exception != null ? exception : new RuntimeException(error);
+    }
+}
@@ -0,0 +1,31 @@
+
+-- Transactional outbox: every ledger row gets a compact event row in the same transaction, whichever
+-- write path inserted it (JPA, batched JDBC or the conditional-update CTEs). A relay publishes
+-- unpublished rows in id order and marks them in bulk; published rows are purged after a retention.
+CREATE TABLE ledger_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    transaction_id BIGINT NOT NULL,
+    account_number VARCHAR(20) NOT NULL,
+    transaction_type VARCHAR(20) NOT NULL,
+    amount DECIMAL(15, 2) NOT NULL,
+    reference_id BIGINT NULL,
+    occurred_at TIMESTAMP NOT NULL,
+    published_at TIMESTAMP NULL
+);
+
+CREATE INDEX idx_ledger_outbox_unpublished ON ledger_outbox (id) WHERE published_at IS NULL;
+CREATE INDEX idx_ledger_outbox_published ON ledger_outbox (published_at) WHERE published_at IS NOT NULL;
+
+CREATE OR REPLACE FUNCTION append_ledger_outbox() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO ledger_outbox (transaction_id, account_number, transaction_type, amount, reference_id, occurred_at)
+    SELECT NEW.id, a.account_number, NEW.transaction_type, NEW.amount, NEW.reference_id, NEW.created_at
+    FROM accounts a WHERE a.id = NEW.account_id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- defined on the partitioned parent, so existing and future partitions inherit it
+CREATE TRIGGER transactions_append_outbox
+    AFTER INSERT ON transactions
+    FOR EACH ROW EXECUTE FUNCTION append_ledger_outbox();
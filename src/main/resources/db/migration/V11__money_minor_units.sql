@@ -0,0 +1,16 @@
+
+-- Money is stored as BIGINT minor units (cents) instead of DECIMAL(15, 2): the application keeps it in
+-- a long end to end, so balance updates are exact integer arithmetic with no rounding and no boxing.
+-- Column names are unchanged; every value is multiplied by 100 in place.
+ALTER TABLE accounts ALTER COLUMN balance TYPE BIGINT USING (balance * 100)::BIGINT;
+
+ALTER TABLE account_balance_slots ALTER COLUMN balance DROP DEFAULT;
+ALTER TABLE account_balance_slots ALTER COLUMN balance TYPE BIGINT USING (balance * 100)::BIGINT;
+ALTER TABLE account_balance_slots ALTER COLUMN balance SET DEFAULT 0;
+
+-- on the partitioned parent this rewrites every partition and the covering history index
+ALTER TABLE transactions ALTER COLUMN amount TYPE BIGINT USING (amount * 100)::BIGINT;
+
+ALTER TABLE ledger_outbox ALTER COLUMN amount TYPE BIGINT USING (amount * 100)::BIGINT;
+
+ALTER TABLE operation_intake ALTER COLUMN amount TYPE BIGINT USING (amount * 100)::BIGINT;
@@ -0,0 +1,49 @@
+
+-- A transfer becomes one journal entry instead of a debit row plus a credit row that points back at
+-- it: the row's account_id is the debited leg and counterparty_account_id the credited leg, both for
+-- the same amount, so the legs balance by construction. Rows written before this migration keep
+-- their paired form; account_postings below reads both shapes as one posting per account.
+ALTER TABLE transactions ADD COLUMN counterparty_account_id BIGINT NULL;
+
+-- validating the foreign key reads every partition once; the new column is NULL everywhere, nothing is rewritten
+ALTER TABLE transactions ADD CONSTRAINT transactions_counterparty_fk
+    FOREIGN KEY (counterparty_account_id) REFERENCES accounts(id) ON DELETE CASCADE;
+
+-- Only transfers have a second leg and it has to be another account. Existing rows cannot violate
+-- it, so validation is skipped; new rows and partitions are checked.
+ALTER TABLE transactions ADD CONSTRAINT transactions_journal_legs
+    CHECK (counterparty_account_id IS NULL
+        OR (transaction_type = 'TRANSFER' AND reference_id IS NULL AND counterparty_account_id <> account_id))
+    NOT VALID;
+
+-- the credited side of the history seek, same shape as idx_transactions_account_history
+CREATE INDEX idx_transactions_counterparty_history
+    ON transactions (counterparty_account_id, created_at DESC, id DESC)
+    INCLUDE (amount)
+    WHERE counterparty_account_id IS NOT NULL;
+
+-- One posting per account and leg: the legacy paired rows as they are, and each journal entry twice,
+-- once per leg. The credited leg carries the entry id as its reference, the same direction rule the
+-- paired rows follow. Filters on account_id and the (created_at, id) seek push down into both branches.
+CREATE VIEW account_postings AS
+SELECT id, account_id, transaction_type, amount, created_at, reference_id,
+       CASE WHEN transaction_type = 'DEPOSIT' OR (transaction_type = 'TRANSFER' AND reference_id IS NOT NULL)
+            THEN 'CREDIT' ELSE 'DEBIT' END AS direction
+FROM transactions
+UNION ALL
+SELECT id, counterparty_account_id, transaction_type, amount, created_at, id, 'CREDIT'
+FROM transactions
+WHERE counterparty_account_id IS NOT NULL;
+
+-- both legs of a journal entry are published, as they were for paired rows
+CREATE OR REPLACE FUNCTION append_ledger_outbox() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO ledger_outbox (transaction_id, account_number, transaction_type, amount, reference_id, occurred_at)
+    SELECT NEW.id, a.account_number, NEW.transaction_type, NEW.amount, NEW.reference_id, NEW.created_at
+    FROM accounts a WHERE a.id = NEW.account_id
+    UNION ALL
+    SELECT NEW.id, a.account_number, NEW.transaction_type, NEW.amount, NEW.id, NEW.created_at
+    FROM accounts a WHERE a.id = NEW.counterparty_account_id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,12 @@
+
+-- LEDGER execution mode: balance changes are appended here instead of updating accounts.balance.
+-- accounts.balance is the checkpoint; the aggregator folds delta rows into it in batches, and a
+-- balance read is the checkpoint plus whatever deltas are still pending for the account.
+CREATE TABLE account_balance_deltas (
+    id BIGSERIAL PRIMARY KEY,
+    account_id BIGINT NOT NULL REFERENCES accounts (id) ON DELETE CASCADE,
+    -- signed minor units: credits positive, debits negative
+    amount BIGINT NOT NULL
+);
+
+CREATE INDEX idx_account_balance_deltas_account ON account_balance_deltas (account_id) INCLUDE (amount);
@@ -0,0 +1,44 @@
+
+-- Reconciliation checks that every account's balance equals its opening balance plus its ledger
+-- movements. The balance is accounts.balance plus any balance slots and unfolded ledger deltas.
+ALTER TABLE accounts ADD COLUMN opening_balance BIGINT NOT NULL DEFAULT 0;
+
+-- Balances predate a complete ledger: seeded accounts have no history at all. Whatever the ledger
+-- does not explain today becomes the opening balance, so drift is detected from this migration on.
+UPDATE accounts a SET opening_balance = a.balance
+    + COALESCE((SELECT SUM(s.balance) FROM account_balance_slots s WHERE s.account_id = a.id), 0)
+    + COALESCE((SELECT SUM(d.amount) FROM account_balance_deltas d WHERE d.account_id = a.id), 0)
+    - COALESCE((SELECT SUM(CASE WHEN p.direction = 'CREDIT' THEN p.amount ELSE -p.amount END)
+                FROM account_postings p WHERE p.account_id = a.id), 0);
+
+-- A run covers the accounts that existed when it started, split into contiguous id ranges that
+-- are planned up front. A range is checked and marked complete in one statement, so an interrupted
+-- run resumes with the ranges still open.
+CREATE TABLE reconciliation_runs (
+    id BIGSERIAL PRIMARY KEY,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP NULL,
+    accounts_checked BIGINT NULL,
+    discrepancies BIGINT NULL
+);
+
+CREATE TABLE reconciliation_ranges (
+    run_id BIGINT NOT NULL REFERENCES reconciliation_runs (id) ON DELETE CASCADE,
+    first_account_id BIGINT NOT NULL,
+    last_account_id BIGINT NOT NULL,
+    accounts INT NULL,
+    discrepancies INT NULL,
+    completed_at TIMESTAMP NULL,
+    PRIMARY KEY (run_id, first_account_id)
+);
+
+CREATE TABLE reconciliation_discrepancies (
+    id BIGSERIAL PRIMARY KEY,
+    run_id BIGINT NOT NULL REFERENCES reconciliation_runs (id) ON DELETE CASCADE,
+    account_id BIGINT NOT NULL,
+    expected_balance BIGINT NOT NULL,
+    actual_balance BIGINT NOT NULL,
+    detected_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_reconciliation_discrepancies_run ON reconciliation_discrepancies (run_id, account_id);
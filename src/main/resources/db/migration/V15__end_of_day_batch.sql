@@ -0,0 +1,34 @@
+
+-- The end-of-day batch posts INTEREST (credit) and FEE (debit) rows. They are single-leg entries like
+-- deposits and withdrawals; only the direction rule of account_postings has to learn them.
+CREATE OR REPLACE VIEW account_postings AS
+SELECT id, account_id, transaction_type, amount, created_at, reference_id,
+       CASE WHEN transaction_type IN ('DEPOSIT', 'INTEREST') OR (transaction_type = 'TRANSFER' AND reference_id IS NOT NULL)
+            THEN 'CREDIT' ELSE 'DEBIT' END AS direction
+FROM transactions
+UNION ALL
+SELECT id, counterparty_account_id, transaction_type, amount, created_at, id, 'CREDIT'
+FROM transactions
+WHERE counterparty_account_id IS NOT NULL;
+
+-- One run per business date, so a date is never posted twice. Its accounts are split into
+-- partitions of contiguous ids, planned when the run starts. A partition's checkpoint is the last
+-- account id posted and moves in the same statement as the postings of each chunk, so a restarted
+-- run continues right after the last committed chunk.
+CREATE TABLE end_of_day_runs (
+    business_date DATE PRIMARY KEY,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP NULL
+);
+
+CREATE TABLE end_of_day_partitions (
+    business_date DATE NOT NULL REFERENCES end_of_day_runs (business_date) ON DELETE CASCADE,
+    first_account_id BIGINT NOT NULL,
+    last_account_id BIGINT NOT NULL,
+    checkpoint_account_id BIGINT NULL,
+    accounts_posted BIGINT NOT NULL DEFAULT 0,
+    amount_credited BIGINT NOT NULL DEFAULT 0,
+    amount_debited BIGINT NOT NULL DEFAULT 0,
+    completed_at TIMESTAMP NULL,
+    PRIMARY KEY (business_date, first_account_id)
+);
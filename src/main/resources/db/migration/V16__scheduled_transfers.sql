@@ -0,0 +1,23 @@
+
+-- Future-dated and recurring transfers. Occurrence n of a schedule falls at start_at plus n periods
+-- of its recurrence; next_run_at is the occurrence to run next and occurrence its index, which also
+-- makes the idempotency key of that run. A schedule that is not ACTIVE has no next run.
+CREATE TABLE scheduled_transfers (
+    id BIGSERIAL PRIMARY KEY,
+    from_account_number VARCHAR(20) NOT NULL,
+    to_account_number VARCHAR(20) NOT NULL,
+    amount BIGINT NOT NULL CHECK (amount > 0),
+    recurrence VARCHAR(10) NOT NULL,
+    start_at TIMESTAMP NOT NULL,
+    end_at TIMESTAMP NULL,
+    occurrence INT NOT NULL DEFAULT 0,
+    next_run_at TIMESTAMP NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
+    last_run_at TIMESTAMP NULL,
+    last_error VARCHAR(255) NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- The scheduler only ever loads the next few minutes: an index-only range scan over the active
+-- schedules, however many are set up for later.
+CREATE INDEX idx_scheduled_transfers_due ON scheduled_transfers (next_run_at) INCLUDE (id) WHERE status = 'ACTIVE';
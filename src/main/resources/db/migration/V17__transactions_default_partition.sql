@@ -0,0 +1,4 @@
+-- Catches rows dated past the last monthly partition, so an insert never fails with "no partition
+-- of relation transactions found for row" when maintenance has fallen behind. The maintainer moves
+-- such rows into their monthly partition when it creates it.
+CREATE TABLE transactions_default PARTITION OF transactions DEFAULT;
@@ -0,0 +1,3 @@
+-- Every claim counts as an attempt, so an operation whose batch keeps failing is eventually
+-- marked FAILED instead of being released to the head of the queue forever.
+ALTER TABLE operation_intake ADD COLUMN attempts INT NOT NULL DEFAULT 0;
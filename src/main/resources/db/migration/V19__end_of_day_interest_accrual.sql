@@ -0,0 +1,4 @@
+-- Daily interest is rarely a whole number of cents: at 2% a year, a balance under 182.50 earns less
+-- than a cent a day. The end-of-day batch carries the fraction per account, in millionths of a cent,
+-- and posts whole cents once they have accrued. Not money on the account, so reconciliation ignores it.
+ALTER TABLE accounts ADD COLUMN accrued_interest BIGINT NOT NULL DEFAULT 0;
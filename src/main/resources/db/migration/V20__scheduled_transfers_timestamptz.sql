@@ -0,0 +1,9 @@
+-- Schedule times were TIMESTAMPs read and written through the JVM's zone, so a daylight-saving change
+-- skipped or repeated the runs of that hour. They become absolute instants. Existing values were
+-- written in the zone of the session, and the conversion reads them in that same zone.
+ALTER TABLE scheduled_transfers
+    ALTER COLUMN start_at TYPE TIMESTAMPTZ,
+    ALTER COLUMN end_at TYPE TIMESTAMPTZ,
+    ALTER COLUMN next_run_at TYPE TIMESTAMPTZ,
+    ALTER COLUMN last_run_at TYPE TIMESTAMPTZ,
+    ALTER COLUMN created_at TYPE TIMESTAMPTZ;
@@ -0,0 +1,10 @@
+
+ALTER TABLE transactions ALTER COLUMN id TYPE BIGINT;
+
+-- Hibernate hands out ids from blocks of 50, so inserts no longer need RETURNING and can be batched
+CREATE SEQUENCE transaction_id_seq INCREMENT BY 50;
+SELECT setval('transaction_id_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM transactions));
+
+ALTER TABLE transactions ALTER COLUMN id SET DEFAULT nextval('transaction_id_seq');
+ALTER SEQUENCE transaction_id_seq OWNED BY transactions.id;
+DROP SEQUENCE transactions_id_seq;
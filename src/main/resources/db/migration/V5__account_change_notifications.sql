@@ -0,0 +1,24 @@
+
+CREATE OR REPLACE FUNCTION notify_account_change() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        PERFORM pg_notify('account_changes', 'D:' || OLD.account_number);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM pg_notify('account_changes', 'I:' || NEW.account_number);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+
+CREATE TRIGGER accounts_notify_insert_delete
+    AFTER INSERT OR DELETE ON accounts
+    FOR EACH ROW EXECUTE FUNCTION notify_account_change();
+
+-- balance updates rewrite every column, only a real renumbering is interesting
+CREATE TRIGGER accounts_notify_renumber
+    AFTER UPDATE OF account_number ON accounts
+    FOR EACH ROW
+    WHEN (OLD.account_number IS DISTINCT FROM NEW.account_number)
+    EXECUTE FUNCTION notify_account_change();
@@ -0,0 +1,8 @@
+
+UPDATE transactions SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL;
+ALTER TABLE transactions ALTER COLUMN created_at SET NOT NULL;
+
+-- Serves the (created_at, id) seek used by the history endpoint as an index-only scan
+CREATE INDEX idx_transactions_account_history
+    ON transactions (account_id, created_at DESC, id DESC)
+    INCLUDE (transaction_type, amount, reference_id);
@@ -0,0 +1,48 @@
+
+-- transactions becomes a table range-partitioned by month on created_at. The existing rows are not
+-- copied: the old table is attached as the partition for everything before next month, so the
+-- migration only validates a check constraint and builds one index instead of rewriting history.
+
+ALTER SEQUENCE transaction_id_seq OWNED BY NONE;
+
+ALTER TABLE transactions RENAME TO transactions_legacy;
+ALTER INDEX idx_transactions_account_history RENAME TO transactions_legacy_account_history_idx;
+
+-- Partitioned tables need the partition key in every unique constraint, hence the composite key
+CREATE TABLE transactions (
+    id BIGINT NOT NULL DEFAULT nextval('transaction_id_seq'),
+    account_id BIGINT NOT NULL,
+    transaction_type VARCHAR(20) NOT NULL,
+    amount DECIMAL(15, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    reference_id BIGINT NULL,
+    PRIMARY KEY (id, created_at),
+    FOREIGN KEY (account_id) REFERENCES accounts(id) ON DELETE CASCADE
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE transaction_id_seq OWNED BY transactions.id;
+
+CREATE INDEX idx_transactions_account_history
+    ON transactions (account_id, created_at DESC, id DESC)
+    INCLUDE (transaction_type, amount, reference_id);
+
+DO $$
+DECLARE
+    boundary TIMESTAMP := date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '1 month';
+    month_start TIMESTAMP;
+BEGIN
+    -- a valid check constraint lets ATTACH skip its own full scan
+    EXECUTE format('ALTER TABLE transactions_legacy ADD CONSTRAINT transactions_legacy_range CHECK (created_at < %L)', boundary);
+    -- a partition's primary key has to match the parent's (id, created_at)
+    CREATE UNIQUE INDEX transactions_legacy_pkey_new ON transactions_legacy (id, created_at);
+    ALTER TABLE transactions_legacy DROP CONSTRAINT transactions_pkey;
+    ALTER TABLE transactions_legacy ADD CONSTRAINT transactions_legacy_pkey PRIMARY KEY USING INDEX transactions_legacy_pkey_new;
+    EXECUTE format('ALTER TABLE transactions ATTACH PARTITION transactions_legacy FOR VALUES FROM (MINVALUE) TO (%L)', boundary);
+
+    -- TransactionPartitionMaintainer keeps this window rolling forward
+    FOR i IN 0..2 LOOP
+        month_start := boundary + make_interval(months => i);
+        EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                       'transactions_p' || to_char(month_start, 'YYYYMM'), month_start, month_start + INTERVAL '1 month');
+    END LOOP;
+END $$;
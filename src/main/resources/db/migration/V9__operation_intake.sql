@@ -0,0 +1,20 @@
+
+-- Accepted but not yet applied operations. Rows are claimed by workers with SKIP LOCKED and keep
+-- their final status for polling until purged.
+CREATE TABLE operation_intake (
+    id BIGSERIAL PRIMARY KEY,
+    operation_type VARCHAR(20) NOT NULL,
+    account_number VARCHAR(20) NOT NULL,
+    counterparty_account_number VARCHAR(20) NULL,
+    amount DECIMAL(15, 2) NOT NULL,
+    idempotency_key VARCHAR(255) NULL UNIQUE,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    error VARCHAR(255) NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimed_at TIMESTAMP NULL,
+    completed_at TIMESTAMP NULL
+);
+
+CREATE INDEX idx_operation_intake_pending ON operation_intake (id) WHERE status = 'PENDING';
+CREATE INDEX idx_operation_intake_processing ON operation_intake (claimed_at) WHERE status = 'PROCESSING';
+CREATE INDEX idx_operation_intake_completed ON operation_intake (completed_at) WHERE completed_at IS NOT NULL;
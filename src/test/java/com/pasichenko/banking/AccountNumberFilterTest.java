@@ -0,0 +1,44 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.service.impl.AccountNumberFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountNumberFilterTest {
+
+    @Test
+    void testAddedNumbersAreAlwaysFound() {
+        AccountNumberFilter filter = new AccountNumberFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(String.valueOf(10010000 + i));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(String.valueOf(10010000 + i)));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRateStaysNearTarget() {
+        AccountNumberFilter filter = new AccountNumberFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(String.valueOf(10010000 + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(String.valueOf(20010000 + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positive rate too high: " + falsePositives);
+    }
+
+    @Test
+    void testEmptyFilterRejectsEverything() {
+        AccountNumberFilter filter = new AccountNumberFilter(1_000, 0.01);
+
+        assertFalse(filter.mightContain("10010001"));
+    }
+}
@@ -0,0 +1,156 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.CoalescingProperties;
+import com.pasichenko.banking.service.BankingService;
+import com.pasichenko.banking.service.IdempotencyKeyReusedException;
+import com.pasichenko.banking.service.VelocityLimitExceededException;
+import com.pasichenko.banking.service.impl.AccountOperationCoalescer;
+import com.pasichenko.banking.service.impl.IdempotencyStore;
+import com.pasichenko.banking.service.impl.OperationBatchExecutor;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AccountOperationCoalescerTest {
+
+    private BankingService bankingService;
+    private OperationBatchExecutor batchExecutor;
+    private IdempotencyStore idempotencyStore;
+    private CoalescingProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        bankingService = mock(BankingService.class);
+        batchExecutor = mock(OperationBatchExecutor.class);
+        idempotencyStore = mock(IdempotencyStore.class);
+        properties = new CoalescingProperties();
+        properties.setEnabled(true);
+        properties.setStripes(4);
+        properties.setMaxBatchSize(50);
+    }
+
+    @Test
+    void testDisabledCoalescingCallsServiceDirectly() {
+        properties.setEnabled(false);
+        AccountOperationCoalescer coalescer = new AccountOperationCoalescer(bankingService, batchExecutor, idempotencyStore, properties);
+
+        coalescer.deposit("12345", 10_00);
+
+        verify(bankingService, times(1)).deposit("12345", 10_00);
+        verifyNoInteractions(batchExecutor);
+    }
+
+    @Test
+    void testRepeatedIdempotencyKeyIsReplayedWithoutExecuting() {
+        BankingOperation operation = BankingOperation.deposit("12345", 10_00).withIdempotencyKey("key-1");
+        when(idempotencyStore.replay(operation)).thenReturn(Optional.of(OperationResult.replay()));
+        AccountOperationCoalescer coalescer = new AccountOperationCoalescer(bankingService, batchExecutor, idempotencyStore, properties);
+
+        OperationResult result = coalescer.execute(operation);
+
+        assertTrue(result.replayed());
+        verifyNoInteractions(bankingService, batchExecutor);
+    }
+
+    @Test
+    void testConcurrentOperationsAreDrainedInBatches() throws Exception {
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        when(batchExecutor.execute(anyList())).thenAnswer(invocation -> {
+            List<BankingOperation> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            Thread.sleep(5); // simulated commit time lets the queue fill up
+            return Collections.nCopies(batch.size(), OperationResult.success());
+        });
+        AccountOperationCoalescer coalescer = new AccountOperationCoalescer(bankingService, batchExecutor, idempotencyStore, properties);
+
+        int operations = 400;
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<CompletableFuture<OperationResult>> results = new ArrayList<>();
+        for (int i = 0; i < operations; i++) {
+            results.add(CompletableFuture.supplyAsync(
+                    () -> coalescer.submit(BankingOperation.transfer("10010001", "10010002", 1_00)), pool));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertTrue(results.stream().allMatch(result -> result.join().successful()));
+        assertEquals(operations, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.size() < operations, "expected at least one multi-operation batch");
+        assertTrue(batchSizes.stream().allMatch(size -> size <= properties.getMaxBatchSize()));
+    }
+
+    @Test
+    void testFailedOperationIsReportedToItsCaller() {
+        AtomicInteger calls = new AtomicInteger();
+        when(batchExecutor.execute(anyList())).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            return List.of(OperationResult.failure("Insufficient balance"));
+        });
+        AccountOperationCoalescer coalescer = new AccountOperationCoalescer(bankingService, batchExecutor, idempotencyStore, properties);
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () ->
+                coalescer.withdraw("12345", 5000_00)
+        );
+        assertEquals("Insufficient balance", exception.getMessage());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testTypedFailuresReachTheCallerUnwrapped() {
+        VelocityLimitExceededException limited = new VelocityLimitExceededException("Daily spending limit exceeded");
+        when(batchExecutor.execute(anyList())).thenReturn(List.of(OperationResult.failure(limited)));
+        AccountOperationCoalescer coalescer = new AccountOperationCoalescer(bankingService, batchExecutor, idempotencyStore, properties);
+
+        assertSame(limited, assertThrows(VelocityLimitExceededException.class,
+                () -> coalescer.withdraw("12345", 1_00)));
+
+        BankingOperation keyed = BankingOperation.withdraw("12345", 1_00).withIdempotencyKey("key-1");
+        IdempotencyKeyReusedException reused = new IdempotencyKeyReusedException("key-1");
+        when(idempotencyStore.replay(keyed)).thenReturn(Optional.empty());
+        when(batchExecutor.execute(anyList())).thenThrow(reused);
+
+        assertSame(reused, assertThrows(IdempotencyKeyReusedException.class, () -> coalescer.execute(keyed)));
+    }
+
+    @Test
+    void testDrainerStopsOnceItsOwnOperationIsDone() throws Exception {
+        properties.setMaxBatchSize(1);
+        AccountOperationCoalescer coalescer = new AccountOperationCoalescer(bankingService, batchExecutor, idempotencyStore, properties);
+        BankingOperation first = BankingOperation.deposit("12345", 1_00);
+        BankingOperation second = BankingOperation.deposit("12345", 2_00);
+        List<String> executedBy = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<OperationResult> queuedBehind = new CompletableFuture<>();
+        when(batchExecutor.execute(anyList())).thenAnswer(invocation -> {
+            List<BankingOperation> batch = invocation.getArgument(0);
+            executedBy.add(Thread.currentThread().getName());
+            if (batch.contains(first)) {
+                // queued while the first caller is draining
+                Thread caller = new Thread(() -> queuedBehind.complete(coalescer.submit(second)), "second-caller");
+                caller.start();
+                Thread.sleep(100);
+            }
+            return List.of(OperationResult.success());
+        });
+
+        coalescer.submit(first);
+
+        assertTrue(queuedBehind.get(10, TimeUnit.SECONDS).successful());
+        // the first caller returned after its own batch, the second one drained its own
+        assertEquals(List.of(Thread.currentThread().getName(), "second-caller"), executedBy);
+    }
+}
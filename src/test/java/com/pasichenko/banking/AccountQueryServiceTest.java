@@ -0,0 +1,68 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.ExecutionProperties;
+import com.pasichenko.banking.repository.AccountBalanceSlotRepository;
+import com.pasichenko.banking.repository.AccountRef;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.repository.LedgerRepository;
+import com.pasichenko.banking.repository.TransactionHistoryItem;
+import com.pasichenko.banking.repository.TransactionRepository;
+import com.pasichenko.banking.service.TransactionHistoryPage;
+import com.pasichenko.banking.service.impl.AccountLookupCache;
+import com.pasichenko.banking.service.impl.AccountQueryServiceImpl;
+import com.pasichenko.banking.service.impl.BalanceCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class AccountQueryServiceTest {
+
+    private AccountLookupCache accountLookupCache;
+    private TransactionRepository transactionRepository;
+    private AccountQueryServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        accountLookupCache = mock(AccountLookupCache.class);
+        transactionRepository = mock(TransactionRepository.class);
+        when(accountLookupCache.resolve("10010001")).thenReturn(Optional.of(new AccountRef(1L, "10010001", "SAVINGS")));
+        service = new AccountQueryServiceImpl(accountLookupCache, mock(AccountRepository.class),
+                mock(AccountBalanceSlotRepository.class), mock(BalanceCache.class), transactionRepository,
+                mock(LedgerRepository.class), new ExecutionProperties());
+    }
+
+    @Test
+    void testLimitOutsideTheAllowedRangeIsRejected() {
+        for (int limit : new int[]{0, -1, 501}) {
+            assertThrows(IllegalArgumentException.class, () -> service.getTransactions("10010001", null, limit));
+        }
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void testFullPageCarriesACursor() {
+        List<TransactionHistoryItem> rows = List.of(item(3), item(2), item(1));
+        when(transactionRepository.findLatest(anyLong(), anyInt())).thenReturn(rows);
+
+        TransactionHistoryPage page = service.getTransactions("10010001", null, 2).orElseThrow();
+
+        assertEquals(2, page.items().size());
+        assertEquals(2L, page.nextCursor().id());
+        verify(transactionRepository).findLatest(1L, 3);
+    }
+
+    private static TransactionHistoryItem item(long id) {
+        TransactionHistoryItem item = mock(TransactionHistoryItem.class);
+        when(item.getId()).thenReturn(id);
+        when(item.getCreatedAt()).thenReturn(LocalDateTime.of(2026, 1, 1, 0, 0).plusMinutes(id));
+        return item;
+    }
+}
@@ -0,0 +1,85 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.AdaptiveConcurrencyLimit;
+import com.pasichenko.banking.config.AdmissionProperties;
+import com.pasichenko.banking.service.impl.RetryBudget;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+
+    private static final long MILLI = 1_000_000;
+
+    @Test
+    void testRequestsAboveTheLimitAreRejected() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.releaseWithoutSample();
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void testLimitShrinksWhenLatencyRisesAndGrowsBackWhenItRecovers() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 2, 100, 2.0);
+        saturate(limit, 5 * MILLI, 2000);
+        int healthy = limit.getLimit();
+        assertTrue(healthy > 20, "busy and fast should grow the limit, was " + healthy);
+
+        saturate(limit, 200 * MILLI, 1000);
+        int slow = limit.getLimit();
+        assertTrue(slow < healthy / 2, "a 40x slowdown should cut the limit, was " + slow + " from " + healthy);
+
+        saturate(limit, 5 * MILLI, 3000);
+        assertTrue(limit.getLimit() > slow, "the limit should recover once latency does");
+    }
+
+    @Test
+    void testRetriesStopWhenTheBudgetIsSpent() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setRetryRatio(0);
+        properties.setRetryBurst(3);
+        RetryBudget budget = new RetryBudget(properties, new SimpleMeterRegistry());
+        RetryTemplate template = RetryTemplate.builder()
+                .customPolicy(new SimpleRetryPolicy(3, Map.of(ObjectOptimisticLockingFailureException.class, true)))
+                .noBackoff()
+                .withListener(budget)
+                .build();
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int call = 0; call < 3; call++) {
+            assertThrows(ObjectOptimisticLockingFailureException.class, () -> template.execute(context -> {
+                attempts.incrementAndGet();
+                throw new ObjectOptimisticLockingFailureException("Account", 1L);
+            }));
+        }
+
+        // 3 first attempts plus the 3 retries the budget held
+        assertEquals(6, attempts.get());
+        assertEquals(0, budget.available());
+    }
+
+    // every admitted request finishes after rtt with the limit fully used
+    private static void saturate(AdaptiveConcurrencyLimit limit, long rttNanos, int samples) {
+        for (int i = 0; i < samples; i++) {
+            while (limit.tryAcquire()) {
+                // fill every free slot
+            }
+            limit.release(rttNanos);
+        }
+        while (limit.getInFlight() > 0) {
+            limit.releaseWithoutSample();
+        }
+    }
+}
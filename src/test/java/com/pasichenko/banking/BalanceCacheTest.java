@@ -0,0 +1,113 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.BalanceCacheProperties;
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.service.BalanceSnapshot;
+import com.pasichenko.banking.service.impl.BalanceCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceCacheTest {
+
+    private BalanceCacheProperties properties;
+    private SimpleMeterRegistry registry;
+    private BalanceCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new BalanceCacheProperties();
+        properties.setMaxStaleness(Duration.ofMinutes(1));
+        registry = new SimpleMeterRegistry();
+        cache = new BalanceCache(properties, registry);
+    }
+
+    @Test
+    void testReadThroughServesFreshEntries() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            BalanceSnapshot snapshot = cache.get("10010001", () -> {
+                loads.incrementAndGet();
+                return BalanceSnapshot.of("10010001", 5_00, 1, false);
+            });
+            assertEquals(5_00, snapshot.balance());
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(2.0, registry.get("banking.balance.cache.requests").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void testStaleAndShardedEntriesAreReloaded() {
+        properties.setMaxStaleness(Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("10010001", () -> {
+            loads.incrementAndGet();
+            return BalanceSnapshot.of("10010001", 5_00, 1, false);
+        });
+        cache.get("10010001", () -> {
+            loads.incrementAndGet();
+            return BalanceSnapshot.of("10010001", 5_00, 1, false);
+        });
+        properties.setMaxStaleness(Duration.ofMinutes(1));
+        for (int i = 0; i < 2; i++) {
+            cache.get("10010002", () -> {
+                loads.incrementAndGet();
+                return BalanceSnapshot.of("10010002", 7_00, 1, true);
+            });
+        }
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void testOlderVersionNeverReplacesNewer() {
+        cache.updateAfterCommit(account("10010001", 9_00, 5));
+        cache.updateAfterCommit(account("10010001", 1_00, 4));
+
+        BalanceSnapshot snapshot = cache.get("10010001", () -> fail("served from the cache"));
+
+        assertEquals(9_00, snapshot.balance());
+        assertEquals("\"5\"", snapshot.etag());
+    }
+
+    @Test
+    void testEvictionForcesReload() {
+        cache.updateAfterCommit(account("10010001", 9_00, 5));
+        cache.evictAfterCommit("10010001");
+
+        BalanceSnapshot snapshot = cache.get("10010001", () -> BalanceSnapshot.of("10010001", 3_00, 6, false));
+
+        assertEquals(3_00, snapshot.balance());
+    }
+
+    @Test
+    void testIfNoneMatchFollowsRfc9110() {
+        BalanceSnapshot snapshot = BalanceSnapshot.of("10010001", 5_00, 7, false);
+
+        assertTrue(snapshot.matches("\"7\""));
+        assertTrue(snapshot.matches("W/\"7\""));
+        assertTrue(snapshot.matches("\"6\", W/\"7\""));
+        assertTrue(snapshot.matches("*"));
+        assertFalse(snapshot.matches(null));
+        assertFalse(snapshot.matches("\"6\""));
+        assertFalse(snapshot.matches("\"77\""));
+        assertFalse(snapshot.matches("7"));
+        assertFalse(snapshot.matches("\"a,b\", \"8\""));
+        assertTrue(BalanceSnapshot.of("10010001", 5_00, 7, true).matches("W/\"7-500\""));
+    }
+
+    private static Account account(String accountNumber, long balance, int version) {
+        Account account = new Account();
+        account.setAccountNumber(accountNumber);
+        account.setBalance(balance);
+        account.setVersion(version);
+        return account;
+    }
+}
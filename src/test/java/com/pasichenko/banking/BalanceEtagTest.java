@@ -0,0 +1,61 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.controller.BankingController;
+import com.pasichenko.banking.service.AccountQueryService;
+import com.pasichenko.banking.service.BalanceSnapshot;
+import com.pasichenko.banking.service.BatchTransferService;
+import com.pasichenko.banking.service.OperationIntakeService;
+import com.pasichenko.banking.service.ScheduledTransferService;
+import com.pasichenko.banking.service.impl.AccountOperationCoalescer;
+import com.pasichenko.banking.service.impl.BankingServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class BalanceEtagTest {
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        AccountQueryService accountQueryService = mock(AccountQueryService.class);
+        when(accountQueryService.getBalance("10010001"))
+                .thenReturn(Optional.of(BalanceSnapshot.of("10010001", 12_34, 7, false)));
+        BankingController controller = new BankingController(mock(BankingServiceImpl.class),
+                mock(AccountOperationCoalescer.class), mock(BatchTransferService.class), accountQueryService,
+                mock(OperationIntakeService.class), mock(ScheduledTransferService.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void testBalanceCarriesTheVersionTag() throws Exception {
+        mockMvc.perform(get("/banking/accounts/10010001/balance"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""))
+                .andExpect(jsonPath("$.balance").value("12.34"));
+    }
+
+    @Test
+    void testMatchingTagsReturnNotModified() throws Exception {
+        for (String ifNoneMatch : new String[]{"\"7\"", "W/\"7\"", "\"3\", \"7\"", "*"}) {
+            mockMvc.perform(get("/banking/accounts/10010001/balance").header("If-None-Match", ifNoneMatch))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", "\"7\""))
+                    .andExpect(content().string(""));
+        }
+    }
+
+    @Test
+    void testStaleTagReturnsTheBalance() throws Exception {
+        mockMvc.perform(get("/banking/accounts/10010001/balance").header("If-None-Match", "\"6\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""));
+    }
+}
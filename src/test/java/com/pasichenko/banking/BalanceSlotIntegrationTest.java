@@ -0,0 +1,96 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.service.BalanceSlotService;
+import com.pasichenko.banking.service.BankingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the slot statements (SKIP LOCKED credit and debit, the locked rebalance, the fold back) against Postgres.
+@BankingIntegrationTest
+class BalanceSlotIntegrationTest {
+
+    @Autowired
+    private BankingService bankingService;
+
+    @Autowired
+    private BalanceSlotService balanceSlotService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testConcurrentDepositsAndWithdrawalsKeepTheTotal() throws Exception {
+        String accountNumber = TestAccounts.create(jdbcTemplate, "CHECKING", 1000_00);
+        balanceSlotService.enableSharding(accountNumber, 4);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 10; i++) {
+                    bankingService.deposit(accountNumber, 3_00);
+                    bankingService.withdraw(accountNumber, 1_00);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertEquals(1160_00, balanceSlotService.totalBalance(account(accountNumber)));
+        assertEquals(4, slotBalances(accountNumber).size());
+    }
+
+    @Test
+    void testDebitLargerThanAnySlotRebalances() {
+        String accountNumber = TestAccounts.create(jdbcTemplate, "CHECKING", 100_00);
+        balanceSlotService.enableSharding(accountNumber, 4);
+        assertEquals(List.of(25_00L, 25_00L, 25_00L, 25_00L), slotBalances(accountNumber));
+
+        bankingService.withdraw(accountNumber, 60_00);
+
+        assertEquals(List.of(10_00L, 10_00L, 10_00L, 10_00L), slotBalances(accountNumber));
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> bankingService.withdraw(accountNumber, 41_00));
+        assertEquals("Insufficient balance", exception.getMessage());
+        assertEquals(40_00, balanceSlotService.totalBalance(account(accountNumber)));
+    }
+
+    @Test
+    void testDisableShardingFoldsSlotsBack() {
+        String accountNumber = TestAccounts.create(jdbcTemplate, "SAVINGS", 10_01);
+        balanceSlotService.enableSharding(accountNumber, 3);
+        bankingService.deposit(accountNumber, 5_00);
+        assertEquals(0, TestAccounts.balance(jdbcTemplate, accountNumber));
+
+        balanceSlotService.disableSharding(accountNumber);
+
+        assertEquals(15_01, TestAccounts.balance(jdbcTemplate, accountNumber));
+        assertTrue(slotBalances(accountNumber).isEmpty());
+        assertFalse(account(accountNumber).isBalanceSharded());
+    }
+
+    private Account account(String accountNumber) {
+        return accountRepository.findByAccountNumber(accountNumber).orElseThrow();
+    }
+
+    private List<Long> slotBalances(String accountNumber) {
+        return jdbcTemplate.queryForList("SELECT balance FROM account_balance_slots WHERE account_id = ? ORDER BY slot",
+                Long.class, TestAccounts.id(jdbcTemplate, accountNumber));
+    }
+}
@@ -0,0 +1,27 @@
+package com.pasichenko.banking;
+
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Postgres-backed tests share this one configuration, and so one cached context: a single set of
+// background workers runs against the container. The outbox relay is off, OutboxIntegrationTest
+// drives it by hand, and so is the transfer scheduler, ScheduledTransferIntegrationTest fires its own. Accounts are inserted behind the lookup cache's back, so its filter must not
+// reject them before their change notification arrives.
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@SpringBootTest(properties = {
+        "banking.limits.enabled=false",
+        "banking.account-cache.reject-unknown=false",
+        "banking.outbox.relay-enabled=false",
+        "banking.schedules.enabled=false"
+})
+@AutoConfigureMockMvc
+@Import(TestcontainersConfiguration.class)
+@interface BankingIntegrationTest {
+}
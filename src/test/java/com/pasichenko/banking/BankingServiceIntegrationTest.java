@@ -17,7 +17,6 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.jdbc.core.JdbcTemplate;
-import java.math.BigDecimal;
 import java.util.concurrent.CountDownLatch;
 
 import static org.mockito.Mockito.*;
@@ -58,18 +57,18 @@ public class BankingServiceIntegrationTest {
 
 		// Insert account using the correct user ID
 		jdbcTemplate.update("INSERT INTO accounts (user_id, account_number, account_type, balance, version) VALUES (?, ?, ?, ?, ?)",
-				userId, "12345", "SAVINGS", 100.00, 0);
+				userId, "12345", "SAVINGS", 100_00, 0);
 
 		// Perform deposit
-		bankingService.deposit("12345", BigDecimal.valueOf(50));
+		bankingService.deposit("12345", 50_00);
 
 		// Verify balance after deposit
-		BigDecimal balance = jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE account_number = ?",
-				new Object[]{"12345"}, BigDecimal.class);
-		assert balance.compareTo(BigDecimal.valueOf(150.00)) == 0;
+		long balance = jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE account_number = ?",
+				new Object[]{"12345"}, Long.class);
+		assert balance == 150_00;
 
 		// Verify transaction recorded
-		verify(transactionService, times(1)).recordTransaction(any(), eq(Transaction.TransactionType.DEPOSIT), eq(BigDecimal.valueOf(50)), isNull());
+		verify(transactionService, times(1)).recordTransaction(any(), eq(Transaction.TransactionType.DEPOSIT), eq(50_00L), isNull());
 	}
 
 
@@ -86,18 +85,18 @@ public class BankingServiceIntegrationTest {
 
 		// Insert account for the user
 		jdbcTemplate.update("INSERT INTO accounts (user_id, account_number, account_type, balance, version) VALUES (?, ?, ?, ?, ?)",
-				userId, "54321", "CHECKING", 200.00, 0);
+				userId, "54321", "CHECKING", 200_00, 0);
 
 		// Perform withdrawal
-		bankingService.withdraw("54321", BigDecimal.valueOf(50));
+		bankingService.withdraw("54321", 50_00);
 
 		// Verify balance after withdrawal
-		BigDecimal balance = jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE account_number = ?",
-				new Object[]{"54321"}, BigDecimal.class);
-		assert balance.compareTo(BigDecimal.valueOf(150.00)) == 0;
+		long balance = jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE account_number = ?",
+				new Object[]{"54321"}, Long.class);
+		assert balance == 150_00;
 
 		// Verify transaction recorded
-		verify(transactionService, times(1)).recordTransaction(any(), eq(Transaction.TransactionType.WITHDRAW), eq(BigDecimal.valueOf(50)), isNull());
+		verify(transactionService, times(1)).recordTransaction(any(), eq(Transaction.TransactionType.WITHDRAW), eq(50_00L), isNull());
 	}
 
 
@@ -115,24 +114,24 @@ public class BankingServiceIntegrationTest {
 
 		// Insert accounts using the correct user IDs
 		jdbcTemplate.update("INSERT INTO accounts (user_id, account_number, account_type, balance, version) VALUES (?, ?, ?, ?, ?)",
-				userId1, "11111", "CHECKING", 200.00, 0);
+				userId1, "11111", "CHECKING", 200_00, 0);
 		jdbcTemplate.update("INSERT INTO accounts (user_id, account_number, account_type, balance, version) VALUES (?, ?, ?, ?, ?)",
-				userId2, "22222", "SAVINGS", 50.00, 0);
+				userId2, "22222", "SAVINGS", 50_00, 0);
 
 		// Perform transfer
-		bankingService.transfer("11111", "22222", BigDecimal.valueOf(100));
+		bankingService.transfer("11111", "22222", 100_00);
 
 		// Verify balances after transfer
-		BigDecimal balanceFrom = jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE account_number = ?",
-				new Object[]{"11111"}, BigDecimal.class);
-		BigDecimal balanceTo = jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE account_number = ?",
-				new Object[]{"22222"}, BigDecimal.class);
+		long balanceFrom = jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE account_number = ?",
+				new Object[]{"11111"}, Long.class);
+		long balanceTo = jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE account_number = ?",
+				new Object[]{"22222"}, Long.class);
 
-		assert balanceFrom.compareTo(BigDecimal.valueOf(100.00)) == 0;
-		assert balanceTo.compareTo(BigDecimal.valueOf(150.00)) == 0;
+		assert balanceFrom == 100_00;
+		assert balanceTo == 150_00;
 
 		// Verify transaction recorded for both accounts
-		verify(transactionService, times(2)).recordTransaction(any(), eq(Transaction.TransactionType.TRANSFER), eq(BigDecimal.valueOf(100)), isNull());
+		verify(transactionService, times(1)).recordTransfer(any(), any(), eq(100_00L));
 	}
 
 	@Test
@@ -144,22 +143,22 @@ public class BankingServiceIntegrationTest {
 
 		// Insert accounts with initial balance and version
 		jdbcTemplate.update("INSERT INTO accounts (user_id, account_number, account_type, balance, version) VALUES (?, ?, ?, ?, ?)",
-				1, "11111", "CHECKING", 200.00, 0);
+				1, "11111", "CHECKING", 200_00, 0);
 		jdbcTemplate.update("INSERT INTO accounts (user_id, account_number, account_type, balance, version) VALUES (?, ?, ?, ?, ?)",
-				2, "22222", "SAVINGS", 50.00, 0);
+				2, "22222", "SAVINGS", 50_00, 0);
 
 		// Simulate concurrent transfers
 		CountDownLatch latch = new CountDownLatch(2);
 
 		// Thread 1: Transfer money
 		Thread transferThread1 = new Thread(() -> {
-			bankingService.transfer("11111", "22222", BigDecimal.valueOf(50));
+			bankingService.transfer("11111", "22222", 50_00);
 			latch.countDown();
 		});
 
 		// Thread 2: Transfer money
 		Thread transferThread2 = new Thread(() -> {
-			bankingService.transfer("11111", "22222", BigDecimal.valueOf(50));
+			bankingService.transfer("11111", "22222", 50_00);
 			latch.countDown();
 		});
 
@@ -171,22 +170,22 @@ public class BankingServiceIntegrationTest {
 		latch.await();
 
 		// Verify account balances
-		BigDecimal balanceFrom = jdbcTemplate.queryForObject(
+		long balanceFrom = jdbcTemplate.queryForObject(
 				"SELECT balance FROM accounts WHERE account_number = ?",
 				new Object[]{"11111"},
-				BigDecimal.class
+				Long.class
 		);
-		BigDecimal balanceTo = jdbcTemplate.queryForObject(
+		long balanceTo = jdbcTemplate.queryForObject(
 				"SELECT balance FROM accounts WHERE account_number = ?",
 				new Object[]{"22222"},
-				BigDecimal.class
+				Long.class
 		);
 
-		assert balanceFrom.compareTo(BigDecimal.valueOf(100.00)) == 0;
-		assert balanceTo.compareTo(BigDecimal.valueOf(150.00)) == 0;
+		assert balanceFrom == 100_00;
+		assert balanceTo == 150_00;
 
 		// Verify that transaction was recorded
-		verify(transactionService, atLeast(2)).recordTransaction(any(), eq(Transaction.TransactionType.TRANSFER), eq(BigDecimal.valueOf(50)), isNull());
+		verify(transactionService, atLeast(1)).recordTransfer(any(), any(), eq(50_00L));
 	}
 
 }
@@ -3,6 +3,7 @@ package com.pasichenko.banking;
 import com.pasichenko.banking.entity.Account;
 import com.pasichenko.banking.entity.Transaction;
 import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.service.BalanceSlotService;
 import com.pasichenko.banking.service.BankingService;
 import com.pasichenko.banking.service.TransactionService;
 import com.pasichenko.banking.service.impl.BankingServiceImpl;
@@ -16,7 +17,6 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.retry.annotation.EnableRetry;
 
-import java.math.BigDecimal;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -24,7 +24,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @EnableRetry
-@SpringBootTest
+@SpringBootTest(properties = "banking.account-cache.reject-unknown=false") // accounts below exist only in the mocked repository
 class BankingServiceTest {
 
     @Autowired
@@ -36,6 +36,9 @@ class BankingServiceTest {
     @MockBean
     private TransactionService transactionService;
 
+    @MockBean
+    private BalanceSlotService balanceSlotService;
+
     private Account account;
 
     @BeforeEach
@@ -47,14 +50,14 @@ class BankingServiceTest {
         account.setId(1L);
         account.setAccountNumber("12345");
         account.setAccountType("SAVINGS");
-        account.setBalance(BigDecimal.valueOf(1000));
+        account.setBalance(1000_00);
         account.setVersion(1);
     }
 
     @Test
     void testDeposit() {
         // Arrange
-        BigDecimal depositAmount = BigDecimal.valueOf(500);
+        long depositAmount = 500_00;
         when(accountRepository.findByAccountNumber(account.getAccountNumber())).thenReturn(Optional.of(account));
 
         // Act
@@ -63,13 +66,13 @@ class BankingServiceTest {
         // Assert
         verify(accountRepository, times(1)).save(any(Account.class));
         verify(transactionService, times(1)).recordTransaction(eq(account), eq(Transaction.TransactionType.DEPOSIT), eq(depositAmount), isNull());
-        assert(account.getBalance().compareTo(BigDecimal.valueOf(1500)) == 0); // Check balance is updated
+        assert(account.getBalance() == 1500_00); // Check balance is updated
     }
 
     @Test
     void testWithdraw() {
         // Arrange
-        BigDecimal withdrawAmount = BigDecimal.valueOf(300);
+        long withdrawAmount = 300_00;
         when(accountRepository.findByAccountNumber(account.getAccountNumber())).thenReturn(Optional.of(account));
 
         // Act
@@ -78,7 +81,7 @@ class BankingServiceTest {
         // Assert
         verify(accountRepository, times(1)).save(any(Account.class));
         verify(transactionService, times(1)).recordTransaction(eq(account), eq(Transaction.TransactionType.WITHDRAW), eq(withdrawAmount), isNull());
-        assert(account.getBalance().compareTo(BigDecimal.valueOf(700)) == 0); // Check balance is updated
+        assert(account.getBalance() == 700_00); // Check balance is updated
     }
 
     @Test
@@ -88,9 +91,9 @@ class BankingServiceTest {
         toAccount.setId(2L);
         toAccount.setAccountNumber("67890");
         toAccount.setAccountType("CHECKING");
-        toAccount.setBalance(BigDecimal.valueOf(500));
+        toAccount.setBalance(500_00);
 
-        BigDecimal transferAmount = BigDecimal.valueOf(200);
+        long transferAmount = 200_00;
 
         when(accountRepository.findByAccountNumber(account.getAccountNumber())).thenReturn(Optional.of(account));
         when(accountRepository.findByAccountNumber(toAccount.getAccountNumber())).thenReturn(Optional.of(toAccount));
@@ -100,10 +103,10 @@ class BankingServiceTest {
 
         // Assert
         verify(accountRepository, times(2)).save(any(Account.class));  // Ensures both accounts are saved
-        verify(transactionService, times(1)).recordTransaction(eq(account), eq(Transaction.TransactionType.TRANSFER), eq(transferAmount), isNull());
-        verify(transactionService, times(1)).recordTransaction(eq(toAccount), eq(Transaction.TransactionType.TRANSFER), eq(transferAmount), any());
-        assert(account.getBalance().compareTo(BigDecimal.valueOf(800)) == 0); // Check balance for from account
-        assert(toAccount.getBalance().compareTo(BigDecimal.valueOf(700)) == 0); // Check balance for to account
+        verify(transactionService, times(1)).recordTransfer(eq(account), eq(toAccount), eq(transferAmount));
+        verify(transactionService, never()).recordTransaction(any(), any(), anyLong(), any());
+        assert(account.getBalance() == 800_00); // Check balance for from account
+        assert(toAccount.getBalance() == 700_00); // Check balance for to account
     }
 
     @Test
@@ -113,7 +116,7 @@ class BankingServiceTest {
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class, () ->
-                bankingService.deposit(account.getAccountNumber(), BigDecimal.valueOf(500))
+                bankingService.deposit(account.getAccountNumber(), 500_00)
         );
         assert(exception.getMessage().contains("Account not found"));
     }
@@ -121,7 +124,7 @@ class BankingServiceTest {
     @Test
     void testWithdrawInsufficientBalance() {
         // Arrange
-        BigDecimal withdrawAmount = BigDecimal.valueOf(2000);  // Amount more than balance
+        long withdrawAmount = 2000_00;  // Amount more than balance
         when(accountRepository.findByAccountNumber(account.getAccountNumber())).thenReturn(Optional.of(account));
 
         // Act & Assert
@@ -131,16 +134,50 @@ class BankingServiceTest {
         assert(exception.getMessage().contains("Insufficient balance"));
     }
 
+    @Test
+    void testTransferToSameAccountIsRejected() {
+        RuntimeException exception = assertThrows(RuntimeException.class, () ->
+                bankingService.transfer(account.getAccountNumber(), account.getAccountNumber(), 100_00)
+        );
+        assert(exception.getMessage().contains("same account"));
+        verifyNoInteractions(transactionService);
+    }
+
     @Test
     void testTransferWithRetry() {
         when(accountRepository.findByAccountNumber(anyString()))
                 .thenThrow(new OptimisticLockException("Retrying"));
 
         assertThrows(OptimisticLockException.class, () -> {
-            bankingService.transfer("fromAccount", "toAccount", BigDecimal.valueOf(100));
+            bankingService.transfer("fromAccount", "toAccount", 100_00);
         });
 
         // Verify retry behavior
         verify(accountRepository, times(3)).findByAccountNumber(anyString());
     }
+
+    @Test
+    void testTransferFromShardedAccount() {
+        // Arrange
+        account.setBalanceSlots(4);
+        Account toAccount = new Account();
+        toAccount.setId(2L);
+        toAccount.setAccountNumber("67890");
+        toAccount.setAccountType("CHECKING");
+        toAccount.setBalance(500_00);
+
+        long transferAmount = 200_00;
+
+        when(accountRepository.findByAccountNumber(account.getAccountNumber())).thenReturn(Optional.of(account));
+        when(accountRepository.findByAccountNumber(toAccount.getAccountNumber())).thenReturn(Optional.of(toAccount));
+
+        // Act
+        bankingService.transfer(account.getAccountNumber(), toAccount.getAccountNumber(), transferAmount);
+
+        // Assert
+        verify(balanceSlotService, times(1)).debit(eq(account), eq(transferAmount));
+        verify(accountRepository, never()).save(eq(account));  // Hot account row is not touched
+        verify(accountRepository, times(1)).save(eq(toAccount));
+        assert(toAccount.getBalance() == 700_00);
+    }
 }
@@ -0,0 +1,95 @@
+package com.pasichenko.banking;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@BankingIntegrationTest
+class BatchTransferIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testBatchReportsEveryTransfer() throws Exception {
+        String from = TestAccounts.create(jdbcTemplate, "CHECKING", 100_00);
+        String to = TestAccounts.create(jdbcTemplate, "SAVINGS", 0);
+
+        mockMvc.perform(post("/banking/transfers/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batch(transfer(from, to, "30.00"), transfer(from, to, "100.00"),
+                                transfer(from, "1", "1.00"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].status").value("SUCCESS"))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[1].error").value("Insufficient balance"))
+                .andExpect(jsonPath("$.results[2].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[2].error").value("Destination account not found"));
+
+        assertEquals(70_00, TestAccounts.balance(jdbcTemplate, from));
+        assertEquals(30_00, TestAccounts.balance(jdbcTemplate, to));
+    }
+
+    @Test
+    void testBatchOverTheLimitIsRejected() throws Exception {
+        String[] transfers = new String[10_001];
+        Arrays.fill(transfers, transfer("1", "2", "1.00"));
+
+        mockMvc.perform(post("/banking/transfers/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batch(transfers)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testTransactionIdsComeFromThePooledSequence() throws Exception {
+        String from = TestAccounts.create(jdbcTemplate, "CHECKING", 100_00);
+        String to = TestAccounts.create(jdbcTemplate, "SAVINGS", 0);
+        String[] transfers = new String[60];
+        Arrays.fill(transfers, transfer(from, to, "1.00"));
+        long before = lastSequenceValue();
+
+        mockMvc.perform(post("/banking/transfers/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batch(transfers)))
+                .andExpect(status().isOk());
+
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM transactions WHERE account_id = ?",
+                Long.class, TestAccounts.id(jdbcTemplate, from));
+        assertEquals(60, ids.size());
+        assertEquals(60, ids.stream().distinct().count());
+        // 60 inserts drew at most two blocks of 50 from the sequence, not one value each
+        assertTrue(lastSequenceValue() - before <= 100);
+        assertEquals(40_00, TestAccounts.balance(jdbcTemplate, from));
+    }
+
+    private long lastSequenceValue() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM transaction_id_seq", Long.class);
+    }
+
+    private static String transfer(String from, String to, String amount) {
+        return "{\"fromAccountNumber\":\"" + from + "\",\"toAccountNumber\":\"" + to + "\",\"amount\":\"" + amount + "\"}";
+    }
+
+    private static String batch(String... transfers) {
+        StringJoiner items = new StringJoiner(",", "{\"transfers\":[", "]}");
+        for (String transfer : transfers) {
+            items.add(transfer);
+        }
+        return items.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.repository.ConditionalUpdateRepository;
+import com.pasichenko.banking.repository.ConditionalUpdateRepository.TransferOutcome;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the CONDITIONAL_UPDATE statements against Postgres, in particular the lock order of TRANSFER_SQL.
+@BankingIntegrationTest
+class ConditionalUpdateRepositoryIntegrationTest {
+
+    @Autowired
+    private ConditionalUpdateRepository conditionalUpdateRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testTransferWritesNothingUnlessBothLegsApply() {
+        String from = TestAccounts.create(jdbcTemplate, "CHECKING", 10_00);
+        String to = TestAccounts.create(jdbcTemplate, "SAVINGS", 0);
+        String sharded = TestAccounts.create(jdbcTemplate, "SAVINGS", 0);
+        jdbcTemplate.update("UPDATE accounts SET balance_slots = 2 WHERE account_number = ?", sharded);
+
+        assertEquals(TransferOutcome.APPLIED, conditionalUpdateRepository.transfer(from, to, 4_00));
+        assertEquals(TransferOutcome.REJECTED, conditionalUpdateRepository.transfer(from, to, 7_00));
+        assertEquals(TransferOutcome.REJECTED, conditionalUpdateRepository.transfer(from, sharded, 1_00));
+        assertEquals(TransferOutcome.REJECTED, conditionalUpdateRepository.transfer(from, "0000000", 1_00));
+        assertEquals(TransferOutcome.REJECTED, conditionalUpdateRepository.transfer(from, from, 1_00));
+
+        assertEquals(6_00, TestAccounts.balance(jdbcTemplate, from));
+        assertEquals(4_00, TestAccounts.balance(jdbcTemplate, to));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM transactions t JOIN accounts a " +
+                "ON a.id = t.account_id WHERE a.account_number = ?", Integer.class, from));
+    }
+
+    @Test
+    void testOppositeTransfersDoNotDeadlock() throws Exception {
+        String a = TestAccounts.create(jdbcTemplate, "CHECKING", 1_000_00);
+        String b = TestAccounts.create(jdbcTemplate, "CHECKING", 1_000_00);
+
+        // without the ordered locks, a 40P01 surfaces here as PessimisticLockingFailureException
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String from = i % 2 == 0 ? a : b;
+            String to = i % 2 == 0 ? b : a;
+            workers.add(CompletableFuture.runAsync(() -> {
+                for (int j = 0; j < 100; j++) {
+                    assertEquals(TransferOutcome.APPLIED, conditionalUpdateRepository.transfer(from, to, 1_00));
+                }
+            }));
+        }
+        CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+
+        assertEquals(1_000_00, TestAccounts.balance(jdbcTemplate, a));
+        assertEquals(1_000_00, TestAccounts.balance(jdbcTemplate, b));
+    }
+}
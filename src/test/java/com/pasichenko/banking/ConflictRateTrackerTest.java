@@ -0,0 +1,60 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.ExecutionProperties;
+import com.pasichenko.banking.service.impl.ConflictRateTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConflictRateTrackerTest {
+
+    private ExecutionProperties properties;
+    private ConflictRateTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ExecutionProperties();
+        properties.setAdaptiveConflictThreshold(0.2);
+        properties.setAdaptiveHalfLife(Duration.ofMinutes(10));
+        tracker = new ConflictRateTracker(properties);
+    }
+
+    @Test
+    void testConflictMarksAccountContended() {
+        assertFalse(tracker.isContended("10010001"));
+
+        tracker.recordConflict("10010001");
+
+        assertTrue(tracker.isContended("10010001"));
+        assertFalse(tracker.isContended("10010002"));
+    }
+
+    @Test
+    void testSuccessesCoolAccountDown() {
+        tracker.recordConflict("10010001");
+        tracker.recordSuccess("10010001");
+        tracker.recordSuccess("10010001");
+
+        assertFalse(tracker.isContended("10010001"));
+    }
+
+    @Test
+    void testColdAccountsAreNotTracked() {
+        tracker.recordSuccess("10010001");
+
+        assertEquals(0, tracker.trackedAccounts());
+    }
+
+    @Test
+    void testRateDecaysOverTime() throws InterruptedException {
+        properties.setAdaptiveHalfLife(Duration.ofMillis(10));
+        tracker.recordConflict("10010001");
+
+        Thread.sleep(50);
+
+        assertFalse(tracker.isContended("10010001"));
+    }
+}
@@ -0,0 +1,158 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.EndOfDayProperties;
+import com.pasichenko.banking.repository.EndOfDayAccount;
+import com.pasichenko.banking.repository.EndOfDayPartition;
+import com.pasichenko.banking.repository.EndOfDayPostings;
+import com.pasichenko.banking.repository.EndOfDayRepository;
+import com.pasichenko.banking.service.impl.EndOfDayBatchEngine;
+import com.pasichenko.banking.service.impl.EndOfDayPostingProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EndOfDayBatchEngineTest {
+
+    private static final LocalDate FEE_DAY = LocalDate.of(2025, 3, 1);
+    private static final LocalDate ORDINARY_DAY = LocalDate.of(2025, 3, 14);
+
+    private EndOfDayRepository repository;
+    private EndOfDayProperties properties;
+    private EndOfDayPostingProcessor processor;
+    private PlatformTransactionManager transactionManager;
+    private EndOfDayBatchEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(EndOfDayRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        properties = new EndOfDayProperties();
+        properties.setChunkSize(2);
+        properties.setParallelism(2);
+        properties.setPauseBetweenChunks(Duration.ZERO);
+        processor = new EndOfDayPostingProcessor(properties);
+        engine = new EndOfDayBatchEngine(repository, processor, properties, transactionManager);
+    }
+
+    @Test
+    void testInterestIsDailyAndRoundedDown() {
+        // 1,000,000.00 at 2% over 365 days: 5479.452... cents
+        EndOfDayPostings postings = processor.process(ORDINARY_DAY, List.of(
+                new EndOfDayAccount(1, "Savings", 100_000_000, 100_000_000, 0),
+                new EndOfDayAccount(2, "SAVINGS", 0, 0, 0),
+                new EndOfDayAccount(3, "Checking", 100_000_000, 100_000_000, 0)));
+
+        assertArrayEquals(new long[]{1}, postings.accountIds());
+        assertArrayEquals(new long[]{5479}, postings.amounts());
+        assertArrayEquals(new long[]{452_054}, postings.accruedInterest());
+    }
+
+    @Test
+    void testSmallBalancesAccrueUntilACentIsEarned() {
+        // 100.00 at 2% earns 0.547945... cents a day
+        long posted = 0;
+        long accrued = 0;
+        for (LocalDate day = LocalDate.of(2025, 1, 1); day.getYear() == 2025; day = day.plusDays(1)) {
+            EndOfDayPostings postings = processor.process(day,
+                    List.of(new EndOfDayAccount(1, "SAVINGS", 100_00, 100_00, accrued)));
+            assertEquals(1, postings.size());
+            posted += postings.amounts()[0];
+            accrued = postings.accruedInterest()[0];
+        }
+
+        // 2.00 a year, less under a millionth of a cent a day
+        assertEquals(199, posted);
+        assertEquals(999_925, accrued);
+    }
+
+    @Test
+    void testFeeOnlyOnFeeDayAndOnlyWhenTheRowCoversIt() {
+        EndOfDayPostings postings = processor.process(FEE_DAY, List.of(
+                new EndOfDayAccount(1, "CHECKING", 10_00, 10_00, 0),
+                new EndOfDayAccount(2, "Checking", 4_99, 4_99, 0),
+                new EndOfDayAccount(3, "CHECKING", 0, 10_00, 0)));
+
+        assertArrayEquals(new long[]{1}, postings.accountIds());
+        assertArrayEquals(new long[]{-5_00}, postings.amounts());
+        assertEquals(0, processor.process(ORDINARY_DAY,
+                List.of(new EndOfDayAccount(1, "CHECKING", 10_00, 10_00, 0))).size());
+    }
+
+    @Test
+    void testFeeDayPastMonthEndFallsOnLastDay() {
+        properties.setFeeDayOfMonth(31);
+
+        assertEquals(1, processor.process(LocalDate.of(2025, 2, 28),
+                List.of(new EndOfDayAccount(1, "CHECKING", 10_00, 10_00, 0))).size());
+    }
+
+    @Test
+    void testPartitionIsPostedChunkByChunkFromItsCheckpoint() {
+        EndOfDayPartition partition = new EndOfDayPartition(1, 5);
+        when(repository.createRun(ORDINARY_DAY, properties.getPartitionSize())).thenReturn(true);
+        when(repository.findOpenPartitions(ORDINARY_DAY)).thenReturn(List.of(partition));
+        when(repository.claimPartition(ORDINARY_DAY, 1)).thenReturn(OptionalLong.of(0), OptionalLong.of(2), OptionalLong.of(4));
+        when(repository.lockChunk(0, 5, 2)).thenReturn(List.of(1L, 2L));
+        when(repository.lockChunk(2, 5, 2)).thenReturn(List.of(3L, 4L));
+        when(repository.lockChunk(4, 5, 2)).thenReturn(List.of(5L));
+        when(repository.readChunk(any())).thenReturn(List.of());
+        when(repository.finishRun(ORDINARY_DAY)).thenReturn(true);
+
+        assertTrue(engine.run(ORDINARY_DAY));
+
+        var order = inOrder(repository);
+        order.verify(repository).writeChunk(eq(ORDINARY_DAY), eq(1L), eq(2L), any(), eq(false));
+        order.verify(repository).writeChunk(eq(ORDINARY_DAY), eq(1L), eq(4L), any(), eq(false));
+        order.verify(repository).writeChunk(eq(ORDINARY_DAY), eq(1L), eq(5L), any(), eq(true));
+        verify(transactionManager, times(3)).commit(any());
+        assertFalse(engine.isRunning());
+    }
+
+    @Test
+    void testFinishedDateIsNotPostedAgain() {
+        when(repository.isFinished(ORDINARY_DAY)).thenReturn(true);
+
+        assertTrue(engine.run(ORDINARY_DAY));
+
+        verify(repository, never()).createRun(any(), anyInt());
+        verify(repository, never()).writeChunk(any(), anyLong(), anyLong(), any(), anyBoolean());
+    }
+
+    @Test
+    void testDateThatHasNotEndedOrPrecedesTheFirstPostedOneIsRefused() {
+        when(repository.findEarliestFinishedDate()).thenReturn(Optional.of(FEE_DAY));
+
+        assertThrows(IllegalArgumentException.class, () -> engine.run(LocalDate.now()));
+        assertThrows(IllegalArgumentException.class, () -> engine.run(LocalDate.now().plusDays(1)));
+        assertThrows(IllegalArgumentException.class, () -> engine.run(FEE_DAY.minusDays(1)));
+        verify(repository, never()).createRun(any(), anyInt());
+    }
+
+    @Test
+    void testLockTimeoutRollsBackTheChunkAndRetriesIt() {
+        EndOfDayPartition partition = new EndOfDayPartition(1, 5);
+        when(repository.findOpenPartitions(ORDINARY_DAY)).thenReturn(List.of(partition));
+        when(repository.claimPartition(ORDINARY_DAY, 1)).thenReturn(OptionalLong.of(0));
+        when(repository.lockChunk(0, 5, 2))
+                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                .thenReturn(List.of(1L));
+        when(repository.readChunk(any())).thenReturn(List.of());
+        when(repository.finishRun(ORDINARY_DAY)).thenReturn(true);
+
+        assertTrue(engine.run(ORDINARY_DAY));
+
+        verify(transactionManager).rollback(any());
+        verify(repository).writeChunk(eq(ORDINARY_DAY), eq(1L), eq(1L), any(), eq(true));
+    }
+}
@@ -0,0 +1,199 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.EndOfDayProperties;
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.repository.EndOfDayAccount;
+import com.pasichenko.banking.repository.EndOfDayPostings;
+import com.pasichenko.banking.repository.EndOfDayRepository;
+import com.pasichenko.banking.service.BalanceSlotService;
+import com.pasichenko.banking.service.BankingService;
+import com.pasichenko.banking.service.impl.EndOfDayBatchEngine;
+import com.pasichenko.banking.service.impl.EndOfDayPostingProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the end-of-day chunk statements (claim, lock, read, write) against Postgres over every account
+// in the database, in small partitions and chunks so a run spans many of both. Each test posts its
+// own business date, since a date is posted once, and the dates go forward since none before the
+// first posted one is accepted.
+@BankingIntegrationTest
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class EndOfDayIntegrationTest {
+
+    @Autowired
+    private EndOfDayRepository endOfDayRepository;
+
+    @Autowired
+    private BankingService bankingService;
+
+    @Autowired
+    private BalanceSlotService balanceSlotService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private EndOfDayProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new EndOfDayProperties();
+        properties.setPartitionSize(5);
+        properties.setChunkSize(2);
+        properties.setParallelism(2);
+        properties.setPauseBetweenChunks(Duration.ZERO);
+    }
+
+    @Test
+    @Order(1)
+    void testRunPostsInterestFeesAndCarriedFractions() {
+        // 2023-02-01 is a fee day
+        LocalDate businessDate = LocalDate.of(2023, 2, 1);
+        String savings = TestAccounts.create(jdbcTemplate, "SAVINGS", 1_000_000_00);
+        String small = TestAccounts.create(jdbcTemplate, "SAVINGS", 100_00);
+        String sharded = TestAccounts.create(jdbcTemplate, "SAVINGS", 1_000_000_00);
+        String checking = TestAccounts.create(jdbcTemplate, "CHECKING", 10_00);
+        balanceSlotService.enableSharding(sharded, 4);
+        int smallVersion = version(small);
+
+        assertTrue(engine(new EndOfDayPostingProcessor(properties)).run(businessDate));
+
+        assertEquals(1_000_000_00 + 5479, TestAccounts.balance(jdbcTemplate, savings));
+        assertEquals(452_054, accruedInterest(savings));
+        // under a cent: nothing posted, the fraction carried and the version left alone
+        assertEquals(100_00, TestAccounts.balance(jdbcTemplate, small));
+        assertEquals(547_945, accruedInterest(small));
+        assertEquals(smallVersion, version(small));
+        assertEquals(0, entries(small));
+        // interest on the slots' money, posted to the row
+        assertEquals(5479, TestAccounts.balance(jdbcTemplate, sharded));
+        assertEquals(1_000_000_00 + 5479, balanceSlotService.totalBalance(account(sharded)));
+        assertEquals(5_00, TestAccounts.balance(jdbcTemplate, checking));
+        assertEquals(1, entries(savings));
+        assertEquals(1, entries(checking));
+
+        assertNotNull(finishedAt(businessDate));
+        assertTrue(endOfDayRepository.findOpenPartitions(businessDate).isEmpty());
+        assertTrue(jdbcTemplate.queryForObject("SELECT count(*) FROM end_of_day_partitions WHERE business_date = ?",
+                Integer.class, businessDate) > 1);
+
+        // a finished date is not posted twice
+        assertTrue(engine(new EndOfDayPostingProcessor(properties)).run(businessDate));
+        assertEquals(1_000_000_00 + 5479, TestAccounts.balance(jdbcTemplate, savings));
+        assertEquals(1, entries(savings));
+    }
+
+    @Test
+    @Order(2)
+    void testInterruptedRunResumesAfterItsLastCommittedChunk() {
+        LocalDate businessDate = LocalDate.of(2023, 3, 14);
+        properties.setParallelism(1);
+        List<String> accounts = List.of(
+                TestAccounts.create(jdbcTemplate, "SAVINGS", 1_000_000_00),
+                TestAccounts.create(jdbcTemplate, "SAVINGS", 1_000_000_00),
+                TestAccounts.create(jdbcTemplate, "SAVINGS", 1_000_000_00));
+        long lastId = TestAccounts.id(jdbcTemplate, accounts.get(2));
+        AtomicBoolean crashed = new AtomicBoolean();
+        // the node goes away while posting the chunk of the last account, after the first one committed
+        EndOfDayPostingProcessor crashing = new EndOfDayPostingProcessor(properties) {
+            @Override
+            public EndOfDayPostings process(LocalDate date, List<EndOfDayAccount> chunk) {
+                if (chunk.stream().anyMatch(account -> account.id() == lastId) && crashed.compareAndSet(false, true)) {
+                    throw new IllegalStateException("node went away");
+                }
+                return super.process(date, chunk);
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> engine(crashing).run(businessDate));
+        assertEquals(1_000_000_00 + 5479, TestAccounts.balance(jdbcTemplate, accounts.get(0)));
+        assertEquals(1_000_000_00, TestAccounts.balance(jdbcTemplate, accounts.get(2)));
+        assertNull(finishedAt(businessDate));
+        assertFalse(endOfDayRepository.findOpenPartitions(businessDate).isEmpty());
+
+        assertTrue(engine(new EndOfDayPostingProcessor(properties)).run(businessDate));
+
+        // every account posted exactly once across both attempts
+        for (String account : accounts) {
+            assertEquals(1_000_000_00 + 5479, TestAccounts.balance(jdbcTemplate, account));
+            assertEquals(1, entries(account));
+        }
+        assertTrue(endOfDayRepository.findOpenPartitions(businessDate).isEmpty());
+        assertNotNull(finishedAt(businessDate));
+    }
+
+    @Test
+    @Order(3)
+    void testStaleOptimisticWriterRetriesInsteadOfLosingThePosting() {
+        LocalDate businessDate = LocalDate.of(2023, 4, 14);
+        String savings = TestAccounts.create(jdbcTemplate, "SAVINGS", 1_000_000_00);
+        Account stale = account(savings);
+
+        assertTrue(engine(new EndOfDayPostingProcessor(properties)).run(businessDate));
+
+        stale.setBalance(stale.getBalance() - 1_00);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> accountRepository.save(stale));
+        bankingService.withdraw(savings, 1_00);
+        assertEquals(1_000_000_00 + 5479 - 1_00, TestAccounts.balance(jdbcTemplate, savings));
+    }
+
+    @Test
+    @Order(4)
+    void testDatesBeforeTheFirstPostedOneAreRefused() {
+        EndOfDayBatchEngine engine = engine(new EndOfDayPostingProcessor(properties));
+
+        assertThrows(IllegalArgumentException.class, () -> engine.run(LocalDate.of(2023, 1, 31)));
+        assertThrows(IllegalArgumentException.class, () -> engine.run(LocalDate.now()));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM end_of_day_runs WHERE business_date IN (?, ?)",
+                Integer.class, LocalDate.of(2023, 1, 31), LocalDate.now()));
+    }
+
+    private EndOfDayBatchEngine engine(EndOfDayPostingProcessor processor) {
+        return new EndOfDayBatchEngine(endOfDayRepository, processor, properties, transactionManager);
+    }
+
+    private Account account(String accountNumber) {
+        return accountRepository.findByAccountNumber(accountNumber).orElseThrow();
+    }
+
+    private Object finishedAt(LocalDate businessDate) {
+        return jdbcTemplate.queryForObject("SELECT finished_at FROM end_of_day_runs WHERE business_date = ?",
+                Object.class, businessDate);
+    }
+
+    private int version(String accountNumber) {
+        return jdbcTemplate.queryForObject("SELECT version FROM accounts WHERE account_number = ?",
+                Integer.class, accountNumber);
+    }
+
+    private long accruedInterest(String accountNumber) {
+        return jdbcTemplate.queryForObject("SELECT accrued_interest FROM accounts WHERE account_number = ?",
+                Long.class, accountNumber);
+    }
+
+    private int entries(String accountNumber) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM transactions " +
+                        "WHERE account_id = ? AND transaction_type IN ('INTEREST', 'FEE')",
+                Integer.class, TestAccounts.id(jdbcTemplate, accountNumber));
+    }
+}
@@ -0,0 +1,98 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.ExecutionProperties;
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.repository.AccountRef;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.repository.LedgerRepository;
+import com.pasichenko.banking.service.BalanceSlotService;
+import com.pasichenko.banking.service.TransactionService;
+import com.pasichenko.banking.service.impl.AccountLookupCache;
+import com.pasichenko.banking.service.impl.BalanceCache;
+import com.pasichenko.banking.service.impl.LedgerExecutionStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LedgerExecutionStrategyTest {
+
+    private LedgerRepository ledgerRepository;
+    private AccountLookupCache accountLookupCache;
+    private TransactionService transactionService;
+    private BalanceSlotService balanceSlotService;
+    private LedgerExecutionStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        ledgerRepository = mock(LedgerRepository.class);
+        accountLookupCache = mock(AccountLookupCache.class);
+        transactionService = mock(TransactionService.class);
+        balanceSlotService = mock(BalanceSlotService.class);
+        strategy = new LedgerExecutionStrategy(ledgerRepository, mock(AccountRepository.class), accountLookupCache,
+                transactionService, balanceSlotService, mock(BalanceCache.class), new ExecutionProperties());
+        when(accountLookupCache.resolve("111")).thenReturn(Optional.of(new AccountRef(1L, "111", "Checking")));
+        when(accountLookupCache.resolve("222")).thenReturn(Optional.of(new AccountRef(2L, "222", "Checking")));
+    }
+
+    @Test
+    void testDepositIsAPureAppend() {
+        when(ledgerRepository.deposit("222", 50_00L)).thenReturn(true);
+
+        strategy.deposit("222", 50_00L);
+
+        verify(ledgerRepository, never()).lockAvailableBalance(anyLong());
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void testWithdrawChecksPendingDeltas() {
+        when(ledgerRepository.lockAvailableBalance(1L)).thenReturn(OptionalLong.of(40_00L));
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> strategy.withdraw("111", 50_00L));
+
+        assertEquals("Insufficient balance", exception.getMessage());
+        verify(ledgerRepository, never()).withdraw(anyLong(), anyLong());
+    }
+
+    @Test
+    void testTransferLocksOnlyTheSource() {
+        when(ledgerRepository.lockAvailableBalance(1L)).thenReturn(OptionalLong.of(100_00L));
+        when(ledgerRepository.transfer(1L, "222", 50_00L)).thenReturn(true);
+
+        strategy.transfer("111", "222", 50_00L);
+
+        verify(ledgerRepository).lockAvailableBalance(1L);
+        verify(ledgerRepository, never()).lockAvailableBalance(2L);
+        verify(transactionService, never()).recordTransfer(any(), any(), anyLong());
+    }
+
+    @Test
+    void testTransferToShardedAccountCreditsASlot() {
+        Account from = account(1L, "111", 0);
+        Account to = account(2L, "222", 8);
+        when(accountLookupCache.load("111")).thenReturn(Optional.of(from));
+        when(accountLookupCache.load("222")).thenReturn(Optional.of(to));
+        when(ledgerRepository.lockAvailableBalance(1L)).thenReturn(OptionalLong.of(100_00L));
+        when(ledgerRepository.transfer(1L, "222", 50_00L)).thenReturn(false);
+
+        strategy.transfer("111", "222", 50_00L);
+
+        verify(ledgerRepository).appendDelta(1L, -50_00L);
+        verify(balanceSlotService).credit(to, 50_00L);
+        verify(transactionService).recordTransfer(from, to, 50_00L);
+    }
+
+    private static Account account(Long id, String accountNumber, int balanceSlots) {
+        Account account = new Account();
+        account.setId(id);
+        account.setAccountNumber(accountNumber);
+        account.setBalanceSlots(balanceSlots);
+        return account;
+    }
+}
@@ -0,0 +1,65 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.ReconciliationProperties;
+import com.pasichenko.banking.repository.ReconciliationRange;
+import com.pasichenko.banking.repository.ReconciliationRepository;
+import com.pasichenko.banking.service.impl.LedgerReconciler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LedgerReconcilerTest {
+
+    private ReconciliationRepository repository;
+    private ReconciliationProperties properties;
+    private LedgerReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ReconciliationRepository.class);
+        properties = new ReconciliationProperties();
+        properties.setRangeSize(100);
+        properties.setParallelism(4);
+        properties.setPauseBetweenRanges(Duration.ZERO);
+        reconciler = new LedgerReconciler(repository, properties);
+    }
+
+    @Test
+    void testCreatesRunAndChecksEveryRangeOnce() {
+        List<ReconciliationRange> ranges = LongStream.range(0, 25)
+                .mapToObj(i -> new ReconciliationRange(i * 100 + 1, i * 100 + 100))
+                .toList();
+        when(repository.findUnfinishedRun()).thenReturn(Optional.empty());
+        when(repository.createRun(100)).thenReturn(7L);
+        when(repository.findOpenRanges(7L)).thenReturn(ranges);
+
+        assertEquals(7L, reconciler.reconcile());
+
+        for (ReconciliationRange range : ranges) {
+            verify(repository).checkRange(7L, range);
+        }
+        verify(repository).finishRun(7L);
+        assertFalse(reconciler.isRunning());
+    }
+
+    @Test
+    void testResumesUnfinishedRunAtOpenRanges() {
+        ReconciliationRange open = new ReconciliationRange(201, 300);
+        when(repository.findUnfinishedRun()).thenReturn(Optional.of(3L));
+        when(repository.findOpenRanges(3L)).thenReturn(List.of(open));
+
+        assertEquals(3L, reconciler.reconcile());
+
+        verify(repository, never()).createRun(anyInt());
+        verify(repository).checkRange(3L, open);
+        verify(repository, times(1)).checkRange(anyLong(), any());
+        verify(repository).finishRun(3L);
+    }
+}
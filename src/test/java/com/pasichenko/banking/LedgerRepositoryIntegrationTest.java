@@ -0,0 +1,137 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.repository.FoldedDeltas;
+import com.pasichenko.banking.repository.LedgerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the LEDGER mode statements against Postgres: appends, the debit lock and FOLD_SQL.
+@BankingIntegrationTest
+class LedgerRepositoryIntegrationTest {
+
+    @Autowired
+    private LedgerRepository ledgerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void testAppendsLeaveTheCheckpointAloneUntilFolded() {
+        String from = TestAccounts.create(jdbcTemplate, "CHECKING", 100_00);
+        String to = TestAccounts.create(jdbcTemplate, "SAVINGS", 0);
+        long fromId = TestAccounts.id(jdbcTemplate, from);
+        long toId = TestAccounts.id(jdbcTemplate, to);
+
+        assertTrue(ledgerRepository.deposit(from, 50_00));
+        assertFalse(ledgerRepository.deposit("0000000", 50_00));
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(150_00, ledgerRepository.lockAvailableBalance(fromId).orElseThrow());
+            ledgerRepository.withdraw(fromId, 30_00);
+            assertTrue(ledgerRepository.transfer(fromId, to, 20_00));
+            assertFalse(ledgerRepository.transfer(fromId, from, 20_00));
+            assertFalse(ledgerRepository.transfer(fromId, "0000000", 20_00));
+        });
+
+        assertEquals(100_00, TestAccounts.balance(jdbcTemplate, from));
+        assertEquals(0, TestAccounts.balance(jdbcTemplate, to));
+        assertEquals(100_00, ledgerRepository.findBalanceById(fromId).orElseThrow().balance());
+        assertEquals(20_00, ledgerRepository.findBalanceById(toId).orElseThrow().balance());
+        assertEquals(4, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM account_balance_deltas WHERE account_id IN (?, ?)", Integer.class, fromId, toId));
+        int version = ledgerRepository.findBalanceById(fromId).orElseThrow().version();
+
+        List<FoldedDeltas> folded = foldAll();
+
+        assertEquals(3, folded.stream().filter(f -> f.accountNumber().equals(from)).mapToInt(FoldedDeltas::deltas).sum());
+        assertEquals(1, folded.stream().filter(f -> f.accountNumber().equals(to)).mapToInt(FoldedDeltas::deltas).sum());
+        assertEquals(100_00, TestAccounts.balance(jdbcTemplate, from));
+        assertEquals(20_00, TestAccounts.balance(jdbcTemplate, to));
+        assertEquals(0, ledgerRepository.pendingDelta(fromId));
+        // the fold moves the version, so cached balances and ETags of the account go stale
+        assertTrue(ledgerRepository.findBalanceById(fromId).orElseThrow().version() > version);
+    }
+
+    @Test
+    void testCreditsDoNotWaitForADebitLock() throws Exception {
+        String account = TestAccounts.create(jdbcTemplate, "CHECKING", 10_00);
+        long accountId = TestAccounts.id(jdbcTemplate, account);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            ledgerRepository.lockAvailableBalance(accountId);
+            try {
+                CompletableFuture.runAsync(() -> assertTrue(ledgerRepository.deposit(account, 5_00)))
+                        .get(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                fail("deposit waited for the debit lock: " + e);
+            }
+        });
+
+        assertEquals(15_00, ledgerRepository.findBalanceById(accountId).orElseThrow().balance());
+    }
+
+    @Test
+    void testConcurrentFoldsKeepCheckpointPlusPendingConstant() throws Exception {
+        String account = TestAccounts.create(jdbcTemplate, "CHECKING", 0);
+        long accountId = TestAccounts.id(jdbcTemplate, account);
+        AtomicBoolean depositing = new AtomicBoolean(true);
+        List<CompletableFuture<Void>> folders = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            folders.add(CompletableFuture.runAsync(() -> {
+                while (depositing.get()) {
+                    transactionTemplate.execute(status -> ledgerRepository.fold(7));
+                }
+            }));
+        }
+
+        List<CompletableFuture<Void>> depositors = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            depositors.add(CompletableFuture.runAsync(() -> {
+                for (int j = 0; j < 50; j++) {
+                    assertTrue(ledgerRepository.deposit(account, 1_00));
+                    long balance = ledgerRepository.findBalanceById(accountId).orElseThrow().balance();
+                    assertTrue(balance >= 1_00 && balance <= 200_00, "balance " + balance);
+                }
+            }));
+        }
+        CompletableFuture.allOf(depositors.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        depositing.set(false);
+        CompletableFuture.allOf(folders.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        foldAll();
+
+        assertEquals(200_00, TestAccounts.balance(jdbcTemplate, account));
+        assertEquals(0, ledgerRepository.pendingDelta(accountId));
+    }
+
+    // other test classes may have left deltas behind, so fold until the table is empty
+    private List<FoldedDeltas> foldAll() {
+        List<FoldedDeltas> all = new ArrayList<>();
+        List<FoldedDeltas> folded;
+        do {
+            folded = transactionTemplate.execute(status -> ledgerRepository.fold(1_000));
+            all.addAll(folded);
+        } while (!folded.isEmpty());
+        return all;
+    }
+}
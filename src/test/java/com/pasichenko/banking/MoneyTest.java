@@ -0,0 +1,38 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.service.Money;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testParseIsExact() {
+        assertEquals(10_00, Money.parse("10"));
+        assertEquals(10_50, Money.parse("10.5"));
+        assertEquals(10_05, Money.parse("10.05"));
+        assertEquals(0, Money.parse("0.00"));
+        // 0.1 + 0.2 in minor units is exactly 0.3
+        assertEquals(Money.parse("0.3"), Money.add(Money.parse("0.1"), Money.parse("0.2")));
+    }
+
+    @Test
+    void testParseRejectsInexactOrMalformedAmounts() {
+        for (String text : new String[]{"", ".5", "10.", "10.005", "-1", "1e3", "1,00", " 1"}) {
+            assertThrows(IllegalArgumentException.class, () -> Money.parse(text), text);
+        }
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("92233720368547758.08"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parsePositive("0"));
+    }
+
+    @Test
+    void testFormatAndOverflow() {
+        assertEquals("10.50", Money.format(10_50));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("92233720368547758.07", Money.format(Long.MAX_VALUE));
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+    }
+}
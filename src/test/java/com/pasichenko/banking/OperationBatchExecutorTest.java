@@ -0,0 +1,219 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.AdmissionProperties;
+import com.pasichenko.banking.config.ExecutionProperties;
+import com.pasichenko.banking.config.LimitProperties;
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.entity.Transaction;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.repository.VelocityRepository;
+import com.pasichenko.banking.service.BankingService;
+import com.pasichenko.banking.service.ExecutionMode;
+import com.pasichenko.banking.service.TransactionService;
+import com.pasichenko.banking.service.impl.AccountLookupCache;
+import com.pasichenko.banking.service.impl.BalanceCache;
+import com.pasichenko.banking.service.impl.HotAccountTracker;
+import com.pasichenko.banking.service.impl.IdempotencyStore;
+import com.pasichenko.banking.service.impl.OperationBatchExecutor;
+import com.pasichenko.banking.service.impl.OperationMetricsListener;
+import com.pasichenko.banking.service.impl.RetryBudget;
+import com.pasichenko.banking.service.impl.VelocityLimiter;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OperationBatchExecutorTest {
+
+    private AccountRepository accountRepository;
+    private TransactionService transactionService;
+    private BankingService bankingService;
+    private VelocityLimiter velocityLimiter;
+    private AccountLookupCache accountLookupCache;
+    private ExecutionProperties executionProperties;
+    private SimpleMeterRegistry registry;
+    private AdmissionProperties admissionProperties;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        transactionService = mock(TransactionService.class);
+        bankingService = mock(BankingService.class);
+        velocityLimiter = mock(VelocityLimiter.class);
+        accountLookupCache = mock(AccountLookupCache.class);
+        executionProperties = new ExecutionProperties();
+        registry = new SimpleMeterRegistry();
+        admissionProperties = new AdmissionProperties();
+    }
+
+    @Test
+    void testFailingBatchFallsBackToOneOperationAtATime() {
+        when(accountRepository.findByAccountNumberIn(anyCollection()))
+                .thenReturn(List.of(account("10010001"), account("10010002")));
+        doThrow(new IllegalStateException("constraint violated")).when(transactionService)
+                .recordTransaction(argThat(account -> account.getAccountNumber().equals("10010002")),
+                        eq(Transaction.TransactionType.DEPOSIT), anyLong(), isNull());
+        BankingOperation good = BankingOperation.deposit("10010001", 1_00);
+        BankingOperation bad = BankingOperation.deposit("10010002", 1_00);
+        when(bankingService.execute(good)).thenReturn(OperationResult.success());
+        when(bankingService.execute(bad)).thenThrow(new IllegalStateException("constraint violated"));
+
+        List<OperationResult> results = executor().execute(List.of(good, bad));
+
+        assertTrue(results.get(0).successful());
+        assertEquals("constraint violated", results.get(1).error());
+        assertInstanceOf(IllegalStateException.class, results.get(1).exception());
+        // not a version race: the batch is not attempted again
+        verify(accountRepository, times(1)).findByAccountNumberIn(anyCollection());
+    }
+
+    @Test
+    void testOperationsBehindAFallbackKeepTheirOrder() {
+        Account sharded = account("10010001");
+        sharded.setBalanceSlots(4);
+        when(accountRepository.findByAccountNumberIn(anyCollection())).thenReturn(List.of(sharded, account("10010002")));
+        when(bankingService.execute(any())).thenReturn(OperationResult.success());
+        BankingOperation first = BankingOperation.withdraw("10010002", 1_00);
+        BankingOperation toSlots = BankingOperation.transfer("10010002", "10010001", 1_00);
+        BankingOperation behind = BankingOperation.withdraw("10010002", 1_00);
+
+        executor().execute(List.of(first, toSlots, behind));
+
+        // the first one is settled by the batch, the rest go one by one in submission order
+        verify(transactionService).recordTransaction(any(), eq(Transaction.TransactionType.WITHDRAW), eq(1_00L), isNull());
+        var order = inOrder(bankingService);
+        order.verify(bankingService).execute(toSlots);
+        order.verify(bankingService).execute(behind);
+        verify(bankingService, never()).execute(first);
+    }
+
+    @Test
+    void testOutstandingChargesAreRefundedWhenExecutionFails() {
+        Account sharded = account("10010001");
+        sharded.setBalanceSlots(4);
+        when(accountRepository.findByAccountNumberIn(anyCollection())).thenReturn(List.of(sharded, account("10010002")));
+        BankingOperation first = BankingOperation.withdraw("10010002", 1_00);
+        BankingOperation toSlots = BankingOperation.transfer("10010002", "10010001", 2_00);
+        BankingOperation behind = BankingOperation.withdraw("10010002", 3_00);
+        VelocityLimiter.Charge firstCharge = new VelocityLimiter.Charge("10010002", 1_00, 1L);
+        VelocityLimiter.Charge toSlotsCharge = new VelocityLimiter.Charge("10010002", 2_00, 2L);
+        VelocityLimiter.Charge behindCharge = new VelocityLimiter.Charge("10010002", 3_00, 3L);
+        when(velocityLimiter.charge(first)).thenReturn(firstCharge);
+        when(velocityLimiter.charge(toSlots)).thenReturn(toSlotsCharge);
+        when(velocityLimiter.charge(behind)).thenReturn(behindCharge);
+        when(bankingService.execute(toSlots)).thenThrow(new StackOverflowError());
+
+        assertThrows(StackOverflowError.class, () -> executor().execute(List.of(first, toSlots, behind)));
+
+        // the committed withdrawal keeps its charge, nothing else does
+        verify(velocityLimiter).refund(toSlotsCharge);
+        verify(velocityLimiter).refund(behindCharge);
+        verify(velocityLimiter, never()).refund(firstCharge);
+
+        clearInvocations(velocityLimiter, transactionService);
+        when(velocityLimiter.charge(behind)).thenThrow(new IllegalStateException("limiter stopped"));
+
+        assertThrows(IllegalStateException.class, () -> executor().execute(List.of(first, toSlots, behind)));
+
+        verify(velocityLimiter).refund(firstCharge);
+        verify(velocityLimiter).refund(toSlotsCharge);
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void testUnknownAccountsTakeNoRoomInTheLimiter() {
+        LimitProperties limitProperties = new LimitProperties();
+        limitProperties.setMaxAccounts(64);
+        limitProperties.setStripes(4);
+        velocityLimiter = new VelocityLimiter(mock(VelocityRepository.class), limitProperties, registry);
+        when(accountLookupCache.resolve(anyString())).thenReturn(Optional.empty());
+        List<BankingOperation> flood = IntStream.range(0, 1_000)
+                .mapToObj(i -> BankingOperation.withdraw(String.valueOf(90_000_000 + i), 1_00))
+                .toList();
+
+        List<OperationResult> results = executor().execute(flood);
+
+        assertTrue(results.stream().allMatch(result -> "Account not found".equals(result.error())));
+        assertEquals(0, velocityLimiter.trackedAccounts());
+        verifyNoInteractions(bankingService);
+    }
+
+    @Test
+    void testLostRacesAreRetriedWithinTheRetryBudget() {
+        when(accountRepository.findByAccountNumberIn(anyCollection())).thenReturn(List.of(account("10010001")));
+        when(accountRepository.saveAll(anyList())).thenThrow(new ObjectOptimisticLockingFailureException("Account", 1L));
+        when(bankingService.execute(any())).thenReturn(OperationResult.success());
+        List<BankingOperation> operations = List.of(BankingOperation.deposit("10010001", 1_00));
+
+        executor().execute(operations);
+        verify(accountRepository, times(3)).findByAccountNumberIn(anyCollection());
+
+        admissionProperties.setRetryRatio(0);
+        admissionProperties.setRetryBurst(0);
+        clearInvocations(accountRepository);
+        executor().execute(operations);
+        // no retry left: the batch is tried once and its operations go one by one
+        verify(accountRepository, times(1)).findByAccountNumberIn(anyCollection());
+        verify(bankingService, times(2)).execute(operations.get(0));
+    }
+
+    @Test
+    void testBatchedOperationsAreRecorded() {
+        when(accountRepository.findByAccountNumberIn(anyCollection()))
+                .thenReturn(List.of(account("10010001"), account("10010002")));
+
+        executor().execute(List.of(BankingOperation.deposit("10010001", 1_00),
+                BankingOperation.withdraw("10010002", 500_00)));
+
+        assertEquals(1, registry.get("banking.operation.duration")
+                .tags("operation", "deposit", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("banking.operation.duration")
+                .tags("operation", "withdraw", "outcome", "failure").timer().count());
+        assertEquals(1.0, registry.get("banking.operation.attempts").tags("operation", "deposit").summary().totalAmount());
+    }
+
+    @Test
+    void testOtherModesGoThroughTheConfiguredStrategy() {
+        executionProperties.setMode(ExecutionMode.CONDITIONAL_UPDATE);
+        BankingOperation deposit = BankingOperation.deposit("10010001", 1_00);
+        BankingOperation transfer = BankingOperation.transfer("10010001", "10010002", 1_00);
+        when(bankingService.execute(any())).thenReturn(OperationResult.success());
+
+        List<OperationResult> results = executor().execute(List.of(deposit, transfer));
+
+        assertEquals(List.of(OperationResult.success(), OperationResult.success()), results);
+        verify(bankingService).execute(deposit);
+        verify(bankingService).execute(transfer);
+        verifyNoInteractions(accountRepository, transactionService);
+        // recorded by the retry listener around BankingService instead
+        assertEquals(0, registry.get("banking.operation.duration").timers().stream().mapToLong(timer -> timer.count()).sum());
+    }
+
+    private OperationBatchExecutor executor() {
+        return new OperationBatchExecutor(accountRepository, transactionService, bankingService,
+                mock(BalanceCache.class), mock(IdempotencyStore.class), velocityLimiter, accountLookupCache,
+                new RetryBudget(admissionProperties, registry),
+                new OperationMetricsListener(mock(HotAccountTracker.class), registry), executionProperties,
+                mock(PlatformTransactionManager.class));
+    }
+
+    private static Account account(String accountNumber) {
+        Account account = new Account();
+        account.setId(Long.parseLong(accountNumber));
+        account.setAccountNumber(accountNumber);
+        account.setAccountType("CHECKING");
+        account.setBalance(100_00);
+        return account;
+    }
+}
@@ -0,0 +1,57 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.repository.AccountRef;
+import com.pasichenko.banking.repository.IntakeTicket;
+import com.pasichenko.banking.repository.OperationIntakeRepository;
+import com.pasichenko.banking.service.IdempotencyKeyReusedException;
+import com.pasichenko.banking.service.impl.AccountLookupCache;
+import com.pasichenko.banking.service.impl.OperationIntakeServiceImpl;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OperationIntakeServiceTest {
+
+    private OperationIntakeRepository intakeRepository;
+    private OperationIntakeServiceImpl intakeService;
+
+    @BeforeEach
+    void setUp() {
+        intakeRepository = mock(OperationIntakeRepository.class);
+        AccountLookupCache accountLookupCache = mock(AccountLookupCache.class);
+        when(accountLookupCache.resolve(any())).thenReturn(Optional.empty());
+        when(accountLookupCache.resolve("12345")).thenReturn(Optional.of(new AccountRef(1L, "12345", "SAVINGS")));
+        when(accountLookupCache.resolve("67890")).thenReturn(Optional.of(new AccountRef(2L, "67890", "CHECKING")));
+        intakeService = new OperationIntakeServiceImpl(intakeRepository, accountLookupCache);
+    }
+
+    @Test
+    void testInvalidOperationsAreRejectedBeforeAppend() {
+        assertThrows(IllegalArgumentException.class,
+                () -> intakeService.submit(BankingOperation.deposit("12345", 0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> intakeService.submit(BankingOperation.transfer("12345", "99999", 10_00)));
+        verifyNoInteractions(intakeRepository);
+    }
+
+    @Test
+    void testRepeatedKeyReturnsOriginalTicket() {
+        BankingOperation transfer = BankingOperation.transfer("12345", "67890", 10_00).withIdempotencyKey("payout-1");
+        IntakeTicket original = new IntakeTicket(7L, IntakeTicket.Status.SUCCEEDED, null, LocalDateTime.now(), LocalDateTime.now());
+        when(intakeRepository.append(any())).thenReturn(Optional.empty());
+        when(intakeRepository.findByIdempotencyKey("payout-1")).thenReturn(Optional.of(
+                new OperationIntakeRepository.Submission(BankingOperation.transfer("12345", "67890", 10_00), original)));
+
+        assertEquals(original, intakeService.submit(transfer));
+
+        BankingOperation different = BankingOperation.transfer("12345", "67890", 1_00).withIdempotencyKey("payout-1");
+        assertThrows(IdempotencyKeyReusedException.class, () -> intakeService.submit(different));
+    }
+}
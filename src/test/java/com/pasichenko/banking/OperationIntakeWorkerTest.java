@@ -0,0 +1,100 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.ExecutionProperties;
+import com.pasichenko.banking.config.IntakeProperties;
+import com.pasichenko.banking.entity.Account;
+import com.pasichenko.banking.entity.Transaction;
+import com.pasichenko.banking.repository.AccountRepository;
+import com.pasichenko.banking.repository.OperationIntakeRepository;
+import com.pasichenko.banking.repository.OperationIntakeRepository.Claimed;
+import com.pasichenko.banking.service.BankingService;
+import com.pasichenko.banking.service.TransactionService;
+import com.pasichenko.banking.service.impl.AccountLookupCache;
+import com.pasichenko.banking.service.impl.BalanceCache;
+import com.pasichenko.banking.service.impl.IdempotencyStore;
+import com.pasichenko.banking.service.impl.OperationBatchExecutor;
+import com.pasichenko.banking.service.impl.OperationIntakeWorker;
+import com.pasichenko.banking.service.impl.OperationMetricsListener;
+import com.pasichenko.banking.service.impl.RetryBudget;
+import com.pasichenko.banking.service.impl.VelocityLimiter;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OperationIntakeWorkerTest {
+
+    private OperationIntakeRepository intakeRepository;
+    private IntakeProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        intakeRepository = mock(OperationIntakeRepository.class);
+        properties = new IntakeProperties();
+    }
+
+    @Test
+    void testFailingOperationFailsAloneAndTheQueueMovesOn() {
+        Claimed good = new Claimed(1, BankingOperation.deposit("10010001", 1_00), 1);
+        Claimed bad = new Claimed(2, BankingOperation.deposit("10010002", 1_00), 1);
+        when(intakeRepository.claimPending(anyInt())).thenReturn(List.of(good, bad));
+        AccountRepository accountRepository = mock(AccountRepository.class);
+        when(accountRepository.findByAccountNumberIn(anyCollection()))
+                .thenReturn(List.of(account("10010001"), account("10010002")));
+        TransactionService transactionService = mock(TransactionService.class);
+        doThrow(new IllegalStateException("constraint violated")).when(transactionService)
+                .recordTransaction(argThat(account -> account.getAccountNumber().equals("10010002")),
+                        eq(Transaction.TransactionType.DEPOSIT), anyLong(), isNull());
+        BankingService bankingService = mock(BankingService.class);
+        when(bankingService.execute(any())).thenAnswer(invocation -> {
+            BankingOperation operation = invocation.getArgument(0);
+            if (operation.accountNumber().equals("10010002")) {
+                throw new IllegalStateException("constraint violated");
+            }
+            return OperationResult.success();
+        });
+        IdempotencyStore idempotencyStore = mock(IdempotencyStore.class);
+        when(idempotencyStore.claim(any())).thenReturn(true);
+        OperationBatchExecutor batchExecutor = new OperationBatchExecutor(accountRepository, transactionService,
+                bankingService, mock(BalanceCache.class), idempotencyStore, mock(VelocityLimiter.class), mock(AccountLookupCache.class),
+                mock(RetryBudget.class), mock(OperationMetricsListener.class), new ExecutionProperties(), mock(PlatformTransactionManager.class));
+
+        assertEquals(2, new OperationIntakeWorker(intakeRepository, batchExecutor, properties).drainOnce());
+
+        verify(intakeRepository).complete(List.of(good, bad),
+                List.of(OperationResult.success(), OperationResult.failure("constraint violated")));
+        verify(intakeRepository, never()).release(any());
+    }
+
+    @Test
+    void testOutageReleasesClaimsUntilTheirAttemptsRunOut() {
+        Claimed exhausted = new Claimed(1, BankingOperation.deposit("10010001", 1_00), 5);
+        Claimed fresh = new Claimed(2, BankingOperation.deposit("10010002", 1_00), 2);
+        when(intakeRepository.claimPending(anyInt())).thenReturn(List.of(exhausted, fresh));
+        OperationBatchExecutor batchExecutor = mock(OperationBatchExecutor.class);
+        when(batchExecutor.execute(anyList())).thenThrow(new IllegalStateException("connection refused"));
+        OperationIntakeWorker worker = new OperationIntakeWorker(intakeRepository, batchExecutor, properties);
+
+        assertThrows(IllegalStateException.class, worker::drainOnce);
+
+        verify(intakeRepository).fail(List.of(exhausted), "Gave up after 5 attempts: connection refused");
+        verify(intakeRepository).release(List.of(fresh));
+        verify(intakeRepository, never()).complete(any(), any());
+    }
+
+    private static Account account(String accountNumber) {
+        Account account = new Account();
+        account.setId(Long.parseLong(accountNumber));
+        account.setAccountNumber(accountNumber);
+        account.setAccountType("CHECKING");
+        account.setBalance(100_00);
+        return account;
+    }
+}
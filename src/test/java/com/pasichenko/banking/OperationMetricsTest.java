@@ -0,0 +1,102 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.HotAccountProperties;
+import com.pasichenko.banking.service.BankingService;
+import com.pasichenko.banking.service.impl.HotAccountTracker;
+import com.pasichenko.banking.service.impl.OperationMetricsListener;
+import com.pasichenko.banking.service.impl.SpaceSavingSketch;
+import com.pasichenko.banking.service.impl.SpaceSavingSketch.HeavyHitter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.interceptor.RetryInterceptorBuilder;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OperationMetricsTest {
+
+    @Test
+    void testSketchKeepsHeavyHittersWithinCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(8);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.offer(i % 2 == 0 ? "hot" : "cold-" + i);
+            if (i % 5 == 0) {
+                sketch.offer("warm");
+            }
+        }
+
+        List<HeavyHitter> top = sketch.top(2);
+        assertEquals(12_000, sketch.total());
+        assertEquals("hot", top.get(0).key());
+        assertEquals("warm", top.get(1).key());
+        // counts never undercount and overcount by at most the recorded error
+        assertTrue(top.get(0).count() >= 5_000 && top.get(0).count() - top.get(0).error() <= 5_000);
+        assertTrue(sketch.top(100).size() <= 8);
+    }
+
+    @Test
+    void testStripesOfferedFromManyThreadsMergeWithinTheErrorBound() throws Exception {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(8, 4);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            int t = thread;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    sketch.offer(i % 4 == 0 ? "hot" : "cold-" + t + "-" + i);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        HeavyHitter hot = sketch.top(1).get(0);
+        assertEquals(40_000, sketch.total());
+        assertEquals("hot", hot.key());
+        assertTrue(hot.count() >= 10_000 && hot.count() - hot.error() <= 10_000);
+    }
+
+    @Test
+    void testRetriedOperationIsRecordedOnce() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HotAccountTracker hotAccounts = new HotAccountTracker(new HotAccountProperties(), registry);
+        BankingService target = mock(BankingService.class);
+        doThrow(new ObjectOptimisticLockingFailureException("Account", 1L))
+                .doNothing()
+                .when(target).transfer("12345", "67890", 10_00);
+        BankingService service = retrying(target, new OperationMetricsListener(hotAccounts, registry));
+
+        service.transfer("12345", "67890", 10_00);
+
+        assertEquals(1, registry.get("banking.operation.duration")
+                .tags("operation", "transfer", "outcome", "success").timer().count());
+        assertEquals(2.0, registry.get("banking.operation.attempts").tags("operation", "transfer").summary().totalAmount());
+        assertEquals(1.0, registry.get("banking.operation.conflicts").tags("operation", "transfer").counter().count());
+        assertEquals(2, hotAccounts.currentWindow().totalOperations());
+        assertEquals(2, hotAccounts.currentWindow().totalConflicts());
+    }
+
+    private static BankingService retrying(BankingService target, OperationMetricsListener listener) {
+        RetryTemplate template = RetryTemplate.builder()
+                .maxAttempts(3)
+                .fixedBackoff(1)
+                .retryOn(ObjectOptimisticLockingFailureException.class)
+                .withListener(listener)
+                .build();
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addInterface(BankingService.class);
+        proxyFactory.addAdvice(RetryInterceptorBuilder.stateless().retryOperations(template).build());
+        return (BankingService) proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,85 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.repository.LedgerOutboxRepository;
+import com.pasichenko.banking.service.BankingService;
+import com.pasichenko.banking.service.LedgerEvent;
+import com.pasichenko.banking.service.impl.OutboxRelay;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the outbox trigger, the relay's claim (SKIP LOCKED) and its mark against Postgres.
+@BankingIntegrationTest
+class OutboxIntegrationTest {
+
+    @Autowired
+    private BankingService bankingService;
+
+    @Autowired
+    private OutboxRelay relay;
+
+    @Autowired
+    private LedgerOutboxRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testTransferIsPublishedAsOneEventPerLeg() {
+        String from = TestAccounts.create(jdbcTemplate, "CHECKING", 100_00);
+        String to = TestAccounts.create(jdbcTemplate, "SAVINGS", 0);
+        bankingService.transfer(from, to, 25_00);
+        long transactionId = jdbcTemplate.queryForObject("SELECT id FROM transactions WHERE account_id = ?",
+                Long.class, TestAccounts.id(jdbcTemplate, from));
+
+        List<LedgerEvent> events = new TransactionTemplate(transactionManager).execute(status ->
+                outboxRepository.claimUnpublished(Integer.MAX_VALUE).stream()
+                        .filter(event -> event.transactionId() == transactionId)
+                        .toList());
+
+        assertEquals(2, events.size());
+        LedgerEvent debit = events.get(0).direction().equals("DEBIT") ? events.get(0) : events.get(1);
+        LedgerEvent credit = debit == events.get(0) ? events.get(1) : events.get(0);
+        assertEquals(from, debit.accountNumber());
+        assertEquals(to, credit.accountNumber());
+        assertEquals("CREDIT", credit.direction());
+        assertEquals(25_00, debit.amount());
+        assertEquals(25_00, credit.amount());
+
+        while (relay.relayOnce() > 0) {
+            // drain everything, other tests leave unpublished events behind
+        }
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM ledger_outbox WHERE transaction_id = ? AND published_at IS NULL",
+                Integer.class, transactionId));
+    }
+
+    @Test
+    void testConcurrentRelaysClaimDisjointBatches() throws Exception {
+        String account = TestAccounts.create(jdbcTemplate, "CHECKING", 0);
+        bankingService.deposit(account, 5_00);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<LedgerEvent> first = outboxRepository.claimUnpublished(Integer.MAX_VALUE);
+            assertTrue(first.stream().anyMatch(event -> event.accountNumber().equals(account)));
+
+            List<LedgerEvent> second = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(
+                    inner -> outboxRepository.claimUnpublished(Integer.MAX_VALUE))).join();
+
+            // the rows locked by the first claim are skipped, not waited for
+            assertTrue(second.stream().noneMatch(event -> event.accountNumber().equals(account)));
+        });
+    }
+}
@@ -0,0 +1,73 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.OutboxProperties;
+import com.pasichenko.banking.repository.LedgerOutboxRepository;
+import com.pasichenko.banking.service.LedgerEvent;
+import com.pasichenko.banking.service.LedgerEventSink;
+import com.pasichenko.banking.service.impl.OutboxRelay;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    private LedgerOutboxRepository outboxRepository;
+    private LedgerEventSink sink;
+    private PlatformTransactionManager transactionManager;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(LedgerOutboxRepository.class);
+        sink = mock(LedgerEventSink.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        OutboxProperties properties = new OutboxProperties();
+        properties.setBatchSize(2);
+        relay = new OutboxRelay(outboxRepository, sink, properties, transactionManager);
+    }
+
+    @Test
+    void testBatchIsPublishedThenMarked() {
+        List<LedgerEvent> events = List.of(event(1L), event(2L));
+        when(outboxRepository.claimUnpublished(2)).thenReturn(events);
+
+        assertEquals(2, relay.relayOnce());
+
+        var order = inOrder(sink, outboxRepository, transactionManager);
+        order.verify(sink).publish(events);
+        order.verify(outboxRepository).markPublished(events);
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testSinkFailureLeavesBatchUnpublished() {
+        List<LedgerEvent> events = List.of(event(1L));
+        when(outboxRepository.claimUnpublished(2)).thenReturn(events);
+        doThrow(new IllegalStateException("sink down")).when(sink).publish(events);
+
+        assertThrows(IllegalStateException.class, () -> relay.relayOnce());
+
+        verify(outboxRepository, never()).markPublished(any());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void testEmptyOutboxPublishesNothing() {
+        when(outboxRepository.claimUnpublished(2)).thenReturn(List.of());
+
+        assertEquals(0, relay.relayOnce());
+
+        verifyNoInteractions(sink);
+    }
+
+    private static LedgerEvent event(long id) {
+        return new LedgerEvent(id, 100 + id, "12345", "DEPOSIT", "CREDIT", 10_00, null, LocalDateTime.now());
+    }
+}
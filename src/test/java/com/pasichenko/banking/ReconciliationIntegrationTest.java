@@ -0,0 +1,81 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.repository.LedgerRepository;
+import com.pasichenko.banking.repository.ReconciliationRange;
+import com.pasichenko.banking.repository.ReconciliationRepository;
+import com.pasichenko.banking.repository.ReconciliationRun;
+import com.pasichenko.banking.service.BankingService;
+import com.pasichenko.banking.service.impl.LedgerReconciler;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs PLAN_SQL and CHECK_RANGE_SQL against Postgres over real postings, pending ledger deltas and a
+// tampered balance.
+@BankingIntegrationTest
+class ReconciliationIntegrationTest {
+
+    @Autowired
+    private BankingService bankingService;
+
+    @Autowired
+    private LedgerRepository ledgerRepository;
+
+    @Autowired
+    private ReconciliationRepository reconciliationRepository;
+
+    @Autowired
+    private LedgerReconciler reconciler;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testRunReportsOnlyTheTamperedAccountAndResumes() {
+        String from = TestAccounts.create(jdbcTemplate, "CHECKING", 100_00);
+        String to = TestAccounts.create(jdbcTemplate, "SAVINGS", 0);
+        String pending = TestAccounts.create(jdbcTemplate, "SAVINGS", 10_00);
+        String tampered = TestAccounts.create(jdbcTemplate, "CHECKING", 50_00);
+        bankingService.transfer(from, to, 30_00);
+        bankingService.withdraw(from, 5_00);
+        bankingService.deposit(to, 2_50);
+        // not folded: the check has to count it from account_balance_deltas
+        assertTrue(ledgerRepository.deposit(pending, 7_00));
+        bankingService.deposit(tampered, 1_00);
+        jdbcTemplate.update("UPDATE accounts SET balance = balance + 1 WHERE account_number = ?", tampered);
+
+        long runId = reconciliationRepository.createRun(3);
+        List<ReconciliationRange> ranges = reconciliationRepository.findOpenRanges(runId);
+        assertTrue(ranges.size() > 1);
+        for (int i = 1; i < ranges.size(); i++) {
+            // planned ranges touch, so an account created in a gap still falls into one
+            assertEquals(ranges.get(i - 1).lastAccountId() + 1, ranges.get(i).firstAccountId());
+        }
+        assertTrue(reconciliationRepository.checkRange(runId, ranges.get(0)));
+        assertFalse(reconciliationRepository.checkRange(runId, ranges.get(0)));
+        assertFalse(reconciliationRepository.finishRun(runId));
+
+        // an interrupted run is picked up at its open ranges
+        assertEquals(runId, reconciler.reconcile());
+
+        ReconciliationRun run = reconciliationRepository.findLatestRun().orElseThrow();
+        assertEquals(runId, run.id());
+        assertNotNull(run.finishedAt());
+        assertEquals(run.ranges(), run.completedRanges());
+        Set<String> ours = Set.of(from, to, pending, tampered);
+        List<Map<String, Object>> discrepancies = reconciliationRepository.findDiscrepancies(runId, Integer.MAX_VALUE)
+                .stream()
+                .filter(row -> ours.contains((String) row.get("account_number")))
+                .toList();
+        assertEquals(1, discrepancies.size());
+        assertEquals(tampered, discrepancies.get(0).get("account_number"));
+        assertEquals(51_00L, ((Number) discrepancies.get(0).get("expected_balance")).longValue());
+        assertEquals(51_01L, ((Number) discrepancies.get(0).get("actual_balance")).longValue());
+    }
+}
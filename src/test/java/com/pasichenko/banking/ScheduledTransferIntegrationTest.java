@@ -0,0 +1,116 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.ScheduleProperties;
+import com.pasichenko.banking.repository.ScheduledTransferRepository;
+import com.pasichenko.banking.repository.ScheduledTransferRepository.DueRun;
+import com.pasichenko.banking.repository.TransferSchedule;
+import com.pasichenko.banking.service.BalanceSlotService;
+import com.pasichenko.banking.service.impl.OperationBatchExecutor;
+import com.pasichenko.banking.service.impl.TransferScheduler;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs V16/V20 and the scheduler's statements against Postgres: the window query on the partial
+// index, the due re-read and the guarded advance. The context's own scheduler is disabled, the
+// tests fire a scheduler of their own.
+@BankingIntegrationTest
+class ScheduledTransferIntegrationTest {
+
+    @Autowired
+    private ScheduledTransferRepository repository;
+
+    @Autowired
+    private OperationBatchExecutor batchExecutor;
+
+    @Autowired
+    private BalanceSlotService balanceSlotService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testWindowQueryReadsOnlyActiveRunsBeforeTheHorizonFromTheIndex() {
+        String from = TestAccounts.create(jdbcTemplate, "CHECKING", 0);
+        String to = TestAccounts.create(jdbcTemplate, "SAVINGS", 0);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        TransferSchedule soon = repository.create(from, to, 1_00, TransferSchedule.Recurrence.DAILY,
+                now.plus(Duration.ofMinutes(2)), null);
+        TransferSchedule overdue = repository.create(from, to, 1_00, TransferSchedule.Recurrence.ONCE,
+                now.minus(Duration.ofMinutes(1)), null);
+        TransferSchedule later = repository.create(from, to, 1_00, TransferSchedule.Recurrence.ONCE,
+                now.plus(Duration.ofMinutes(20)), null);
+        TransferSchedule cancelled = repository.create(from, to, 1_00, TransferSchedule.Recurrence.ONCE,
+                now.plus(Duration.ofMinutes(1)), null);
+        repository.cancel(cancelled.id());
+
+        // instants survive the round trip whatever the JVM's zone
+        assertEquals(now.plus(Duration.ofMinutes(2)), soon.startAt());
+        assertEquals(soon.startAt(), repository.findById(soon.id()).orElseThrow().nextRunAt());
+
+        Set<Long> ours = Set.of(soon.id(), overdue.id(), later.id(), cancelled.id());
+        List<DueRun> window = repository.findDueBefore(now.plus(Duration.ofMinutes(10)), 100_000).stream()
+                .filter(run -> ours.contains(run.id()))
+                .toList();
+        assertEquals(List.of(new DueRun(overdue.id(), overdue.startAt()), new DueRun(soon.id(), soon.startAt())), window);
+
+        // with sequential scans priced out, the predicate must match the partial index
+        String plan = new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            return String.join("\n", jdbcTemplate.queryForList("EXPLAIN SELECT id, next_run_at FROM scheduled_transfers " +
+                    "WHERE status = 'ACTIVE' AND next_run_at < now() + interval '10 minutes' " +
+                    "ORDER BY next_run_at LIMIT 100", String.class));
+        });
+        assertTrue(plan.contains("idx_scheduled_transfers_due"), plan);
+    }
+
+    @Test
+    void testDueRunsApplyInDueOrderAcrossTheFallback() {
+        String x = TestAccounts.create(jdbcTemplate, "CHECKING", 100_00);
+        String y = TestAccounts.create(jdbcTemplate, "CHECKING", 0);
+        String sharded = TestAccounts.create(jdbcTemplate, "SAVINGS", 0);
+        balanceSlotService.enableSharding(sharded, 2);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        TransferSchedule fund = repository.create(x, y, 100_00, TransferSchedule.Recurrence.ONCE,
+                now.minusSeconds(3), null);
+        // the sharded destination makes the batch hand this one to BankingService
+        TransferSchedule toSlots = repository.create(y, sharded, 60_00, TransferSchedule.Recurrence.ONCE,
+                now.minusSeconds(2), null);
+        TransferSchedule behind = repository.create(y, x, 50_00, TransferSchedule.Recurrence.DAILY,
+                now.minusSeconds(1), null);
+        TransferScheduler scheduler = new TransferScheduler(repository, batchExecutor, new ScheduleProperties());
+        for (TransferSchedule schedule : List.of(fund, toSlots, behind)) {
+            scheduler.schedule(schedule.id(), schedule.nextRunAt());
+        }
+
+        assertEquals(3, scheduler.fireDue(now));
+
+        // the run behind the fallback waited for it, so it is the one short of money
+        assertEquals(0, TestAccounts.balance(jdbcTemplate, x));
+        assertEquals(40_00, TestAccounts.balance(jdbcTemplate, y));
+        assertEquals(TransferSchedule.Status.COMPLETED, repository.findById(toSlots.id()).orElseThrow().status());
+        TransferSchedule recurring = repository.findById(behind.id()).orElseThrow();
+        assertTrue(recurring.lastError().contains("Insufficient balance"), recurring.lastError());
+        assertEquals(TransferSchedule.Status.ACTIVE, recurring.status());
+        assertEquals(1, recurring.occurrence());
+        assertEquals(behind.startAt().plus(Duration.ofDays(1)), recurring.nextRunAt());
+        assertEquals(now, recurring.lastRunAt());
+
+        // advanced: nothing is due any more at the same instant
+        scheduler.schedule(fund.id(), now);
+        assertEquals(0, scheduler.fireDue(now));
+    }
+}
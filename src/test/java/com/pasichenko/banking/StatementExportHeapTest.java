@@ -0,0 +1,117 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.StatementProperties;
+import com.pasichenko.banking.repository.AccountRef;
+import com.pasichenko.banking.service.StatementExportService.StatementExport;
+import com.pasichenko.banking.service.StatementFormat;
+import com.pasichenko.banking.service.impl.AccountLookupCache;
+import com.pasichenko.banking.service.impl.StatementExportServiceImpl;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Runs in the heap-tests surefire execution (small -Xmx, see pom.xml): the export output is far
+// larger than the heap, so it only passes if rows stream from the Postgres cursor and are written
+// through instead of being collected. No Spring context, which would not fit in that heap.
+class StatementExportHeapTest {
+
+    private static final int ROWS = 3_000_000;
+
+    private static DriverManagerDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static long accountId;
+    private static String accountNumber;
+
+    @BeforeAll
+    static void seed() {
+        dataSource = new DriverManagerDataSource(TestcontainersConfiguration.postgresContainer.getJdbcUrl(),
+                TestcontainersConfiguration.postgresContainer.getUsername(),
+                TestcontainersConfiguration.postgresContainer.getPassword());
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        accountNumber = TestAccounts.create(jdbcTemplate, "CHECKING", 0);
+        accountId = TestAccounts.id(jdbcTemplate, accountNumber);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.executeWithoutResult(status -> {
+            // skips the outbox trigger, which would double the seeding time for nothing under test here
+            jdbcTemplate.execute("SET LOCAL session_replication_role = replica");
+            jdbcTemplate.update("INSERT INTO transactions (account_id, transaction_type, amount, created_at) " +
+                    "SELECT ?, 'DEPOSIT', 10025, TIMESTAMP '2024-01-01' + g * INTERVAL '1 second' " +
+                    "FROM generate_series(1, ?) g", accountId, ROWS);
+        });
+    }
+
+    @Test
+    void testExportStreamsMillionsOfRowsInSmallHeap() throws Exception {
+        for (StatementFormat format : StatementFormat.values()) {
+            CountingOutputStream out = new CountingOutputStream();
+
+            export(format).writeTo(out);
+
+            int header = format == StatementFormat.CSV ? 1 : 0;
+            assertEquals(ROWS + header, out.lines);
+            assertTrue(out.bytes > 100L * 1024 * 1024, "export should be several times the heap size");
+        }
+    }
+
+    @Test
+    void testRowFormatting() throws Exception {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 15, 10, 30);
+        StringWriter csv = new StringWriter();
+        StatementFormat.CSV.writeRow(csv, 7, createdAt, "TRANSFER", "DEBIT", 12_50, null);
+        assertEquals("7,2024-01-15T10:30,TRANSFER,DEBIT,12.50,\n", csv.toString());
+
+        StringWriter ndjson = new StringWriter();
+        StatementFormat.NDJSON.writeRow(ndjson, 8, createdAt, "TRANSFER", "CREDIT", 12_50, 7L);
+        assertEquals("{\"id\":8,\"createdAt\":\"2024-01-15T10:30\",\"type\":\"TRANSFER\",\"direction\":\"CREDIT\"," +
+                "\"amount\":12.50,\"referenceId\":7}\n", ndjson.toString());
+    }
+
+    private StatementExport export(StatementFormat format) {
+        AccountLookupCache accountLookupCache = mock(AccountLookupCache.class);
+        when(accountLookupCache.resolve(accountNumber))
+                .thenReturn(Optional.of(new AccountRef(accountId, accountNumber, "CHECKING")));
+        StatementExportServiceImpl service = new StatementExportServiceImpl(accountLookupCache, jdbcTemplate,
+                new DataSourceTransactionManager(dataSource), new StatementProperties());
+        return service.prepare(accountNumber, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31), format)
+                .orElseThrow();
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private long bytes;
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
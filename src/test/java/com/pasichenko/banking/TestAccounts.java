@@ -0,0 +1,40 @@
+package com.pasichenko.banking;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Seeds accounts for the Testcontainers tests with raw inserts. Numbers are unique per run, so test
+// classes sharing the container never see each other's rows. V2 inserted its mock rows with explicit
+// ids and left the serial sequences behind, hence the ids taken past the current maximum.
+final class TestAccounts {
+
+    private static final AtomicLong NEXT = new AtomicLong(System.currentTimeMillis() % 1_000_000L * 1_000L);
+
+    private TestAccounts() {
+    }
+
+    static String create(JdbcTemplate jdbcTemplate, String accountType, long balance) {
+        long n = NEXT.incrementAndGet();
+        Long userId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (id, full_name, email, phone) " +
+                        "SELECT COALESCE(MAX(id), 0) + 1, ?, ?, ? FROM users RETURNING id",
+                Long.class, "Test User " + n, "test" + n + "@example.com", "+" + n);
+        String accountNumber = "9" + n;
+        // the starting balance has no ledger rows behind it, so it is the opening balance for reconciliation
+        jdbcTemplate.update("INSERT INTO accounts (id, user_id, account_number, account_type, balance, opening_balance, version) " +
+                        "SELECT COALESCE(MAX(id), 0) + 1, ?, ?, ?, ?, ?, 0 FROM accounts",
+                userId, accountNumber, accountType, balance, balance);
+        return accountNumber;
+    }
+
+    static long id(JdbcTemplate jdbcTemplate, String accountNumber) {
+        return jdbcTemplate.queryForObject("SELECT id FROM accounts WHERE account_number = ?",
+                Long.class, accountNumber);
+    }
+
+    static long balance(JdbcTemplate jdbcTemplate, String accountNumber) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE account_number = ?",
+                Long.class, accountNumber);
+    }
+}
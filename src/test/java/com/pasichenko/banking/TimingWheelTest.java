@@ -0,0 +1,74 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.service.impl.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long START = 1_000_000;
+
+    @Test
+    void testFiresOnlyOnceDue() {
+        TimingWheel wheel = new TimingWheel(1000, 8, 60_000, START);
+        assertTrue(wheel.schedule(1, START + 2_500));
+
+        assertEquals(List.of(), wheel.advance(START + 2_000));
+        assertEquals(List.of(1L), wheel.advance(START + 3_000));
+        assertEquals(List.of(), wheel.advance(START + 10_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testEntriesOnHigherLevelsCascadeDownInOrder() {
+        TimingWheel wheel = new TimingWheel(1000, 4, 60_000, START);
+        long[] delays = {59_000, 1_000, 17_000, 5_000, 16_000, 33_000};
+        for (int i = 0; i < delays.length; i++) {
+            assertTrue(wheel.schedule(i, START + delays[i]));
+        }
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = START; now <= START + 60_000; now += 1_000) {
+            for (long id : wheel.advance(now)) {
+                fired.add(id);
+                assertEquals(now, START + delays[(int) id]);
+            }
+        }
+        assertEquals(List.of(1L, 3L, 4L, 2L, 5L, 0L), fired);
+    }
+
+    @Test
+    void testLargeJumpFiresEverythingPassed() {
+        TimingWheel wheel = new TimingWheel(1000, 4, 60_000, START);
+        wheel.schedule(1, START + 45_000);
+        wheel.schedule(2, START + 3_000);
+
+        assertEquals(List.of(2L, 1L), wheel.advance(START + 50_000));
+    }
+
+    @Test
+    void testRefusesBeyondHorizonAndFiresOverdueAtOnce() {
+        TimingWheel wheel = new TimingWheel(1000, 4, 10_000, START);
+
+        assertFalse(wheel.schedule(1, START + 3_600_000));
+        assertTrue(wheel.schedule(2, START - 5_000));
+        assertEquals(List.of(2L), wheel.advance(START));
+    }
+
+    @Test
+    void testCancelledAndRescheduledEntriesDoNotFireAtTheOldTime() {
+        TimingWheel wheel = new TimingWheel(1000, 8, 60_000, START);
+        wheel.schedule(1, START + 2_000);
+        wheel.schedule(2, START + 2_000);
+        wheel.cancel(1);
+        wheel.schedule(2, START + 20_000);
+
+        assertEquals(List.of(), wheel.advance(START + 10_000));
+        assertTrue(wheel.isScheduled(2, START + 20_000));
+        assertEquals(List.of(2L), wheel.advance(START + 20_000));
+    }
+}
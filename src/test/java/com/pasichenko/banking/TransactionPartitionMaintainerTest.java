@@ -0,0 +1,75 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.PartitionProperties;
+import com.pasichenko.banking.service.impl.TransactionPartitionMaintainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.AdditionalMatchers.and;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TransactionPartitionMaintainerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 14, 12, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private PartitionProperties properties;
+    private TransactionPartitionMaintainer maintainer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        properties = new PartitionProperties();
+        properties.setMonthsAhead(2);
+        maintainer = new TransactionPartitionMaintainer(jdbcTemplate, properties);
+    }
+
+    @Test
+    void testCreatesMissingMonthsAfterLastPartition() {
+        when(jdbcTemplate.queryForList(anyString())).thenReturn(List.of(
+                partition("transactions_legacy", "FOR VALUES FROM (MINVALUE) TO ('2025-03-01 00:00:00')"),
+                partition("transactions_p202503", "FOR VALUES FROM ('2025-03-01 00:00:00') TO ('2025-04-01 00:00:00')"),
+                partition("transactions_default", "DEFAULT")));
+
+        maintainer.maintain(NOW);
+
+        verify(jdbcTemplate).execute("CREATE TABLE transactions_p202504 (LIKE transactions INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        verify(jdbcTemplate).execute(and(contains("INSERT INTO transactions_p202504 SELECT * FROM moved"),
+                contains("ATTACH PARTITION transactions_p202504 FOR VALUES FROM ('2025-04-01 00:00:00') TO ('2025-05-01 00:00:00')")));
+        verify(jdbcTemplate).execute(contains(
+                "ATTACH PARTITION transactions_p202505 FOR VALUES FROM ('2025-05-01 00:00:00') TO ('2025-06-01 00:00:00')"));
+        verify(jdbcTemplate, never()).execute(contains("transactions_p202506"));
+        verify(jdbcTemplate, never()).execute(contains("DETACH"));
+    }
+
+    @Test
+    void testRetiresOnlyPartitionsEntirelyBeforeRetention() {
+        properties.setRetentionMonths(12);
+        properties.setRetirementMode(PartitionProperties.RetirementMode.DROP);
+        when(jdbcTemplate.queryForList(anyString())).thenReturn(List.of(
+                partition("transactions_legacy", "FOR VALUES FROM (MINVALUE) TO ('2024-03-01 00:00:00')"),
+                partition("transactions_p202403", "FOR VALUES FROM ('2024-03-01 00:00:00') TO ('2024-04-01 00:00:00')"),
+                partition("transactions_p202505", "FOR VALUES FROM ('2025-05-01 00:00:00') TO ('2025-06-01 00:00:00')")));
+
+        maintainer.maintain(NOW);
+
+        verify(jdbcTemplate).execute(and(
+                contains("UPDATE accounts a SET opening_balance = a.opening_balance + retired.net"),
+                and(contains("FROM account_postings"),
+                        and(contains("WHERE created_at >= '-infinity' AND created_at < '2024-03-01 00:00:00'"),
+                                contains("ALTER TABLE transactions DETACH PARTITION \"transactions_legacy\";")))));
+        verify(jdbcTemplate).execute("DROP TABLE \"transactions_legacy\"");
+        verify(jdbcTemplate, never()).execute(contains("DETACH PARTITION \"transactions_p202403\""));
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE TABLE"));
+    }
+
+    private static Map<String, Object> partition(String name, String bound) {
+        return Map.of("name", name, "bound", bound);
+    }
+}
@@ -0,0 +1,130 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.ScheduleProperties;
+import com.pasichenko.banking.repository.ScheduledTransferRepository;
+import com.pasichenko.banking.repository.ScheduledTransferRepository.Advance;
+import com.pasichenko.banking.repository.ScheduledTransferRepository.DueRun;
+import com.pasichenko.banking.repository.TransferSchedule;
+import com.pasichenko.banking.service.impl.OperationBatchExecutor;
+import com.pasichenko.banking.service.impl.TransferScheduler;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import com.pasichenko.banking.service.operation.OperationResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TransferSchedulerTest {
+
+    private ScheduledTransferRepository repository;
+    private OperationBatchExecutor batchExecutor;
+    private TransferScheduler scheduler;
+    private Instant now;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ScheduledTransferRepository.class);
+        batchExecutor = mock(OperationBatchExecutor.class);
+        scheduler = new TransferScheduler(repository, batchExecutor, new ScheduleProperties());
+        now = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(5);
+    }
+
+    @Test
+    void testDueRunsApplyWithOccurrenceKeysAndAdvance() {
+        Instant start = now.minus(Duration.ofDays(2)).minus(Duration.ofHours(1));
+        // occurrence 1 is a day late, and occurrence 2 (an hour ago) is skipped rather than run too
+        TransferSchedule daily = schedule(1, TransferSchedule.Recurrence.DAILY, start, 1, start.plus(Duration.ofDays(1)));
+        TransferSchedule once = schedule(2, TransferSchedule.Recurrence.ONCE, now.minusSeconds(1), 0,
+                now.minusSeconds(1));
+        scheduler.schedule(1, daily.nextRunAt());
+        scheduler.schedule(2, once.nextRunAt());
+        when(repository.findDue(anyCollection(), eq(now))).thenReturn(List.of(daily, once));
+        when(batchExecutor.execute(anyList()))
+                .thenReturn(List.of(OperationResult.success(), OperationResult.failure("Insufficient funds")));
+
+        assertEquals(2, scheduler.fireDue(now));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BankingOperation>> operations = ArgumentCaptor.forClass(List.class);
+        verify(batchExecutor).execute(operations.capture());
+        assertEquals(List.of("schedule:1:1", "schedule:2:0"),
+                operations.getValue().stream().map(BankingOperation::idempotencyKey).toList());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Advance>> advances = ArgumentCaptor.forClass(List.class);
+        verify(repository).advance(advances.capture());
+        Advance dailyAdvance = advances.getValue().get(0);
+        assertEquals(3, dailyAdvance.nextOccurrence());
+        assertEquals(start.plus(Duration.ofDays(3)), dailyAdvance.nextRunAt());
+        assertEquals(TransferSchedule.Status.ACTIVE, dailyAdvance.status());
+        Advance onceAdvance = advances.getValue().get(1);
+        assertNull(onceAdvance.nextRunAt());
+        assertEquals(TransferSchedule.Status.FAILED, onceAdvance.status());
+        assertEquals("Insufficient funds", onceAdvance.error());
+    }
+
+    @Test
+    void testRecurringScheduleCompletesAtItsEnd() {
+        Instant start = now.minusSeconds(1);
+        TransferSchedule weekly = new TransferSchedule(3, "A", "B", 100, TransferSchedule.Recurrence.WEEKLY,
+                start, start.plus(Duration.ofDays(6)), 0, start, TransferSchedule.Status.ACTIVE, null, null, start);
+        scheduler.schedule(3, start);
+        when(repository.findDue(anyCollection(), eq(now))).thenReturn(List.of(weekly));
+        when(batchExecutor.execute(anyList())).thenReturn(List.of(OperationResult.success()));
+
+        scheduler.fireDue(now);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Advance>> advances = ArgumentCaptor.forClass(List.class);
+        verify(repository).advance(advances.capture());
+        assertNull(advances.getValue().get(0).nextRunAt());
+        assertEquals(TransferSchedule.Status.COMPLETED, advances.getValue().get(0).status());
+    }
+
+    @Test
+    void testNothingDueTouchesNoRepository() {
+        scheduler.schedule(4, now.plus(Duration.ofMinutes(5)));
+
+        assertEquals(0, scheduler.fireDue(now));
+
+        verify(repository, never()).findDue(anyCollection(), any());
+        verifyNoInteractions(batchExecutor);
+    }
+
+    @Test
+    void testLoadWindowSkipsRunsAlreadyInTheWheel() {
+        when(repository.findDueBefore(any(), anyInt())).thenReturn(List.of(
+                new DueRun(5, now.plus(Duration.ofMinutes(1))), new DueRun(6, now.plus(Duration.ofMinutes(2)))));
+        scheduler.schedule(5, now.plus(Duration.ofMinutes(1)));
+
+        assertEquals(1, scheduler.loadWindow(now));
+        assertEquals(0, scheduler.loadWindow(now));
+    }
+
+    @Test
+    void testOccurrencesAreFixedOnTheTimeline() {
+        // Europe moves its clocks on 2025-03-30; a daily run stays 24 hours apart across it
+        Instant start = Instant.parse("2025-03-29T08:00:00Z");
+        assertEquals(Instant.parse("2025-03-31T08:00:00Z"), TransferSchedule.Recurrence.DAILY.occurrenceAt(start, 2));
+        assertEquals(Instant.parse("2025-04-12T08:00:00Z"), TransferSchedule.Recurrence.WEEKLY.occurrenceAt(start, 2));
+
+        Instant endOfMonth = Instant.parse("2025-01-31T12:00:00Z");
+        assertEquals(Instant.parse("2025-02-28T12:00:00Z"), TransferSchedule.Recurrence.MONTHLY.occurrenceAt(endOfMonth, 1));
+        assertEquals(Instant.parse("2025-03-31T12:00:00Z"), TransferSchedule.Recurrence.MONTHLY.occurrenceAt(endOfMonth, 2));
+        assertNull(TransferSchedule.Recurrence.ONCE.occurrenceAt(endOfMonth, 1));
+    }
+
+    private static TransferSchedule schedule(long id, TransferSchedule.Recurrence recurrence, Instant startAt,
+                                             int occurrence, Instant nextRunAt) {
+        return new TransferSchedule(id, "A" + id, "B" + id, 100, recurrence, startAt, null, occurrence, nextRunAt,
+                TransferSchedule.Status.ACTIVE, null, null, startAt);
+    }
+}
@@ -0,0 +1,225 @@
+package com.pasichenko.banking;
+
+import com.pasichenko.banking.config.LimitProperties;
+import com.pasichenko.banking.repository.VelocityRepository;
+import com.pasichenko.banking.repository.VelocityRepository.RecentDebits;
+import com.pasichenko.banking.service.VelocityLimitExceededException;
+import com.pasichenko.banking.service.VelocityLimitUnavailableException;
+import com.pasichenko.banking.service.impl.VelocityLimiter;
+import com.pasichenko.banking.service.operation.BankingOperation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class VelocityLimiterTest {
+
+    // on a bucket boundary of both windows
+    private static final long NOW = 1_000_000_800_000L;
+
+    private VelocityRepository repository;
+    private LimitProperties properties;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(VelocityRepository.class);
+        properties = new LimitProperties();
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testPerMinuteCountSlidesOut() {
+        properties.setPerMinuteCount(3);
+        VelocityLimiter limiter = limiter();
+        for (int i = 0; i < 3; i++) {
+            limiter.charge("10010001", 1_00, NOW + i * 1000);
+        }
+
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.charge("10010001", 1_00, NOW + 60_000));
+        limiter.charge("10010002", 1_00, NOW + 60_000);
+        limiter.charge("10010001", 1_00, NOW + 65_000);
+        assertEquals(1.0, registry.get("banking.limits.rejected").tag("window", "minute").counter().count());
+    }
+
+    @Test
+    void testDailyAmountCountsEveryDebitOfTheDay() {
+        properties.setDailyAmount(100_00);
+        VelocityLimiter limiter = limiter();
+        limiter.charge("10010001", 60_00, NOW);
+
+        VelocityLimitExceededException exception = assertThrows(VelocityLimitExceededException.class,
+                () -> limiter.charge("10010001", 50_00, NOW + Duration.ofHours(20).toMillis()));
+        assertEquals("Daily spending limit exceeded", exception.getMessage());
+        limiter.charge("10010001", 40_00, NOW + Duration.ofHours(20).toMillis());
+        // the first debit has left the day, the second has not
+        limiter.charge("10010001", 60_00, NOW + Duration.ofHours(25).toMillis());
+        assertThrows(VelocityLimitExceededException.class,
+                () -> limiter.charge("10010001", 1_00, NOW + Duration.ofHours(25).toMillis()));
+    }
+
+    @Test
+    void testRefundReturnsHeadroom() {
+        properties.setPerMinuteAmount(100_00);
+        VelocityLimiter limiter = limiter();
+        VelocityLimiter.Charge charge = limiter.charge("10010001", 100_00, System.currentTimeMillis());
+        assertThrows(VelocityLimitExceededException.class,
+                () -> limiter.charge("10010001", 1_00, System.currentTimeMillis()));
+
+        limiter.refund(charge);
+
+        limiter.charge("10010001", 100_00, System.currentTimeMillis());
+    }
+
+    @Test
+    void testDepositsAndDisabledLimitsChargeNothing() {
+        properties.setPerMinuteCount(1);
+        VelocityLimiter limiter = limiter();
+
+        assertNull(limiter.charge(BankingOperation.deposit("10010001", 1_00)));
+        assertNotNull(limiter.charge(BankingOperation.withdraw("10010001", 1_00)));
+        properties.setEnabled(false);
+        assertNull(limiter.charge(BankingOperation.transfer("10010001", "10010002", 1_00)));
+    }
+
+    @Test
+    void testConcurrentChargesNeverExceedTheLimit() throws Exception {
+        properties.setPerMinuteCount(500);
+        VelocityLimiter limiter = limiter();
+        AtomicInteger charged = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    try {
+                        limiter.charge("10010001", 1_00, NOW);
+                        charged.incrementAndGet();
+                    } catch (VelocityLimitExceededException e) {
+                        // expected once the limit is reached
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertEquals(500, charged.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStartSeedsRecentDebits() {
+        properties.setPerMinuteCount(3);
+        properties.setDailyAmount(100_00);
+        doAnswer(invocation -> {
+            Consumer<RecentDebits> consumer = invocation.getArgument(2);
+            if (invocation.getArgument(0).equals(Duration.ofMinutes(1))) {
+                consumer.accept(new RecentDebits("10010001", 1, 3, 3_00));
+            } else {
+                consumer.accept(new RecentDebits("10010001", 1, 3, 3_00));
+                consumer.accept(new RecentDebits("10010002", 5, 1, 90_00));
+            }
+            return null;
+        }).when(repository).forEachRecentDebits(any(), any(), any(Consumer.class));
+        VelocityLimiter limiter = limiter();
+
+        limiter.start();
+
+        assertEquals(2, limiter.trackedAccounts());
+        assertThrows(VelocityLimitExceededException.class,
+                () -> limiter.charge("10010001", 1_00, System.currentTimeMillis()));
+        assertThrows(VelocityLimitExceededException.class,
+                () -> limiter.charge("10010002", 20_00, System.currentTimeMillis()));
+        limiter.charge("10010002", 10_00, System.currentTimeMillis());
+    }
+
+    @Test
+    void testFullStripeRefusesNewAccountsAndKeepsTheOnesWithUsage() {
+        properties.setStripes(1);
+        properties.setMaxAccounts(4);
+        properties.setPerMinuteCount(1);
+        VelocityLimiter limiter = limiter();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 4; i++) {
+            limiter.charge("1001000" + i, 1_00, now + i);
+        }
+
+        for (int i = 4; i < 10; i++) {
+            String accountNumber = "1001000" + i;
+            assertThrows(VelocityLimitUnavailableException.class, () -> limiter.charge(accountNumber, 1_00, now + 5));
+        }
+
+        // dropping the first account to make room would have handed it a fresh limit
+        assertEquals(4, limiter.trackedAccounts());
+        assertEquals(6.0, registry.get("banking.limits.over-capacity").counter().count());
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.charge("10010000", 1_00, now + 10));
+    }
+
+    @Test
+    void testRefundThatEmptiesAnEntryDropsIt() {
+        properties.setPerMinuteCount(2);
+        VelocityLimiter limiter = limiter();
+        VelocityLimiter.Charge first = limiter.charge("10010001", 1_00, System.currentTimeMillis());
+        VelocityLimiter.Charge second = limiter.charge("10010001", 1_00, System.currentTimeMillis());
+
+        limiter.refund(first);
+        assertEquals(1, limiter.trackedAccounts());
+        limiter.refund(second);
+
+        assertEquals(0, limiter.trackedAccounts());
+        limiter.charge("10010001", 1_00, System.currentTimeMillis());
+        limiter.charge("10010001", 1_00, System.currentTimeMillis());
+        assertThrows(VelocityLimitExceededException.class,
+                () -> limiter.charge("10010001", 1_00, System.currentTimeMillis()));
+    }
+
+    @Test
+    void testFloodOfDistinctAccountsStaysWithinMaxAccounts() {
+        properties.setStripes(8);
+        properties.setMaxAccounts(64);
+        VelocityLimiter limiter = limiter();
+        long now = System.currentTimeMillis();
+        int refused = 0;
+        for (int i = 0; i < 10_000; i++) {
+            try {
+                limiter.charge(String.valueOf(90_000_000 + i), 1_00, now);
+            } catch (VelocityLimitUnavailableException e) {
+                refused++;
+            }
+        }
+
+        assertTrue(limiter.trackedAccounts() <= 64, "tracked " + limiter.trackedAccounts());
+        assertEquals(10_000 - limiter.trackedAccounts(), refused);
+    }
+
+    @Test
+    void testIdleAccountsAreEvicted() {
+        VelocityLimiter limiter = limiter();
+        long now = System.currentTimeMillis();
+        limiter.charge("10010001", 1_00, now);
+        limiter.charge("10020001", 1_00, now - Duration.ofDays(2).toMillis());
+
+        limiter.evictIdle();
+
+        assertEquals(1, limiter.trackedAccounts());
+    }
+
+    private VelocityLimiter limiter() {
+        return new VelocityLimiter(repository, properties, registry);
+    }
+}